@@ -0,0 +1,66 @@
+package com.keel.smartdrawing.fiori;
+
+import com.keel.smartdrawing.fiori.jvm.JvmContext;
+import com.keel.smartdrawing.fiori.jvm.JvmCordova;
+
+import org.apache.cordova.CallbackContext;
+import org.apache.cordova.CordovaWebView;
+import org.apache.cordova.PluginResult;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * actionNotifier answers of several apps for one equipment, from execute until the answer is broadcast to Smart Drawing
+ * app (no "check equipment view" broadcast is open, so answers go through ActionNotificationBatcher).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ActionNotifierBenchmark {
+
+	@Param({"1", "10", "50"})
+	public int apps;
+
+	private JSONArray[] args;
+	private SmartDrawing plugin;
+	private final AtomicInteger answered = new AtomicInteger();
+
+	@Setup
+	public void setup() throws JSONException {
+		args = new JSONArray[apps];
+		for (int i = 0; i < apps; i++){
+			args[i] = new JSONArray().put(BenchmarkData.appContext("app" + i, "EQ-4711"));
+		}
+		plugin = new JvmCordova(new JvmContext(), JvmCordova.directExecutor()).initialize(new SmartDrawing(), "SmartDrawing", new CordovaWebView() {
+			@Override
+			public void sendPluginResult(PluginResult cr, String callbackId){
+				answered.incrementAndGet();
+			}
+		});
+	}
+
+	@Benchmark
+	public int actionNotifier() throws JSONException {
+		for (int i = 0; i < args.length; i++){
+			plugin.execute(SmartDrawing.ACTION_ON_ACTION_NOTIFIER, args[i], new CallbackContext("actionNotifier", plugin.webView));
+		}
+		return answered.get();
+	}
+}
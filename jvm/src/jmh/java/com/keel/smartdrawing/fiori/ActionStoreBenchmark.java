@@ -0,0 +1,48 @@
+package com.keel.smartdrawing.fiori;
+
+import com.keel.smartdrawing.fiori.jvm.JvmContext;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold start of the receiver: default actions read from {@link ActionStore} into prepared templates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ActionStoreBenchmark {
+
+	@Param({"1", "10", "50"})
+	public int actions;
+
+	private ActionStore store;
+
+	@Setup
+	public void setup() throws Exception {
+		JvmContext context = new JvmContext();
+		SingletonContextContainer container = SingletonContextContainer.getInstance(context);
+		container.saveActions(BenchmarkData.defaultActions(actions));
+		container.flushStore();
+		store = new ActionStore(context);
+	}
+
+	@Benchmark
+	public ActionStore.Contents read(){
+		return store.read();
+	}
+}
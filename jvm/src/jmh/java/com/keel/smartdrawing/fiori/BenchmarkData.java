@@ -0,0 +1,80 @@
+package com.keel.smartdrawing.fiori;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Messages of the sizes Fiori apps send to the plugin, shared by benchmarks.
+ */
+final class BenchmarkData {
+
+	//icon of an action, a small PNG as Fiori apps send it
+	static final String ICON_BASE64;
+
+	static {
+		StringBuilder icon = new StringBuilder("iVBORw0KGgoAAAANSUhEUgAAADAAAAAwCAYAAABXAvmHAAAA");
+		while (icon.length() < 2048){
+			icon.append("AAAAABJRU5ErkJggg");
+		}
+		ICON_BASE64 = icon.toString();
+	}
+
+	private BenchmarkData(){
+	}
+
+	/**
+	 * Returns default actions as registered by subscribeResponsesOnCheckAction
+	 */
+	static JSONArray defaultActions(int count) throws JSONException {
+		JSONArray actions = new JSONArray();
+		for (int i = 0; i < count; i++){
+			JSONObject action = new JSONObject();
+			action.put("appId", "app" + i);
+			action.put("name", "Inspector " + i);
+			action.put("actionLabel", "Perform inspection");
+			action.put("imageBase64", ICON_BASE64);
+			action.put("callbackContext", "Equipment-inspect" + i + "?Equipment=");
+			actions.put(action);
+		}
+		return actions;
+	}
+
+	/**
+	 * Returns showData message with given number of equipment, each with color, status and three properties
+	 */
+	static JSONObject showDataMessage(int equipmentCount) throws JSONException {
+		JSONArray equipments = new JSONArray();
+		for (int i = 0; i < equipmentCount; i++){
+			JSONObject equipment = new JSONObject();
+			equipment.put("equipmentId", "EQ-" + i);
+			equipment.put("color", (i & 1) == 0 ? "#ff0000" : "#00ff00");
+			equipment.put("status", "Inspection \"due\" in " + (i % 30) + " days");
+			JSONArray info = new JSONArray();
+			info.put(new JSONObject().put("name", "Manufacturer").put("value", "Keel Solution ApS"));
+			info.put(new JSONObject().put("name", "Order").put("value", "8202" + i));
+			info.put(new JSONObject().put("name", "Pressure").put("value", 1.5 + i % 7));
+			equipment.put("info", info);
+			equipments.put(equipment);
+		}
+		JSONObject message = new JSONObject();
+		message.put("label", "Inspections");
+		message.put("drawingId", "DRW-1");
+		message.put("equipments", equipments);
+		return message;
+	}
+
+	/**
+	 * Returns application context as sent by actionNotifier
+	 */
+	static JSONObject appContext(String appId, String equipmentId) throws JSONException {
+		JSONObject context = new JSONObject();
+		context.put("equipmentId", equipmentId);
+		context.put("appId", appId);
+		context.put("name", "Inspector");
+		context.put("actionLabel", "Perform inspection");
+		context.put("imageBase64", ICON_BASE64);
+		context.put("callbackContext", "Equipment-inspect?Equipment=" + equipmentId);
+		return context;
+	}
+}
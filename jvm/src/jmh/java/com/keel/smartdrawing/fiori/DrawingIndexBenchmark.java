@@ -0,0 +1,81 @@
+package com.keel.smartdrawing.fiori;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full export loaded into {@link DrawingIndex} and lookup of equipment in the loaded index, 3 drawings per equipment
+ * out of 3,000 drawings. Memory of the loaded index is in "memoryBytes" of {@link DrawingIndex#report()}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DrawingIndexBenchmark {
+
+	private static final int DRAWINGS = 3000;
+
+	@Param({"10000", "150000"})
+	public int equipment;
+
+	private String export;
+
+	private DrawingIndex index;
+
+	private String[] ids;
+
+	private int next;
+
+	@Setup
+	public void setup() throws Exception {
+		StringBuilder text = new StringBuilder("SMDINDEX 1\n");
+		for (int i = 0; i < DRAWINGS; i++){
+			text.append("D\tDRW-").append(i).append("\tDrawing ").append(i).append('\n');
+		}
+		ids = new String[equipment];
+		for (int i = 0; i < equipment; i++){
+			ids[i] = "EQ-" + i;
+			text.append("E\t").append(ids[i]);
+			for (int j = 0; j < 3; j++){
+				text.append("\tDRW-").append((i + j * 1000) % DRAWINGS);
+			}
+			text.append('\n');
+		}
+		export = text.toString();
+
+		index = new DrawingIndex();
+		index.setEnabled(true);
+		index.load(new StringReader(export));
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public JSONObject load() throws Exception {
+		DrawingIndex loaded = new DrawingIndex();
+		loaded.setEnabled(true);
+		return loaded.load(new StringReader(export));
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public JSONArray findEquipment() throws Exception {
+		String id = ids[next];
+		next = next + 1 < ids.length ? next + 1 : 0;
+		return index.findEquipment(id);
+	}
+}
@@ -0,0 +1,73 @@
+package com.keel.smartdrawing.fiori;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of serializing messages for Smart Drawing app. Run with "-prof gc" to see bytes allocated per operation
+ * (gc.alloc.rate.norm): JsonEncoder reuses thread buffer, so it should allocate little more than the resulting string.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonEncoderBenchmark {
+
+	@Param({"10", "100", "1000", "5000"})
+	public int equipment;
+
+	private JSONObject message;
+	private JSONObject appContext;
+
+	@Setup
+	public void setup() throws JSONException {
+		message = BenchmarkData.showDataMessage(equipment);
+		appContext = BenchmarkData.appContext("inspector", "EQ-4711");
+	}
+
+	@Benchmark
+	public String encodeMessage() throws JSONException {
+		return JsonEncoder.encode(message);
+	}
+
+	@Benchmark
+	public String toStringMessage(){
+		return message.toString();
+	}
+
+	/**
+	 * Application context with envelope fields written together with the tree
+	 */
+	@Benchmark
+	public String encodeEnvelope() throws JSONException {
+		return JsonEncoder.encode(appContext,
+				"packageName", "com.keel.fiori.client",
+				"action", SupportedEquipmentsBroadcastReceiver.KEEL_INTENT_CALL_FIORI_ACTION);
+	}
+
+	/**
+	 * Application context copied through its string and changed, as actionNotifier did before JsonEncoder
+	 */
+	@Benchmark
+	public String copyAndPutEnvelope() throws JSONException {
+		JSONObject copy = new JSONObject(appContext.toString());
+		copy.put("packageName", "com.keel.fiori.client");
+		copy.put("action", SupportedEquipmentsBroadcastReceiver.KEEL_INTENT_CALL_FIORI_ACTION);
+		return copy.toString();
+	}
+}
@@ -0,0 +1,79 @@
+package com.keel.smartdrawing.fiori;
+
+import android.app.Activity;
+import android.content.BroadcastReceiver;
+import android.content.Intent;
+
+import com.keel.smartdrawing.fiori.jvm.JvmContext;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * "Check equipment view" broadcast answered by {@link SupportedEquipmentsBroadcastReceiver} with default actions: from
+ * onReceive on the calling thread until the receiver finished the broadcast on {@link ReceiverThread}. The second
+ * benchmark measures only building of the actions from templates prepared by SingletonContextContainer.getActionTemplates().
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReceiverBenchmark {
+
+	@Param({"1", "10", "50"})
+	public int actions;
+
+	private JvmContext context;
+	private SingletonContextContainer container;
+	private Intent intent;
+
+	@Setup
+	public void setup() throws Exception {
+		context = new JvmContext();
+		container = SingletonContextContainer.getInstance(context);
+		container.saveActions(BenchmarkData.defaultActions(actions));
+		intent = new Intent("com.keelsolution.action.CHECK_EQUIPMENT_VIEW");
+		intent.putExtra(SupportedEquipmentsBroadcastReceiver.KEEL_INTENT_ACTION_EXTRA_EQUIPMENT_ID, "EQ-4711");
+	}
+
+	@Benchmark
+	public ArrayList<String> onReceive() throws InterruptedException {
+		final CountDownLatch finished = new CountDownLatch(1);
+		BroadcastReceiver.PendingResult result = new BroadcastReceiver.PendingResult(Activity.RESULT_OK, null, null, true) {
+			@Override
+			protected void onFinished(){
+				finished.countDown();
+			}
+		};
+		SupportedEquipmentsBroadcastReceiver receiver = new SupportedEquipmentsBroadcastReceiver();
+		receiver.setPendingResult(result);
+		receiver.onReceive(context, intent);
+		finished.await();
+		return result.getResultExtras(false).getStringArrayList(SupportedEquipmentsBroadcastReceiver.KEEL_INTENT_ACTION_EXTRA_DATA);
+	}
+
+	@Benchmark
+	public ArrayList<String> actionsForEquipment(){
+		SingletonContextContainer.ActionTemplate[] templates = container.getActionTemplates();
+		ArrayList<String> result = new ArrayList<String>(templates.length);
+		for (int i = 0; i < templates.length; i++){
+			result.add(templates[i].forEquipment("EQ-4711"));
+		}
+		return result;
+	}
+}
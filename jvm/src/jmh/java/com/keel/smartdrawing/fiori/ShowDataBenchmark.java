@@ -0,0 +1,76 @@
+package com.keel.smartdrawing.fiori;
+
+import com.keel.smartdrawing.fiori.jvm.JvmContext;
+import com.keel.smartdrawing.fiori.jvm.JvmCordova;
+
+import org.apache.cordova.CallbackContext;
+import org.apache.cordova.CordovaWebView;
+import org.apache.cordova.PluginResult;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Payload of showData: encoding of the message alone, and the whole command from execute until the callback got
+ * success after the intent was started on main looper (messages are sent inline, the default of configureTransport).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShowDataBenchmark {
+
+	@Param({"10", "100", "1000", "5000"})
+	public int equipment;
+
+	private JSONObject message;
+	private JSONArray args;
+	private SmartDrawing plugin;
+	private volatile CountDownLatch answered;
+
+	@Setup
+	public void setup() throws JSONException {
+		message = BenchmarkData.showDataMessage(equipment);
+		args = new JSONArray().put(message);
+		plugin = new JvmCordova(new JvmContext(), JvmCordova.directExecutor()).initialize(new SmartDrawing(), "SmartDrawing", new CordovaWebView() {
+			@Override
+			public void sendPluginResult(PluginResult cr, String callbackId){
+				answered.countDown();
+			}
+		});
+	}
+
+	@Benchmark
+	public String encode() throws JSONException {
+		return JsonEncoder.encode(message);
+	}
+
+	@Benchmark
+	public String toStringBaseline(){
+		return message.toString();
+	}
+
+	@Benchmark
+	public boolean showData() throws JSONException, InterruptedException {
+		answered = new CountDownLatch(1);
+		boolean accepted = plugin.execute(SmartDrawing.ACTION_SHOW_DATA, args, new CallbackContext("showData", plugin.webView));
+		answered.await();
+		return accepted;
+	}
+}
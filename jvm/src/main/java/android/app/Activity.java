@@ -0,0 +1,84 @@
+package android.app;
+
+import android.content.ContextWrapper;
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+
+/**
+ * Stand-in of Android activity. Instances are created and driven by {@link Instrumentation}; UI work runs on main looper.
+ */
+public class Activity extends ContextWrapper {
+
+	public static final int RESULT_CANCELED = 0;
+	public static final int RESULT_OK = -1;
+	public static final int RESULT_FIRST_USER = 1;
+
+	private Intent intent;
+	private Handler mainHandler;
+	private volatile boolean finishing;
+	private volatile boolean taskInBackground;
+
+	public Activity(){
+		super(null);
+	}
+
+	final void attach(android.content.Context base, Intent intent){
+		attachBaseContext(base);
+		this.intent = intent;
+		this.mainHandler = new Handler(Looper.getMainLooper());
+	}
+
+	protected void onCreate(Bundle savedInstanceState){
+	}
+
+	protected void onNewIntent(Intent intent){
+	}
+
+	protected void onDestroy(){
+	}
+
+	public Intent getIntent(){
+		return intent;
+	}
+
+	public void setIntent(Intent newIntent){
+		intent = newIntent;
+	}
+
+	public void runOnUiThread(Runnable action){
+		if (Looper.getMainLooper().isCurrentThread()) {
+			action.run();
+		} else {
+			mainHandler.post(action);
+		}
+	}
+
+	public void finish(){
+		finishing = true;
+	}
+
+	public boolean isFinishing(){
+		return finishing;
+	}
+
+	public boolean moveTaskToBack(boolean nonRoot){
+		taskInBackground = true;
+		return true;
+	}
+
+	/**
+	 * Returns true when the task was moved to back and no activity was started since
+	 */
+	public boolean isTaskInBackground(){
+		return taskInBackground;
+	}
+
+	void onTaskToFront(){
+		taskInBackground = false;
+	}
+
+	public void overridePendingTransition(int enterAnim, int exitAnim){
+	}
+}
@@ -0,0 +1,38 @@
+package android.app;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Bundle;
+
+/**
+ * Stand-in of Android instrumentation, creates activities and calls their lifecycle methods.
+ */
+public class Instrumentation {
+
+	public Activity newActivity(Class<?> cls, Context context, Intent intent){
+		Activity activity;
+		try {
+			activity = (Activity) cls.newInstance();
+		} catch (InstantiationException e) {
+			throw new IllegalArgumentException("Cannot create activity " + cls.getName(), e);
+		} catch (IllegalAccessException e) {
+			throw new IllegalArgumentException("Cannot create activity " + cls.getName(), e);
+		}
+		activity.attach(context, intent);
+		return activity;
+	}
+
+	public void callActivityOnCreate(Activity activity, Bundle icicle){
+		activity.onTaskToFront();
+		activity.onCreate(icicle);
+	}
+
+	public void callActivityOnNewIntent(Activity activity, Intent intent){
+		activity.onTaskToFront();
+		activity.onNewIntent(intent);
+	}
+
+	public void callActivityOnDestroy(Activity activity){
+		activity.onDestroy();
+	}
+}
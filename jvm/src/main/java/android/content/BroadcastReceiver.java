@@ -0,0 +1,161 @@
+package android.content;
+
+import android.os.Bundle;
+
+/**
+ * Stand-in of Android broadcast receiver. Result of ordered broadcast is carried by {@link PendingResult}, the object
+ * returned by {@link #goAsync()}, same as on Android.
+ */
+public abstract class BroadcastReceiver {
+
+	/**
+	 * State of the broadcast being received. Dispatcher of stand-in context overrides {@link #onFinished()} to continue
+	 * the broadcast with the next receiver.
+	 */
+	public static class PendingResult {
+
+		private final boolean ordered;
+		private int resultCode;
+		private String resultData;
+		private Bundle resultExtras;
+		private boolean abortBroadcast;
+		private boolean finished;
+
+		public PendingResult(int resultCode, String resultData, Bundle resultExtras, boolean ordered){
+			this.resultCode = resultCode;
+			this.resultData = resultData;
+			this.resultExtras = resultExtras;
+			this.ordered = ordered;
+		}
+
+		public final synchronized void setResultCode(int code){
+			resultCode = code;
+		}
+
+		public final synchronized int getResultCode(){
+			return resultCode;
+		}
+
+		public final synchronized void setResultData(String data){
+			resultData = data;
+		}
+
+		public final synchronized String getResultData(){
+			return resultData;
+		}
+
+		public final synchronized void setResultExtras(Bundle extras){
+			resultExtras = extras;
+		}
+
+		public final synchronized Bundle getResultExtras(boolean makeMap){
+			if (resultExtras == null && makeMap) {
+				resultExtras = new Bundle();
+			}
+			return resultExtras;
+		}
+
+		public final synchronized void setResult(int code, String data, Bundle extras){
+			resultCode = code;
+			resultData = data;
+			resultExtras = extras;
+		}
+
+		public final synchronized boolean getAbortBroadcast(){
+			return abortBroadcast;
+		}
+
+		public final synchronized void abortBroadcast(){
+			abortBroadcast = true;
+		}
+
+		public final synchronized void clearAbortBroadcast(){
+			abortBroadcast = false;
+		}
+
+		public final boolean isOrdered(){
+			return ordered;
+		}
+
+		public final void finish(){
+			synchronized (this) {
+				if (finished) {
+					throw new IllegalStateException("Broadcast already finished");
+				}
+				finished = true;
+			}
+			onFinished();
+		}
+
+		public final synchronized boolean isFinished(){
+			return finished;
+		}
+
+		protected void onFinished(){
+		}
+	}
+
+	private PendingResult pendingResult;
+
+	public BroadcastReceiver(){
+	}
+
+	public abstract void onReceive(Context context, Intent intent);
+
+	public final PendingResult goAsync(){
+		PendingResult result = pendingResult;
+		pendingResult = null;
+		return result;
+	}
+
+	public final void setPendingResult(PendingResult result){
+		pendingResult = result;
+	}
+
+	public final PendingResult getPendingResult(){
+		return pendingResult;
+	}
+
+	public final boolean isOrderedBroadcast(){
+		return pendingResult != null && pendingResult.isOrdered();
+	}
+
+	public final void setResultCode(int code){
+		pendingResult().setResultCode(code);
+	}
+
+	public final int getResultCode(){
+		return pendingResult == null ? 0 : pendingResult.getResultCode();
+	}
+
+	public final void setResultData(String data){
+		pendingResult().setResultData(data);
+	}
+
+	public final String getResultData(){
+		return pendingResult == null ? null : pendingResult.getResultData();
+	}
+
+	public final void setResultExtras(Bundle extras){
+		pendingResult().setResultExtras(extras);
+	}
+
+	public final Bundle getResultExtras(boolean makeMap){
+		return pendingResult == null ? null : pendingResult.getResultExtras(makeMap);
+	}
+
+	public final void setResult(int code, String data, Bundle extras){
+		pendingResult().setResult(code, data, extras);
+	}
+
+	public final void abortBroadcast(){
+		pendingResult().abortBroadcast();
+	}
+
+	private PendingResult pendingResult(){
+		if (pendingResult == null) {
+			throw new IllegalStateException("Call while result is not pending");
+		}
+		return pendingResult;
+	}
+}
@@ -0,0 +1,49 @@
+package android.content;
+
+import android.net.Uri;
+
+/**
+ * Stand-in of Android clip data holding one URI item.
+ */
+public class ClipData {
+
+	public static class Item {
+
+		private final Uri uri;
+
+		public Item(Uri uri){
+			this.uri = uri;
+		}
+
+		public Uri getUri(){
+			return uri;
+		}
+	}
+
+	private final CharSequence label;
+	private final Item item;
+
+	public ClipData(CharSequence label, Item item){
+		this.label = label;
+		this.item = item;
+	}
+
+	public static ClipData newRawUri(CharSequence label, Uri uri){
+		return new ClipData(label, new Item(uri));
+	}
+
+	public int getItemCount(){
+		return 1;
+	}
+
+	public Item getItemAt(int index){
+		if (index != 0) {
+			throw new IndexOutOfBoundsException("index " + index);
+		}
+		return item;
+	}
+
+	public CharSequence getLabel(){
+		return label;
+	}
+}
@@ -0,0 +1,49 @@
+package android.content;
+
+/**
+ * Stand-in of Android component name.
+ */
+public final class ComponentName {
+
+	private final String packageName;
+	private final String className;
+
+	public ComponentName(String packageName, String className){
+		if (packageName == null || className == null) {
+			throw new NullPointerException("package name and class name are required");
+		}
+		this.packageName = packageName;
+		this.className = className;
+	}
+
+	public ComponentName(Context context, Class<?> cls){
+		this(context.getPackageName(), cls.getName());
+	}
+
+	public String getPackageName(){
+		return packageName;
+	}
+
+	public String getClassName(){
+		return className;
+	}
+
+	@Override
+	public boolean equals(Object o){
+		if (!(o instanceof ComponentName)) {
+			return false;
+		}
+		ComponentName other = (ComponentName) o;
+		return packageName.equals(other.packageName) && className.equals(other.className);
+	}
+
+	@Override
+	public int hashCode(){
+		return packageName.hashCode() * 31 + className.hashCode();
+	}
+
+	@Override
+	public String toString(){
+		return "ComponentInfo{" + packageName + "/" + className + "}";
+	}
+}
@@ -0,0 +1,52 @@
+package android.content;
+
+import android.content.pm.ProviderInfo;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+
+import java.io.FileNotFoundException;
+
+/**
+ * Stand-in of Android content provider.
+ */
+public abstract class ContentProvider {
+
+	private Context context;
+	private String authority;
+
+	public ContentProvider(){
+	}
+
+	public void attachInfo(Context context, ProviderInfo info){
+		if (this.context == null) {
+			this.context = context;
+			this.authority = info == null ? null : info.authority;
+			onCreate();
+		}
+	}
+
+	public final Context getContext(){
+		return context;
+	}
+
+	public final String getAuthority(){
+		return authority;
+	}
+
+	public abstract boolean onCreate();
+
+	public abstract Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs, String sortOrder);
+
+	public abstract String getType(Uri uri);
+
+	public abstract Uri insert(Uri uri, ContentValues values);
+
+	public abstract int delete(Uri uri, String selection, String[] selectionArgs);
+
+	public abstract int update(Uri uri, ContentValues values, String selection, String[] selectionArgs);
+
+	public ParcelFileDescriptor openFile(Uri uri, String mode) throws FileNotFoundException {
+		throw new FileNotFoundException("No files supported by provider at " + uri);
+	}
+}
@@ -0,0 +1,51 @@
+package android.content;
+
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+
+/**
+ * Stand-in of Android content resolver, opens streams of file and content URIs. Providers are looked up by
+ * {@link #acquireProvider(String)}.
+ */
+public class ContentResolver {
+
+	public static final String SCHEME_CONTENT = "content";
+	public static final String SCHEME_FILE = "file";
+
+	private final Context context;
+
+	public ContentResolver(Context context){
+		this.context = context;
+	}
+
+	protected ContentProvider acquireProvider(String authority){
+		return null;
+	}
+
+	public final InputStream openInputStream(Uri uri) throws FileNotFoundException {
+		if (SCHEME_FILE.equals(uri.getScheme())) {
+			return new FileInputStream(new File(uri.getPath()));
+		}
+		if (SCHEME_CONTENT.equals(uri.getScheme())) {
+			ContentProvider provider = acquireProvider(uri.getAuthority());
+			if (provider == null) {
+				throw new FileNotFoundException("No content provider: " + uri);
+			}
+			ParcelFileDescriptor fd = provider.openFile(uri, "r");
+			if (fd == null) {
+				throw new FileNotFoundException("No file descriptor: " + uri);
+			}
+			return new ParcelFileDescriptor.AutoCloseInputStream(fd);
+		}
+		throw new FileNotFoundException("Unsupported scheme: " + uri);
+	}
+
+	public Context getContext(){
+		return context;
+	}
+}
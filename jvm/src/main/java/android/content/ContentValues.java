@@ -0,0 +1,23 @@
+package android.content;
+
+import java.util.HashMap;
+
+/**
+ * Stand-in of Android content values.
+ */
+public final class ContentValues {
+
+	private final HashMap<String, Object> values = new HashMap<String, Object>();
+
+	public void put(String key, String value){
+		values.put(key, value);
+	}
+
+	public Object get(String key){
+		return values.get(key);
+	}
+
+	public int size(){
+		return values.size();
+	}
+}
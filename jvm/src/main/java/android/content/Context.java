@@ -0,0 +1,50 @@
+package android.content;
+
+import android.content.pm.PackageManager;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.io.File;
+
+/**
+ * Stand-in of Android context, the part of its interface used by the plugin.
+ */
+public abstract class Context {
+
+	public static final int MODE_PRIVATE = 0;
+	public static final int RECEIVER_EXPORTED = 0x2;
+	public static final int RECEIVER_NOT_EXPORTED = 0x4;
+
+	public abstract String getPackageName();
+
+	public abstract Context getApplicationContext();
+
+	public abstract Looper getMainLooper();
+
+	public abstract File getFilesDir();
+
+	public abstract File getCacheDir();
+
+	public abstract SharedPreferences getSharedPreferences(String name, int mode);
+
+	public abstract PackageManager getPackageManager();
+
+	public abstract ContentResolver getContentResolver();
+
+	public abstract void startActivity(Intent intent);
+
+	public abstract void sendBroadcast(Intent intent);
+
+	public abstract void sendBroadcast(Intent intent, String receiverPermission);
+
+	public abstract void sendOrderedBroadcast(Intent intent, String receiverPermission, BroadcastReceiver resultReceiver,
+			Handler scheduler, int initialCode, String initialData, Bundle initialExtras);
+
+	public abstract Intent registerReceiver(BroadcastReceiver receiver, IntentFilter filter);
+
+	public abstract Intent registerReceiver(BroadcastReceiver receiver, IntentFilter filter, String broadcastPermission,
+			Handler scheduler);
+
+	public abstract void unregisterReceiver(BroadcastReceiver receiver);
+}
@@ -0,0 +1,107 @@
+package android.content;
+
+import android.content.pm.PackageManager;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.io.File;
+
+/**
+ * Stand-in of Android context wrapper, delegates everything to base context.
+ */
+public class ContextWrapper extends Context {
+
+	private Context base;
+
+	public ContextWrapper(Context base){
+		this.base = base;
+	}
+
+	protected void attachBaseContext(Context base){
+		if (this.base != null) {
+			throw new IllegalStateException("Base context already set");
+		}
+		this.base = base;
+	}
+
+	public Context getBaseContext(){
+		return base;
+	}
+
+	@Override
+	public String getPackageName(){
+		return base.getPackageName();
+	}
+
+	@Override
+	public Context getApplicationContext(){
+		return base.getApplicationContext();
+	}
+
+	@Override
+	public Looper getMainLooper(){
+		return base.getMainLooper();
+	}
+
+	@Override
+	public File getFilesDir(){
+		return base.getFilesDir();
+	}
+
+	@Override
+	public File getCacheDir(){
+		return base.getCacheDir();
+	}
+
+	@Override
+	public SharedPreferences getSharedPreferences(String name, int mode){
+		return base.getSharedPreferences(name, mode);
+	}
+
+	@Override
+	public PackageManager getPackageManager(){
+		return base.getPackageManager();
+	}
+
+	@Override
+	public ContentResolver getContentResolver(){
+		return base.getContentResolver();
+	}
+
+	@Override
+	public void startActivity(Intent intent){
+		base.startActivity(intent);
+	}
+
+	@Override
+	public void sendBroadcast(Intent intent){
+		base.sendBroadcast(intent);
+	}
+
+	@Override
+	public void sendBroadcast(Intent intent, String receiverPermission){
+		base.sendBroadcast(intent, receiverPermission);
+	}
+
+	@Override
+	public void sendOrderedBroadcast(Intent intent, String receiverPermission, BroadcastReceiver resultReceiver,
+			Handler scheduler, int initialCode, String initialData, Bundle initialExtras){
+		base.sendOrderedBroadcast(intent, receiverPermission, resultReceiver, scheduler, initialCode, initialData, initialExtras);
+	}
+
+	@Override
+	public Intent registerReceiver(BroadcastReceiver receiver, IntentFilter filter){
+		return base.registerReceiver(receiver, filter);
+	}
+
+	@Override
+	public Intent registerReceiver(BroadcastReceiver receiver, IntentFilter filter, String broadcastPermission, Handler scheduler){
+		return base.registerReceiver(receiver, filter, broadcastPermission, scheduler);
+	}
+
+	@Override
+	public void unregisterReceiver(BroadcastReceiver receiver){
+		base.unregisterReceiver(receiver);
+	}
+}
@@ -0,0 +1,271 @@
+package android.content;
+
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.Parcelable;
+
+import java.util.ArrayList;
+
+/**
+ * Stand-in of Android intent with action, target package or component, flags, data, clip data and extras.
+ */
+public class Intent implements Parcelable, Cloneable {
+
+	public static final int FLAG_GRANT_READ_URI_PERMISSION = 0x00000001;
+	public static final int FLAG_RECEIVER_FOREGROUND = 0x10000000;
+	public static final int FLAG_ACTIVITY_NO_ANIMATION = 0x00010000;
+	public static final int FLAG_ACTIVITY_REORDER_TO_FRONT = 0x00020000;
+	public static final int FLAG_ACTIVITY_CLEAR_TOP = 0x04000000;
+	public static final int FLAG_ACTIVITY_NEW_TASK = 0x10000000;
+	public static final int FLAG_ACTIVITY_SINGLE_TOP = 0x20000000;
+
+	public static final String ACTION_MAIN = "android.intent.action.MAIN";
+	public static final String ACTION_VIEW = "android.intent.action.VIEW";
+
+	private String action;
+	private Uri data;
+	private String packageName;
+	private ComponentName component;
+	private int flags;
+	private Bundle extras;
+	private ClipData clipData;
+
+	public Intent(){
+	}
+
+	public Intent(String action){
+		this.action = action;
+	}
+
+	public Intent(String action, Uri data){
+		this.action = action;
+		this.data = data;
+	}
+
+	public Intent(Context packageContext, Class<?> cls){
+		this.component = new ComponentName(packageContext, cls);
+	}
+
+	public Intent(Intent o){
+		this.action = o.action;
+		this.data = o.data;
+		this.packageName = o.packageName;
+		this.component = o.component;
+		this.flags = o.flags;
+		this.extras = o.extras == null ? null : new Bundle(o.extras);
+		this.clipData = o.clipData;
+	}
+
+	@Override
+	public Object clone(){
+		return new Intent(this);
+	}
+
+	public String getAction(){
+		return action;
+	}
+
+	public Intent setAction(String action){
+		this.action = action;
+		return this;
+	}
+
+	public Uri getData(){
+		return data;
+	}
+
+	public Intent setData(Uri data){
+		this.data = data;
+		return this;
+	}
+
+	public String getPackage(){
+		return packageName;
+	}
+
+	public Intent setPackage(String packageName){
+		this.packageName = packageName;
+		return this;
+	}
+
+	public ComponentName getComponent(){
+		return component;
+	}
+
+	public Intent setComponent(ComponentName component){
+		this.component = component;
+		return this;
+	}
+
+	public Intent setClassName(String packageName, String className){
+		this.component = new ComponentName(packageName, className);
+		return this;
+	}
+
+	public Intent setClass(Context packageContext, Class<?> cls){
+		this.component = new ComponentName(packageContext, cls);
+		return this;
+	}
+
+	public int getFlags(){
+		return flags;
+	}
+
+	public Intent setFlags(int flags){
+		this.flags = flags;
+		return this;
+	}
+
+	public Intent addFlags(int flags){
+		this.flags |= flags;
+		return this;
+	}
+
+	public ClipData getClipData(){
+		return clipData;
+	}
+
+	public void setClipData(ClipData clip){
+		this.clipData = clip;
+	}
+
+	/**
+	 * Returns copy of extras, null when there are none
+	 */
+	public Bundle getExtras(){
+		return extras == null ? null : new Bundle(extras);
+	}
+
+	public boolean hasExtra(String name){
+		return extras != null && extras.containsKey(name);
+	}
+
+	public Intent putExtras(Bundle bundle){
+		extras().putAll(bundle);
+		return this;
+	}
+
+	public Intent replaceExtras(Bundle bundle){
+		extras = bundle == null ? null : new Bundle(bundle);
+		return this;
+	}
+
+	public void removeExtra(String name){
+		if (extras != null) {
+			extras.remove(name);
+		}
+	}
+
+	public Intent putExtra(String name, String value){
+		extras().putString(name, value);
+		return this;
+	}
+
+	public Intent putExtra(String name, int value){
+		extras().putInt(name, value);
+		return this;
+	}
+
+	public Intent putExtra(String name, long value){
+		extras().putLong(name, value);
+		return this;
+	}
+
+	public Intent putExtra(String name, boolean value){
+		extras().putBoolean(name, value);
+		return this;
+	}
+
+	public Intent putExtra(String name, double value){
+		extras().putDouble(name, value);
+		return this;
+	}
+
+	public Intent putExtra(String name, byte[] value){
+		extras().putByteArray(name, value);
+		return this;
+	}
+
+	public Intent putExtra(String name, String[] value){
+		extras().putStringArray(name, value);
+		return this;
+	}
+
+	public Intent putExtra(String name, Bundle value){
+		extras().putBundle(name, value);
+		return this;
+	}
+
+	public Intent putExtra(String name, Parcelable value){
+		extras().putParcelable(name, value);
+		return this;
+	}
+
+	public Intent putStringArrayListExtra(String name, ArrayList<String> value){
+		extras().putStringArrayList(name, value);
+		return this;
+	}
+
+	public String getStringExtra(String name){
+		return extras == null ? null : extras.getString(name);
+	}
+
+	public int getIntExtra(String name, int defaultValue){
+		return extras == null ? defaultValue : extras.getInt(name, defaultValue);
+	}
+
+	public long getLongExtra(String name, long defaultValue){
+		return extras == null ? defaultValue : extras.getLong(name, defaultValue);
+	}
+
+	public boolean getBooleanExtra(String name, boolean defaultValue){
+		return extras == null ? defaultValue : extras.getBoolean(name, defaultValue);
+	}
+
+	public byte[] getByteArrayExtra(String name){
+		return extras == null ? null : extras.getByteArray(name);
+	}
+
+	public String[] getStringArrayExtra(String name){
+		return extras == null ? null : extras.getStringArray(name);
+	}
+
+	public ArrayList<String> getStringArrayListExtra(String name){
+		return extras == null ? null : extras.getStringArrayList(name);
+	}
+
+	public Bundle getBundleExtra(String name){
+		return extras == null ? null : extras.getBundle(name);
+	}
+
+	private Bundle extras(){
+		if (extras == null) {
+			extras = new Bundle();
+		}
+		return extras;
+	}
+
+	@Override
+	public String toString(){
+		StringBuilder sb = new StringBuilder("Intent { ");
+		if (action != null) {
+			sb.append("act=").append(action).append(' ');
+		}
+		if (data != null) {
+			sb.append("dat=").append(data).append(' ');
+		}
+		if (flags != 0) {
+			sb.append("flg=0x").append(Integer.toHexString(flags)).append(' ');
+		}
+		if (packageName != null) {
+			sb.append("pkg=").append(packageName).append(' ');
+		}
+		if (component != null) {
+			sb.append("cmp=").append(component.getPackageName()).append('/').append(component.getClassName()).append(' ');
+		}
+		if (extras != null) {
+			sb.append("(has extras) ");
+		}
+		return sb.append('}').toString();
+	}
+}
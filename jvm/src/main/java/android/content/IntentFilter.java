@@ -0,0 +1,50 @@
+package android.content;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stand-in of Android intent filter, matches actions only.
+ */
+public class IntentFilter {
+
+	private final List<String> actions = new ArrayList<String>();
+
+	public IntentFilter(){
+	}
+
+	public IntentFilter(String action){
+		addAction(action);
+	}
+
+	public IntentFilter(IntentFilter filter){
+		actions.addAll(filter.actions);
+	}
+
+	public final void addAction(String action){
+		if (!actions.contains(action)) {
+			actions.add(action);
+		}
+	}
+
+	public final int countActions(){
+		return actions.size();
+	}
+
+	public final String getAction(int index){
+		return actions.get(index);
+	}
+
+	public final boolean hasAction(String action){
+		return action != null && actions.contains(action);
+	}
+
+	public final boolean matchAction(String action){
+		return hasAction(action);
+	}
+
+	@Override
+	public String toString(){
+		return "IntentFilter" + actions;
+	}
+}
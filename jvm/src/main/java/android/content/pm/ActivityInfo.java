@@ -0,0 +1,12 @@
+package android.content.pm;
+
+/**
+ * Stand-in of Android component info of an activity or receiver.
+ */
+public class ActivityInfo {
+
+	public String packageName;
+	public String name;
+	public String permission;
+	public boolean exported;
+}
@@ -0,0 +1,18 @@
+package android.content.pm;
+
+import android.content.Intent;
+
+import java.util.List;
+
+/**
+ * Stand-in of Android package manager, resolves components declared by installed packages.
+ */
+public abstract class PackageManager {
+
+	public static final int MATCH_DEFAULT_ONLY = 0x00010000;
+	public static final int GET_META_DATA = 0x00000080;
+
+	public abstract List<ResolveInfo> queryBroadcastReceivers(Intent intent, int flags);
+
+	public abstract List<ResolveInfo> queryIntentActivities(Intent intent, int flags);
+}
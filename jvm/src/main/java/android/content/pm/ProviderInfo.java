@@ -0,0 +1,13 @@
+package android.content.pm;
+
+/**
+ * Stand-in of Android component info of a content provider.
+ */
+public class ProviderInfo {
+
+	public String packageName;
+	public String name;
+	public String authority;
+	public boolean exported;
+	public boolean grantUriPermissions;
+}
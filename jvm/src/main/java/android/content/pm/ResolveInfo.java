@@ -0,0 +1,14 @@
+package android.content.pm;
+
+/**
+ * Stand-in of Android resolve info, component matching an intent.
+ */
+public class ResolveInfo {
+
+	public ActivityInfo activityInfo;
+
+	@Override
+	public String toString(){
+		return "ResolveInfo{" + (activityInfo == null ? null : activityInfo.packageName + "/" + activityInfo.name) + "}";
+	}
+}
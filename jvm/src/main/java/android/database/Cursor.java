@@ -0,0 +1,14 @@
+package android.database;
+
+import java.io.Closeable;
+
+/**
+ * Stand-in of Android cursor.
+ */
+public interface Cursor extends Closeable {
+
+	int getCount();
+
+	@Override
+	void close();
+}
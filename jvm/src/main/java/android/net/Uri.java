@@ -0,0 +1,140 @@
+package android.net;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Stand-in of Android URI, a parsed "scheme://authority/path?query#fragment" string.
+ */
+public abstract class Uri implements Comparable<Uri> {
+
+	public static final Uri EMPTY = parse("");
+
+	Uri(){
+	}
+
+	public static Uri parse(String uriString){
+		if (uriString == null) {
+			throw new NullPointerException("uriString");
+		}
+		return new StringUri(uriString);
+	}
+
+	public static Uri fromParts(String scheme, String ssp, String fragment){
+		return parse(scheme + ":" + ssp + (fragment == null ? "" : "#" + fragment));
+	}
+
+	public abstract String getScheme();
+
+	public abstract String getAuthority();
+
+	public abstract String getPath();
+
+	public abstract String getQuery();
+
+	public abstract String getFragment();
+
+	public abstract List<String> getPathSegments();
+
+	public String getLastPathSegment(){
+		List<String> segments = getPathSegments();
+		return segments.isEmpty() ? null : segments.get(segments.size() - 1);
+	}
+
+	@Override
+	public abstract String toString();
+
+	@Override
+	public boolean equals(Object o){
+		return o instanceof Uri && toString().equals(o.toString());
+	}
+
+	@Override
+	public int hashCode(){
+		return toString().hashCode();
+	}
+
+	@Override
+	public int compareTo(Uri other){
+		return toString().compareTo(other.toString());
+	}
+
+	private static final class StringUri extends Uri {
+
+		private final String uriString;
+		private final String scheme;
+		private final String authority;
+		private final String path;
+		private final String query;
+		private final String fragment;
+
+		StringUri(String uriString){
+			this.uriString = uriString;
+			String rest = uriString;
+			int hash = rest.indexOf('#');
+			fragment = hash < 0 ? null : rest.substring(hash + 1);
+			rest = hash < 0 ? rest : rest.substring(0, hash);
+			int colon = rest.indexOf(':');
+			int slash = rest.indexOf('/');
+			if (colon > 0 && (slash < 0 || colon < slash)) {
+				scheme = rest.substring(0, colon);
+				rest = rest.substring(colon + 1);
+			} else {
+				scheme = null;
+			}
+			int question = rest.indexOf('?');
+			query = question < 0 ? null : rest.substring(question + 1);
+			rest = question < 0 ? rest : rest.substring(0, question);
+			if (rest.startsWith("//")) {
+				int end = rest.indexOf('/', 2);
+				authority = end < 0 ? rest.substring(2) : rest.substring(2, end);
+				rest = end < 0 ? "" : rest.substring(end);
+			} else {
+				authority = null;
+			}
+			path = rest;
+		}
+
+		@Override
+		public String getScheme(){
+			return scheme;
+		}
+
+		@Override
+		public String getAuthority(){
+			return authority;
+		}
+
+		@Override
+		public String getPath(){
+			return path;
+		}
+
+		@Override
+		public String getQuery(){
+			return query;
+		}
+
+		@Override
+		public String getFragment(){
+			return fragment;
+		}
+
+		@Override
+		public List<String> getPathSegments(){
+			List<String> segments = new ArrayList<String>();
+			for (String segment : path.split("/")) {
+				if (segment.length() > 0) {
+					segments.add(segment);
+				}
+			}
+			return Collections.unmodifiableList(segments);
+		}
+
+		@Override
+		public String toString(){
+			return uriString;
+		}
+	}
+}
@@ -0,0 +1,178 @@
+package android.os;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Stand-in of Android bundle, a typed map. Getters answer default value when the key is missing or has other type.
+ */
+public final class Bundle implements Parcelable, Cloneable {
+
+	private final LinkedHashMap<String, Object> map;
+
+	public Bundle(){
+		map = new LinkedHashMap<String, Object>();
+	}
+
+	public Bundle(Bundle bundle){
+		map = new LinkedHashMap<String, Object>(bundle.map);
+	}
+
+	@Override
+	public Object clone(){
+		return new Bundle(this);
+	}
+
+	public int size(){
+		return map.size();
+	}
+
+	public boolean isEmpty(){
+		return map.isEmpty();
+	}
+
+	public void clear(){
+		map.clear();
+	}
+
+	public boolean containsKey(String key){
+		return map.containsKey(key);
+	}
+
+	public Object get(String key){
+		return map.get(key);
+	}
+
+	public void remove(String key){
+		map.remove(key);
+	}
+
+	public void putAll(Bundle bundle){
+		map.putAll(bundle.map);
+	}
+
+	public Set<String> keySet(){
+		return map.keySet();
+	}
+
+	public void putString(String key, String value){
+		map.put(key, value);
+	}
+
+	public void putInt(String key, int value){
+		map.put(key, value);
+	}
+
+	public void putLong(String key, long value){
+		map.put(key, value);
+	}
+
+	public void putBoolean(String key, boolean value){
+		map.put(key, value);
+	}
+
+	public void putDouble(String key, double value){
+		map.put(key, value);
+	}
+
+	public void putByteArray(String key, byte[] value){
+		map.put(key, value);
+	}
+
+	public void putStringArray(String key, String[] value){
+		map.put(key, value);
+	}
+
+	public void putStringArrayList(String key, ArrayList<String> value){
+		map.put(key, value);
+	}
+
+	public void putBundle(String key, Bundle value){
+		map.put(key, value);
+	}
+
+	public void putParcelable(String key, Parcelable value){
+		map.put(key, value);
+	}
+
+	public String getString(String key){
+		return get(key, String.class, null);
+	}
+
+	public String getString(String key, String defaultValue){
+		String value = getString(key);
+		return value == null ? defaultValue : value;
+	}
+
+	public int getInt(String key){
+		return getInt(key, 0);
+	}
+
+	public int getInt(String key, int defaultValue){
+		return get(key, Integer.class, defaultValue);
+	}
+
+	public long getLong(String key){
+		return getLong(key, 0L);
+	}
+
+	public long getLong(String key, long defaultValue){
+		return get(key, Long.class, defaultValue);
+	}
+
+	public boolean getBoolean(String key){
+		return getBoolean(key, false);
+	}
+
+	public boolean getBoolean(String key, boolean defaultValue){
+		return get(key, Boolean.class, defaultValue);
+	}
+
+	public double getDouble(String key, double defaultValue){
+		return get(key, Double.class, defaultValue);
+	}
+
+	public byte[] getByteArray(String key){
+		return get(key, byte[].class, null);
+	}
+
+	public String[] getStringArray(String key){
+		return get(key, String[].class, null);
+	}
+
+	@SuppressWarnings("unchecked")
+	public ArrayList<String> getStringArrayList(String key){
+		return get(key, ArrayList.class, null);
+	}
+
+	public Bundle getBundle(String key){
+		return get(key, Bundle.class, null);
+	}
+
+	@SuppressWarnings("unchecked")
+	public <T extends Parcelable> T getParcelable(String key){
+		Object value = map.get(key);
+		return value instanceof Parcelable ? (T) value : null;
+	}
+
+	private <T> T get(String key, Class<T> type, T defaultValue){
+		Object value = map.get(key);
+		return type.isInstance(value) ? type.cast(value) : defaultValue;
+	}
+
+	@Override
+	public String toString(){
+		StringBuilder sb = new StringBuilder("Bundle[{");
+		boolean first = true;
+		for (Map.Entry<String, Object> entry : map.entrySet()) {
+			if (!first) {
+				sb.append(", ");
+			}
+			first = false;
+			sb.append(entry.getKey()).append('=').append(entry.getValue());
+		}
+		return sb.append("}]").toString();
+	}
+}
@@ -0,0 +1,63 @@
+package android.os;
+
+/**
+ * Stand-in of Android handler posting runnables to {@link Looper} queue.
+ */
+public class Handler {
+
+	private final Looper looper;
+
+	public Handler(){
+		this(Looper.myLooper());
+	}
+
+	public Handler(Looper looper){
+		if (looper == null) {
+			throw new RuntimeException("Can't create handler inside thread " + Thread.currentThread() + " that has not called Looper.prepare()");
+		}
+		this.looper = looper;
+	}
+
+	public final Looper getLooper(){
+		return looper;
+	}
+
+	public final boolean post(Runnable r){
+		return postAtTime(r, null, SystemClock.uptimeMillis());
+	}
+
+	public final boolean postDelayed(Runnable r, long delayMillis){
+		return postAtTime(r, null, SystemClock.uptimeMillis() + Math.max(0, delayMillis));
+	}
+
+	public final boolean postAtTime(Runnable r, long uptimeMillis){
+		return postAtTime(r, null, uptimeMillis);
+	}
+
+	public final boolean postAtTime(Runnable r, Object token, long uptimeMillis){
+		if (r == null) {
+			throw new NullPointerException("runnable");
+		}
+		return looper.queue.enqueue(this, r, token, uptimeMillis);
+	}
+
+	public final void removeCallbacks(Runnable r){
+		if (r != null) {
+			looper.queue.remove(this, r, null);
+		}
+	}
+
+	public final void removeCallbacks(Runnable r, Object token){
+		if (r != null) {
+			looper.queue.remove(this, r, token);
+		}
+	}
+
+	public final void removeCallbacksAndMessages(Object token){
+		looper.queue.remove(this, null, token);
+	}
+
+	public final boolean hasCallbacks(Runnable r){
+		return looper.queue.has(this, r);
+	}
+}
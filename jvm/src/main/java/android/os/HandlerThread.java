@@ -0,0 +1,70 @@
+package android.os;
+
+/**
+ * Stand-in of Android handler thread. The thread is daemon, so threads of the plugin do not keep test JVM running.
+ */
+public class HandlerThread extends Thread {
+
+	private final int priority;
+	private Looper looper;
+
+	public HandlerThread(String name){
+		this(name, Process.THREAD_PRIORITY_DEFAULT);
+	}
+
+	public HandlerThread(String name, int priority){
+		super(name);
+		this.priority = priority;
+		setDaemon(true);
+	}
+
+	protected void onLooperPrepared(){
+	}
+
+	@Override
+	public void run(){
+		Process.setThreadPriority(priority);
+		Looper.prepare();
+		synchronized (this) {
+			looper = Looper.myLooper();
+			notifyAll();
+		}
+		onLooperPrepared();
+		Looper.loop();
+	}
+
+	public Looper getLooper(){
+		if (!isAlive()) {
+			return null;
+		}
+		synchronized (this) {
+			while (isAlive() && looper == null) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return null;
+				}
+			}
+		}
+		return looper;
+	}
+
+	public boolean quit(){
+		Looper l = getLooper();
+		if (l != null) {
+			l.quit();
+			return true;
+		}
+		return false;
+	}
+
+	public boolean quitSafely(){
+		Looper l = getLooper();
+		if (l != null) {
+			l.quitSafely();
+			return true;
+		}
+		return false;
+	}
+}
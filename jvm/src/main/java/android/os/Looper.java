@@ -0,0 +1,100 @@
+package android.os;
+
+import android.util.Log;
+
+/**
+ * Stand-in of Android looper. Main looper runs on daemon thread "main" started on first request, as JVM has no UI thread.
+ */
+public final class Looper {
+
+	private static final String TAG = "Looper";
+
+	private static final ThreadLocal<Looper> LOOPERS = new ThreadLocal<Looper>();
+	private static Looper mainLooper;
+
+	final MessageQueue queue = new MessageQueue();
+	private final Thread thread;
+
+	private Looper(){
+		thread = Thread.currentThread();
+	}
+
+	public static void prepare(){
+		if (LOOPERS.get() != null) {
+			throw new RuntimeException("Only one Looper may be created per thread");
+		}
+		LOOPERS.set(new Looper());
+	}
+
+	public static void prepareMainLooper(){
+		prepare();
+		synchronized (Looper.class) {
+			if (mainLooper != null) {
+				throw new IllegalStateException("The main Looper has already been prepared.");
+			}
+			mainLooper = myLooper();
+			Looper.class.notifyAll();
+		}
+	}
+
+	public static Looper getMainLooper(){
+		synchronized (Looper.class) {
+			if (mainLooper == null) {
+				Thread main = new Thread(new Runnable() {
+					@Override
+					public void run(){
+						prepareMainLooper();
+						loop();
+					}
+				}, "main");
+				main.setDaemon(true);
+				main.start();
+				while (mainLooper == null) {
+					try {
+						Looper.class.wait();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new IllegalStateException(e);
+					}
+				}
+			}
+			return mainLooper;
+		}
+	}
+
+	public static Looper myLooper(){
+		return LOOPERS.get();
+	}
+
+	public static void loop(){
+		Looper me = myLooper();
+		if (me == null) {
+			throw new RuntimeException("No Looper; Looper.prepare() wasn't called on this thread.");
+		}
+		MessageQueue.Message message;
+		while ((message = me.queue.next()) != null) {
+			try {
+				message.callback.run();
+			} catch (RuntimeException e) {
+				//Android would crash the process, tests would rather see the failure and keep the looper going
+				Log.e(TAG, "Uncaught exception on " + me.thread.getName(), e);
+			}
+		}
+	}
+
+	public Thread getThread(){
+		return thread;
+	}
+
+	public boolean isCurrentThread(){
+		return Thread.currentThread() == thread;
+	}
+
+	public void quit(){
+		queue.quit(false);
+	}
+
+	public void quitSafely(){
+		queue.quit(true);
+	}
+}
@@ -0,0 +1,128 @@
+package android.os;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Stand-in of Android message queue. Messages are ordered by their uptime and by order of posting for the same uptime,
+ * as on Android.
+ */
+public final class MessageQueue {
+
+	static final class Message implements Comparable<Message> {
+		final Handler target;
+		final Runnable callback;
+		final Object token;
+		final long when;
+		final long sequence;
+
+		Message(Handler target, Runnable callback, Object token, long when, long sequence){
+			this.target = target;
+			this.callback = callback;
+			this.token = token;
+			this.when = when;
+			this.sequence = sequence;
+		}
+
+		@Override
+		public int compareTo(Message other){
+			if (when != other.when) {
+				return when < other.when ? -1 : 1;
+			}
+			return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+		}
+	}
+
+	private final PriorityQueue<Message> messages = new PriorityQueue<Message>();
+	private long sequence;
+	private boolean quitting;
+	private boolean quitSafely;
+
+	MessageQueue(){
+	}
+
+	synchronized boolean enqueue(Handler target, Runnable callback, Object token, long when){
+		if (quitting) {
+			return false;
+		}
+		messages.add(new Message(target, callback, token, when, sequence++));
+		notifyAll();
+		return true;
+	}
+
+	synchronized void remove(Handler target, Runnable callback, Object token){
+		Iterator<Message> it = messages.iterator();
+		while (it.hasNext()) {
+			Message message = it.next();
+			if (message.target == target && (callback == null || message.callback == callback)
+					&& (token == null || message.token == token)) {
+				it.remove();
+			}
+		}
+	}
+
+	synchronized boolean has(Handler target, Runnable callback){
+		for (Message message : messages) {
+			if (message.target == target && (callback == null || message.callback == callback)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	synchronized void quit(boolean safe){
+		quitting = true;
+		quitSafely = safe;
+		if (!safe) {
+			messages.clear();
+		} else {
+			//pending messages due now are still delivered
+			long now = SystemClock.uptimeMillis();
+			List<Message> due = new ArrayList<Message>();
+			for (Message message : messages) {
+				if (message.when <= now) {
+					due.add(message);
+				}
+			}
+			messages.clear();
+			messages.addAll(due);
+		}
+		notifyAll();
+	}
+
+	/**
+	 * Returns next message when due, null when looper quits
+	 */
+	synchronized Message next(){
+		while (true) {
+			Message head = messages.peek();
+			if (head == null) {
+				if (quitting) {
+					return null;
+				}
+				waitFor(0);
+				continue;
+			}
+			long delay = head.when - SystemClock.uptimeMillis();
+			if (delay <= 0) {
+				return messages.poll();
+			}
+			if (quitting && quitSafely) {
+				return null;
+			}
+			waitFor(delay);
+		}
+	}
+
+	private void waitFor(long ms){
+		try {
+			wait(ms);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			quitting = true;
+			messages.clear();
+		}
+	}
+}
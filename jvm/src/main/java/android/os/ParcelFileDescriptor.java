@@ -0,0 +1,96 @@
+package android.os;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
+
+/**
+ * Stand-in of Android file descriptor. Only pipes are supported; the auto close streams extend plain streams instead of
+ * file streams, which plugin code never relies on.
+ */
+public class ParcelFileDescriptor implements Closeable {
+
+	private final Pipe.SourceChannel source;
+	private final Pipe.SinkChannel sink;
+
+	private ParcelFileDescriptor(Pipe.SourceChannel source, Pipe.SinkChannel sink){
+		this.source = source;
+		this.sink = sink;
+	}
+
+	public static ParcelFileDescriptor[] createPipe() throws IOException {
+		Pipe pipe = Pipe.open();
+		return new ParcelFileDescriptor[]{new ParcelFileDescriptor(pipe.source(), null), new ParcelFileDescriptor(null, pipe.sink())};
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (source != null) {
+			source.close();
+		}
+		if (sink != null) {
+			sink.close();
+		}
+	}
+
+	public static class AutoCloseInputStream extends InputStream {
+
+		private final ParcelFileDescriptor fd;
+		private final InputStream in;
+
+		public AutoCloseInputStream(ParcelFileDescriptor fd){
+			if (fd.source == null) {
+				throw new IllegalArgumentException("not a read end");
+			}
+			this.fd = fd;
+			this.in = Channels.newInputStream(fd.source);
+		}
+
+		@Override
+		public int read() throws IOException {
+			return in.read();
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			return in.read(b, off, len);
+		}
+
+		@Override
+		public void close() throws IOException {
+			fd.close();
+		}
+	}
+
+	public static class AutoCloseOutputStream extends OutputStream {
+
+		private final ParcelFileDescriptor fd;
+		private final OutputStream out;
+
+		public AutoCloseOutputStream(ParcelFileDescriptor fd){
+			if (fd.sink == null) {
+				throw new IllegalArgumentException("not a write end");
+			}
+			this.fd = fd;
+			this.out = Channels.newOutputStream(fd.sink);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+		}
+
+		@Override
+		public void close() throws IOException {
+			fd.close();
+		}
+	}
+}
@@ -0,0 +1,7 @@
+package android.os;
+
+/**
+ * Stand-in marker interface, objects are passed between "processes" by reference on JVM.
+ */
+public interface Parcelable {
+}
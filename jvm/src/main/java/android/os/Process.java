@@ -0,0 +1,20 @@
+package android.os;
+
+/**
+ * Stand-in of Android process tools, thread priorities are accepted and ignored.
+ */
+public class Process {
+
+	public static final int THREAD_PRIORITY_DEFAULT = 0;
+	public static final int THREAD_PRIORITY_LOWEST = 19;
+	public static final int THREAD_PRIORITY_BACKGROUND = 10;
+	public static final int THREAD_PRIORITY_FOREGROUND = -2;
+	public static final int THREAD_PRIORITY_DISPLAY = -4;
+
+	public static int myPid(){
+		return 1;
+	}
+
+	public static void setThreadPriority(int priority){
+	}
+}
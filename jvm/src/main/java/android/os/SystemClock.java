@@ -0,0 +1,33 @@
+package android.os;
+
+/**
+ * Stand-in of Android clock. Both clocks run from {@link System#nanoTime()}, shifted so that the "device" has been up for
+ * an hour when the JVM starts - plugin code treats zero timestamps as "never".
+ */
+public final class SystemClock {
+
+	private static final long BOOT = System.nanoTime() - 3600L * 1000000000L;
+
+	private SystemClock(){
+	}
+
+	public static long uptimeMillis(){
+		return (System.nanoTime() - BOOT) / 1000000L;
+	}
+
+	public static long elapsedRealtime(){
+		return uptimeMillis();
+	}
+
+	public static long elapsedRealtimeNanos(){
+		return System.nanoTime() - BOOT;
+	}
+
+	public static void sleep(long ms){
+		try {
+			Thread.sleep(ms);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,10 @@
+package android.provider;
+
+/**
+ * Stand-in of Android settings provider.
+ */
+public final class Settings {
+
+	private Settings(){
+	}
+}
@@ -0,0 +1,29 @@
+package android.text;
+
+/**
+ * Stand-in of Android text utilities.
+ */
+public class TextUtils {
+
+	public static boolean isEmpty(CharSequence str){
+		return str == null || str.length() == 0;
+	}
+
+	public static boolean equals(CharSequence a, CharSequence b){
+		if (a == b) {
+			return true;
+		}
+		return a != null && b != null && a.toString().equals(b.toString());
+	}
+
+	public static String join(CharSequence delimiter, Iterable<?> tokens){
+		StringBuilder sb = new StringBuilder();
+		for (Object token : tokens) {
+			if (sb.length() > 0) {
+				sb.append(delimiter);
+			}
+			sb.append(token);
+		}
+		return sb.toString();
+	}
+}
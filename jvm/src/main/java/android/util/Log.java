@@ -0,0 +1,76 @@
+package android.util;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+/**
+ * Stand-in of Android log. Messages from level set by system property "android.log.level" (default WARN) go to standard
+ * error output.
+ */
+public final class Log {
+
+	public static final int VERBOSE = 2;
+	public static final int DEBUG = 3;
+	public static final int INFO = 4;
+	public static final int WARN = 5;
+	public static final int ERROR = 6;
+	public static final int ASSERT = 7;
+
+	private static final int LEVEL = Integer.getInteger("android.log.level", WARN);
+
+	private Log(){
+	}
+
+	public static boolean isLoggable(String tag, int level){
+		return level >= LEVEL;
+	}
+
+	public static int v(String tag, String msg){
+		return println(VERBOSE, tag, msg, null);
+	}
+
+	public static int d(String tag, String msg){
+		return println(DEBUG, tag, msg, null);
+	}
+
+	public static int i(String tag, String msg){
+		return println(INFO, tag, msg, null);
+	}
+
+	public static int w(String tag, String msg){
+		return println(WARN, tag, msg, null);
+	}
+
+	public static int w(String tag, String msg, Throwable tr){
+		return println(WARN, tag, msg, tr);
+	}
+
+	public static int e(String tag, String msg){
+		return println(ERROR, tag, msg, null);
+	}
+
+	public static int e(String tag, String msg, Throwable tr){
+		return println(ERROR, tag, msg, tr);
+	}
+
+	public static String getStackTraceString(Throwable tr){
+		if (tr == null) {
+			return "";
+		}
+		StringWriter sw = new StringWriter();
+		tr.printStackTrace(new PrintWriter(sw));
+		return sw.toString();
+	}
+
+	private static int println(int level, String tag, String msg, Throwable tr){
+		if (!isLoggable(tag, level)) {
+			return 0;
+		}
+		String line = "VDIWEA".charAt(level - VERBOSE) + "/" + tag + ": " + msg;
+		System.err.println(line);
+		if (tr != null) {
+			tr.printStackTrace();
+		}
+		return line.length();
+	}
+}
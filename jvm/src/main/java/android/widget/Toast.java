@@ -0,0 +1,35 @@
+package android.widget;
+
+import android.content.Context;
+
+/**
+ * Stand-in of Android toast, shown text is only kept.
+ */
+public class Toast {
+
+	public static final int LENGTH_SHORT = 0;
+	public static final int LENGTH_LONG = 1;
+
+	private final CharSequence text;
+	private final int duration;
+
+	private Toast(CharSequence text, int duration){
+		this.text = text;
+		this.duration = duration;
+	}
+
+	public static Toast makeText(Context context, CharSequence text, int duration){
+		return new Toast(text, duration);
+	}
+
+	public CharSequence getText(){
+		return text;
+	}
+
+	public int getDuration(){
+		return duration;
+	}
+
+	public void show(){
+	}
+}
@@ -0,0 +1,9 @@
+package com.keel.fiori.client;
+
+import org.apache.cordova.CordovaActivity;
+
+/**
+ * Stand-in of main activity of SAP Fiori client, the activity hosting the plugin.
+ */
+public class MainActivity extends CordovaActivity {
+}
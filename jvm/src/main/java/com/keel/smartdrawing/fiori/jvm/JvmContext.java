@@ -0,0 +1,743 @@
+package com.keel.smartdrawing.fiori.jvm;
+
+import android.app.Activity;
+import android.app.Instrumentation;
+import android.content.BroadcastReceiver;
+import android.content.ComponentName;
+import android.content.ContentProvider;
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.SharedPreferences;
+import android.content.pm.ActivityInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.ProviderInfo;
+import android.content.pm.ResolveInfo;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Application context of the JVM build, standing in for the app and for the system around it. It knows components
+ * declared by installed packages (receivers, activities, providers), delivers broadcasts to them and to registered
+ * receivers the way Android does:
+ * <ul>
+ * <li>manifest receivers get new instance for every broadcast and run on main looper, registered receivers run on their scheduler</li>
+ * <li>ordered broadcast goes to one receiver after another, each receiver gets the result left by previous one; the next
+ * receiver gets it only after {@link BroadcastReceiver.PendingResult#finish()} (called for the receiver when it did not go
+ * asynchronous); the result receiver gets the final result on its scheduler</li>
+ * <li>receiver not finishing in {@link #getBroadcastTimeout()} is skipped, as Android does on broadcast timeout</li>
+ * </ul>
+ * Started activities are recorded; activities declared here are created and get their lifecycle calls on main looper.
+ * Permissions are not enforced.
+ */
+public class JvmContext extends Context {
+
+	private static final String TAG = "JvmContext";
+
+	public static final String DEFAULT_PACKAGE = "com.keel.fiori.client";
+	public static final long DEFAULT_BROADCAST_TIMEOUT = 10000;
+
+	//number of the latest activity starts kept for tests
+	private static final int MAX_STARTED_ACTIVITIES = 256;
+
+	/**
+	 * Observer of activity starts, stands in for activities of other packages
+	 */
+	public interface ActivityListener {
+		void onStartActivity(Intent intent);
+	}
+
+	private static final class ReceiverComponent {
+		final String packageName;
+		final IntentFilter filter;
+		final Class<? extends BroadcastReceiver> type;
+		final BroadcastReceiver instance;
+		final Handler scheduler;
+		final String permission;
+		final boolean exported;
+
+		ReceiverComponent(String packageName, IntentFilter filter, Class<? extends BroadcastReceiver> type, BroadcastReceiver instance,
+				Handler scheduler, String permission, boolean exported){
+			this.packageName = packageName;
+			this.filter = filter;
+			this.type = type;
+			this.instance = instance;
+			this.scheduler = scheduler;
+			this.permission = permission;
+			this.exported = exported;
+		}
+
+		String className(){
+			return type != null ? type.getName() : instance.getClass().getName();
+		}
+
+		BroadcastReceiver receiver(){
+			if (instance != null) {
+				return instance;
+			}
+			try {
+				return type.newInstance();
+			} catch (InstantiationException e) {
+				throw new IllegalStateException("Cannot create receiver " + type.getName(), e);
+			} catch (IllegalAccessException e) {
+				throw new IllegalStateException("Cannot create receiver " + type.getName(), e);
+			}
+		}
+	}
+
+	private static final class ActivityComponent {
+		final String packageName;
+		final IntentFilter filter;
+		final Class<? extends Activity> type;
+
+		ActivityComponent(String packageName, IntentFilter filter, Class<? extends Activity> type){
+			this.packageName = packageName;
+			this.filter = filter;
+			this.type = type;
+		}
+	}
+
+	private final String packageName;
+	private final File filesDir;
+	private final File cacheDir;
+	private final Handler mainHandler;
+	private final Handler timeoutHandler;
+	private final Instrumentation instrumentation = new Instrumentation();
+	private final List<ReceiverComponent> declaredReceivers = new CopyOnWriteArrayList<ReceiverComponent>();
+	private final List<ReceiverComponent> registeredReceivers = new CopyOnWriteArrayList<ReceiverComponent>();
+	private final List<ActivityComponent> declaredActivities = new CopyOnWriteArrayList<ActivityComponent>();
+	private final Map<String, Activity> runningActivities = new ConcurrentHashMap<String, Activity>();
+	private final Map<String, ContentProvider> providers = new ConcurrentHashMap<String, ContentProvider>();
+	private final Map<String, MapSharedPreferences> preferences = new HashMap<String, MapSharedPreferences>();
+	private final List<Intent> startedActivities = Collections.synchronizedList(new ArrayList<Intent>());
+	private final AtomicLong timedOutBroadcasts = new AtomicLong();
+	private final ContentResolver contentResolver;
+	private final PackageManager packageManager;
+	private volatile ActivityListener activityListener;
+	private volatile long broadcastTimeout = DEFAULT_BROADCAST_TIMEOUT;
+
+	public JvmContext(){
+		this(DEFAULT_PACKAGE);
+	}
+
+	public JvmContext(String packageName){
+		this.packageName = packageName;
+		try {
+			this.filesDir = Files.createTempDirectory(packageName + "-files").toFile();
+			this.cacheDir = Files.createTempDirectory(packageName + "-cache").toFile();
+		} catch (IOException e) {
+			throw new IllegalStateException("Cannot create data directories", e);
+		}
+		this.mainHandler = new Handler(Looper.getMainLooper());
+		HandlerThread timeoutThread = new HandlerThread("ActivityManager");
+		timeoutThread.start();
+		this.timeoutHandler = new Handler(timeoutThread.getLooper());
+		this.contentResolver = new ContentResolver(this) {
+			@Override
+			protected ContentProvider acquireProvider(String authority){
+				return providers.get(authority);
+			}
+		};
+		this.packageManager = new PackageManager() {
+			@Override
+			public List<ResolveInfo> queryBroadcastReceivers(Intent intent, int flags){
+				List<ResolveInfo> result = new ArrayList<ResolveInfo>();
+				for (ReceiverComponent component : declaredReceivers) {
+					if (matches(intent, component.packageName, component.className(), component.filter)) {
+						result.add(resolveInfo(component.packageName, component.className(), component.permission, component.exported));
+					}
+				}
+				return result;
+			}
+
+			@Override
+			public List<ResolveInfo> queryIntentActivities(Intent intent, int flags){
+				List<ResolveInfo> result = new ArrayList<ResolveInfo>();
+				for (ActivityComponent component : declaredActivities) {
+					if (matches(intent, component.packageName, component.type.getName(), component.filter)) {
+						result.add(resolveInfo(component.packageName, component.type.getName(), null, true));
+					}
+				}
+				return result;
+			}
+		};
+	}
+
+	// ---- packages
+
+	/**
+	 * Declares manifest receiver of a package, a new instance is created for every broadcast
+	 */
+	public void declareReceiver(String packageName, Class<? extends BroadcastReceiver> type, IntentFilter filter, String permission, boolean exported){
+		declaredReceivers.add(new ReceiverComponent(packageName, filter, type, null, mainHandler, permission, exported));
+	}
+
+	/**
+	 * Declares manifest receiver of a package implemented by given instance (receivers of other packages in tests)
+	 */
+	public void declareReceiver(String packageName, BroadcastReceiver receiver, IntentFilter filter){
+		declaredReceivers.add(new ReceiverComponent(packageName, filter, null, receiver, mainHandler, null, true));
+	}
+
+	public void declareActivity(String packageName, Class<? extends Activity> type, IntentFilter filter){
+		declaredActivities.add(new ActivityComponent(packageName, filter, type));
+	}
+
+	public void declareProvider(String authority, ContentProvider provider, boolean exported){
+		ProviderInfo info = new ProviderInfo();
+		info.packageName = packageName;
+		info.name = provider.getClass().getName();
+		info.authority = authority;
+		info.exported = exported;
+		provider.attachInfo(this, info);
+		providers.put(authority, provider);
+	}
+
+	/**
+	 * Removes declared components of a package, as if the package was uninstalled
+	 */
+	public void uninstall(String packageName){
+		for (ReceiverComponent component : declaredReceivers) {
+			if (component.packageName.equals(packageName)) {
+				declaredReceivers.remove(component);
+			}
+		}
+		for (ActivityComponent component : declaredActivities) {
+			if (component.packageName.equals(packageName)) {
+				declaredActivities.remove(component);
+			}
+		}
+	}
+
+	// ---- activities
+
+	/**
+	 * Creates activity of this package on main looper and waits for its onCreate
+	 */
+	public <T extends Activity> T launch(final Class<T> type, final Intent intent){
+		final List<Activity> created = new ArrayList<Activity>(1);
+		runOnMain(new Runnable() {
+			@Override
+			public void run(){
+				created.add(create(type, intent));
+			}
+		});
+		return type.cast(created.get(0));
+	}
+
+	public void setActivityListener(ActivityListener listener){
+		this.activityListener = listener;
+	}
+
+	/**
+	 * Returns copy of intents of the latest activity starts
+	 */
+	public List<Intent> getStartedActivities(){
+		synchronized (startedActivities) {
+			return new ArrayList<Intent>(startedActivities);
+		}
+	}
+
+	@Override
+	public void startActivity(final Intent intent){
+		synchronized (startedActivities) {
+			if (startedActivities.size() == MAX_STARTED_ACTIVITIES) {
+				startedActivities.remove(0);
+			}
+			startedActivities.add(new Intent(intent));
+		}
+		ActivityListener listener = activityListener;
+		if (listener != null) {
+			listener.onStartActivity(new Intent(intent));
+		}
+		final Class<? extends Activity> type = resolveActivity(intent);
+		if (type == null) {
+			return;
+		}
+		mainHandler.post(new Runnable() {
+			@Override
+			public void run(){
+				Activity running = runningActivities.get(type.getName());
+				if (running != null && (intent.getFlags() & (Intent.FLAG_ACTIVITY_SINGLE_TOP | Intent.FLAG_ACTIVITY_REORDER_TO_FRONT)) != 0) {
+					instrumentation.callActivityOnNewIntent(running, new Intent(intent));
+					finishIfNeeded(running);
+				} else {
+					create(type, new Intent(intent));
+				}
+			}
+		});
+	}
+
+	private Activity create(Class<? extends Activity> type, Intent intent){
+		Activity activity = instrumentation.newActivity(type, this, intent);
+		runningActivities.put(type.getName(), activity);
+		instrumentation.callActivityOnCreate(activity, null);
+		finishIfNeeded(activity);
+		return activity;
+	}
+
+	private void finishIfNeeded(Activity activity){
+		if (activity.isFinishing()) {
+			runningActivities.remove(activity.getClass().getName(), activity);
+			instrumentation.callActivityOnDestroy(activity);
+		}
+	}
+
+	private Class<? extends Activity> resolveActivity(Intent intent){
+		ComponentName component = intent.getComponent();
+		if (component != null) {
+			Activity running = runningActivities.get(component.getClassName());
+			if (running != null) {
+				return running.getClass();
+			}
+		}
+		for (ActivityComponent declared : declaredActivities) {
+			if (matches(intent, declared.packageName, declared.type.getName(), declared.filter)) {
+				return declared.type;
+			}
+		}
+		return null;
+	}
+
+	// ---- broadcasts
+
+	public long getBroadcastTimeout(){
+		return broadcastTimeout;
+	}
+
+	public void setBroadcastTimeout(long broadcastTimeout){
+		this.broadcastTimeout = broadcastTimeout;
+	}
+
+	/**
+	 * Returns number of receivers skipped because they did not finish ordered broadcast in time
+	 */
+	public long getTimedOutBroadcasts(){
+		return timedOutBroadcasts.get();
+	}
+
+	@Override
+	public void sendBroadcast(Intent intent){
+		sendBroadcast(intent, null);
+	}
+
+	@Override
+	public void sendBroadcast(Intent intent, String receiverPermission){
+		for (final ReceiverComponent target : targets(intent)) {
+			final Intent delivered = new Intent(intent);
+			target.scheduler.post(new Runnable() {
+				@Override
+				public void run(){
+					deliver(target.receiver(), delivered, new BroadcastReceiver.PendingResult(0, null, null, false));
+				}
+			});
+		}
+	}
+
+	@Override
+	public void sendOrderedBroadcast(Intent intent, String receiverPermission, BroadcastReceiver resultReceiver, Handler scheduler,
+			int initialCode, String initialData, Bundle initialExtras){
+		new OrderedBroadcast(new Intent(intent), targets(intent), resultReceiver, scheduler != null ? scheduler : mainHandler,
+				initialCode, initialData, initialExtras).next();
+	}
+
+	@Override
+	public Intent registerReceiver(BroadcastReceiver receiver, IntentFilter filter){
+		return registerReceiver(receiver, filter, null, null);
+	}
+
+	@Override
+	public Intent registerReceiver(BroadcastReceiver receiver, IntentFilter filter, String broadcastPermission, Handler scheduler){
+		registeredReceivers.add(new ReceiverComponent(packageName, new IntentFilter(filter), null, receiver,
+				scheduler != null ? scheduler : mainHandler, broadcastPermission, false));
+		return null;
+	}
+
+	@Override
+	public void unregisterReceiver(BroadcastReceiver receiver){
+		for (ReceiverComponent component : registeredReceivers) {
+			if (component.instance == receiver) {
+				registeredReceivers.remove(component);
+				return;
+			}
+		}
+		throw new IllegalArgumentException("Receiver not registered: " + receiver);
+	}
+
+	private List<ReceiverComponent> targets(Intent intent){
+		List<ReceiverComponent> targets = new ArrayList<ReceiverComponent>();
+		if (intent.getComponent() == null) {
+			//explicit broadcasts go to manifest receivers only
+			for (ReceiverComponent component : registeredReceivers) {
+				if (matches(intent, component.packageName, component.className(), component.filter)) {
+					targets.add(component);
+				}
+			}
+		}
+		for (ReceiverComponent component : declaredReceivers) {
+			if (matches(intent, component.packageName, component.className(), component.filter)) {
+				targets.add(component);
+			}
+		}
+		return targets;
+	}
+
+	private boolean deliver(BroadcastReceiver receiver, Intent intent, BroadcastReceiver.PendingResult result){
+		receiver.setPendingResult(result);
+		try {
+			receiver.onReceive(this, intent);
+		} catch (RuntimeException e) {
+			Log.e(TAG, "Receiver " + receiver.getClass().getName() + " failed on " + intent, e);
+		}
+		BroadcastReceiver.PendingResult pending = receiver.getPendingResult();
+		if (pending != null) {
+			receiver.setPendingResult(null);
+			pending.finish();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * State of one ordered broadcast passed from receiver to receiver
+	 */
+	private final class OrderedBroadcast {
+		final Intent intent;
+		final List<ReceiverComponent> targets;
+		final BroadcastReceiver resultReceiver;
+		final Handler scheduler;
+		int index;
+		int resultCode;
+		String resultData;
+		Bundle resultExtras;
+		boolean aborted;
+
+		OrderedBroadcast(Intent intent, List<ReceiverComponent> targets, BroadcastReceiver resultReceiver, Handler scheduler,
+				int resultCode, String resultData, Bundle resultExtras){
+			this.intent = intent;
+			this.targets = targets;
+			this.resultReceiver = resultReceiver;
+			this.scheduler = scheduler;
+			this.resultCode = resultCode;
+			this.resultData = resultData;
+			this.resultExtras = resultExtras;
+		}
+
+		synchronized void next(){
+			if (!aborted && index < targets.size()) {
+				final ReceiverComponent target = targets.get(index++);
+				final AtomicBoolean done = new AtomicBoolean();
+				final Runnable timeout = new Runnable() {
+					@Override
+					public void run(){
+						if (done.compareAndSet(false, true)) {
+							timedOutBroadcasts.incrementAndGet();
+							Log.w(TAG, "Timeout of broadcast " + intent + " in " + target.className());
+							next();
+						}
+					}
+				};
+				final BroadcastReceiver.PendingResult result = new BroadcastReceiver.PendingResult(resultCode, resultData, resultExtras, true) {
+					@Override
+					protected void onFinished(){
+						if (done.compareAndSet(false, true)) {
+							timeoutHandler.removeCallbacks(timeout);
+							update(getResultCode(), getResultData(), getResultExtras(false), getAbortBroadcast());
+							next();
+						}
+					}
+				};
+				timeoutHandler.postDelayed(timeout, broadcastTimeout);
+				target.scheduler.post(new Runnable() {
+					@Override
+					public void run(){
+						deliver(target.receiver(), new Intent(intent), result);
+					}
+				});
+			} else if (resultReceiver != null) {
+				final BroadcastReceiver.PendingResult result = new BroadcastReceiver.PendingResult(resultCode, resultData, resultExtras, true);
+				scheduler.post(new Runnable() {
+					@Override
+					public void run(){
+						deliver(resultReceiver, new Intent(intent), result);
+					}
+				});
+			}
+		}
+
+		synchronized void update(int code, String data, Bundle extras, boolean abort){
+			resultCode = code;
+			resultData = data;
+			resultExtras = extras;
+			aborted = abort;
+		}
+	}
+
+	// ---- services
+
+	@Override
+	public String getPackageName(){
+		return packageName;
+	}
+
+	@Override
+	public Context getApplicationContext(){
+		return this;
+	}
+
+	@Override
+	public Looper getMainLooper(){
+		return Looper.getMainLooper();
+	}
+
+	@Override
+	public File getFilesDir(){
+		return filesDir;
+	}
+
+	@Override
+	public File getCacheDir(){
+		return cacheDir;
+	}
+
+	@Override
+	public synchronized SharedPreferences getSharedPreferences(String name, int mode){
+		MapSharedPreferences prefs = preferences.get(name);
+		if (prefs == null) {
+			prefs = new MapSharedPreferences();
+			preferences.put(name, prefs);
+		}
+		return prefs;
+	}
+
+	@Override
+	public PackageManager getPackageManager(){
+		return packageManager;
+	}
+
+	@Override
+	public ContentResolver getContentResolver(){
+		return contentResolver;
+	}
+
+	// ---- threads
+
+	/**
+	 * Runs the runnable on main looper and waits for it
+	 */
+	public void runOnMain(Runnable runnable){
+		if (Looper.getMainLooper().isCurrentThread()) {
+			runnable.run();
+			return;
+		}
+		final CountDownLatch latch = new CountDownLatch(1);
+		final RuntimeException[] failure = new RuntimeException[1];
+		final Runnable task = runnable;
+		mainHandler.post(new Runnable() {
+			@Override
+			public void run(){
+				try {
+					task.run();
+				} catch (RuntimeException e) {
+					failure[0] = e;
+				} finally {
+					latch.countDown();
+				}
+			}
+		});
+		await(latch);
+		if (failure[0] != null) {
+			throw failure[0];
+		}
+	}
+
+	/**
+	 * Waits until the looper handled everything due now
+	 */
+	public static void flush(Handler handler){
+		final CountDownLatch latch = new CountDownLatch(1);
+		handler.post(new Runnable() {
+			@Override
+			public void run(){
+				latch.countDown();
+			}
+		});
+		await(latch);
+	}
+
+	/**
+	 * Waits until main looper handled everything due now
+	 */
+	public void flushMain(){
+		flush(mainHandler);
+	}
+
+	private static void await(CountDownLatch latch){
+		try {
+			if (!latch.await(30, TimeUnit.SECONDS)) {
+				throw new IllegalStateException("Looper did not get to the task in 30 s");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+	}
+
+	// ---- helpers
+
+	private static boolean matches(Intent intent, String packageName, String className, IntentFilter filter){
+		ComponentName component = intent.getComponent();
+		if (component != null) {
+			return component.getPackageName().equals(packageName) && component.getClassName().equals(className);
+		}
+		if (intent.getPackage() != null && !intent.getPackage().equals(packageName)) {
+			return false;
+		}
+		return filter.matchAction(intent.getAction());
+	}
+
+	private static ResolveInfo resolveInfo(String packageName, String name, String permission, boolean exported){
+		ResolveInfo info = new ResolveInfo();
+		info.activityInfo = new ActivityInfo();
+		info.activityInfo.packageName = packageName;
+		info.activityInfo.name = name;
+		info.activityInfo.permission = permission;
+		info.activityInfo.exported = exported;
+		return info;
+	}
+
+	/**
+	 * In-memory shared preferences, commit and apply both write immediately
+	 */
+	private static final class MapSharedPreferences implements SharedPreferences {
+
+		private final Map<String, Object> values = new HashMap<String, Object>();
+
+		@Override
+		public synchronized Map<String, ?> getAll(){
+			return new HashMap<String, Object>(values);
+		}
+
+		@Override
+		public String getString(String key, String defValue){
+			return get(key, String.class, defValue);
+		}
+
+		@Override
+		public int getInt(String key, int defValue){
+			return get(key, Integer.class, defValue);
+		}
+
+		@Override
+		public long getLong(String key, long defValue){
+			return get(key, Long.class, defValue);
+		}
+
+		@Override
+		public boolean getBoolean(String key, boolean defValue){
+			return get(key, Boolean.class, defValue);
+		}
+
+		@Override
+		public synchronized boolean contains(String key){
+			return values.containsKey(key);
+		}
+
+		private synchronized <T> T get(String key, Class<T> type, T defValue){
+			Object value = values.get(key);
+			if (value == null) {
+				return defValue;
+			}
+			if (!type.isInstance(value)) {
+				throw new ClassCastException(key + " is " + value.getClass().getName());
+			}
+			return type.cast(value);
+		}
+
+		@Override
+		public Editor edit(){
+			return new Editor() {
+				private final Map<String, Object> changes = new HashMap<String, Object>();
+				private boolean clear;
+
+				@Override
+				public Editor putString(String key, String value){
+					changes.put(key, value);
+					return this;
+				}
+
+				@Override
+				public Editor putInt(String key, int value){
+					changes.put(key, value);
+					return this;
+				}
+
+				@Override
+				public Editor putLong(String key, long value){
+					changes.put(key, value);
+					return this;
+				}
+
+				@Override
+				public Editor putBoolean(String key, boolean value){
+					changes.put(key, value);
+					return this;
+				}
+
+				@Override
+				public Editor remove(String key){
+					//removal is kept as the editor itself, as Android does
+					changes.put(key, this);
+					return this;
+				}
+
+				@Override
+				public Editor clear(){
+					clear = true;
+					return this;
+				}
+
+				@Override
+				public boolean commit(){
+					synchronized (MapSharedPreferences.this) {
+						if (clear) {
+							values.clear();
+						}
+						for (Map.Entry<String, Object> change : changes.entrySet()) {
+							if (change.getValue() == this || change.getValue() == null) {
+								values.remove(change.getKey());
+							} else {
+								values.put(change.getKey(), change.getValue());
+							}
+						}
+					}
+					return true;
+				}
+
+				@Override
+				public void apply(){
+					commit();
+				}
+			};
+		}
+	}
+}
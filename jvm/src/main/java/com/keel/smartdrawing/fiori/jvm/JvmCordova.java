@@ -0,0 +1,121 @@
+package com.keel.smartdrawing.fiori.jvm;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.Intent;
+
+import com.keel.fiori.client.MainActivity;
+
+import org.apache.cordova.CordovaInterface;
+import org.apache.cordova.CordovaPlugin;
+import org.apache.cordova.CordovaWebView;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cordova host of the JVM build: main activity launched in {@link JvmContext} and plugin thread pool.
+ */
+public class JvmCordova implements CordovaInterface {
+
+	private final JvmContext context;
+	private final Activity activity;
+	private final ExecutorService threadPool;
+
+	public JvmCordova(JvmContext context){
+		this(context, newThreadPool());
+	}
+
+	public JvmCordova(JvmContext context, ExecutorService threadPool){
+		this.context = context;
+		this.threadPool = threadPool;
+		this.activity = context.launch(MainActivity.class, new Intent(Intent.ACTION_MAIN));
+	}
+
+	/**
+	 * Initializes the plugin the way plugin manager does
+	 */
+	public <T extends CordovaPlugin> T initialize(T plugin, String serviceName, CordovaWebView webView){
+		plugin.privateInitialize(serviceName, this, webView);
+		return plugin;
+	}
+
+	@Override
+	public Activity getActivity(){
+		return activity;
+	}
+
+	@Override
+	public Context getContext(){
+		return activity;
+	}
+
+	@Override
+	public ExecutorService getThreadPool(){
+		return threadPool;
+	}
+
+	public JvmContext getJvmContext(){
+		return context;
+	}
+
+	/**
+	 * Pool of daemon threads, as Cordova thread pool (cached)
+	 */
+	public static ExecutorService newThreadPool(){
+		final AtomicInteger count = new AtomicInteger();
+		return Executors.newCachedThreadPool(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r){
+				Thread thread = new Thread(r, "cordova-pool-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Executor running tasks on calling thread, for benchmarks measuring a command without thread hand-over
+	 */
+	public static ExecutorService directExecutor(){
+		return new AbstractExecutorService() {
+			private volatile boolean shutdown;
+
+			@Override
+			public void execute(Runnable command){
+				command.run();
+			}
+
+			@Override
+			public void shutdown(){
+				shutdown = true;
+			}
+
+			@Override
+			public List<Runnable> shutdownNow(){
+				shutdown = true;
+				return java.util.Collections.emptyList();
+			}
+
+			@Override
+			public boolean isShutdown(){
+				return shutdown;
+			}
+
+			@Override
+			public boolean isTerminated(){
+				return shutdown;
+			}
+
+			@Override
+			public boolean awaitTermination(long timeout, TimeUnit unit){
+				return shutdown;
+			}
+		};
+	}
+}
@@ -0,0 +1,137 @@
+package com.keel.smartdrawing.fiori.jvm;
+
+import android.app.Activity;
+import android.content.BroadcastReceiver;
+import android.content.ContentProvider;
+import android.content.IntentFilter;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+/**
+ * Reads Android manifest entries of plugin.xml (packaged as resource of the JVM build) and declares the receivers,
+ * activities and providers in {@link JvmContext}, so tests run with components as Cordova would merge them.
+ */
+public final class PluginManifest {
+
+	private static final String PLUGIN_XML = "/plugin.xml";
+	private static final String PACKAGE_NAME = "$PACKAGE_NAME";
+
+	private final Document document;
+
+	private PluginManifest(Document document){
+		this.document = document;
+	}
+
+	public static PluginManifest load(){
+		InputStream in = PluginManifest.class.getResourceAsStream(PLUGIN_XML);
+		if (in == null) {
+			throw new IllegalStateException(PLUGIN_XML + " is not on class path");
+		}
+		try {
+			try {
+				return new PluginManifest(DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(in));
+			} finally {
+				in.close();
+			}
+		} catch (Exception e) {
+			throw new IllegalStateException("Cannot read " + PLUGIN_XML, e);
+		}
+	}
+
+	/**
+	 * Declares components of the plugin in the context under its package
+	 */
+	@SuppressWarnings("unchecked")
+	public void install(JvmContext context){
+		String packageName = context.getPackageName();
+		for (Element receiver : elements(document.getDocumentElement(), "receiver")) {
+			context.declareReceiver(packageName, (Class<? extends BroadcastReceiver>) type(receiver), filter(receiver),
+					attribute(receiver, "android:permission"), "true".equals(attribute(receiver, "android:exported")));
+		}
+		for (Element activity : elements(document.getDocumentElement(), "activity")) {
+			context.declareActivity(packageName, (Class<? extends Activity>) type(activity), filter(activity));
+		}
+		for (Element provider : elements(document.getDocumentElement(), "provider")) {
+			try {
+				context.declareProvider(attribute(provider, "android:authorities").replace(PACKAGE_NAME, packageName),
+						(ContentProvider) type(provider).newInstance(), "true".equals(attribute(provider, "android:exported")));
+			} catch (InstantiationException e) {
+				throw new IllegalStateException(e);
+			} catch (IllegalAccessException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	/**
+	 * Returns value of attribute of first element with given tag and android:name, null when missing
+	 */
+	public String componentAttribute(String tag, String name, String attribute){
+		for (Element element : elements(document.getDocumentElement(), tag)) {
+			if (name.equals(element.getAttribute("android:name"))) {
+				return attribute(element, attribute);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns sources of source-file entries
+	 */
+	public List<String> sourceFiles(){
+		List<String> sources = new ArrayList<String>();
+		for (Element element : elements(document.getDocumentElement(), "source-file")) {
+			sources.add(element.getAttribute("src"));
+		}
+		return sources;
+	}
+
+	/**
+	 * Returns names of permission elements
+	 */
+	public List<String> permissions(){
+		List<String> permissions = new ArrayList<String>();
+		for (Element element : elements(document.getDocumentElement(), "permission")) {
+			permissions.add(element.getAttribute("android:name"));
+		}
+		return permissions;
+	}
+
+	private static Class<?> type(Element component){
+		String name = component.getAttribute("android:name");
+		try {
+			return Class.forName(name);
+		} catch (ClassNotFoundException e) {
+			throw new IllegalStateException("Component " + name + " of plugin.xml is not built", e);
+		}
+	}
+
+	private static IntentFilter filter(Element component){
+		IntentFilter filter = new IntentFilter();
+		for (Element action : elements(component, "action")) {
+			filter.addAction(action.getAttribute("android:name"));
+		}
+		return filter;
+	}
+
+	private static String attribute(Element element, String name){
+		return element.hasAttribute(name) ? element.getAttribute(name) : null;
+	}
+
+	private static List<Element> elements(Element parent, String tag){
+		List<Element> elements = new ArrayList<Element>();
+		NodeList nodes = parent.getElementsByTagName(tag);
+		for (int i = 0; i < nodes.getLength(); i++) {
+			elements.add((Element) nodes.item(i));
+		}
+		return elements;
+	}
+}
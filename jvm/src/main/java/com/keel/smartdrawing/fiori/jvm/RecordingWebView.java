@@ -0,0 +1,75 @@
+package com.keel.smartdrawing.fiori.jvm;
+
+import org.apache.cordova.CallbackContext;
+import org.apache.cordova.CordovaWebView;
+import org.apache.cordova.PluginResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * WebView keeping plugin results per callback, for tests waiting for answers of commands.
+ */
+public class RecordingWebView implements CordovaWebView {
+
+	private final AtomicLong callbackIds = new AtomicLong();
+	private final ConcurrentHashMap<String, BlockingQueue<PluginResult>> results = new ConcurrentHashMap<String, BlockingQueue<PluginResult>>();
+
+	/**
+	 * Creates callback context as Cordova bridge does for one JavaScript call
+	 */
+	public CallbackContext newCallbackContext(){
+		String callbackId = "SmartDrawing" + callbackIds.incrementAndGet();
+		results.put(callbackId, new LinkedBlockingQueue<PluginResult>());
+		return new CallbackContext(callbackId, this);
+	}
+
+	@Override
+	public void sendPluginResult(PluginResult cr, String callbackId){
+		BlockingQueue<PluginResult> queue = results.get(callbackId);
+		if (queue == null) {
+			throw new IllegalArgumentException("Unknown callback " + callbackId);
+		}
+		queue.add(cr);
+	}
+
+	/**
+	 * Returns next result of the callback, null when none came in time
+	 */
+	public PluginResult next(CallbackContext callbackContext, long timeoutMillis){
+		try {
+			return results.get(callbackContext.getCallbackId()).poll(timeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+	}
+
+	/**
+	 * Returns next result of the callback other than NO_RESULT, null when none came in time
+	 */
+	public PluginResult await(CallbackContext callbackContext, long timeoutMillis){
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		while (true) {
+			long left = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+			PluginResult result = next(callbackContext, Math.max(0, left));
+			if (result == null || result.getStatus() != PluginResult.Status.NO_RESULT.ordinal()) {
+				return result;
+			}
+		}
+	}
+
+	/**
+	 * Removes and returns results received so far
+	 */
+	public List<PluginResult> drain(CallbackContext callbackContext){
+		List<PluginResult> drained = new ArrayList<PluginResult>();
+		results.get(callbackContext.getCallbackId()).drainTo(drained);
+		return drained;
+	}
+}
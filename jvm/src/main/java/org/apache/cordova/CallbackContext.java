@@ -0,0 +1,85 @@
+package org.apache.cordova;
+
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Stand-in of Cordova callback context. As in Cordova, callback is finished by first result without keep callback flag
+ * and later results are ignored.
+ */
+public class CallbackContext {
+
+	private static final String LOG_TAG = "CordovaPlugin";
+
+	private final String callbackId;
+	private final CordovaWebView webView;
+	protected boolean finished;
+	private int changingThreads;
+
+	public CallbackContext(String callbackId, CordovaWebView webView){
+		this.callbackId = callbackId;
+		this.webView = webView;
+	}
+
+	public boolean isFinished(){
+		return finished;
+	}
+
+	public boolean isChangingThreads(){
+		return changingThreads > 0;
+	}
+
+	public String getCallbackId(){
+		return callbackId;
+	}
+
+	public void sendPluginResult(PluginResult pluginResult){
+		synchronized (this) {
+			if (finished) {
+				Log.w(LOG_TAG, "Attempted to send a second callback for ID: " + callbackId + "\nResult was: " + pluginResult.getMessage());
+				return;
+			} else {
+				finished = !pluginResult.getKeepCallback();
+			}
+		}
+		webView.sendPluginResult(pluginResult, callbackId);
+	}
+
+	public void success(JSONObject message){
+		sendPluginResult(new PluginResult(PluginResult.Status.OK, message));
+	}
+
+	public void success(String message){
+		sendPluginResult(new PluginResult(PluginResult.Status.OK, message));
+	}
+
+	public void success(JSONArray message){
+		sendPluginResult(new PluginResult(PluginResult.Status.OK, message));
+	}
+
+	public void success(byte[] message){
+		sendPluginResult(new PluginResult(PluginResult.Status.OK, message));
+	}
+
+	public void success(int message){
+		sendPluginResult(new PluginResult(PluginResult.Status.OK, message));
+	}
+
+	public void success(){
+		sendPluginResult(new PluginResult(PluginResult.Status.OK));
+	}
+
+	public void error(JSONObject message){
+		sendPluginResult(new PluginResult(PluginResult.Status.ERROR, message));
+	}
+
+	public void error(String message){
+		sendPluginResult(new PluginResult(PluginResult.Status.ERROR, message));
+	}
+
+	public void error(int message){
+		sendPluginResult(new PluginResult(PluginResult.Status.ERROR, message));
+	}
+}
@@ -0,0 +1,9 @@
+package org.apache.cordova;
+
+import android.app.Activity;
+
+/**
+ * Stand-in of Cordova activity hosting the WebView.
+ */
+public class CordovaActivity extends Activity {
+}
@@ -0,0 +1,18 @@
+package org.apache.cordova;
+
+import android.app.Activity;
+import android.content.Context;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Stand-in of Cordova interface, the host activity and plugin thread pool.
+ */
+public interface CordovaInterface {
+
+	Activity getActivity();
+
+	Context getContext();
+
+	ExecutorService getThreadPool();
+}
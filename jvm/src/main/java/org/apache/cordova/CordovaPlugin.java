@@ -0,0 +1,55 @@
+package org.apache.cordova;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+
+/**
+ * Stand-in of Cordova plugin base class.
+ */
+public class CordovaPlugin {
+
+	public CordovaWebView webView;
+	public CordovaInterface cordova;
+	private String serviceName;
+
+	/**
+	 * Called by plugin manager before {@link #initialize(CordovaInterface, CordovaWebView)}
+	 */
+	public final void privateInitialize(String serviceName, CordovaInterface cordova, CordovaWebView webView){
+		this.serviceName = serviceName;
+		this.cordova = cordova;
+		this.webView = webView;
+		initialize(cordova, webView);
+		pluginInitialize();
+	}
+
+	public void initialize(CordovaInterface cordova, CordovaWebView webView){
+	}
+
+	protected void pluginInitialize(){
+	}
+
+	public String getServiceName(){
+		return serviceName;
+	}
+
+	public boolean execute(String action, String rawArgs, CallbackContext callbackContext) throws JSONException {
+		return execute(action, new JSONArray(rawArgs), callbackContext);
+	}
+
+	public boolean execute(String action, JSONArray args, CallbackContext callbackContext) throws JSONException {
+		return false;
+	}
+
+	public void onPause(boolean multitasking){
+	}
+
+	public void onResume(boolean multitasking){
+	}
+
+	public void onReset(){
+	}
+
+	public void onDestroy(){
+	}
+}
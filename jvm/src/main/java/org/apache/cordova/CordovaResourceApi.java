@@ -0,0 +1,7 @@
+package org.apache.cordova;
+
+/**
+ * Stand-in of Cordova resource API.
+ */
+public class CordovaResourceApi {
+}
@@ -0,0 +1,9 @@
+package org.apache.cordova;
+
+/**
+ * Stand-in of Cordova WebView, receives plugin results for JavaScript callbacks.
+ */
+public interface CordovaWebView {
+
+	void sendPluginResult(PluginResult cr, String callbackId);
+}
@@ -0,0 +1,166 @@
+package org.apache.cordova;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.List;
+
+/**
+ * Stand-in of Cordova plugin result, message is encoded the way Cordova passes it to the WebView bridge.
+ */
+public class PluginResult {
+
+	public enum Status {
+		NO_RESULT,
+		OK,
+		CLASS_NOT_FOUND_EXCEPTION,
+		ILLEGAL_ACCESS_EXCEPTION,
+		INSTANTIATION_EXCEPTION,
+		MALFORMED_URL_EXCEPTION,
+		IO_EXCEPTION,
+		INVALID_ACTION,
+		JSON_EXCEPTION,
+		ERROR
+	}
+
+	public static final int MESSAGE_TYPE_STRING = 1;
+	public static final int MESSAGE_TYPE_JSON = 2;
+	public static final int MESSAGE_TYPE_NUMBER = 3;
+	public static final int MESSAGE_TYPE_BOOLEAN = 4;
+	public static final int MESSAGE_TYPE_NULL = 5;
+	public static final int MESSAGE_TYPE_ARRAYBUFFER = 6;
+	public static final int MESSAGE_TYPE_BINARYSTRING = 7;
+	public static final int MESSAGE_TYPE_MULTIPART = 8;
+
+	public static final String[] StatusMessages = new String[]{
+			"No result",
+			"OK",
+			"Class not found",
+			"Illegal access",
+			"Instantiation error",
+			"Malformed url",
+			"IO error",
+			"Invalid action",
+			"JSON error",
+			"Error"
+	};
+
+	private final int status;
+	private final int messageType;
+	private boolean keepCallback = false;
+	private String strMessage;
+	private String encodedMessage;
+	private byte[] binaryMessage;
+	private List<PluginResult> multipartMessages;
+
+	public PluginResult(Status status){
+		this(status, StatusMessages[status.ordinal()]);
+	}
+
+	public PluginResult(Status status, String message){
+		this.status = status.ordinal();
+		this.messageType = message == null ? MESSAGE_TYPE_NULL : MESSAGE_TYPE_STRING;
+		this.strMessage = message;
+	}
+
+	public PluginResult(Status status, JSONArray message){
+		this.status = status.ordinal();
+		this.messageType = MESSAGE_TYPE_JSON;
+		this.encodedMessage = message.toString();
+	}
+
+	public PluginResult(Status status, JSONObject message){
+		this.status = status.ordinal();
+		this.messageType = MESSAGE_TYPE_JSON;
+		this.encodedMessage = message.toString();
+	}
+
+	public PluginResult(Status status, int i){
+		this.status = status.ordinal();
+		this.messageType = MESSAGE_TYPE_NUMBER;
+		this.encodedMessage = "" + i;
+	}
+
+	public PluginResult(Status status, float f){
+		this.status = status.ordinal();
+		this.messageType = MESSAGE_TYPE_NUMBER;
+		this.encodedMessage = "" + f;
+	}
+
+	public PluginResult(Status status, boolean b){
+		this.status = status.ordinal();
+		this.messageType = MESSAGE_TYPE_BOOLEAN;
+		this.encodedMessage = Boolean.toString(b);
+	}
+
+	public PluginResult(Status status, byte[] data){
+		this(status, data, false);
+	}
+
+	public PluginResult(Status status, byte[] data, boolean binaryString){
+		this.status = status.ordinal();
+		this.messageType = binaryString ? MESSAGE_TYPE_BINARYSTRING : MESSAGE_TYPE_ARRAYBUFFER;
+		this.binaryMessage = data;
+	}
+
+	public PluginResult(Status status, List<PluginResult> multipartMessages){
+		this.status = status.ordinal();
+		this.messageType = MESSAGE_TYPE_MULTIPART;
+		this.multipartMessages = multipartMessages;
+	}
+
+	public void setKeepCallback(boolean b){
+		this.keepCallback = b;
+	}
+
+	public boolean getKeepCallback(){
+		return keepCallback;
+	}
+
+	public int getStatus(){
+		return status;
+	}
+
+	public int getMessageType(){
+		return messageType;
+	}
+
+	/**
+	 * Returns message encoded as JavaScript value (JSON text, quoted string, number...)
+	 */
+	public String getMessage(){
+		if (encodedMessage == null) {
+			switch (messageType) {
+				case MESSAGE_TYPE_STRING:
+					encodedMessage = JSONObject.quote(strMessage);
+					break;
+				case MESSAGE_TYPE_NULL:
+					encodedMessage = "null";
+					break;
+				case MESSAGE_TYPE_ARRAYBUFFER:
+				case MESSAGE_TYPE_BINARYSTRING:
+					encodedMessage = java.util.Base64.getEncoder().encodeToString(binaryMessage);
+					break;
+				default:
+					encodedMessage = "";
+			}
+		}
+		return encodedMessage;
+	}
+
+	public String getStrMessage(){
+		return strMessage;
+	}
+
+	public byte[] getBinaryMessage(){
+		return binaryMessage;
+	}
+
+	public int getMultipartMessagesSize(){
+		return multipartMessages == null ? 0 : multipartMessages.size();
+	}
+
+	public PluginResult getMultipartMessage(int index){
+		return multipartMessages.get(index);
+	}
+}
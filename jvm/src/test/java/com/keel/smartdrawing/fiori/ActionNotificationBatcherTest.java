@@ -0,0 +1,85 @@
+package com.keel.smartdrawing.fiori;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+
+import com.keel.smartdrawing.fiori.jvm.JvmContext;
+import com.keel.smartdrawing.fiori.jvm.RecordingWebView;
+
+import org.apache.cordova.CallbackContext;
+import org.apache.cordova.PluginResult;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class ActionNotificationBatcherTest {
+
+	private JvmContext context;
+	private RecordingWebView webView;
+	private ActionNotificationBatcher batcher;
+	private final List<Intent> sent = new CopyOnWriteArrayList<Intent>();
+
+	@Before
+	public void setUp(){
+		context = new JvmContext();
+		webView = new RecordingWebView();
+		batcher = new ActionNotificationBatcher(context);
+		context.declareReceiver(SmartDrawingSimulator.PACKAGE_NAME, new BroadcastReceiver() {
+			@Override
+			public void onReceive(Context context, Intent intent){
+				sent.add(intent);
+			}
+		}, new IntentFilter(ActionNotificationBatcher.KEEL_INTENT_ACTION_SEND_SUPPORTED_INFO));
+	}
+
+	@Test
+	public void sendsEveryActionSeparatelyByDefault() throws Exception {
+		assertEquals(0, batcher.getWindow());
+		CallbackContext first = webView.newCallbackContext();
+		CallbackContext second = webView.newCallbackContext();
+
+		batcher.submit("EQ-1", "{\"appId\":\"inspector\"}", first);
+		batcher.submit("EQ-1", "{\"appId\":\"orders\"}", second);
+		context.flushMain();
+
+		assertEquals(2, batcher.getBroadcastCount());
+		assertEquals(0, batcher.getCoalescedCount());
+		assertEquals(2, sent.size());
+		assertEquals("{\"appId\":\"inspector\"}", sent.get(0).getStringExtra(ActionNotificationBatcher.KEEL_INTENT_EXTRA_ACTION_SUPPORTED_INFO));
+		assertNull(sent.get(1).getStringExtra(ActionNotificationBatcher.KEEL_INTENT_EXTRA_ACTION_SUPPORTED_INFO_LIST));
+		assertEquals("1", webView.await(first, 1000).getMessage());
+		assertEquals("1", webView.await(second, 1000).getMessage());
+	}
+
+	@Test
+	public void batchesActionsWithinWindow() throws Exception {
+		batcher.setWindow(50);
+		CallbackContext first = webView.newCallbackContext();
+		CallbackContext second = webView.newCallbackContext();
+
+		batcher.submit("EQ-1", "{\"appId\":\"inspector\"}", first);
+		batcher.submit("EQ-1", "{\"appId\":\"orders\"}", second);
+		assertEquals(0, batcher.getBroadcastCount());
+
+		PluginResult result = webView.await(first, 5000);
+		assertEquals(PluginResult.Status.OK.ordinal(), result.getStatus());
+		assertEquals("2", result.getMessage());
+		context.flushMain();
+
+		assertEquals(1, batcher.getBroadcastCount());
+		assertEquals(1, batcher.getCoalescedCount());
+		assertEquals(1, sent.size());
+		assertEquals("[{\"appId\":\"inspector\"},{\"appId\":\"orders\"}]",
+				sent.get(0).getStringExtra(ActionNotificationBatcher.KEEL_INTENT_EXTRA_ACTION_SUPPORTED_INFO_LIST));
+		assertEquals(2, sent.get(0).getIntExtra(ActionNotificationBatcher.KEEL_INTENT_EXTRA_COALESCED_COUNT, 0));
+		assertTrue(webView.await(second, 1000) != null);
+	}
+}
@@ -0,0 +1,153 @@
+package com.keel.smartdrawing.fiori;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+
+import com.keel.smartdrawing.fiori.jvm.JvmContext;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+public class ActionStoreTest {
+
+	private static final int MAGIC = 0x534d4453;
+
+	/**
+	 * Container is process wide, so this is the only test loading it - with preferences written by previous plugin versions
+	 */
+	@Test
+	public void migratesPreferencesToStore() throws Exception {
+		JvmContext context = new JvmContext();
+		SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(context);
+		preferences.edit()
+				.putString("defaultActions", new JSONArray().put(new JSONObject().put("appId", "inspector")
+						.put("name", "Inspector").put("callbackContext", "Equipment-inspect")).toString())
+				.putString("equipmentRules", new JSONObject().put("inspector",
+						new JSONObject().put(EquipmentRuleIndex.RULE_PREFIXES, new JSONArray().put("PUMP-"))).toString())
+				.commit();
+
+		SingletonContextContainer container = SingletonContextContainer.getInstance(context);
+		SingletonContextContainer.ActionTemplate[] templates = container.getActionTemplates();
+
+		assertEquals(1, templates.length);
+		assertEquals("inspector", templates[0].getAppId());
+		assertEquals("Equipment-inspect", templates[0].getHash());
+		assertEquals("Inspector", new JSONObject(templates[0].forEquipment("PUMP-1")).getString("name"));
+		assertTrue(container.getEquipmentRuleIndex().match("PUMP-1", null).accepts("inspector"));
+		assertFalse(container.getEquipmentRuleIndex().match("FAN-1", null).accepts("inspector"));
+
+		ActionStore store = new ActionStore(context);
+		assertTrue(store.exists());
+		ActionStore.Contents contents = store.read();
+		assertEquals(1, contents.templates.length);
+		assertEquals(templates[0].getJson(), contents.templates[0].getJson());
+		assertTrue(new JSONObject(contents.rules).has("inspector"));
+
+		assertFalse(preferences.contains("defaultActions"));
+		assertFalse(preferences.contains("equipmentRules"));
+		assertEquals(1, container.getMetrics().snapshot().getJSONObject("counters").getLong("store.migrated"));
+	}
+
+	@Test
+	public void readsWrittenStore() throws Exception {
+		ActionStore store = new ActionStore(new JvmContext());
+		assertFalse(store.exists());
+		assertNull(store.read());
+
+		store.write(new ActionStore.Contents(new SingletonContextContainer.ActionTemplate[] {
+				new SingletonContextContainer.ActionTemplate("inspector", "Equipment-inspect", "{\"name\":\"Inspector\"}"),
+				new SingletonContextContainer.ActionTemplate(null, null, "{\"name\":\"Orders\"}")
+		}, "{}"));
+
+		ActionStore.Contents contents = store.read();
+		assertEquals(2, contents.templates.length);
+		assertEquals("Equipment-inspect", contents.templates[0].getHash());
+		assertNull(contents.templates[1].getAppId());
+		assertNull(contents.templates[1].getHash());
+		assertEquals("{\"name\":\"Orders\"}", contents.templates[1].getJson());
+		assertEquals("{}", contents.rules);
+	}
+
+	@Test
+	public void readsVersionOneStoreWithoutHashes() throws Exception {
+		JvmContext context = new JvmContext();
+		DataOutputStream out = open(context);
+		out.writeInt(MAGIC);
+		out.writeInt(1);
+		out.writeInt(1);
+		writeString(out, "inspector");
+		writeString(out, "{\"name\":\"Inspector\"}");
+		writeString(out, "{\"inspector\":{}}");
+		out.close();
+
+		ActionStore.Contents contents = new ActionStore(context).read();
+		assertEquals(1, contents.templates.length);
+		assertEquals("inspector", contents.templates[0].getAppId());
+		assertNull(contents.templates[0].getHash());
+		assertEquals("{\"name\":\"Inspector\"}", contents.templates[0].getJson());
+		assertEquals("{\"inspector\":{}}", contents.rules);
+	}
+
+	@Test
+	public void ignoresStoreOfUnknownVersion() throws Exception {
+		JvmContext context = new JvmContext();
+		DataOutputStream out = open(context);
+		out.writeInt(MAGIC);
+		out.writeInt(3);
+		out.writeInt(0);
+		out.close();
+
+		assertNull(new ActionStore(context).read());
+	}
+
+	@Test
+	public void ignoresCorruptStore() throws Exception {
+		JvmContext context = new JvmContext();
+		ActionStore store = new ActionStore(context);
+
+		//not a store
+		DataOutputStream out = open(context);
+		out.writeInt(0x12345678);
+		out.close();
+		assertNull(store.read());
+
+		//negative length of string
+		out = open(context);
+		out.writeInt(MAGIC);
+		out.writeInt(2);
+		out.writeInt(1);
+		out.writeInt(-5);
+		out.close();
+		assertNull(store.read());
+
+		//file cut in the middle of action
+		out = open(context);
+		out.writeInt(MAGIC);
+		out.writeInt(2);
+		out.writeInt(2);
+		writeString(out, "inspector");
+		out.close();
+		assertNull(store.read());
+	}
+
+	private static DataOutputStream open(JvmContext context) throws IOException {
+		return new DataOutputStream(new FileOutputStream(new File(context.getFilesDir(), ActionStore.FILE_NAME)));
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		byte[] bytes = value.getBytes("UTF-8");
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+}
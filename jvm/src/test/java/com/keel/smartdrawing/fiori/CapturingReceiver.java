@@ -0,0 +1,34 @@
+package com.keel.smartdrawing.fiori;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Bundle;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Result receiver of ordered broadcast keeping the final result and thread it was delivered on.
+ */
+class CapturingReceiver extends BroadcastReceiver {
+
+	private final CountDownLatch received = new CountDownLatch(1);
+	volatile int resultCode;
+	volatile Bundle resultExtras;
+	volatile Intent intent;
+	volatile String threadName;
+
+	@Override
+	public void onReceive(Context context, Intent intent){
+		this.resultCode = getResultCode();
+		this.resultExtras = getResultExtras(false);
+		this.intent = intent;
+		this.threadName = Thread.currentThread().getName();
+		received.countDown();
+	}
+
+	boolean await(long timeoutMillis) throws InterruptedException {
+		return received.await(timeoutMillis, TimeUnit.MILLISECONDS);
+	}
+}
@@ -0,0 +1,126 @@
+package com.keel.smartdrawing.fiori;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Activity;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Bundle;
+
+import com.keel.smartdrawing.fiori.jvm.JvmContext;
+import com.keel.smartdrawing.fiori.jvm.PluginManifest;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CheckEquipmentResponseReceiverTest {
+
+	/**
+	 * Check recording its answers
+	 */
+	private static class RecordingCheck extends PendingCheck {
+		final AtomicInteger responses = new AtomicInteger();
+		final AtomicInteger timeouts = new AtomicInteger();
+		final CountDownLatch done = new CountDownLatch(1);
+		volatile int resultCode;
+		volatile Bundle response;
+
+		@Override
+		public void onResponse(Context context, int resultCode, Bundle response){
+			this.resultCode = resultCode;
+			this.response = response;
+			responses.incrementAndGet();
+			done.countDown();
+		}
+
+		@Override
+		public void onTimeout(){
+			timeouts.incrementAndGet();
+			done.countDown();
+		}
+
+		boolean await() throws InterruptedException {
+			return done.await(5, TimeUnit.SECONDS);
+		}
+	}
+
+	private JvmContext context;
+	private PendingCheckRegistry registry;
+
+	@Before
+	public void setUp() throws Exception {
+		context = new JvmContext();
+		PluginManifest.load().install(context);
+		registry = SingletonContextContainer.getInstance(context).getPendingCheckRegistry();
+	}
+
+	@Test
+	public void answersCheckFromOrderedResult() throws Exception {
+		RecordingCheck check = new RecordingCheck();
+		String token = registry.register(check, 5000);
+		answerInOrderedResult(token, Activity.RESULT_OK);
+
+		assertTrue(check.await());
+		assertEquals(Activity.RESULT_OK, check.resultCode);
+		assertEquals(1, check.response.getStringArrayList(SmartDrawing.KEEL_INTENT_ACTION_EXTRA_DRAWING_LIST).size());
+		assertEquals(0, registry.size());
+	}
+
+	@Test
+	public void passesRefusalOfSmartDrawing() throws Exception {
+		RecordingCheck check = new RecordingCheck();
+		String token = registry.register(check, 5000);
+		answerInOrderedResult(token, Activity.RESULT_CANCELED);
+
+		assertTrue(check.await());
+		assertEquals(Activity.RESULT_CANCELED, check.resultCode);
+		assertEquals(0, registry.size());
+	}
+
+	@Test
+	public void leavesCheckOfOtherTokenToDeadline() throws Exception {
+		RecordingCheck check = new RecordingCheck();
+		registry.register(check, 100);
+		answerInOrderedResult(UUID.randomUUID().toString(), Activity.RESULT_OK);
+
+		assertTrue(check.await());
+		assertEquals(0, check.responses.get());
+		assertEquals(1, check.timeouts.get());
+	}
+
+	/**
+	 * Sends check to Smart Drawing stand-in answering it in result of the ordered broadcast
+	 */
+	private void answerInOrderedResult(String token, final int resultCode){
+		IntentFilter filter = new IntentFilter(SmartDrawing.KEEL_INTENT_ACTION_CHECK_EQUIPMENT);
+		context.declareReceiver(SmartDrawingSimulator.PACKAGE_NAME, new BroadcastReceiver() {
+			@Override
+			public void onReceive(Context context, Intent intent){
+				Bundle result = new Bundle();
+				result.putStringArrayList(SmartDrawing.KEEL_INTENT_ACTION_EXTRA_DRAWING_LIST, drawings());
+				setResultCode(resultCode);
+				setResultExtras(result);
+			}
+		}, filter);
+
+		Intent intent = new Intent(SmartDrawing.KEEL_INTENT_ACTION_CHECK_EQUIPMENT);
+		intent.putExtra(SmartDrawing.KEEL_INTENT_ACTION_EXTRA_EQUIPMENT_ID, "EQ-1");
+		intent.putExtra(SmartDrawing.KEEL_INTENT_ACTION_EXTRA_REQUEST_TOKEN, token);
+		context.sendOrderedBroadcast(intent, null, new CheckEquipmentResponseReceiver(), ReceiverThread.getHandler(), Activity.RESULT_OK, null, null);
+	}
+
+	private static ArrayList<String> drawings(){
+		ArrayList<String> drawings = new ArrayList<String>();
+		drawings.add("{\"drawingId\":\"DRW-1\"}");
+		return drawings;
+	}
+}
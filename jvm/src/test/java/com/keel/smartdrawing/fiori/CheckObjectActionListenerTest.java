@@ -0,0 +1,94 @@
+package com.keel.smartdrawing.fiori;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Activity;
+import android.content.Intent;
+
+import com.keel.smartdrawing.fiori.jvm.JvmContext;
+import com.keel.smartdrawing.fiori.jvm.JvmCordova;
+import com.keel.smartdrawing.fiori.jvm.PluginManifest;
+import com.keel.smartdrawing.fiori.jvm.RecordingWebView;
+
+import org.apache.cordova.CallbackContext;
+import org.apache.cordova.PluginResult;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CheckObjectActionListenerTest {
+
+	private JvmContext context;
+	private RecordingWebView webView;
+	private SmartDrawing plugin;
+	private SingletonContextContainer container;
+
+	@Before
+	public void setUp() throws Exception {
+		context = new JvmContext();
+		PluginManifest.load().install(context);
+		webView = new RecordingWebView();
+		plugin = new JvmCordova(context).initialize(new SmartDrawing(), "SmartDrawing", webView);
+		container = SingletonContextContainer.getInstance(context);
+	}
+
+	@Test
+	public void answersCheckWithoutWaitingForJavaScriptByDefault() throws Exception {
+		assertEquals(0, container.getActionResponseCollector().getDeadline());
+		plugin.execute(SmartDrawing.ACTION_ON_CHECK_OBJECT_ACTION, new JSONArray().put("inspector"), webView.newCallbackContext());
+		assertNotNull(container.getOnCheckObjectActionListener());
+
+		//broadcast is answered without being handed over to collector
+		checkEquipmentView("EQ-9");
+		assertFalse(container.getMetrics().snapshot().getJSONObject("histograms").has("receiver.checkEquipmentView.held"));
+
+		execute(SmartDrawing.ACTION_REMOVE_ON_CHECK_OBJECT_ACTION, new JSONArray().put("inspector"));
+	}
+
+	@Test
+	public void stopsNotifyingJavaScriptWhenLastAppIsRemoved() throws Exception {
+		CallbackContext listener = webView.newCallbackContext();
+		plugin.execute(SmartDrawing.ACTION_ON_CHECK_OBJECT_ACTION, new JSONArray().put("inspector"), listener);
+		assertTrue(container.getCheckObjectActionApps().contains("inspector"));
+
+		checkEquipmentView("EQ-1");
+		PluginResult notified = webView.await(listener, 2000);
+		assertNotNull(notified);
+		assertEquals("inspector", new JSONObject(notified.getMessage()).getJSONArray("appIds").getString(0));
+
+		execute(SmartDrawing.ACTION_REMOVE_ON_CHECK_OBJECT_ACTION, new JSONArray().put("inspector"));
+		assertFalse(container.getCheckObjectActionApps().contains("inspector"));
+
+		checkEquipmentView("EQ-2");
+		assertNull(webView.await(listener, 300));
+
+		//listener without appId gets every check
+		plugin.execute(SmartDrawing.ACTION_ON_CHECK_OBJECT_ACTION, new JSONArray().put(JSONObject.NULL), webView.newCallbackContext());
+		assertTrue(container.hasAnonymousCheckObjectActionListener());
+		assertTrue(container.getCheckObjectActionApps().isEmpty());
+
+		checkEquipmentView("EQ-3");
+		notified = webView.await(listener, 2000);
+		assertNotNull(notified);
+		assertEquals("EQ-3", new JSONObject(notified.getMessage()).getString("equipmentId"));
+	}
+
+	private void execute(String action, JSONArray args) throws Exception {
+		CallbackContext callbackContext = webView.newCallbackContext();
+		plugin.execute(action, args, callbackContext);
+		assertEquals(PluginResult.Status.OK.ordinal(), webView.await(callbackContext, 5000).getStatus());
+	}
+
+	private void checkEquipmentView(String equipmentId) throws InterruptedException {
+		Intent intent = new Intent("com.keelsolution.action.CHECK_EQUIPMENT_VIEW");
+		intent.putExtra(SupportedEquipmentsBroadcastReceiver.KEEL_INTENT_ACTION_EXTRA_EQUIPMENT_ID, equipmentId);
+		CapturingReceiver result = new CapturingReceiver();
+		context.sendOrderedBroadcast(intent, null, result, null, Activity.RESULT_OK, null, null);
+		assertTrue("broadcast was not answered", result.await(5000));
+	}
+}
@@ -0,0 +1,100 @@
+package com.keel.smartdrawing.fiori;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.List;
+
+public class CheckResultCacheTest {
+
+	private final CheckResultCache cache = new CheckResultCache();
+
+	@Test
+	public void answersStoredCheck(){
+		String key = CheckResultCache.equipmentKey("EQ-1");
+		assertNull(cache.get(key));
+
+		cache.put(key, "[\"DRW-1\"]", false);
+		assertEquals("[\"DRW-1\"]", cache.get(key));
+		//equipment and drawing with the same id do not share answer
+		assertNull(cache.get(CheckResultCache.drawingKey("EQ-1")));
+
+		assertEquals(1, cache.getHits());
+		assertEquals(2, cache.getMisses());
+	}
+
+	@Test
+	public void expiresNegativeAnswersSooner() throws Exception {
+		cache.configure(CheckResultCache.DEFAULT_MAX_ENTRIES, 5000, 50);
+		cache.put(CheckResultCache.equipmentKey("EQ-1"), "[\"DRW-1\"]", false);
+		cache.put(CheckResultCache.equipmentKey("EQ-2"), "[]", true);
+
+		Thread.sleep(100);
+		assertEquals("[\"DRW-1\"]", cache.get(CheckResultCache.equipmentKey("EQ-1")));
+		assertNull(cache.get(CheckResultCache.equipmentKey("EQ-2")));
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void doesNotStoreAnswersWithoutTimeToLive(){
+		cache.configure(CheckResultCache.DEFAULT_MAX_ENTRIES, 0, 0);
+		cache.put(CheckResultCache.equipmentKey("EQ-1"), "[\"DRW-1\"]", false);
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void evictsLeastRecentlyUsedAnswer(){
+		cache.configure(2, CheckResultCache.DEFAULT_TTL, CheckResultCache.DEFAULT_NEGATIVE_TTL);
+		cache.put("a", "1", false);
+		cache.put("b", "2", false);
+		cache.get("a");
+		cache.put("c", "3", false);
+
+		assertEquals("1", cache.get("a"));
+		assertNull(cache.get("b"));
+		assertEquals("3", cache.get("c"));
+
+		//smaller limit drops the eldest answers at once
+		cache.configure(1, CheckResultCache.DEFAULT_TTL, CheckResultCache.DEFAULT_NEGATIVE_TTL);
+		assertEquals(1, cache.size());
+		assertEquals("3", cache.get("c"));
+	}
+
+	@Test
+	public void mergesConcurrentChecksOfSameObject(){
+		String key = CheckResultCache.drawingKey("DRW-1");
+		PendingCall first = new PendingCall("call-1", null);
+		PendingCall second = new PendingCall("call-2", null);
+
+		assertTrue(cache.join(key, first));
+		assertFalse(cache.join(key, second));
+
+		List<PendingCall> waiters = cache.complete(key, Boolean.TRUE, false);
+		assertEquals(2, waiters.size());
+		assertEquals(first, waiters.get(0));
+		assertEquals(second, waiters.get(1));
+		assertEquals(Boolean.TRUE, cache.get(key));
+
+		//next check is sent again
+		assertTrue(cache.join(key, first));
+		assertEquals(1, cache.abandon(key).size());
+		assertEquals(0, cache.abandon(key).size());
+	}
+
+	@Test
+	public void invalidatesAnswers(){
+		cache.put("a", "1", false);
+		cache.put("b", "2", false);
+
+		cache.invalidate("a");
+		assertNull(cache.get("a"));
+		assertEquals("2", cache.get("b"));
+
+		cache.invalidateAll();
+		assertEquals(0, cache.size());
+	}
+}
@@ -0,0 +1,181 @@
+package com.keel.smartdrawing.fiori;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringReader;
+
+public class DrawingIndexTest {
+
+	private DrawingIndex index;
+
+	@Before
+	public void setUp() throws Exception {
+		index = new DrawingIndex();
+		index.setEnabled(true);
+		load("SMDINDEX 1",
+				"D\tDRW-1\tPump house",
+				"D\tDRW-2\tBoiler room",
+				"E\tEQ-1\tDRW-1\tDRW-2",
+				"E\tEQ-2\tDRW-2",
+				"E\tEQ-1\tDRW-3");
+	}
+
+	@Test
+	public void loadsFullExport() throws Exception {
+		JSONObject report = index.report();
+		assertEquals(1, report.getLong("version"));
+		assertEquals(2, report.getInt("equipment"));
+		assertEquals(3, report.getInt("drawings"));
+
+		//equipment listed twice has drawings of both records
+		assertEquals("[DRW-1, DRW-2, DRW-3]", drawingIds(index.findEquipment("EQ-1")));
+		assertEquals("Pump house", index.findEquipment("EQ-1").getJSONObject(0).getString("drawingName"));
+		assertEquals("[DRW-2]", drawingIds(index.findEquipment("EQ-2")));
+	}
+
+	@Test
+	public void unknownEquipmentIsAskedAtSmartDrawing() throws Exception {
+		assertNull(index.findEquipment("EQ-3"));
+		assertNull(index.findEquipment("EQ-"));
+		assertNull(index.findEquipment("EQ-10"));
+		assertEquals(3, index.getMisses());
+	}
+
+	@Test
+	public void answersDrawingMissingInIndex() throws Exception {
+		assertEquals(Boolean.TRUE, index.findDrawing("DRW-1"));
+		assertEquals(Boolean.FALSE, index.findDrawing("DRW-4"));
+
+		index.setEnabled(false);
+		assertNull(index.findDrawing("DRW-4"));
+	}
+
+	@Test
+	public void appliesDelta() throws Exception {
+		load("SMDINDEX 2 1",
+				"D\tDRW-1\tPump house 2",
+				"D\tDRW-4\tCooling",
+				"X\tDRW-2",
+				"E\tEQ-3\tDRW-4",
+				"E\tEQ-2\tDRW-1\tDRW-4",
+				"R\tEQ-1");
+
+		assertEquals(2, index.getVersion());
+		assertEquals("[DRW-4]", drawingIds(index.findEquipment("EQ-3")));
+		assertEquals("[DRW-1, DRW-4]", drawingIds(index.findEquipment("EQ-2")));
+		assertEquals("Pump house 2", index.findEquipment("EQ-2").getJSONObject(0).getString("drawingName"));
+		//removed equipment is known to have no drawings
+		assertEquals(0, index.findEquipment("EQ-1").length());
+		assertEquals(Boolean.FALSE, index.findDrawing("DRW-2"));
+		assertEquals(3, index.report().getInt("overlay"));
+	}
+
+	@Test
+	public void rejectsDeltaOfOtherVersion() throws Exception {
+		try {
+			load("SMDINDEX 3 2", "E\tEQ-3\tDRW-1");
+			fail("delta of other version was applied");
+		} catch (IllegalStateException e) {
+			//full export is needed
+		}
+		assertEquals(1, index.getVersion());
+		assertNull(index.findEquipment("EQ-3"));
+	}
+
+	@Test
+	public void mergesBigOverlayIntoSortedArrays() throws Exception {
+		StringBuilder delta = new StringBuilder("SMDINDEX 2 1\n");
+		for (int i = 0; i < 1100; i++){
+			delta.append("E\tEQ-NEW-").append(i).append("\tDRW-").append(i % 2 + 1).append('\n');
+		}
+		delta.append("R\tEQ-2\n");
+		index.load(new StringReader(delta.toString()));
+
+		JSONObject report = index.report();
+		assertEquals(0, report.getInt("overlay"));
+		//EQ-1 kept, EQ-2 dropped, new equipment added
+		assertEquals(1101, report.getInt("equipment"));
+		assertEquals("[DRW-1, DRW-2, DRW-3]", drawingIds(index.findEquipment("EQ-1")));
+		assertNull(index.findEquipment("EQ-2"));
+		for (int i = 0; i < 1100; i++){
+			assertEquals("[DRW-" + (i % 2 + 1) + "]", drawingIds(index.findEquipment("EQ-NEW-" + i)));
+		}
+		assertNull(index.findEquipment("EQ-NEW-1100"));
+	}
+
+	@Test
+	public void backsOffFailedSynchronization() throws Exception {
+		index.onSourceVersion(2);
+		assertTrue(index.isSyncNeeded());
+
+		assertTrue(index.beginSync());
+		assertFalse(index.beginSync());
+		//checks do not start synchronization while one runs
+		assertFalse(index.isSyncNeeded());
+
+		index.endSync(false);
+		//checks wait for retry delay, explicit update starts at once
+		assertFalse(index.isSyncNeeded());
+		assertTrue(index.beginSync());
+
+		load("SMDINDEX 2 1", "E\tEQ-3\tDRW-1");
+		index.endSync(true);
+		assertFalse(index.isSyncNeeded());
+		index.onSourceVersion(3);
+		assertTrue(index.isSyncNeeded());
+	}
+
+	@Test
+	public void requestsFullExportWhenIndexIsEmpty() throws Exception {
+		//delta of other version drops the index
+		index.onSourceVersion(3);
+		assertTrue(index.beginSync());
+		try {
+			load("SMDINDEX 3 2", "E\tEQ-3\tDRW-1");
+			fail("delta of other version was applied");
+		} catch (IllegalStateException e) {
+			index.clear();
+		}
+		index.endSync(false);
+		assertEquals(-1, index.getVersion());
+		//failed synchronization is retried after delay
+		assertFalse(index.isSyncNeeded());
+
+		DrawingIndex empty = new DrawingIndex();
+		empty.setEnabled(true);
+		//nothing to synchronize with until Smart Drawing reports its version
+		assertFalse(empty.isSyncNeeded());
+		empty.onSourceVersion(0);
+		assertTrue(empty.isSyncNeeded());
+		empty.setEnabled(false);
+		assertFalse(empty.isSyncNeeded());
+	}
+
+	private void load(String... lines) throws Exception {
+		StringBuilder export = new StringBuilder();
+		for (String line : lines){
+			export.append(line).append('\n');
+		}
+		index.load(new StringReader(export.toString()));
+	}
+
+	private static String drawingIds(JSONArray drawings) throws Exception {
+		StringBuilder ids = new StringBuilder("[");
+		for (int i = 0; i < drawings.length(); i++){
+			if (i > 0){
+				ids.append(", ");
+			}
+			ids.append(drawings.getJSONObject(i).getString("drawingId"));
+		}
+		return ids.append(']').toString();
+	}
+}
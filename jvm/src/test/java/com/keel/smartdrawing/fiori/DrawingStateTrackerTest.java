@@ -0,0 +1,96 @@
+package com.keel.smartdrawing.fiori;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.keel.smartdrawing.fiori.jvm.JvmContext;
+import com.keel.smartdrawing.fiori.jvm.JvmCordova;
+import com.keel.smartdrawing.fiori.jvm.PluginManifest;
+import com.keel.smartdrawing.fiori.jvm.RecordingWebView;
+
+import org.apache.cordova.CallbackContext;
+import org.apache.cordova.PluginResult;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class DrawingStateTrackerTest {
+
+	@Test
+	public void diffFindsAddedChangedAndRemovedEquipment() throws Exception {
+		DrawingStateTracker tracker = new DrawingStateTracker();
+		tracker.record("D-1", new JSONArray().put(equipment("EQ-1", "red")).put(equipment("EQ-2", "red")).put(equipment("EQ-3", "red")));
+
+		DrawingStateTracker.Delta delta = tracker.diff("D-1", new JSONArray()
+				.put(equipment("EQ-1", "red")).put(equipment("EQ-2", "green")).put(equipment("EQ-4", "red")));
+
+		assertEquals(1, delta.added.length());
+		assertEquals("EQ-4", delta.added.getJSONObject(0).getString("equipmentId"));
+		assertEquals(1, delta.changed.length());
+		assertEquals("green", delta.changed.getJSONObject(0).getString("color"));
+		assertEquals(1, delta.removed.length());
+		assertEquals("EQ-3", delta.removed.getString(0));
+
+		//new state is remembered
+		assertTrue(tracker.diff("D-1", new JSONArray()
+				.put(equipment("EQ-1", "red")).put(equipment("EQ-2", "green")).put(equipment("EQ-4", "red"))).isEmpty());
+	}
+
+	@Test
+	public void tracksOnlyDrawingOpenedLast() throws Exception {
+		DrawingStateTracker tracker = new DrawingStateTracker();
+		tracker.record("D-1", new JSONArray().put(equipment("EQ-1", "red")));
+		tracker.record("D-2", new JSONArray().put(equipment("EQ-1", "red")));
+
+		assertNull(tracker.diff("D-1", new JSONArray()));
+		assertTrue(tracker.diff("D-2", new JSONArray().put(equipment("EQ-1", "red"))).isEmpty());
+
+		//drawing opened without equipment data is not tracked
+		tracker.record("D-3", null);
+		assertNull(tracker.diff("D-2", new JSONArray()));
+	}
+
+	@Test
+	public void updateOfOtherDrawingFallsBackToShowData() throws Exception {
+		JvmContext context = new JvmContext();
+		PluginManifest.load().install(context);
+		RecordingWebView webView = new RecordingWebView();
+		SmartDrawing plugin = new JvmCordova(context).initialize(new SmartDrawing(), "SmartDrawing", webView);
+
+		execute(plugin, webView, SmartDrawing.ACTION_SHOW_DATA, message("D-1", equipment("EQ-1", "red")));
+		execute(plugin, webView, SmartDrawing.ACTION_SHOW_DATA, message("D-2", equipment("EQ-1", "red")));
+		assertEquals(2, context.getStartedActivities().size());
+
+		//open drawing gets only the changes
+		PluginResult result = execute(plugin, webView, SmartDrawing.ACTION_UPDATE_DATA, message("D-2", equipment("EQ-1", "green")));
+		JSONObject summary = new JSONObject(result.getMessage());
+		assertEquals("delta", summary.getString("mode"));
+		assertEquals(1, summary.getInt("changed"));
+		assertEquals(2, context.getStartedActivities().size());
+
+		//drawing shown before is not open anymore, full message opens it again
+		execute(plugin, webView, SmartDrawing.ACTION_UPDATE_DATA, message("D-1", equipment("EQ-1", "green")));
+		assertEquals(3, context.getStartedActivities().size());
+		assertEquals("D-1", new JSONObject(context.getStartedActivities().get(2).getStringExtra(SmartDrawing.INTENT_EXTRA_KEY)).getString("drawingId"));
+
+		result = execute(plugin, webView, SmartDrawing.ACTION_UPDATE_DATA, message("D-1", equipment("EQ-1", "green")));
+		assertEquals("none", new JSONObject(result.getMessage()).getString("mode"));
+	}
+
+	private PluginResult execute(SmartDrawing plugin, RecordingWebView webView, String action, JSONObject message) throws Exception {
+		CallbackContext callbackContext = webView.newCallbackContext();
+		plugin.execute(action, new JSONArray().put(message), callbackContext);
+		PluginResult result = webView.await(callbackContext, 5000);
+		assertEquals(PluginResult.Status.OK.ordinal(), result.getStatus());
+		return result;
+	}
+
+	private static JSONObject message(String drawingId, JSONObject equipment) throws Exception {
+		return new JSONObject().put("label", "Alarms").put("drawingId", drawingId).put("equipments", new JSONArray().put(equipment));
+	}
+
+	private static JSONObject equipment(String equipmentId, String color) throws Exception {
+		return new JSONObject().put("equipmentId", equipmentId).put("color", color);
+	}
+}
@@ -0,0 +1,43 @@
+package com.keel.smartdrawing.fiori;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class EquipmentRuleIndexTest {
+
+	@Test
+	public void matchesRulesOfApps() throws Exception {
+		EquipmentRuleIndex index = new EquipmentRuleIndex();
+		index.setRules("pumps", new JSONObject().put(EquipmentRuleIndex.RULE_PREFIXES, new JSONArray().put("PUMP-")));
+		index.setRules("boilers", new JSONObject().put(EquipmentRuleIndex.RULE_CLASSES, new JSONArray().put("BOILER")));
+
+		EquipmentRuleIndex.Match match = index.match("PUMP-7", "BOILER");
+		assertTrue(match.accepts("pumps"));
+		assertTrue(match.accepts("boilers"));
+		//apps without rules get every equipment
+		assertTrue(match.accepts("orders"));
+
+		assertFalse(index.match("FAN-1", null).accepts("pumps"));
+	}
+
+	@Test
+	public void withRulesLeavesIndexUnchanged() throws Exception {
+		EquipmentRuleIndex index = new EquipmentRuleIndex();
+		index.setRules("pumps", new JSONObject().put(EquipmentRuleIndex.RULE_IDS, new JSONArray().put("PUMP-1")));
+
+		EquipmentRuleIndex changed = index.withRules("pumps", new JSONObject().put(EquipmentRuleIndex.RULE_IDS, new JSONArray().put("PUMP-2")));
+
+		assertTrue(index.match("PUMP-1", null).accepts("pumps"));
+		assertFalse(index.match("PUMP-2", null).accepts("pumps"));
+		assertFalse(changed.match("PUMP-1", null).accepts("pumps"));
+		assertTrue(changed.match("PUMP-2", null).accepts("pumps"));
+
+		//removed restriction is not seen by the original index either
+		assertTrue(index.withRules("pumps", null).match("FAN-1", null).accepts("pumps"));
+		assertFalse(index.match("FAN-1", null).accepts("pumps"));
+	}
+}
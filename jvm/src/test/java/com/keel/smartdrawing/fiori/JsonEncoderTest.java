@@ -0,0 +1,112 @@
+package com.keel.smartdrawing.fiori;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class JsonEncoderTest {
+
+	@Test
+	public void escapesStringsLikeToString() throws Exception {
+		JSONObject object = new JSONObject()
+				.put("path", "/sap/bc/ui5_ui5/</script>")
+				.put("quotes", "\"quoted\" and \\back\\slash")
+				.put("control", "tab\tnewline\nreturn\rbackspace\bfeed\fbell\u0007unit\u001f")
+				.put("unicode", "Pumpe ü € 中 😀")
+				.put("/key\n", "value");
+
+		assertEncodedLikeToString(object);
+		//slash is escaped as by Android
+		assertEquals("[\"\\/sap\\/bc\\/ui5_ui5\\/<\\/script>\"]", JsonEncoder.encode(new JSONArray().put("/sap/bc/ui5_ui5/</script>")));
+	}
+
+	@Test
+	public void formatsNumbersLikeToString() throws Exception {
+		JSONArray numbers = new JSONArray()
+				.put(0)
+				.put(-42)
+				.put(Integer.MAX_VALUE)
+				.put(Long.MIN_VALUE)
+				.put(1L << 53)
+				.put(1.0)
+				.put(-0.5)
+				.put(0.1)
+				.put(1e20)
+				.put(1.5e-7)
+				.put(Double.MAX_VALUE)
+				.put(Float.valueOf(0.1f));
+
+		assertEquals(numbers.toString(), JsonEncoder.encode(numbers));
+		assertEncodedLikeToString(new JSONObject().put("numbers", numbers).put("long", 1234567890123L).put("double", 3.25));
+	}
+
+	@Test
+	public void writesNullsLikeToString() throws Exception {
+		JSONObject object = new JSONObject()
+				.put("null", JSONObject.NULL)
+				.put("array", new JSONArray().put(JSONObject.NULL).put((Object) null).put("x"))
+				.put("nested", new JSONObject().put("value", JSONObject.NULL));
+
+		assertEncodedLikeToString(object);
+	}
+
+	@Test
+	public void writesNestedTreesLikeToString() throws Exception {
+		JSONObject equipment = new JSONObject()
+				.put("equipmentId", "EQ-1")
+				.put("visible", true)
+				.put("blinking", false)
+				.put("statuses", new JSONArray().put(new JSONObject().put("color", "#FF0000").put("level", 2)).put(new JSONArray()))
+				.put("empty", new JSONObject());
+		JSONObject message = new JSONObject()
+				.put("label", "Alarms")
+				.put("equipments", new JSONArray().put(equipment).put(new JSONArray().put(new JSONArray().put(1))));
+
+		assertEncodedLikeToString(message);
+		assertEquals(BenchmarkData.showDataMessage(50).toString(), JsonEncoder.encode(BenchmarkData.showDataMessage(50)));
+	}
+
+	@Test
+	public void envelopeFieldsOverrideOrDropFieldsOfObject() throws Exception {
+		JSONObject action = new JSONObject()
+				.put("name", "Inspector")
+				.put("equipmentId", "EQ-old")
+				.put("packageName", "com.other")
+				.put("callbackContext", "Equipment-inspect");
+
+		String json = JsonEncoder.encode(action,
+				"equipmentId", null,
+				"packageName", "com.keel/fiori",
+				"action", "com.keelsolution.action.CALL_FIORI");
+
+		//envelope fields come first, fields of the same name are written once with envelope value, null drops the field
+		assertTrue(json.startsWith("{\"packageName\":\"com.keel\\/fiori\",\"action\":\"com.keelsolution.action.CALL_FIORI\","));
+		assertEquals(json.indexOf("\"packageName\""), json.lastIndexOf("\"packageName\""));
+		JSONObject parsed = new JSONObject(json);
+		assertEquals(4, parsed.length());
+		assertEquals("com.keel/fiori", parsed.getString("packageName"));
+		assertEquals("Inspector", parsed.getString("name"));
+		assertEquals("Equipment-inspect", parsed.getString("callbackContext"));
+		assertFalse(parsed.has("equipmentId"));
+
+		//fields of the object are written like toString
+		JSONObject rest = new JSONObject(action.toString());
+		rest.remove("equipmentId");
+		rest.remove("packageName");
+		assertEquals("{\"packageName\":\"com.keel\\/fiori\",\"action\":\"com.keelsolution.action.CALL_FIORI\"," + rest.toString().substring(1), json);
+
+		//object itself is not changed
+		assertEquals("EQ-old", action.getString("equipmentId"));
+		assertEquals("com.other", action.getString("packageName"));
+		assertFalse(action.has("action"));
+	}
+
+	private static void assertEncodedLikeToString(JSONObject object) throws Exception {
+		assertEquals(object.toString(), JsonEncoder.encode(object));
+		assertEquals(new JSONArray().put(object).toString(), JsonEncoder.encode(new JSONArray().put(object)));
+	}
+}
@@ -0,0 +1,55 @@
+package com.keel.smartdrawing.fiori;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.Intent;
+
+import com.keel.fiori.client.MainActivity;
+import com.keel.smartdrawing.fiori.jvm.JvmContext;
+import com.keel.smartdrawing.fiori.jvm.PluginManifest;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class LandingActivityTest {
+
+	@Test
+	public void debouncesOnlyRepeatedTapsOfSameAction() throws Exception {
+		JvmContext context = new JvmContext();
+		PluginManifest.load().install(context);
+		NavigationQueue navigationQueue = SingletonContextContainer.getInstance(context).getNavigationQueue();
+
+		tap(context, "Equipment-inspect", "EQ-1");
+		assertEquals(1, mainActivityStarts(context));
+
+		//other action within debounce time is brought to front too
+		tap(context, "Equipment-orders", "EQ-1");
+		assertEquals(2, mainActivityStarts(context));
+
+		//repeated tap of the same action is not
+		tap(context, "Equipment-orders", "EQ-1");
+		assertEquals(2, mainActivityStarts(context));
+		assertEquals(1, navigationQueue.getDebouncedCount());
+
+		navigationQueue.configure(NavigationQueue.Policy.LATEST_WINS, NavigationQueue.DEFAULT_CAPACITY, 0);
+		tap(context, "Equipment-orders", "EQ-1");
+		assertEquals(3, mainActivityStarts(context));
+	}
+
+	private static void tap(JvmContext context, String hash, String equipmentId) throws Exception {
+		Intent intent = new Intent(SupportedEquipmentsBroadcastReceiver.KEEL_INTENT_CALL_FIORI_ACTION);
+		intent.putExtra(LandingActivity.KEEL_INTENT_ACTION_EXTRA_CALLBACK_CONTEXT,
+				new JSONObject().put("callbackContext", hash).put("equipmentId", equipmentId).toString());
+		context.launch(LandingActivity.class, intent);
+	}
+
+	private static int mainActivityStarts(JvmContext context){
+		int count = 0;
+		for (Intent intent : context.getStartedActivities()){
+			if (intent.getComponent() != null && MainActivity.class.getName().equals(intent.getComponent().getClassName())){
+				count++;
+			}
+		}
+		return count;
+	}
+}
@@ -0,0 +1,119 @@
+package com.keel.smartdrawing.fiori;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import android.content.Intent;
+import android.net.Uri;
+
+import com.keel.smartdrawing.fiori.jvm.JvmContext;
+import com.keel.smartdrawing.fiori.jvm.JvmCordova;
+import com.keel.smartdrawing.fiori.jvm.PluginManifest;
+import com.keel.smartdrawing.fiori.jvm.RecordingWebView;
+
+import org.apache.cordova.CallbackContext;
+import org.apache.cordova.PluginResult;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.util.List;
+
+public class PayloadProviderTest {
+
+	private JvmContext context;
+	private RecordingWebView webView;
+	private SmartDrawing plugin;
+
+	@Before
+	public void setUp() throws Exception {
+		context = new JvmContext();
+		PluginManifest.load().install(context);
+		webView = new RecordingWebView();
+		plugin = new JvmCordova(context).initialize(new SmartDrawing(), "SmartDrawing", webView);
+	}
+
+	@Test
+	public void publishedPayloadIsReadThroughProvider() throws Exception {
+		byte[] data = "{\"equipments\":[\"EQ-1\"]}".getBytes("UTF-8");
+		Uri uri = PayloadProvider.publish(context, data);
+
+		assertEquals(context.getPackageName() + PayloadProvider.AUTHORITY_SUFFIX, uri.getAuthority());
+		assertEquals("{\"equipments\":[\"EQ-1\"]}", read(uri));
+		//payload can be read again until it expires
+		assertEquals("{\"equipments\":[\"EQ-1\"]}", read(uri));
+
+		try {
+			read(Uri.parse("content://" + uri.getAuthority() + "/unknown"));
+			fail("unknown payload was opened");
+		} catch (FileNotFoundException e) {
+			//expected
+		}
+	}
+
+	@Test
+	public void sendsLargeMessageInlineByDefault() throws Exception {
+		JSONObject message = BenchmarkData.showDataMessage(5000);
+		assertTrue(JsonEncoder.encode(message).length() * 2 > 256 * 1024);
+
+		Intent intent = showData(message);
+
+		assertEquals(JsonEncoder.encode(message), intent.getStringExtra(SmartDrawing.INTENT_EXTRA_KEY));
+		assertNull(intent.getStringExtra(SmartDrawing.INTENT_EXTRA_PAYLOAD_URI));
+	}
+
+	@Test
+	public void streamsMessageOverConfiguredLimit() throws Exception {
+		execute(SmartDrawing.ACTION_CONFIGURE_TRANSPORT, new JSONObject().put("inlineLimit", 1024));
+		JSONObject message = BenchmarkData.showDataMessage(100);
+
+		Intent intent = showData(message);
+
+		assertNull(intent.getStringExtra(SmartDrawing.INTENT_EXTRA_KEY));
+		String uri = intent.getStringExtra(SmartDrawing.INTENT_EXTRA_PAYLOAD_URI);
+		assertNotNull(uri);
+		assertTrue((intent.getFlags() & Intent.FLAG_GRANT_READ_URI_PERMISSION) != 0);
+		assertEquals(JsonEncoder.encode(message), read(Uri.parse(uri)));
+
+		//small message stays inline
+		JSONObject small = BenchmarkData.showDataMessage(1);
+		assertEquals(JsonEncoder.encode(small), showData(small).getStringExtra(SmartDrawing.INTENT_EXTRA_KEY));
+	}
+
+	private Intent showData(JSONObject message) throws Exception {
+		int started = context.getStartedActivities().size();
+		execute(SmartDrawing.ACTION_SHOW_DATA, message);
+		List<Intent> activities = context.getStartedActivities();
+		assertEquals(started + 1, activities.size());
+		return activities.get(started);
+	}
+
+	private void execute(String action, JSONObject options) throws Exception {
+		CallbackContext callbackContext = webView.newCallbackContext();
+		plugin.execute(action, new JSONArray().put(options), callbackContext);
+		PluginResult result = webView.await(callbackContext, 5000);
+		assertEquals(PluginResult.Status.OK.ordinal(), result.getStatus());
+	}
+
+	private String read(Uri uri) throws Exception {
+		InputStream in = context.getContentResolver().openInputStream(uri);
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int count;
+			while ((count = in.read(buffer)) > 0){
+				out.write(buffer, 0, count);
+			}
+			return out.toString("UTF-8");
+		} finally {
+			in.close();
+		}
+	}
+}
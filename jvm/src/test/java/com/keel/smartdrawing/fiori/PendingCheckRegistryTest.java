@@ -0,0 +1,124 @@
+package com.keel.smartdrawing.fiori;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.os.Bundle;
+
+import com.keel.smartdrawing.fiori.jvm.RecordingWebView;
+
+import org.apache.cordova.CallbackContext;
+import org.apache.cordova.PluginResult;
+import org.junit.Test;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class PendingCheckRegistryTest {
+
+	/**
+	 * Check ignoring its answers
+	 */
+	private static class IdleCheck extends PendingCheck {
+		final CountDownLatch timedOut = new CountDownLatch(1);
+
+		@Override
+		public void onResponse(Context context, int resultCode, Bundle response){
+		}
+
+		@Override
+		public void onTimeout(){
+			timedOut.countDown();
+		}
+	}
+
+	private final MetricsRegistry metrics = new MetricsRegistry();
+	private final PendingCheckRegistry registry = new PendingCheckRegistry(metrics);
+	private final RecordingWebView webView = new RecordingWebView();
+
+	@Test
+	public void tokensAreRandomUuids(){
+		String first = registry.register(new IdleCheck(), 5000);
+		String second = registry.register(new IdleCheck(), 5000);
+
+		assertEquals(first, UUID.fromString(first).toString());
+		assertEquals(second, UUID.fromString(second).toString());
+		assertFalse(first.equals(second));
+	}
+
+	@Test
+	public void removesAnsweredCheck() throws Exception {
+		IdleCheck check = new IdleCheck();
+		String token = registry.register(check, 100);
+		assertEquals(token, check.getToken());
+		assertEquals(1, registry.size());
+
+		assertSame(check, registry.remove(token));
+		assertNull(registry.remove(token));
+		assertNull(registry.remove(null));
+		assertEquals(0, registry.size());
+		assertEquals(1, metrics.histogram("check.roundTrip").getCount());
+
+		//deadline of answered check does not fire
+		assertFalse(check.timedOut.await(300, TimeUnit.MILLISECONDS));
+		assertFalse(metrics.snapshot().getJSONObject("counters").has("check.timeout"));
+	}
+
+	@Test
+	public void dropsCheckNotAnsweredInTime() throws Exception {
+		IdleCheck check = new IdleCheck();
+		String token = registry.register(check, 50);
+
+		assertTrue(check.timedOut.await(5, TimeUnit.SECONDS));
+		assertNull(registry.remove(token));
+		assertEquals(0, registry.size());
+		assertEquals(1, metrics.snapshot().getJSONObject("counters").getLong("check.timeout"));
+	}
+
+	@Test
+	public void failsCallNotFinishedInTime() throws Exception {
+		CallbackContext callbackContext = webView.newCallbackContext();
+		PendingCall call = registry.track(null, callbackContext, 50);
+		assertEquals(1, registry.callCount());
+
+		PluginResult result = webView.await(callbackContext, 5000);
+		assertEquals(PluginResult.Status.ERROR.ordinal(), result.getStatus());
+		assertEquals(PendingCall.ERROR_TIMEOUT, result.getStrMessage());
+		assertTrue(call.isFinished());
+		assertEquals(0, registry.callCount());
+		assertFalse(call.finish(new PluginResult(PluginResult.Status.OK)));
+	}
+
+	@Test
+	public void cancelsCallByRequestId() throws Exception {
+		CallbackContext callbackContext = webView.newCallbackContext();
+		registry.track("check-7", callbackContext, 5000);
+
+		assertTrue(registry.cancel("check-7"));
+		PluginResult result = webView.await(callbackContext, 1000);
+		assertEquals(PluginResult.Status.ERROR.ordinal(), result.getStatus());
+		assertEquals(PendingCall.ERROR_CANCELLED, result.getStrMessage());
+
+		assertFalse(registry.cancel("check-7"));
+		assertFalse(registry.cancel(null));
+		assertEquals(0, registry.callCount());
+	}
+
+	@Test
+	public void generatesIdsOfCallsWithoutRequestId(){
+		PendingCall first = registry.track(null, webView.newCallbackContext(), 5000);
+		PendingCall second = registry.track(null, webView.newCallbackContext(), 5000);
+
+		assertEquals("call-1", first.getRequestId());
+		assertEquals("call-2", second.getRequestId());
+
+		first.finish(new PluginResult(PluginResult.Status.OK));
+		second.finish(new PluginResult(PluginResult.Status.OK));
+		assertEquals(0, registry.callCount());
+	}
+}
@@ -0,0 +1,31 @@
+package com.keel.smartdrawing.fiori;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import com.keel.smartdrawing.fiori.jvm.PluginManifest;
+
+import org.junit.Test;
+
+/**
+ * Manifest entries Cordova merges into the app, see plugin.xml
+ */
+public class PluginManifestTest {
+
+	private final PluginManifest manifest = PluginManifest.load();
+
+	@Test
+	public void componentsWithIntentFiltersAreExported(){
+		//required for components with intent filters since API 31
+		assertEquals("true", manifest.componentAttribute("receiver", SupportedEquipmentsBroadcastReceiver.class.getName(), "android:exported"));
+		assertEquals("true", manifest.componentAttribute("activity", LandingActivity.class.getName(), "android:exported"));
+	}
+
+	@Test
+	public void answersOfChecksComeOnlyAsResultOfOrderedBroadcast(){
+		//Smart Drawing is signed by its vendor, plugin declares no permission and no receiver for separate answers
+		assertFalse(manifest.permissions().contains("com.keelsolution.permission.SMART_DRAWING"));
+		assertNull(manifest.componentAttribute("receiver", CheckEquipmentResponseReceiver.class.getName(), "android:exported"));
+	}
+}
@@ -0,0 +1,107 @@
+package com.keel.smartdrawing.fiori;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.keel.smartdrawing.fiori.jvm.JvmContext;
+
+import org.apache.cordova.PluginResult;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Load of "check equipment view" broadcasts and checks against {@link SmartDrawingSimulator}, the plugin keeps process wide
+ * state, so all tests share one simulator and configure what they rely on.
+ */
+public class SmartDrawingLoadTest {
+
+	private static final long DEADLINE = 50;
+
+	private static SmartDrawingSimulator simulator;
+
+	@BeforeClass
+	public static void startSimulator() throws Exception {
+		simulator = new SmartDrawingSimulator(new JvmContext());
+		simulator.listen("inspector");
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		simulator.setAnswering(true);
+		configure(SmartDrawing.ACTION_CONFIGURE_ACTION_COLLECTION, new JSONObject().put("deadline", DEADLINE));
+		configure(SmartDrawing.ACTION_CONFIGURE_CHECK_DISPATCH, new JSONObject());
+	}
+
+	@Test
+	public void sustainsRateWithAllBroadcastsAnswered() throws Exception {
+		SmartDrawingSimulator.Options options = new SmartDrawingSimulator.Options();
+		options.rate = 100;
+		options.duration = 2000;
+		options.tapEvery = 50;
+
+		SmartDrawingSimulator.Report report = simulator.run(options);
+
+		assertEquals(report.toString(), 0, report.dropped());
+		assertTrue(report.toString(), report.eventsPerSecond() >= 0.9 * options.rate);
+		//answers are held for JS until the deadline
+		assertTrue(report.toString(), report.latency.percentile(50) >= DEADLINE * 1000);
+		assertTrue(report.toString(), report.latency.percentile(99) < (DEADLINE + 500) * 1000);
+		//JS action of the listening app is collected into the broadcast
+		assertTrue(report.toString(), report.actions.get() >= 0.95 * report.answered.get());
+		assertEquals(options.duration * options.rate / 1000 / options.tapEvery, report.taps.get());
+	}
+
+	@Test
+	public void coalescesBurstsOfViewsWithoutLeavingBroadcastsOpen() throws Exception {
+		long window = 100;
+		configure(SmartDrawing.ACTION_CONFIGURE_CHECK_DISPATCH, new JSONObject().put("window", window).put("maxDepth", 1));
+		long droppedBefore = simulator.gauges().getLong("dispatch.dropped");
+
+		SmartDrawingSimulator.Options options = new SmartDrawingSimulator.Options();
+		options.rate = 100;
+		options.duration = 1000;
+		options.views = 4;
+
+		SmartDrawingSimulator.Report report = simulator.run(options);
+
+		assertTrue(report.toString(), simulator.gauges().getLong("dispatch.dropped") > droppedBefore);
+		//broadcasts of dropped events are answered immediately, the others after window and deadline
+		assertEquals(report.toString(), 0, report.dropped());
+		assertTrue(report.toString(), report.eventsPerSecond() >= 0.9 * options.rate);
+		assertTrue(report.toString(), report.latency.percentile(99) < (window + DEADLINE + 500) * 1000);
+	}
+
+	@Test
+	public void failsChecksWithTimeoutWhenSmartDrawingDoesNotAnswer() throws Exception {
+		PluginResult answered = simulator.execute(SmartDrawing.ACTION_CANSHOW_EQUIPMENT,
+				new JSONArray().put(new JSONObject().put("id", SmartDrawingSimulator.EQUIPMENT_PREFIX + "answered")), 5000);
+		assertEquals(PluginResult.Status.OK.ordinal(), answered.getStatus());
+
+		simulator.setAnswering(false);
+		long checks = 20;
+		for (int i = 0; i < checks; i++){
+			PluginResult result = simulator.execute(SmartDrawing.ACTION_CANSHOW_EQUIPMENT,
+					new JSONArray().put(new JSONObject().put("id", SmartDrawingSimulator.EQUIPMENT_PREFIX + "busy-" + i).put("timeout", 100)), 5000);
+
+			assertEquals(PluginResult.Status.ERROR.ordinal(), result.getStatus());
+			assertEquals(PendingCall.ERROR_TIMEOUT, result.getStrMessage());
+		}
+
+		//nothing is left waiting for Smart Drawing
+		JSONObject gauges;
+		long until = System.currentTimeMillis() + 5000;
+		do {
+			gauges = simulator.gauges();
+		} while (gauges.getInt("check.pending") > 0 && System.currentTimeMillis() < until);
+		assertEquals(gauges.toString(), 0, gauges.getInt("check.pending"));
+		assertEquals(gauges.toString(), 0, gauges.getInt("check.pendingCalls"));
+	}
+
+	private static void configure(String action, JSONObject options) throws Exception {
+		PluginResult result = simulator.execute(action, new JSONArray().put(options), 5000);
+		assertEquals(PluginResult.Status.OK.ordinal(), result.getStatus());
+	}
+}
@@ -0,0 +1,455 @@
+package com.keel.smartdrawing.fiori;
+
+import android.app.Activity;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+
+import com.keel.smartdrawing.fiori.jvm.JvmContext;
+import com.keel.smartdrawing.fiori.jvm.JvmCordova;
+import com.keel.smartdrawing.fiori.jvm.PluginManifest;
+
+import org.apache.cordova.CallbackContext;
+import org.apache.cordova.CordovaWebView;
+import org.apache.cordova.PluginResult;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stand-in for Smart Drawing app and load generator running on the JVM stand-ins. Receivers of Smart Drawing package answer
+ * checks sent by plugin (CHECK_EQUIPMENT, CHECK_DRAWING) and consume messages plugin sends to Smart Drawing (ACTION_SUPPORTED_INFO,
+ * PRELOAD_DRAWING, UPDATE_DRAWING), OPEN_DRAWING activity starts are counted, and the web view plays Fiori apps answering
+ * onCheckObjectAction events through actionNotifier.
+ * A run sends "check equipment view" ordered broadcasts at given rate the same way Smart Drawing does when user selects
+ * equipment, optionally followed by action taps (CALL_FIORI intents to {@link LandingActivity}), and reports sustained rate of
+ * answered broadcasts, latency percentiles of the answers and number of broadcasts that were not answered in time.
+ *
+ * Simulated equipment ids start with {@link #EQUIPMENT_PREFIX}, only such equipment is found on simulated drawings.
+ */
+class SmartDrawingSimulator {
+
+	static final String PACKAGE_NAME = "com.keelsolution.smartdrawing";
+
+	static final String EQUIPMENT_PREFIX = "SIM-EQ-";
+	static final String DRAWING_PREFIX = "SIM-DRW-";
+
+	static final String KEEL_INTENT_ACTION_CHECK_EQUIPMENT_VIEW = "com.keelsolution.action.CHECK_EQUIPMENT_VIEW";
+
+	//time the broadcast was sent (System.nanoTime()), used for latency of answer
+	static final String KEEL_INTENT_ACTION_EXTRA_SENT_AT = "com.keelsolution.simulator.extra.sentAt";
+
+	private static final String LISTENER_PREFIX = "onCheckObjectAction";
+	private static final String COMMAND_PREFIX = "SmartDrawing";
+
+	/**
+	 * Options of a run
+	 */
+	static class Options {
+		//"check equipment view" broadcasts per second
+		int rate = 20;
+		//length of the run in milliseconds
+		long duration = 2000;
+		//number of distinct equipment ids selected in turn
+		int equipmentCount = 100;
+		//number of Smart Drawing views the equipment is selected in, in turn
+		int views = 1;
+		//every n-th selection is followed by action tap, 0 for no taps
+		int tapEvery = 0;
+		//time to wait for answers of broadcasts sent at the end of the run
+		long drainTimeout = 2000;
+	}
+
+	/**
+	 * Counters of a run
+	 */
+	static class Report {
+		final MetricsRegistry.Histogram latency = new MetricsRegistry.Histogram();
+		final AtomicLong sent = new AtomicLong();
+		final AtomicLong answered = new AtomicLong();
+		final AtomicLong actions = new AtomicLong();
+		final AtomicLong taps = new AtomicLong();
+		long durationMs;
+
+		long dropped(){
+			return sent.get() - answered.get();
+		}
+
+		double eventsPerSecond(){
+			return answered.get() * 1000.0 / Math.max(1, durationMs);
+		}
+
+		@Override
+		public String toString(){
+			try {
+				return "sent " + sent + ", answered " + answered + ", dropped " + dropped() + ", " + eventsPerSecond() + " events/s, "
+						+ actions + " actions, " + taps + " taps, latency " + latency.toJSON();
+			} catch (JSONException e) {
+				return e.toString();
+			}
+		}
+	}
+
+	/**
+	 * Final receiver of "check equipment view" broadcast, it gets the broadcast with actions of all Fiori apps
+	 * the same way Smart Drawing does
+	 */
+	private static class ViewResultReceiver extends BroadcastReceiver {
+
+		private final Report report;
+
+		ViewResultReceiver(Report report){
+			this.report = report;
+		}
+
+		@Override
+		public void onReceive(Context context, Intent intent){
+			report.latency.record((System.nanoTime() - intent.getLongExtra(KEEL_INTENT_ACTION_EXTRA_SENT_AT, System.nanoTime())) / 1000);
+			report.answered.incrementAndGet();
+
+			Bundle resultExtras = getResultExtras(false);
+			List<String> actions = resultExtras != null ? resultExtras.getStringArrayList(SupportedEquipmentsBroadcastReceiver.KEEL_INTENT_ACTION_EXTRA_DATA) : null;
+			if (actions != null){
+				report.actions.addAndGet(actions.size());
+			}
+		}
+	}
+
+	/**
+	 * Answers checks sent by plugin
+	 */
+	private final BroadcastReceiver checkReceiver = new BroadcastReceiver() {
+		@Override
+		public void onReceive(Context context, Intent intent){
+			if (!answering){
+				//Smart Drawing is busy, the broadcast is left open
+				goAsync();
+				return;
+			}
+
+			final Bundle answer = new Bundle();
+			final int resultCode;
+			try {
+				resultCode = answer(intent, answer);
+			} catch (JSONException e) {
+				e.printStackTrace();
+				return;
+			}
+			checksAnswered.incrementAndGet();
+
+			if (answerDelay == 0){
+				setResultCode(resultCode);
+				setResultExtras(answer);
+				return;
+			}
+
+			final PendingResult pendingResult = goAsync();
+			handler.postDelayed(new Runnable() {
+				public void run(){
+					pendingResult.setResultCode(resultCode);
+					pendingResult.setResultExtras(answer);
+					pendingResult.finish();
+				}
+			}, answerDelay);
+		}
+	};
+
+	/**
+	 * Consumes messages plugin sends to Smart Drawing
+	 */
+	private final BroadcastReceiver sinkReceiver = new BroadcastReceiver() {
+		@Override
+		public void onReceive(Context context, Intent intent){
+			String action = intent.getAction();
+			if (ActionNotificationBatcher.KEEL_INTENT_ACTION_SEND_SUPPORTED_INFO.equals(action)){
+				supportedInfo.incrementAndGet();
+			} else if (DrawingPreloader.KEEL_INTENT_ACTION_PRELOAD_DRAWING.equals(action)){
+				preloadHints.incrementAndGet();
+			} else if (SmartDrawing.INTENT_SMD_UPDATE_ACTION.equals(action)){
+				updates.incrementAndGet();
+			}
+		}
+	};
+
+	/**
+	 * Web view of Fiori launchpad, apps listening with onCheckObjectAction answer every event through actionNotifier
+	 * on single JS thread
+	 */
+	private final CordovaWebView webView = new CordovaWebView() {
+		@Override
+		public void sendPluginResult(final PluginResult cr, String callbackId){
+			if (callbackId.startsWith(COMMAND_PREFIX)){
+				results.add(cr);
+				return;
+			}
+			if (!callbackId.startsWith(LISTENER_PREFIX) || cr.getStatus() != PluginResult.Status.OK.ordinal()){
+				return;
+			}
+			js.post(new Runnable() {
+				public void run(){
+					try {
+						onCheckObjectAction(new JSONObject(cr.getMessage()));
+					} catch (JSONException e) {
+						e.printStackTrace();
+					}
+				}
+			});
+		}
+	};
+
+	final AtomicLong checksAnswered = new AtomicLong();
+	final AtomicLong supportedInfo = new AtomicLong();
+	final AtomicLong preloadHints = new AtomicLong();
+	final AtomicLong updates = new AtomicLong();
+	final AtomicLong drawingsOpened = new AtomicLong();
+
+	private final JvmContext context;
+	private final SmartDrawing plugin;
+	private final Handler handler;
+	private final Handler js;
+	private final List<String> listeningApps = new ArrayList<String>();
+	private final BlockingQueue<PluginResult> results = new LinkedBlockingQueue<PluginResult>();
+	private final AtomicLong callbackIds = new AtomicLong();
+
+	private volatile boolean answering = true;
+	private volatile long answerDelay = 0;
+	private volatile int drawingsPerEquipment = 2;
+
+	/**
+	 * Installs plugin manifest and Smart Drawing package into the context and initializes the plugin
+	 */
+	SmartDrawingSimulator(JvmContext context){
+		this.context = context;
+
+		HandlerThread thread = new HandlerThread("SmartDrawingSimulator");
+		thread.start();
+		handler = new Handler(thread.getLooper());
+
+		HandlerThread jsThread = new HandlerThread("JavaScript");
+		jsThread.start();
+		js = new Handler(jsThread.getLooper());
+
+		PluginManifest.load().install(context);
+
+		IntentFilter checkFilter = new IntentFilter();
+		checkFilter.addAction(SmartDrawing.KEEL_INTENT_ACTION_CHECK_EQUIPMENT);
+		checkFilter.addAction(SmartDrawing.KEEL_INTENT_ACTION_CHECK_DRAWING);
+		context.declareReceiver(PACKAGE_NAME, checkReceiver, checkFilter);
+
+		IntentFilter sinkFilter = new IntentFilter();
+		sinkFilter.addAction(ActionNotificationBatcher.KEEL_INTENT_ACTION_SEND_SUPPORTED_INFO);
+		sinkFilter.addAction(DrawingPreloader.KEEL_INTENT_ACTION_PRELOAD_DRAWING);
+		sinkFilter.addAction(SmartDrawing.INTENT_SMD_UPDATE_ACTION);
+		context.declareReceiver(PACKAGE_NAME, sinkReceiver, sinkFilter);
+
+		context.setActivityListener(new JvmContext.ActivityListener() {
+			@Override
+			public void onStartActivity(Intent intent){
+				if (SmartDrawing.INTENT_SMD_ACTION.equals(intent.getAction())){
+					drawingsOpened.incrementAndGet();
+				}
+			}
+		});
+
+		plugin = new JvmCordova(context).initialize(new SmartDrawing(), "SmartDrawing", webView);
+	}
+
+	SmartDrawing getPlugin(){
+		return plugin;
+	}
+
+	/**
+	 * Time in milliseconds Smart Drawing takes to answer checks
+	 */
+	void setAnswerDelay(long answerDelay){
+		this.answerDelay = answerDelay;
+	}
+
+	/**
+	 * Smart Drawing that does not answer leaves checks open until plugin deadline
+	 */
+	void setAnswering(boolean answering){
+		this.answering = answering;
+	}
+
+	void setDrawingsPerEquipment(int drawingsPerEquipment){
+		this.drawingsPerEquipment = drawingsPerEquipment;
+	}
+
+	/**
+	 * Registers Fiori app answering every check of equipment with one action, as JS onCheckObjectAction listener does
+	 */
+	void listen(String appId) throws JSONException {
+		synchronized (listeningApps) {
+			listeningApps.add(appId);
+		}
+		plugin.execute(SmartDrawing.ACTION_ON_CHECK_OBJECT_ACTION, new JSONArray().put(appId),
+				new CallbackContext(LISTENER_PREFIX + callbackIds.incrementAndGet(), webView));
+	}
+
+	/**
+	 * Executes plugin command and returns its first result other than NO_RESULT, null if none came in time
+	 */
+	PluginResult execute(String action, JSONArray args, long timeoutMillis) throws JSONException, InterruptedException {
+		results.clear();
+		plugin.execute(action, args, new CallbackContext(COMMAND_PREFIX + callbackIds.incrementAndGet(), webView));
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		while (true) {
+			PluginResult result = results.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+			if (result == null || result.getStatus() != PluginResult.Status.NO_RESULT.ordinal()) {
+				return result;
+			}
+		}
+	}
+
+	/**
+	 * Returns gauges of plugin metrics
+	 */
+	JSONObject gauges() throws JSONException, InterruptedException {
+		return new JSONObject(execute(SmartDrawing.ACTION_GET_METRICS, new JSONArray(), 5000).getMessage()).getJSONObject("gauges");
+	}
+
+	/**
+	 * Sends "check equipment view" broadcasts for the duration of the run and waits for answers sent at the end
+	 */
+	Report run(final Options options) throws InterruptedException {
+		final Report report = new Report();
+		final CountDownLatch finished = new CountDownLatch(1);
+		final long startedAt = SystemClock.uptimeMillis();
+
+		handler.post(new Runnable() {
+			@Override
+			public void run(){
+				long now = SystemClock.uptimeMillis();
+				if (now - startedAt >= options.duration){
+					report.durationMs = now - startedAt;
+					finished.countDown();
+					return;
+				}
+
+				long n = report.sent.getAndIncrement();
+				String equipmentId = EQUIPMENT_PREFIX + (n % options.equipmentCount);
+
+				Intent intent = new Intent(KEEL_INTENT_ACTION_CHECK_EQUIPMENT_VIEW);
+				intent.putExtra(SupportedEquipmentsBroadcastReceiver.KEEL_INTENT_ACTION_EXTRA_EQUIPMENT_ID, equipmentId);
+				intent.putExtra(SupportedEquipmentsBroadcastReceiver.KEEL_INTENT_ACTION_EXTRA_VIEW_ID, "view-" + (n % options.views));
+				intent.putExtra(KEEL_INTENT_ACTION_EXTRA_SENT_AT, System.nanoTime());
+				context.sendOrderedBroadcast(intent, null, new ViewResultReceiver(report), handler, Activity.RESULT_OK, null, null);
+
+				if (options.tapEvery > 0 && (n + 1) % options.tapEvery == 0){
+					tap(equipmentId);
+					report.taps.incrementAndGet();
+				}
+
+				//scheduled against start of the run, so slow sending does not lower the rate
+				handler.postAtTime(this, startedAt + (n + 1) * 1000 / options.rate);
+			}
+		});
+
+		if (!finished.await(options.duration + 30000, TimeUnit.MILLISECONDS)){
+			throw new IllegalStateException("Run did not finish");
+		}
+
+		long drainUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(options.drainTimeout);
+		while (report.dropped() > 0 && System.nanoTime() < drainUntil){
+			Thread.sleep(10);
+		}
+		return report;
+	}
+
+	/**
+	 * Simulates user tap on action button of selected equipment
+	 */
+	private void tap(String equipmentId){
+		try {
+			JSONObject callbackContext = new JSONObject();
+			callbackContext.put("equipmentId", equipmentId);
+
+			Intent intent = new Intent(SupportedEquipmentsBroadcastReceiver.KEEL_INTENT_CALL_FIORI_ACTION);
+			intent.setClassName(context.getPackageName(), LandingActivity.class.getName());
+			intent.putExtra(LandingActivity.KEEL_INTENT_ACTION_EXTRA_CALLBACK_CONTEXT, callbackContext.toString());
+			intent.putExtra(LandingActivity.KEEL_INTENT_ACTION_EXTRA_TAP_TIME, SystemClock.elapsedRealtime());
+			intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+			context.startActivity(intent);
+		} catch (JSONException e){
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Answers event of onCheckObjectAction listener by every app the event is for
+	 */
+	private void onCheckObjectAction(JSONObject checkContext) throws JSONException {
+		String equipmentId = checkContext.getString("equipmentId");
+		JSONArray appIds = checkContext.optJSONArray("appIds");
+		List<String> apps = new ArrayList<String>();
+		if (appIds != null){
+			for (int i = 0; i < appIds.length(); i++){
+				apps.add(appIds.getString(i));
+			}
+		} else {
+			synchronized (listeningApps) {
+				apps.addAll(listeningApps);
+			}
+		}
+
+		for (String appId : apps){
+			plugin.execute(SmartDrawing.ACTION_ON_ACTION_NOTIFIER, new JSONArray().put(BenchmarkData.appContext(appId, equipmentId)),
+					new CallbackContext("actionNotifier", webView));
+		}
+	}
+
+	/**
+	 * Fills answer of check the way Smart Drawing does
+	 * @return result code of the ordered broadcast
+	 */
+	private int answer(Intent intent, Bundle answer) throws JSONException {
+		if (SmartDrawing.KEEL_INTENT_ACTION_CHECK_DRAWING.equals(intent.getAction())){
+			String drawingId = intent.getStringExtra(SmartDrawing.KEEL_INTENT_ACTION_EXTRA_DRAWING_ID);
+			return drawingId != null && drawingId.startsWith(DRAWING_PREFIX) ? Activity.RESULT_OK : Activity.RESULT_CANCELED;
+		}
+
+		ArrayList<String> equipmentIds = intent.getStringArrayListExtra(SmartDrawing.KEEL_INTENT_ACTION_EXTRA_EQUIPMENT_ID_LIST);
+		if (equipmentIds != null){
+			Bundle drawingMap = new Bundle();
+			for (String equipmentId : equipmentIds){
+				drawingMap.putStringArrayList(equipmentId, drawings(equipmentId));
+			}
+			answer.putBundle(SmartDrawing.KEEL_INTENT_ACTION_EXTRA_DRAWING_MAP, drawingMap);
+		} else {
+			answer.putStringArrayList(SmartDrawing.KEEL_INTENT_ACTION_EXTRA_DRAWING_LIST,
+					drawings(intent.getStringExtra(SmartDrawing.KEEL_INTENT_ACTION_EXTRA_EQUIPMENT_ID)));
+		}
+		return Activity.RESULT_OK;
+	}
+
+	/**
+	 * Returns simulated drawings of equipment as JSON text of DrawingDescription
+	 */
+	private ArrayList<String> drawings(String equipmentId) throws JSONException {
+		if (equipmentId == null || !equipmentId.startsWith(EQUIPMENT_PREFIX)){
+			return new ArrayList<String>(0);
+		}
+
+		ArrayList<String> drawings = new ArrayList<String>(drawingsPerEquipment);
+		int first = (equipmentId.hashCode() & 0x7fffffff) % 1000;
+		for (int i = 0; i < drawingsPerEquipment; i++){
+			String drawingId = DRAWING_PREFIX + (first + i);
+			drawings.add(JsonEncoder.encode(new JSONObject(), "drawingId", drawingId, "drawingName", "Simulated drawing " + drawingId));
+		}
+		return drawings;
+	}
+}
@@ -0,0 +1,168 @@
+package com.keel.smartdrawing.fiori;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Activity;
+import android.content.Intent;
+
+import com.keel.smartdrawing.fiori.jvm.JvmContext;
+import com.keel.smartdrawing.fiori.jvm.PluginManifest;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class SupportedEquipmentsBroadcastReceiverTest {
+
+	//container is process wide and keeps the first context, so all tests share it
+	private static JvmContext context;
+	private static SingletonContextContainer container;
+
+	@BeforeClass
+	public static void setUp() throws Exception {
+		context = new JvmContext();
+		PluginManifest.load().install(context);
+		container = SingletonContextContainer.getInstance(context);
+	}
+
+	@Test
+	public void answersCheckWithDefaultActionsForEquipment() throws Exception {
+		JSONArray actions = new JSONArray();
+		actions.put(new JSONObject().put("appId", "inspector").put("name", "Inspector").put("callbackContext", "Equipment-inspect"));
+		actions.put(new JSONObject().put("appId", "orders").put("name", "Orders").put("callbackContext", "Equipment-orders"));
+		container.saveActions(actions);
+
+		CapturingReceiver result = checkEquipmentView("EQ-1");
+
+		assertEquals(Activity.RESULT_OK, result.resultCode);
+		ArrayList<String> answers = result.resultExtras.getStringArrayList(SupportedEquipmentsBroadcastReceiver.KEEL_INTENT_ACTION_EXTRA_DATA);
+		assertEquals(2, answers.size());
+		JSONObject first = new JSONObject(answers.get(0));
+		assertEquals("EQ-1", first.getString("equipmentId"));
+		assertEquals("Inspector", first.getString("name"));
+		assertEquals(context.getPackageName(), first.getString("packageName"));
+		assertEquals(SupportedEquipmentsBroadcastReceiver.KEEL_INTENT_CALL_FIORI_ACTION, first.getString("action"));
+	}
+
+	@Test
+	public void leavesResultEmptyWithoutActionsAndListeners() throws Exception {
+		container.saveActions(new JSONArray());
+
+		CapturingReceiver result = checkEquipmentView("EQ-2");
+
+		assertEquals(Activity.RESULT_OK, result.resultCode);
+		assertNull(result.resultExtras);
+	}
+
+	@Test
+	public void answersOnReceiverThread() throws Exception {
+		container.saveActions(new JSONArray().put(new JSONObject().put("appId", "inspector").put("callbackContext", "Equipment-inspect")));
+		Trace.clear();
+
+		CapturingReceiver result = checkEquipmentView("EQ-3");
+		assertEquals(Activity.RESULT_OK, result.resultCode);
+
+		JSONArray events = Trace.dump(0);
+		JSONObject received = null;
+		for (int i = 0; i < events.length(); i++){
+			if ("receiver.checkEquipmentView".equals(events.getJSONObject(i).getString("name"))){
+				received = events.getJSONObject(i);
+			}
+		}
+		assertEquals(ReceiverThread.NAME, received.getString("thread"));
+
+		//answers of Smart Drawing to checks of the plugin are delivered to the same thread
+		Intent intent = new Intent(SmartDrawing.KEEL_INTENT_ACTION_CHECK_EQUIPMENT);
+		CapturingReceiver answer = new CapturingReceiver();
+		context.sendOrderedBroadcast(intent, null, answer, ReceiverThread.getHandler(), Activity.RESULT_OK, null, null);
+		assertTrue("broadcast was not answered", answer.await(5000));
+		assertEquals(ReceiverThread.NAME, answer.threadName);
+	}
+
+	@Test
+	public void writesLatestActionsBehindPublishedState() throws Exception {
+		for (int i = 0; i < 20; i++){
+			container.saveActions(new JSONArray().put(new JSONObject().put("appId", "app-" + i).put("callbackContext", "Equipment-" + i)));
+			//receivers see the actions at once
+			assertEquals("app-" + i, container.getActionTemplates()[0].getAppId());
+		}
+
+		container.flushStore();
+		ActionStore.Contents contents = new ActionStore(context).read();
+		assertEquals(1, contents.templates.length);
+		assertEquals("app-19", contents.templates[0].getAppId());
+
+		container.saveActions(new JSONArray());
+		container.flushStore();
+		assertEquals(0, new ActionStore(context).read().templates.length);
+	}
+
+	@Test
+	public void publishesConcurrentRuleChangesWithoutLosingAny() throws Exception {
+		final int apps = 8;
+		final int changes = 25;
+		final CountDownLatch start = new CountDownLatch(1);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		EquipmentRuleIndex before = container.getEquipmentRuleIndex();
+
+		Thread[] threads = new Thread[apps];
+		for (int t = 0; t < apps; t++){
+			final String appId = "app-" + t;
+			threads[t] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+						for (int i = 0; i <= changes; i++){
+							container.setEquipmentRules(appId, new JSONObject().put(EquipmentRuleIndex.RULE_IDS, new JSONArray().put("EQ-" + appId + "-" + i)));
+						}
+					} catch (Throwable e) {
+						failure.set(e);
+					}
+				}
+			});
+			threads[t].start();
+		}
+		start.countDown();
+		for (Thread thread : threads){
+			thread.join();
+		}
+		assertNull(failure.get());
+
+		EquipmentRuleIndex after = container.getEquipmentRuleIndex();
+		JSONObject rules = after.toJSON();
+		for (int t = 0; t < apps; t++){
+			String appId = "app-" + t;
+			assertEquals("EQ-" + appId + "-" + changes, rules.getJSONObject(appId).getJSONArray(EquipmentRuleIndex.RULE_IDS).getString(0));
+			assertTrue(after.match("EQ-" + appId + "-" + changes, null).accepts(appId));
+			//index read before the changes is not changed
+			assertTrue(before.match("EQ-other", null).accepts(appId));
+		}
+		assertFalse(after.match("EQ-other", null).accepts("app-0"));
+
+		//store holds the latest rules of all apps once queued writes are finished
+		container.flushStore();
+		assertEquals(rules.toString(), new JSONObject(new ActionStore(context).read().rules).toString());
+
+		for (int t = 0; t < apps; t++){
+			container.setEquipmentRules("app-" + t, null);
+		}
+	}
+
+	private CapturingReceiver checkEquipmentView(String equipmentId) throws InterruptedException {
+		Intent intent = new Intent("com.keelsolution.action.CHECK_EQUIPMENT_VIEW");
+		intent.putExtra(SupportedEquipmentsBroadcastReceiver.KEEL_INTENT_ACTION_EXTRA_EQUIPMENT_ID, equipmentId);
+		CapturingReceiver result = new CapturingReceiver();
+		context.sendOrderedBroadcast(intent, null, result, null, Activity.RESULT_OK, null, null);
+		assertTrue("broadcast was not answered", result.await(5000));
+		return result;
+	}
+}
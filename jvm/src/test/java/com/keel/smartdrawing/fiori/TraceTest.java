@@ -0,0 +1,75 @@
+package com.keel.smartdrawing.fiori;
+
+import static org.junit.Assert.assertEquals;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class TraceTest {
+
+	@Before
+	public void setUp(){
+		Trace.clear();
+		Trace.setEnabled(true);
+	}
+
+	@After
+	public void tearDown(){
+		Trace.setPayloads(false);
+	}
+
+	@Test
+	public void summarizesPayloadsByDefault() throws Exception {
+		StringBuilder longText = new StringBuilder();
+		for (int i = 0; i < 100; i++){
+			longText.append('x');
+		}
+
+		assertEquals("DRW-1", Trace.summarize("DRW-1"));
+		assertEquals(longText.substring(0, Trace.SUMMARY_LENGTH) + "...(100 characters)", Trace.summarize(longText.toString()));
+		assertEquals("[2 items]", Trace.summarize(new JSONArray().put(1).put(2)));
+		assertEquals("{1 fields}", Trace.summarize(new JSONObject().put("id", "EQ-1")));
+		assertEquals("[3 items]", Trace.summarize(Arrays.asList("EQ-1", "EQ-2", "EQ-3")));
+		assertEquals("42", Trace.summarize(42L));
+	}
+
+	@Test
+	public void capturesPayloadWhenRecorded() throws Exception {
+		List<String> ids = new ArrayList<String>(Arrays.asList("EQ-1"));
+		JSONObject json = new JSONObject().put("equipmentId", "EQ-1");
+
+		Trace.event("summary", null, null, json);
+		Trace.setPayloads(true);
+		Trace.event("list", null, null, ids);
+		Trace.event("json", null, null, json);
+
+		//later changes of the caller's data are not seen in the trace
+		ids.add("EQ-2");
+		json.put("equipmentId", "EQ-2");
+
+		JSONArray events = Trace.dump(3);
+		assertEquals("{1 fields}", events.getJSONObject(0).getString("payload"));
+		assertEquals("[EQ-1]", events.getJSONObject(1).getString("payload"));
+		assertEquals("{\"equipmentId\":\"EQ-1\"}", events.getJSONObject(2).getString("payload"));
+	}
+
+	@Test
+	public void cutsCapturedPayload() throws Exception {
+		StringBuilder longText = new StringBuilder();
+		for (int i = 0; i < Trace.MAX_PAYLOAD_LENGTH + 10; i++){
+			longText.append('x');
+		}
+		Trace.setPayloads(true);
+		Trace.event("long", null, null, longText.toString());
+
+		String payload = Trace.dump(1).getJSONObject(0).getString("payload");
+		assertEquals(longText.substring(0, Trace.MAX_PAYLOAD_LENGTH) + "...(" + longText.length() + " characters)", payload);
+	}
+}
@@ -0,0 +1,148 @@
+package com.keel.smartdrawing.fiori;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Handler;
+import org.apache.cordova.CallbackContext;
+
+/**
+ * This class collects actions Fiori apps send with actionNotifier for the same equipment within a short window and 
+ * sends them to Smart Drawing app in one "action supported info" broadcast carrying JSON array, instead of one 
+ * broadcast per Fiori app. Single action is sent in original format with JSON object. Older Smart Drawing versions 
+ * do not read the array, so the window is 0 by default and every action is sent at once in its own broadcast.
+ */
+public class ActionNotificationBatcher {
+
+	public static final String TAG = "com.keel.smartdrawing.fiori";
+
+	public static final String KEEL_INTENT_ACTION_SEND_SUPPORTED_INFO = "com.keelsolution.action.ACTION_SUPPORTED_INFO";
+	public static final String KEEL_INTENT_EXTRA_ACTION_SUPPORTED_INFO = "com.keelsolution.action.extra.ACTION_SUPPORTED_INFO";
+	public static final String KEEL_INTENT_EXTRA_ACTION_SUPPORTED_INFO_LIST = "com.keelsolution.action.extra.ACTION_SUPPORTED_INFO_LIST";
+	public static final String KEEL_INTENT_EXTRA_COALESCED_COUNT = "com.keelsolution.action.extra.COALESCED_COUNT";
+
+	public static final long DEFAULT_WINDOW = 0;
+
+	/**
+	 * Actions for single equipment waiting to be sent
+	 */
+	private class Batch implements Runnable {
+
+		final String equipmentId;
+
+		final List<String> actions = new ArrayList<String>(4);
+
+		final List<CallbackContext> callbacks = new ArrayList<CallbackContext>(4);
+
+		Batch(String equipmentId){
+			this.equipmentId = equipmentId;
+		}
+
+		@Override
+		public void run() {
+			synchronized (ActionNotificationBatcher.this) {
+				batches.remove(equipmentId);
+			}
+			send(this);
+		}
+	}
+
+	private final Context context;
+
+	private final Handler handler = ReceiverThread.getHandler();
+
+	private final HashMap<String, Batch> batches = new HashMap<String, Batch>();
+
+	private volatile long window = DEFAULT_WINDOW;
+
+	//number of notifications that were sent together with another one
+	private final AtomicLong coalescedCount = new AtomicLong();
+
+	private final AtomicLong broadcastCount = new AtomicLong();
+
+	public ActionNotificationBatcher(Context context){
+		this.context = context;
+	}
+
+	public long getWindow(){
+		return window;
+	}
+
+	/**
+	 * Sets time in milliseconds notifications for the same equipment are collected, value 0 sends every notification immediately
+	 */
+	public void setWindow(long window){
+		this.window = Math.max(0, window);
+	}
+
+	public long getCoalescedCount(){
+		return coalescedCount.get();
+	}
+
+	public long getBroadcastCount(){
+		return broadcastCount.get();
+	}
+
+	/**
+	 * Queues serialized action for sending to Smart Drawing. Callback gets number of actions sent in the same broadcast.
+	 */
+	public void submit(String equipmentId, String actionJson, CallbackContext callbackContext){
+		String key = equipmentId != null ? equipmentId : "";
+
+		if (window == 0){
+			Batch batch = new Batch(key);
+			batch.actions.add(actionJson);
+			batch.callbacks.add(callbackContext);
+			send(batch);
+			return;
+		}
+
+		synchronized (this) {
+			Batch batch = batches.get(key);
+			if (batch == null){
+				batch = new Batch(key);
+				batches.put(key, batch);
+				handler.postDelayed(batch, window);
+			}
+			batch.actions.add(actionJson);
+			batch.callbacks.add(callbackContext);
+		}
+	}
+
+	private void send(Batch batch){
+		int count = batch.actions.size();
+
+		Intent intent = new Intent(KEEL_INTENT_ACTION_SEND_SUPPORTED_INFO);
+		if (count == 1){
+			intent.putExtra(KEEL_INTENT_EXTRA_ACTION_SUPPORTED_INFO, batch.actions.get(0));
+		} else {
+			//actions are already serialized - join them into JSON array without parsing
+			StringBuilder json = new StringBuilder(count * 256);
+			json.append('[');
+			for (int i = 0; i < count; i++){
+				if (i > 0){
+					json.append(',');
+				}
+				json.append(batch.actions.get(i));
+			}
+			json.append(']');
+
+			intent.putExtra(KEEL_INTENT_EXTRA_ACTION_SUPPORTED_INFO_LIST, json.toString());
+			intent.putExtra(KEEL_INTENT_EXTRA_COALESCED_COUNT, count);
+			coalescedCount.addAndGet(count - 1);
+		}
+
+		context.sendBroadcast(intent);
+		broadcastCount.incrementAndGet();
+
+		Trace.event("actionNotifier.sent", batch.equipmentId, null, count > 1 ? count + " actions" : null);
+
+		for (CallbackContext callbackContext : batch.callbacks){
+			callbackContext.success(count);
+		}
+	}
+}
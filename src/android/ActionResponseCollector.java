@@ -0,0 +1,151 @@
+package com.keel.smartdrawing.fiori;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import android.content.BroadcastReceiver;
+import android.os.Bundle;
+import android.os.Handler;
+
+/**
+ * This class keeps "check equipment view" ordered broadcast from Smart Drawing app open (see {@link BroadcastReceiver#goAsync()}) 
+ * while Fiori apps answer it through actionNotifier. All answers received for the equipment until the deadline are written 
+ * into result extras of the ordered broadcast at once, so Smart Drawing gets all Fiori actions in a single round trip.
+ * Answers arriving after the deadline are sent by plugin as separate broadcast as before.
+ * Holding the broadcast delays Smart Drawing even when no app answers, so collecting is off until JS sets the deadline.
+ */
+public class ActionResponseCollector {
+
+	public static final String TAG = "com.keel.smartdrawing.fiori";
+
+	//time in milliseconds the ordered broadcast is kept open, must be well below broadcast timeout of Android (10s), 0 does not collect
+	public static final long DEFAULT_DEADLINE = 0;
+	public static final long MAX_DEADLINE = 5000;
+
+	/**
+	 * Open ordered broadcast waiting for answers for single equipment
+	 */
+	private class Window implements Runnable {
+
+		final String equipmentId;
+
+		final BroadcastReceiver.PendingResult pendingResult;
+
+		final Bundle resultExtras;
+
+		final ArrayList<String> actions;
+
+		final long openedAt = System.nanoTime();
+
+		Window(String equipmentId, BroadcastReceiver.PendingResult pendingResult, Bundle resultExtras, ArrayList<String> actions){
+			this.equipmentId = equipmentId;
+			this.pendingResult = pendingResult;
+			this.resultExtras = resultExtras;
+			this.actions = actions;
+		}
+
+		@Override
+		public void run() {
+			close(this);
+		}
+	}
+
+	private final HashMap<String, Window> windows = new HashMap<String, Window>();
+
+	private final Handler handler = ReceiverThread.getHandler();
+
+	private volatile long deadline = DEFAULT_DEADLINE;
+
+	private final MetricsRegistry metrics;
+
+	public ActionResponseCollector(MetricsRegistry metrics){
+		this.metrics = metrics;
+	}
+
+	public long getDeadline(){
+		return deadline;
+	}
+
+	/**
+	 * Sets time the broadcast is kept open, value 0 disables collecting of answers
+	 */
+	public void setDeadline(long deadline){
+		this.deadline = Math.max(0, Math.min(deadline, MAX_DEADLINE));
+	}
+
+	/**
+	 * Starts collecting answers for the equipment. Actions already known (default actions) are passed in actions list, 
+	 * the ordered broadcast is finished with all collected actions when deadline passes.
+	 * @param delay time JS is notified later than now (see CheckNotificationDispatcher), added to the deadline
+	 */
+	public void open(String equipmentId, BroadcastReceiver.PendingResult pendingResult, Bundle resultExtras, ArrayList<String> actions, long delay){
+		Window window = new Window(equipmentId, pendingResult, resultExtras, actions);
+		Window previous;
+		synchronized (this) {
+			previous = windows.put(equipmentId, window);
+		}
+
+		//the same equipment checked again - answer the previous broadcast with what we have
+		if (previous != null){
+			handler.removeCallbacks(previous);
+			finish(previous);
+		}
+
+		handler.postDelayed(window, deadline + delay);
+	}
+	
+	/**
+	 * Finishes open broadcast for the equipment now with actions collected so far, used when JS will not be asked to answer
+	 */
+	public void release(String equipmentId){
+		Window window;
+		synchronized (this) {
+			window = windows.remove(equipmentId);
+		}
+		
+		if (window != null){
+			handler.removeCallbacks(window);
+			finish(window);
+		}
+	}
+
+	/**
+	 * Adds action to the open broadcast for the equipment.
+	 * @return false if there is no open broadcast for equipment and action shall be sent separately
+	 */
+	public synchronized boolean offer(String equipmentId, String actionJson){
+		Window window = windows.get(equipmentId);
+		if (window == null){
+			return false;
+		}
+
+		window.actions.add(actionJson);
+		return true;
+	}
+
+	private void close(Window window){
+		synchronized (this) {
+			if (windows.get(window.equipmentId) != window){
+				return; //already finished
+			}
+			windows.remove(window.equipmentId);
+		}
+		finish(window);
+	}
+
+	private void finish(Window window){
+		Trace.timed("receiver.checkEquipmentView.answered", window.equipmentId, null, window.openedAt, window.actions.size() + " actions");
+
+		try {
+			if (!window.actions.isEmpty()){
+				window.resultExtras.putStringArrayList(SupportedEquipmentsBroadcastReceiver.KEEL_INTENT_ACTION_EXTRA_DATA, window.actions);
+				window.pendingResult.setResultExtras(window.resultExtras);
+			}
+		} finally {
+			window.pendingResult.finish();
+			
+			//how long Smart Drawing waited for our answer
+			metrics.recordSince("receiver.checkEquipmentView.held", window.openedAt);
+		}
+	}
+}
@@ -0,0 +1,145 @@
+package com.keel.smartdrawing.fiori;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import android.content.Context;
+
+/**
+ * This class keeps default actions and equipment rules of the plugin in own small binary file, so "check equipment view"
+ * broadcast that cold starts Fiori Client process is answered without loading preferences of the whole Fiori Client.
+ * Actions are stored already serialized with package name and intent action (see {@link SingletonContextContainer.ActionTemplate}),
+ * so reading them needs no JSON parsing.
+ *
+ * File format: magic, version, number of actions, for every action its appId, shell hash and JSON as UTF-8 bytes, then rules JSON.
+ * Version 1 files without shell hash are still read.
+ */
+public class ActionStore {
+
+	public static final String FILE_NAME = "smartdrawing.store";
+
+	private static final int MAGIC = 0x534d4453; //"SMDS"
+
+	private static final int VERSION = 2;
+
+	/**
+	 * Content of the store
+	 */
+	public static class Contents {
+		public final SingletonContextContainer.ActionTemplate[] templates;
+
+		//rules JSON as stored by EquipmentRuleIndex.toJSON()
+		public final String rules;
+
+		public Contents(SingletonContextContainer.ActionTemplate[] templates, String rules){
+			this.templates = templates;
+			this.rules = rules;
+		}
+	}
+
+	private final File file;
+
+	public ActionStore(Context context){
+		this.file = new File(context.getFilesDir(), FILE_NAME);
+	}
+
+	public boolean exists(){
+		return file.exists();
+	}
+
+	/**
+	 * Reads the store
+	 * @return null if store does not exist or cannot be read
+	 */
+	public synchronized Contents read(){
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), (int) Math.min(Math.max(file.length(), 512), 64 * 1024)));
+			if (in.readInt() != MAGIC){
+				return null;
+			}
+			int version = in.readInt();
+			if (version < 1 || version > VERSION){
+				return null;
+			}
+
+			int count = in.readInt();
+			SingletonContextContainer.ActionTemplate[] templates = new SingletonContextContainer.ActionTemplate[count];
+			for (int i = 0; i < count; i++){
+				String appId = readString(in);
+				String hash = version >= 2 ? readString(in) : "";
+				templates[i] = new SingletonContextContainer.ActionTemplate(appId.length() > 0 ? appId : null, 
+						hash.length() > 0 ? hash : null, readString(in));
+			}
+
+			return new Contents(templates, readString(in));
+
+		} catch (FileNotFoundException e) {
+			return null;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		} finally {
+			close(in);
+		}
+	}
+
+	/**
+	 * Writes the store, file is replaced at once so readers never see half written store
+	 */
+	public synchronized void write(Contents contents) throws IOException {
+		File tmp = new File(file.getPath() + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(contents.templates.length);
+			for (SingletonContextContainer.ActionTemplate template : contents.templates){
+				writeString(out, template.getAppId() != null ? template.getAppId() : "");
+				writeString(out, template.getHash() != null ? template.getHash() : "");
+				writeString(out, template.getJson());
+			}
+			writeString(out, contents.rules != null ? contents.rules : "{}");
+		} finally {
+			out.close();
+		}
+
+		if (!tmp.renameTo(file)){
+			throw new IOException("Cannot replace " + file);
+		}
+	}
+
+	//DataOutputStream.writeUTF is limited to 64 KB, actions may contain large base64 icons
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		byte[] bytes = value.getBytes("UTF-8");
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0){
+			throw new IOException("Corrupted store");
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, "UTF-8");
+	}
+
+	private static void close(DataInputStream in){
+		if (in != null){
+			try {
+				in.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+}
@@ -1,26 +1,19 @@
 package com.keel.smartdrawing.fiori;
 
 import java.util.ArrayList;
-import java.util.List;
 
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
-import android.util.Log;
-import java.util.List;
-import org.apache.cordova.PluginResult;
-import org.json.JSONException;
-import org.json.JSONObject;
-import org.json.JSONArray;
 
 /**
- * This class gets called from Android at the moment when Smart Drawing app is sending back a broadcast
- * intent with list fo drawings supported by requested equipment that was requested with intent call
- * "com.keelsolution.action.CHECK_EQUIPMENT" to Smart Drawing. 
- * This class uses singleto to get access to context of caller and passes back response sent by 
- * Smart Drawing app. This is not optimized for concurrent checks for different equipment, as 
- * it holds in singleton only one (latest) caller context 
+ * This class gets called from Android at the moment when Smart Drawing app answers a check sent by plugin with intent
+ * "com.keelsolution.action.CHECK_EQUIPMENT" or "com.keelsolution.action.CHECK_DRAWING". It is used as result receiver 
+ * of the ordered broadcast, so only the answer to our own broadcast is accepted.
+ * Every check carries a token, the receiver uses it to find the waiting check in {@link PendingCheckRegistry}, so any 
+ * number of checks for different equipment can be in flight at once.
+ * Plugin sends its ordered broadcasts with {@link ReceiverThread} as scheduler, so results are handled there.
  */
 public class CheckEquipmentResponseReceiver extends BroadcastReceiver {
 	
@@ -31,28 +24,40 @@ public class CheckEquipmentResponseReceiver extends BroadcastReceiver {
 	@Override
 	public void onReceive(Context context, Intent intent) {
 		
+		//result of our ordered broadcast, already on receiver thread
+		onResponse(context, intent, getResultCode(), getResultExtras(false), System.nanoTime());
+	}
+	
+	private void onResponse(Context context, Intent intent, int resultCode, Bundle response, long startTime) {
+		
 		try {
 			SingletonContextContainer singletonContextContainer = SingletonContextContainer.getInstance(context);
-		
-		
-			List<String> intentResult = intent.getStringArrayListExtra(KEEL_INTENT_ACTION_EXTRA_DRAWING_LIST);
-			String jsonResult;
-			if (intentResult != null){
-				Log.v(TAG, "SMD received:" +  intentResult.toString());	
-				jsonResult = intentResult.toString();
-				
-			} else {
-				Log.v(TAG, "SMD received without extras key DRAWING_LIST");
-				jsonResult = "[]";
+			
+			String token = intent.getStringExtra(SmartDrawing.KEEL_INTENT_ACTION_EXTRA_REQUEST_TOKEN);
+			PendingCheck check = singletonContextContainer.getPendingCheckRegistry().remove(token);
+			if (check == null){
+				Trace.event("receiver.checkResponse.unknown", null, token, null);
+				return;
 			}
-		
-			if (singletonContextContainer.onCanShowEquipmentContext != null)
-			{
-				PluginResult result = new PluginResult(PluginResult.Status.OK, jsonResult);
-		    	result.setKeepCallback(false); //finsih with callback
-		    	singletonContextContainer.onCanShowEquipmentContext.sendPluginResult(result);
-				singletonContextContainer.onCanShowEquipmentContext = null;
-			};
+			
+			if (response == null){
+				response = new Bundle();
+			}
+			
+			//local drawing index is not used once Smart Drawing reports newer version
+			singletonContextContainer.getDrawingIndex().onSourceVersion(response.getLong(DrawingIndex.KEEL_INTENT_ACTION_EXTRA_INDEX_VERSION, -1));
+			
+			//Smart Drawing may use upper case key for drawing list
+			ArrayList<String> drawings = response.getStringArrayList(KEEL_INTENT_ACTION_EXTRA_DRAWING_LIST);
+			if (drawings != null && !response.containsKey(SmartDrawing.KEEL_INTENT_ACTION_EXTRA_DRAWING_LIST)){
+				response.putStringArrayList(SmartDrawing.KEEL_INTENT_ACTION_EXTRA_DRAWING_LIST, drawings);
+			}
+			
+			check.onResponse(context, resultCode, response);
+			
+			singletonContextContainer.getMetrics().recordSince("receiver.checkResponse", startTime);
+			Trace.timed("receiver.checkResponse", null, token, startTime, null);
+			
 		} catch (Exception e){
 
 			e.printStackTrace();
@@ -0,0 +1,190 @@
+package com.keel.smartdrawing.fiori;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import android.os.Handler;
+import org.apache.cordova.CallbackContext;
+import org.apache.cordova.PluginResult;
+import org.json.JSONObject;
+
+/**
+ * This class passes "check equipment view" events from Smart Drawing app to JS onCheckObjectAction listener. When user pans
+ * or taps quickly across the drawing, Smart Drawing sends a burst of events and every event wakes all JS observers and their
+ * OData lookups. With coalescing window set, event is held for the window and replaced by newer event of the same Smart Drawing
+ * view (latest wins), so JS processes only equipment the user settled on. Number of views waiting is bounded, when it is
+ * reached the oldest or the newest event is dropped according to drop policy.
+ * Ordered broadcasts of replaced and dropped events are answered immediately, so Smart Drawing does not wait for answers
+ * JS will never send.
+ */
+public class CheckNotificationDispatcher {
+
+	/**
+	 * Which event is dropped when maximal depth is reached
+	 */
+	public enum DropPolicy {
+		DROP_OLDEST,
+		DROP_NEWEST;
+
+		/**
+		 * Returns policy for JS name ("dropOldest", "dropNewest")
+		 */
+		public static DropPolicy fromName(String name){
+			if ("dropNewest".equals(name)){
+				return DROP_NEWEST;
+			}
+			return DROP_OLDEST;
+		}
+	}
+
+	//0 - events are passed to JS immediately
+	public static final long DEFAULT_WINDOW = 0;
+
+	//window is added to time Smart Drawing waits for answers, see ActionResponseCollector
+	public static final long MAX_WINDOW = 1000;
+
+	public static final int DEFAULT_MAX_DEPTH = 4;
+
+	/**
+	 * Event waiting for its coalescing window
+	 */
+	private class Notification implements Runnable {
+		final String viewId;
+		final String equipmentId;
+		final JSONObject checkContext;
+		final CallbackContext listener;
+		final long queuedAt = System.nanoTime();
+
+		Notification(String viewId, String equipmentId, JSONObject checkContext, CallbackContext listener){
+			this.viewId = viewId;
+			this.equipmentId = equipmentId;
+			this.checkContext = checkContext;
+			this.listener = listener;
+		}
+
+		@Override
+		public void run() {
+			synchronized (CheckNotificationDispatcher.this) {
+				if (pending.get(viewId) != this){
+					return; //replaced or dropped
+				}
+				pending.remove(viewId);
+			}
+			deliver(this);
+		}
+	}
+
+	private final Handler handler = ReceiverThread.getHandler();
+
+	private final ActionResponseCollector collector;
+
+	private final MetricsRegistry metrics;
+
+	//view -> the latest event of the view, the oldest view first
+	private final LinkedHashMap<String, Notification> pending = new LinkedHashMap<String, Notification>();
+
+	private volatile long window = DEFAULT_WINDOW;
+
+	private int maxDepth = DEFAULT_MAX_DEPTH;
+
+	private DropPolicy dropPolicy = DropPolicy.DROP_OLDEST;
+
+	private long dispatchedCount = 0;
+
+	private long coalescedCount = 0;
+
+	private long droppedCount = 0;
+
+	public CheckNotificationDispatcher(ActionResponseCollector collector, MetricsRegistry metrics){
+		this.collector = collector;
+		this.metrics = metrics;
+	}
+
+	/**
+	 * @param window time in milliseconds event waits for newer event of the same view, 0 passes events immediately
+	 * @param maxDepth maximal number of views with event waiting
+	 */
+	public synchronized void configure(long window, int maxDepth, DropPolicy dropPolicy){
+		this.window = Math.max(0, Math.min(window, MAX_WINDOW));
+		this.maxDepth = Math.max(1, maxDepth);
+		this.dropPolicy = dropPolicy;
+	}
+
+	public long getWindow(){
+		return window;
+	}
+
+	/**
+	 * Passes event to JS listener after coalescing window
+	 * @param viewId Smart Drawing view the equipment was selected in, null for single view
+	 */
+	public void dispatch(String viewId, String equipmentId, JSONObject checkContext, CallbackContext listener){
+		Notification notification = new Notification(viewId != null ? viewId : "", equipmentId, checkContext, listener);
+		if (window == 0){
+			deliver(notification);
+			return;
+		}
+
+		Notification discarded = null;
+		synchronized (this) {
+			Notification previous = pending.remove(notification.viewId);
+			if (previous != null){
+				handler.removeCallbacks(previous);
+				coalescedCount++;
+				discarded = previous;
+				Trace.event("dispatch.coalesced", previous.equipmentId, null, notification.viewId);
+			} else if (pending.size() >= maxDepth){
+				droppedCount++;
+				if (dropPolicy == DropPolicy.DROP_NEWEST){
+					discarded = notification;
+					notification = null;
+				} else {
+					Iterator<Notification> oldest = pending.values().iterator();
+					discarded = oldest.next();
+					oldest.remove();
+					handler.removeCallbacks(discarded);
+				}
+				Trace.event("dispatch.dropped", discarded.equipmentId, null, discarded.viewId);
+			}
+
+			if (notification != null){
+				pending.put(notification.viewId, notification);
+				handler.postDelayed(notification, window);
+			}
+		}
+
+		//Smart Drawing gets default actions of the discarded event without waiting for JS,
+		//the same equipment selected again already replaced its open broadcast
+		if (discarded != null && discarded.equipmentId != null
+				&& (notification == null || !discarded.equipmentId.equals(notification.equipmentId))){
+			collector.release(discarded.equipmentId);
+		}
+	}
+
+	public synchronized int size(){
+		return pending.size();
+	}
+
+	public synchronized long getDispatchedCount(){
+		return dispatchedCount;
+	}
+
+	public synchronized long getCoalescedCount(){
+		return coalescedCount;
+	}
+
+	public synchronized long getDroppedCount(){
+		return droppedCount;
+	}
+
+	private void deliver(Notification notification){
+		synchronized (this) {
+			dispatchedCount++;
+		}
+		metrics.recordSince("dispatch.checkEquipmentView.wait", notification.queuedAt);
+
+		PluginResult result = new PluginResult(PluginResult.Status.OK, notification.checkContext);
+		result.setKeepCallback(true);
+		notification.listener.sendPluginResult(result);
+	}
+}
@@ -0,0 +1,164 @@
+package com.keel.smartdrawing.fiori;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import android.os.SystemClock;
+
+/**
+ * This class keeps answers of Smart Drawing checks (canShowEquipment / canShowDrawing) so repeated checks of the same
+ * object do not cost a broadcast to Smart Drawing app.
+ * Concurrent checks of the same object are merged: the first caller sends the broadcast and every other caller
+ * waits for the same answer. Answers are stored in size bounded LRU map and expire after configured time,
+ * negative answers (object not known to Smart Drawing) have own, usually shorter, time to live.
+ */
+public class CheckResultCache {
+
+	public static final int DEFAULT_MAX_ENTRIES = 1000;
+	public static final long DEFAULT_TTL = 60000;
+	public static final long DEFAULT_NEGATIVE_TTL = 15000;
+
+	private static final String KEY_EQUIPMENT = "equipment:";
+	private static final String KEY_DRAWING = "drawing:";
+
+	private static class Entry {
+		final Object value;
+		final long expiresAt;
+
+		Entry(Object value, long expiresAt){
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	private int maxEntries = DEFAULT_MAX_ENTRIES;
+
+	private long ttl = DEFAULT_TTL;
+
+	private long negativeTtl = DEFAULT_NEGATIVE_TTL;
+	
+	private long hits = 0;
+	
+	private long misses = 0;
+
+	//access ordered map - eldest entry is the least recently used one
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(64, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+			return size() > maxEntries;
+		}
+	};
+
+	//callers waiting for answer of check that is already sent to Smart Drawing
+	private final HashMap<String, List<PendingCall>> inFlight = new HashMap<String, List<PendingCall>>();
+
+	public static String equipmentKey(String equipmentId){
+		return KEY_EQUIPMENT + equipmentId;
+	}
+
+	public static String drawingKey(String drawingId){
+		return KEY_DRAWING + drawingId;
+	}
+
+	/**
+	 * Returns cached answer or null if there is no valid answer for the key
+	 */
+	public synchronized Object get(String key){
+		Entry entry = entries.get(key);
+		if (entry == null){
+			misses++;
+			return null;
+		}
+
+		if (entry.expiresAt <= SystemClock.elapsedRealtime()){
+			entries.remove(key);
+			misses++;
+			return null;
+		}
+
+		hits++;
+		return entry.value;
+	}
+
+	/**
+	 * Registers caller as waiting for the answer.
+	 * @return true if caller is the first one and shall send the check to Smart Drawing, false if the same check is already in flight
+	 */
+	public synchronized boolean join(String key, PendingCall call){
+		List<PendingCall> waiters = inFlight.get(key);
+		if (waiters != null){
+			waiters.add(call);
+			return false;
+		}
+
+		waiters = new ArrayList<PendingCall>(2);
+		waiters.add(call);
+		inFlight.put(key, waiters);
+		return true;
+	}
+
+	/**
+	 * Stores the answer and returns all callers that were waiting for it
+	 */
+	public synchronized List<PendingCall> complete(String key, Object value, boolean negative){
+		put(key, value, negative);
+		return abandon(key);
+	}
+
+	/**
+	 * Removes in-flight check without storing any answer and returns all callers that were waiting for it
+	 */
+	public synchronized List<PendingCall> abandon(String key){
+		List<PendingCall> waiters = inFlight.remove(key);
+		if (waiters == null){
+			waiters = new ArrayList<PendingCall>(0);
+		}
+		return waiters;
+	}
+
+	public synchronized void put(String key, Object value, boolean negative){
+		long timeToLive = negative ? negativeTtl : ttl;
+		if (timeToLive <= 0){
+			entries.remove(key);
+			return;
+		}
+		entries.put(key, new Entry(value, SystemClock.elapsedRealtime() + timeToLive));
+	}
+
+	public synchronized void invalidate(String key){
+		entries.remove(key);
+	}
+
+	public synchronized void invalidateAll(){
+		entries.clear();
+	}
+
+	public synchronized void configure(int maxEntries, long ttl, long negativeTtl){
+		this.maxEntries = Math.max(0, maxEntries);
+		this.ttl = ttl;
+		this.negativeTtl = negativeTtl;
+
+		//shrink map to new size
+		Iterator<String> iterator = entries.keySet().iterator();
+		while (entries.size() > this.maxEntries && iterator.hasNext()){
+			iterator.next();
+			iterator.remove();
+		}
+	}
+
+	public synchronized int size(){
+		return entries.size();
+	}
+	
+	public synchronized long getHits(){
+		return hits;
+	}
+	
+	public synchronized long getMisses(){
+		return misses;
+	}
+}
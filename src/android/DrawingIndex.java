@@ -0,0 +1,654 @@
+package com.keel.smartdrawing.fiori;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import android.os.SystemClock;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * This class keeps local copy of equipment -> drawing relation of Smart Drawing app, so canShowEquipment and canShowDrawing
+ * are answered in-process without broadcast round trip. The index is opt-in, it is filled by versioned export of Smart Drawing
+ * (or by JS from any other source) and kept up to date by delta exports. Equipment not found in index and all checks while
+ * Smart Drawing reports newer version than the index are still sent to Smart Drawing app.
+ *
+ * Equipment is kept in long array of 64 bit hashes of ids sorted by hash and id, with offsets into one char array of the ids
+ * and into one int array of drawing numbers. Lookup is a binary search on the hash and ids of equal hashes are compared, so
+ * colliding ids are never mixed up. Every equipment costs about 20 bytes plus 2 bytes per character of its id and 4 bytes per
+ * drawing it is found on. Deltas are kept in small overlay map keyed by id which is merged into the sorted arrays when it grows.
+ * Index state is immutable snapshot replaced at once, readers need no lock.
+ *
+ * Export is UTF-8 text, one record per line, fields separated by tab:
+ * <pre>
+ * SMDINDEX &lt;version&gt; [&lt;baseVersion&gt;]       header, delta export has version it is based on
+ * D	&lt;drawingId&gt;	&lt;drawingName&gt;        drawing added or renamed
+ * X	&lt;drawingId&gt;                     drawing removed (delta only)
+ * E	&lt;equipmentId&gt;	&lt;drawingId&gt;...     equipment and all drawings it is found on
+ * R	&lt;equipmentId&gt;                   equipment removed (delta only)
+ * </pre>
+ */
+public class DrawingIndex {
+
+	//Smart Drawing is asked for export with ordered broadcast, answer carries export inline or as content URI
+	public static final String KEEL_INTENT_ACTION_EXPORT_INDEX = "com.keelsolution.action.EXPORT_INDEX";
+	//version of index in export request (-1 for full export) and current version of Smart Drawing in answers of checks
+	public static final String KEEL_INTENT_ACTION_EXTRA_INDEX_VERSION = "com.keelsolution.action.extra.indexVersion";
+	public static final String KEEL_INTENT_ACTION_EXTRA_INDEX_URI = "com.keelsolution.action.extra.indexUri";
+	public static final String KEEL_INTENT_ACTION_EXTRA_INDEX_DATA = "com.keelsolution.action.extra.indexData";
+
+	//time in milliseconds before synchronization is retried after failure, doubled with every failure in a row
+	public static final long SYNC_RETRY_MIN = 5000;
+	public static final long SYNC_RETRY_MAX = 300000;
+
+	private static final String HEADER = "SMDINDEX";
+
+	//overlay bigger than this (or 1/8 of the index) is merged into sorted arrays
+	private static final int MIN_COMPACT_SIZE = 1024;
+
+	private static final int[] NO_DRAWINGS = new int[0];
+
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	/**
+	 * Immutable state of the index
+	 */
+	private static class Snapshot {
+		final long version;
+
+		//hashes of equipment ids sorted by hash and id, drawings of hashes[i] are refs[offsets[i]] .. refs[offsets[i + 1] - 1]
+		final long[] hashes;
+		final int[] offsets;
+		final int[] refs;
+
+		//id of hashes[i] is idChars[idOffsets[i]] .. idChars[idOffsets[i + 1] - 1]
+		final char[] idChars;
+		final int[] idOffsets;
+
+		//drawing number -> drawing, removed drawings have null id
+		final String[] drawingIds;
+		final String[] drawingNames;
+		final HashMap<String, Integer> drawingNumbers;
+
+		//equipment changed by deltas since the last merge, removed equipment has no drawings
+		final HashMap<String, int[]> overlay;
+
+		Snapshot(long version, long[] hashes, int[] offsets, int[] refs, char[] idChars, int[] idOffsets, String[] drawingIds,
+				String[] drawingNames, HashMap<String, Integer> drawingNumbers, HashMap<String, int[]> overlay){
+			this.version = version;
+			this.hashes = hashes;
+			this.offsets = offsets;
+			this.refs = refs;
+			this.idChars = idChars;
+			this.idOffsets = idOffsets;
+			this.drawingIds = drawingIds;
+			this.drawingNames = drawingNames;
+			this.drawingNumbers = drawingNumbers;
+			this.overlay = overlay;
+		}
+
+		/**
+		 * Returns drawing numbers of equipment or null if equipment is not in index
+		 */
+		int[] find(String equipmentId){
+			int[] changed = overlay.get(equipmentId);
+			if (changed != null){
+				return changed;
+			}
+
+			long hash = hash(equipmentId);
+			int i = Arrays.binarySearch(hashes, hash);
+			if (i < 0){
+				return null;
+			}
+
+			//binary search hits any of equal hashes, ids of the whole range are compared
+			while (i > 0 && hashes[i - 1] == hash){
+				i--;
+			}
+			for (; i < hashes.length && hashes[i] == hash; i++){
+				if (idEquals(i, equipmentId)){
+					return Arrays.copyOfRange(refs, offsets[i], offsets[i + 1]);
+				}
+			}
+			return null;
+		}
+
+		String id(int i){
+			return new String(idChars, idOffsets[i], idOffsets[i + 1] - idOffsets[i]);
+		}
+
+		private boolean idEquals(int i, String equipmentId){
+			int start = idOffsets[i];
+			int length = idOffsets[i + 1] - start;
+			if (length != equipmentId.length()){
+				return false;
+			}
+			for (int c = 0; c < length; c++){
+				if (idChars[start + c] != equipmentId.charAt(c)){
+					return false;
+				}
+			}
+			return true;
+		}
+
+		long estimateBytes(){
+			long bytes = 8L * hashes.length + 4L * offsets.length + 4L * refs.length + 2L * idChars.length + 4L * idOffsets.length + 5 * 16;
+			for (int i = 0; i < drawingIds.length; i++){
+				bytes += 2 * (stringBytes(drawingIds[i]) + stringBytes(drawingNames[i]));
+			}
+			bytes += 48L * drawingNumbers.size();
+			for (Map.Entry<String, int[]> entry : overlay.entrySet()){
+				bytes += 64 + stringBytes(entry.getKey()) + 4L * entry.getValue().length;
+			}
+			return bytes;
+		}
+
+		private static long stringBytes(String value){
+			return value != null ? 24 + 16 + value.length() : 0;
+		}
+	}
+
+	/**
+	 * Collects equipment and builds sorted arrays
+	 */
+	private static class Builder {
+		long[] keys = new long[1024];
+		String[] ids = new String[1024];
+		int[][] drawings = new int[1024][];
+		int size = 0;
+		int refCount = 0;
+		int charCount = 0;
+
+		void add(String id, int[] refs){
+			if (size == keys.length){
+				keys = Arrays.copyOf(keys, size * 2);
+				ids = Arrays.copyOf(ids, size * 2);
+				drawings = Arrays.copyOf(drawings, size * 2);
+			}
+			keys[size] = hash(id);
+			ids[size] = id;
+			drawings[size] = refs;
+			size++;
+			refCount += refs.length;
+			charCount += id.length();
+		}
+
+		Snapshot build(long version, String[] drawingIds, String[] drawingNames, HashMap<String, Integer> drawingNumbers){
+			int[] order = new int[size];
+			for (int i = 0; i < size; i++){
+				order[i] = i;
+			}
+			sort(keys, ids, order, 0, size - 1);
+
+			long[] hashes = new long[size];
+			int[] offsets = new int[size + 1];
+			int[] refs = new int[refCount];
+			char[] idChars = new char[charCount];
+			int[] idOffsets = new int[size + 1];
+			int count = 0;
+			int position = 0;
+			int charPosition = 0;
+			String previous = null;
+			for (int i = 0; i < size; i++){
+				String id = ids[order[i]];
+				//the same equipment listed twice - drawings are joined
+				if (count == 0 || hashes[count - 1] != keys[order[i]] || !previous.equals(id)){
+					hashes[count] = keys[order[i]];
+					offsets[count] = position;
+					idOffsets[count] = charPosition;
+					id.getChars(0, id.length(), idChars, charPosition);
+					charPosition += id.length();
+					previous = id;
+					count++;
+				}
+				int[] equipmentRefs = drawings[order[i]];
+				System.arraycopy(equipmentRefs, 0, refs, position, equipmentRefs.length);
+				position += equipmentRefs.length;
+			}
+			offsets[count] = position;
+			idOffsets[count] = charPosition;
+
+			return new Snapshot(version, count < size ? Arrays.copyOf(hashes, count) : hashes,
+					count < size ? Arrays.copyOf(offsets, count + 1) : offsets, refs,
+					charPosition < charCount ? Arrays.copyOf(idChars, charPosition) : idChars,
+					count < size ? Arrays.copyOf(idOffsets, count + 1) : idOffsets,
+					drawingIds, drawingNames, drawingNumbers, new HashMap<String, int[]>());
+		}
+
+		/**
+		 * Sorts order by keys and ids, quicksort on primitive arrays so 100k entries are not boxed
+		 */
+		private static void sort(long[] keys, String[] ids, int[] order, int low, int high){
+			while (low < high){
+				if (high - low < 16){
+					for (int i = low + 1; i <= high; i++){
+						int current = order[i];
+						int j = i - 1;
+						while (j >= low && compare(keys, ids, order[j], keys[current], ids[current]) > 0){
+							order[j + 1] = order[j];
+							j--;
+						}
+						order[j + 1] = current;
+					}
+					return;
+				}
+
+				int middle = order[(low + high) >>> 1];
+				long pivot = keys[middle];
+				String pivotId = ids[middle];
+				int i = low;
+				int j = high;
+				while (i <= j){
+					while (compare(keys, ids, order[i], pivot, pivotId) < 0){
+						i++;
+					}
+					while (compare(keys, ids, order[j], pivot, pivotId) > 0){
+						j--;
+					}
+					if (i <= j){
+						int swap = order[i];
+						order[i] = order[j];
+						order[j] = swap;
+						i++;
+						j--;
+					}
+				}
+
+				//recurse into smaller part, loop over the bigger one
+				if (j - low < high - i){
+					sort(keys, ids, order, low, j);
+					low = i;
+				} else {
+					sort(keys, ids, order, i, high);
+					high = j;
+				}
+			}
+		}
+
+		private static int compare(long[] keys, String[] ids, int entry, long key, String id){
+			if (keys[entry] != key){
+				return keys[entry] < key ? -1 : 1;
+			}
+			return ids[entry].compareTo(id);
+		}
+	}
+
+	private volatile Snapshot snapshot = null;
+
+	private volatile boolean enabled = false;
+
+	//the latest version reported by Smart Drawing in answers of checks, -1 if not known
+	private volatile long sourceVersion = -1;
+
+	private boolean syncing = false;
+
+	//start of running synchronization and failures in a row (elapsedRealtime)
+	private long syncStartedAt = 0;
+
+	private int syncFailures = 0;
+
+	//synchronization is not started by checks before this time (elapsedRealtime)
+	private volatile long nextSyncAt = 0;
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	private volatile long buildMillis = 0;
+
+	public boolean isEnabled(){
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled){
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Returns version of the index, -1 if index is empty
+	 */
+	public long getVersion(){
+		Snapshot current = snapshot;
+		return current != null ? current.version : -1;
+	}
+
+	/**
+	 * Tells if index can answer checks - it is enabled, loaded and Smart Drawing did not report newer version
+	 */
+	public boolean isUsable(){
+		Snapshot current = snapshot;
+		return enabled && current != null && (sourceVersion < 0 || sourceVersion <= current.version);
+	}
+
+	/**
+	 * Tells if index shall be synchronized with Smart Drawing, failed synchronization is retried with growing delay.
+	 * Empty index (e.g. dropped after delta did not match) is synchronized by full export once Smart Drawing reported its version.
+	 */
+	public boolean isSyncNeeded(){
+		Snapshot current = snapshot;
+		long version = current != null ? current.version : -1;
+		return enabled && sourceVersion >= 0 && sourceVersion > version && SystemClock.elapsedRealtime() >= nextSyncAt;
+	}
+
+	/**
+	 * Called with index version found in answer of Smart Drawing, newer version makes the index unusable until it is synchronized
+	 */
+	public void onSourceVersion(long version){
+		if (version > sourceVersion){
+			sourceVersion = version;
+		}
+	}
+
+	/**
+	 * Marks synchronization in progress, synchronization not finished within {@link #SYNC_RETRY_MAX} is taken as lost
+	 * @return false if synchronization is already running
+	 */
+	public synchronized boolean beginSync(){
+		long now = SystemClock.elapsedRealtime();
+		if (syncing && now - syncStartedAt < SYNC_RETRY_MAX){
+			return false;
+		}
+		syncing = true;
+		syncStartedAt = now;
+		nextSyncAt = now + retryDelay(syncFailures + 1);
+		return true;
+	}
+
+	/**
+	 * Ends synchronization, failure postpones the next synchronization started by checks
+	 * @param loaded true if export was loaded
+	 */
+	public synchronized void endSync(boolean loaded){
+		syncing = false;
+		if (loaded){
+			syncFailures = 0;
+			nextSyncAt = 0;
+		} else {
+			syncFailures++;
+			nextSyncAt = SystemClock.elapsedRealtime() + retryDelay(syncFailures);
+		}
+	}
+
+	/**
+	 * Returns delay before the next attempt after given number of failures in a row
+	 */
+	private static long retryDelay(int failures){
+		return Math.min(SYNC_RETRY_MAX, SYNC_RETRY_MIN << Math.min(Math.max(failures - 1, 0), 16));
+	}
+
+	/**
+	 * Returns drawings of equipment as array of DrawingDescription objects
+	 * @return null if index cannot answer and Smart Drawing has to be asked
+	 */
+	public JSONArray findEquipment(String equipmentId) throws JSONException {
+		Snapshot current = snapshot;
+		if (!isUsable() || equipmentId == null){
+			return null;
+		}
+
+		int[] drawings = current.find(equipmentId);
+		if (drawings == null){
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+
+		JSONArray drawingArr = new JSONArray();
+		for (int i = 0; i < drawings.length; i++){
+			String drawingId = current.drawingIds[drawings[i]];
+			if (drawingId != null){
+				JSONObject drawing = new JSONObject();
+				drawing.put("drawingId", drawingId);
+				drawing.put("drawingName", current.drawingNames[drawings[i]]);
+				drawingArr.put(drawing);
+			}
+		}
+		return drawingArr;
+	}
+
+	/**
+	 * Tells if drawing is known to Smart Drawing, drawing missing in usable index is not known
+	 * @return null if index cannot answer and Smart Drawing has to be asked
+	 */
+	public Boolean findDrawing(String drawingId){
+		Snapshot current = snapshot;
+		if (!isUsable() || drawingId == null){
+			return null;
+		}
+
+		if (current.drawingNumbers.containsKey(drawingId)){
+			hits.incrementAndGet();
+			return Boolean.TRUE;
+		}
+		misses.incrementAndGet();
+		return Boolean.FALSE;
+	}
+
+	/**
+	 * Loads full or delta export
+	 * @return report of the index after load
+	 * @throws IllegalStateException if delta is not based on version of the index, full export is needed
+	 */
+	public JSONObject load(Reader reader) throws IOException, JSONException {
+		long startTime = System.nanoTime();
+		BufferedReader in = new BufferedReader(reader, 64 * 1024);
+
+		String header = in.readLine();
+		String[] headerFields = header != null ? header.trim().split(" ") : new String[0];
+		if (headerFields.length < 2 || !HEADER.equals(headerFields[0])){
+			throw new IOException("Not a Smart Drawing index export");
+		}
+		long version = Long.parseLong(headerFields[1]);
+
+		Snapshot loaded;
+		synchronized (this) {
+			if (headerFields.length > 2){
+				long baseVersion = Long.parseLong(headerFields[2]);
+				if (snapshot == null || snapshot.version != baseVersion){
+					throw new IllegalStateException("Delta " + baseVersion + " -> " + version + " does not match index " + getVersion());
+				}
+				loaded = applyDelta(snapshot, version, in);
+			} else {
+				loaded = loadFull(version, in);
+			}
+			snapshot = loaded;
+		}
+
+		buildMillis = (System.nanoTime() - startTime) / 1000000;
+		Trace.event("drawingIndex.loaded", null, null, version);
+		return report();
+	}
+
+	/**
+	 * Drops the index, all checks are sent to Smart Drawing again
+	 */
+	public synchronized void clear(){
+		snapshot = null;
+	}
+
+	/**
+	 * Returns version, size, estimated memory footprint and build time of the index
+	 */
+	public JSONObject report() throws JSONException {
+		Snapshot current = snapshot;
+
+		JSONObject json = new JSONObject();
+		json.put("enabled", enabled);
+		json.put("version", current != null ? current.version : -1);
+		json.put("sourceVersion", sourceVersion);
+		json.put("equipment", current != null ? current.hashes.length : 0);
+		json.put("drawings", current != null ? current.drawingNumbers.size() : 0);
+		json.put("overlay", current != null ? current.overlay.size() : 0);
+		json.put("memoryBytes", current != null ? current.estimateBytes() : 0);
+		json.put("buildMs", buildMillis);
+		json.put("hits", hits.get());
+		json.put("misses", misses.get());
+		return json;
+	}
+
+	public long getHits(){
+		return hits.get();
+	}
+
+	public long getMisses(){
+		return misses.get();
+	}
+
+	private static Snapshot loadFull(long version, BufferedReader in) throws IOException {
+		ArrayList<String> drawingIds = new ArrayList<String>();
+		ArrayList<String> drawingNames = new ArrayList<String>();
+		HashMap<String, Integer> drawingNumbers = new HashMap<String, Integer>();
+		Builder builder = new Builder();
+
+		String line;
+		while ((line = in.readLine()) != null){
+			if (line.length() < 2 || line.charAt(1) != '\t'){
+				continue;
+			}
+
+			String[] fields = fields(line);
+			switch (line.charAt(0)){
+				case 'D':
+					drawingNumber(fields[1], fields.length > 2 ? fields[2] : "", drawingIds, drawingNames, drawingNumbers, true);
+					break;
+				case 'E':
+					int[] refs = new int[fields.length - 2];
+					for (int i = 2; i < fields.length; i++){
+						refs[i - 2] = drawingNumber(fields[i], "", drawingIds, drawingNames, drawingNumbers, false);
+					}
+					builder.add(fields[1], refs);
+					break;
+				default:
+					//records of newer export versions are skipped
+					break;
+			}
+		}
+
+		return builder.build(version, drawingIds.toArray(new String[drawingIds.size()]),
+				drawingNames.toArray(new String[drawingNames.size()]), drawingNumbers);
+	}
+
+	private static Snapshot applyDelta(Snapshot base, long version, BufferedReader in) throws IOException {
+		ArrayList<String> drawingIds = new ArrayList<String>(Arrays.asList(base.drawingIds));
+		ArrayList<String> drawingNames = new ArrayList<String>(Arrays.asList(base.drawingNames));
+		HashMap<String, Integer> drawingNumbers = new HashMap<String, Integer>(base.drawingNumbers);
+		HashMap<String, int[]> overlay = new HashMap<String, int[]>(base.overlay);
+
+		String line;
+		while ((line = in.readLine()) != null){
+			if (line.length() < 2 || line.charAt(1) != '\t'){
+				continue;
+			}
+
+			String[] fields = fields(line);
+			switch (line.charAt(0)){
+				case 'D':
+					drawingNumber(fields[1], fields.length > 2 ? fields[2] : "", drawingIds, drawingNames, drawingNumbers, true);
+					break;
+				case 'X':
+					Integer removed = drawingNumbers.remove(fields[1]);
+					if (removed != null){
+						drawingIds.set(removed, null);
+						drawingNames.set(removed, null);
+					}
+					break;
+				case 'E':
+					int[] refs = new int[fields.length - 2];
+					for (int i = 2; i < fields.length; i++){
+						refs[i - 2] = drawingNumber(fields[i], "", drawingIds, drawingNames, drawingNumbers, false);
+					}
+					overlay.put(fields[1], refs);
+					break;
+				case 'R':
+					overlay.put(fields[1], NO_DRAWINGS);
+					break;
+				default:
+					break;
+			}
+		}
+
+		String[] ids = drawingIds.toArray(new String[drawingIds.size()]);
+		String[] names = drawingNames.toArray(new String[drawingNames.size()]);
+		if (overlay.size() < Math.max(MIN_COMPACT_SIZE, base.hashes.length / 8)){
+			return new Snapshot(version, base.hashes, base.offsets, base.refs, base.idChars, base.idOffsets, ids, names, drawingNumbers, overlay);
+		}
+
+		//merge overlay into sorted arrays, removed equipment is dropped
+		Builder builder = new Builder();
+		for (int i = 0; i < base.hashes.length; i++){
+			String id = base.id(i);
+			if (!overlay.containsKey(id)){
+				builder.add(id, Arrays.copyOfRange(base.refs, base.offsets[i], base.offsets[i + 1]));
+			}
+		}
+		for (Map.Entry<String, int[]> entry : overlay.entrySet()){
+			if (entry.getValue().length > 0){
+				builder.add(entry.getKey(), entry.getValue());
+			}
+		}
+		return builder.build(version, ids, names, drawingNumbers);
+	}
+
+	/**
+	 * Returns number of drawing, unknown drawing is added
+	 * @param rename name of known drawing is replaced
+	 */
+	private static int drawingNumber(String drawingId, String drawingName, ArrayList<String> drawingIds, ArrayList<String> drawingNames,
+			HashMap<String, Integer> drawingNumbers, boolean rename){
+		Integer number = drawingNumbers.get(drawingId);
+		if (number == null){
+			number = drawingIds.size();
+			drawingIds.add(drawingId);
+			drawingNames.add(drawingName);
+			drawingNumbers.put(drawingId, number);
+		} else if (rename){
+			drawingNames.set(number, drawingName);
+		}
+		return number;
+	}
+
+	/**
+	 * Splits line by tab without regular expression
+	 */
+	private static String[] fields(String line){
+		int count = 1;
+		for (int i = 0; i < line.length(); i++){
+			if (line.charAt(i) == '\t'){
+				count++;
+			}
+		}
+
+		String[] fields = new String[count];
+		int start = 0;
+		for (int i = 0; i < count; i++){
+			int end = line.indexOf('\t', start);
+			if (end < 0){
+				end = line.length();
+			}
+			fields[i] = line.substring(start, end);
+			start = end + 1;
+		}
+		return fields;
+	}
+
+	/**
+	 * 64 bit FNV-1a hash of equipment id
+	 */
+	static long hash(String value){
+		long hash = FNV_OFFSET;
+		for (int i = 0; i < value.length(); i++){
+			hash ^= value.charAt(i);
+			hash *= FNV_PRIME;
+		}
+		return hash;
+	}
+}
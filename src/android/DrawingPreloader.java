@@ -0,0 +1,168 @@
+package com.keel.smartdrawing.fiori;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.SystemClock;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * This class sends Smart Drawing app low priority hints to preload drawings the user is likely to open next, typically the
+ * drawings returned by canShowEquipment. Smart Drawing can then parse and render large drawings in background before
+ * the show intent arrives. Hints are deduplicated (drawing hinted recently is not hinted again) and rate limited, and they
+ * are sent only if installed Smart Drawing app is able to receive them.
+ */
+public class DrawingPreloader {
+
+	public static final String KEEL_INTENT_ACTION_PRELOAD_DRAWING = "com.keelsolution.action.PRELOAD_DRAWING";
+	public static final String KEEL_INTENT_ACTION_EXTRA_DRAWING_ID_LIST = "com.keelsolution.action.extra.drawingIdList";
+
+	//number of first drawings of canShowEquipment answer hinted in automatic mode
+	public static final int DEFAULT_MAX_DRAWINGS = 1;
+
+	//minimal time between two hints
+	public static final long DEFAULT_MIN_INTERVAL = 2000;
+
+	//time the same drawing is not hinted again
+	public static final long DEFAULT_DEDUPE_TTL = 300000;
+
+	private static final int MAX_REMEMBERED = 64;
+
+	private final Context context;
+
+	private final SmartDrawingPresence presence;
+
+	//drawingId -> time it was hinted, eldest first
+	private final LinkedHashMap<String, Long> hinted = new LinkedHashMap<String, Long>(16, 0.75f, false) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+			return size() > MAX_REMEMBERED;
+		}
+	};
+
+	private boolean auto = false;
+
+	private int maxDrawings = DEFAULT_MAX_DRAWINGS;
+
+	private long minInterval = DEFAULT_MIN_INTERVAL;
+
+	private long dedupeTtl = DEFAULT_DEDUPE_TTL;
+
+	private long lastSent = 0;
+
+	private long sentCount = 0;
+
+	private long deduplicatedCount = 0;
+
+	private long rateLimitedCount = 0;
+
+	public DrawingPreloader(Context context, SmartDrawingPresence presence){
+		this.context = context;
+		this.presence = presence;
+	}
+
+	/**
+	 * @param auto hint drawings of every canShowEquipment answer
+	 */
+	public synchronized void configure(boolean auto, int maxDrawings, long minInterval, long dedupeTtl){
+		this.auto = auto;
+		this.maxDrawings = Math.max(1, maxDrawings);
+		this.minInterval = Math.max(0, minInterval);
+		this.dedupeTtl = Math.max(0, dedupeTtl);
+	}
+
+	/**
+	 * Hints first drawings of canShowEquipment answer if automatic mode is on
+	 * @param drawings drawings as returned by Smart Drawing, JSON objects with drawingId or plain ids
+	 */
+	public void onDrawingsFound(List<String> drawings){
+		if (drawings == null || drawings.isEmpty()){
+			return;
+		}
+
+		int limit;
+		synchronized (this) {
+			if (!auto){
+				return;
+			}
+			limit = maxDrawings;
+		}
+
+		List<String> drawingIds = new ArrayList<String>(limit);
+		for (int i = 0; i < drawings.size() && drawingIds.size() < limit; i++){
+			drawingIds.add(toDrawingId(drawings.get(i)));
+		}
+		hint(drawingIds);
+	}
+
+	/**
+	 * Sends hint for drawings not hinted recently
+	 * @return number of drawings sent to Smart Drawing
+	 */
+	public int hint(List<String> drawingIds){
+		if (!presence.hasReceiver(KEEL_INTENT_ACTION_PRELOAD_DRAWING)){
+			return 0;
+		}
+
+		ArrayList<String> fresh = new ArrayList<String>(drawingIds.size());
+		synchronized (this) {
+			long now = SystemClock.elapsedRealtime();
+			for (String drawingId : drawingIds){
+				Long hintedAt = hinted.get(drawingId);
+				if (hintedAt != null && now - hintedAt < dedupeTtl){
+					deduplicatedCount++;
+				} else if (!fresh.contains(drawingId)){
+					fresh.add(drawingId);
+				}
+			}
+
+			if (fresh.isEmpty()){
+				return 0;
+			}
+
+			if (lastSent > 0 && now - lastSent < minInterval){
+				rateLimitedCount++;
+				return 0;
+			}
+
+			for (String drawingId : fresh){
+				hinted.remove(drawingId);
+				hinted.put(drawingId, now);
+			}
+			lastSent = now;
+			sentCount += fresh.size();
+		}
+
+		Intent intent = new Intent(KEEL_INTENT_ACTION_PRELOAD_DRAWING);
+		intent.putStringArrayListExtra(KEEL_INTENT_ACTION_EXTRA_DRAWING_ID_LIST, fresh);
+		context.sendBroadcast(intent);
+
+		Trace.event("preload.sent", null, null, fresh);
+		return fresh.size();
+	}
+
+	public synchronized long getSentCount(){
+		return sentCount;
+	}
+
+	public synchronized long getDeduplicatedCount(){
+		return deduplicatedCount;
+	}
+
+	public synchronized long getRateLimitedCount(){
+		return rateLimitedCount;
+	}
+
+	private static String toDrawingId(String drawing){
+		try {
+			return new JSONObject(drawing).optString("drawingId", drawing);
+		} catch (JSONException e) {
+			return drawing;
+		}
+	}
+}
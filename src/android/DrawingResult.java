@@ -0,0 +1,103 @@
+package com.keel.smartdrawing.fiori;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+
+import org.apache.cordova.PluginResult;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * This class builds results of canShowEquipment / canShowDrawing checks in format selected by JS caller:
+ * <ul>
+ * <li>"string" - JSON text of DrawingDescription array or "true" / "false", as returned by older versions of the plugin</li>
+ * <li>"json" - DrawingDescription array or boolean, JS receives them already parsed</li>
+ * <li>"binary" - drawing list as ArrayBuffer, cheapest for equipment found on hundreds of drawings</li>
+ * </ul>
+ *
+ * Binary layout (big endian): number of drawings (uint32), then for every drawing its drawingId and drawingName, each as
+ * length of UTF-8 bytes (uint16) followed by the bytes. Other properties of DrawingDescription are not sent, values longer than
+ * 65535 bytes are cut. See SmartDrawing.decodeDrawings in smartdrawing.js.
+ */
+public final class DrawingResult {
+
+	public static final String FORMAT_STRING = "string";
+	public static final String FORMAT_JSON = "json";
+	public static final String FORMAT_BINARY = "binary";
+
+	private static final int MAX_STRING_BYTES = 0xffff;
+
+	private DrawingResult(){
+	}
+
+	/**
+	 * Returns known format for JS name, "string" if name is not known
+	 */
+	public static String formatOf(String name){
+		if (FORMAT_JSON.equals(name)){
+			return FORMAT_JSON;
+		} else if (FORMAT_BINARY.equals(name)){
+			return FORMAT_BINARY;
+		}
+		return FORMAT_STRING;
+	}
+
+	/**
+	 * Result of canShowEquipment
+	 * @param drawings array of DrawingDescription objects, see {@link SmartDrawing#toDrawingArray}
+	 */
+	public static PluginResult drawings(JSONArray drawings, String format){
+		if (FORMAT_JSON.equals(format)){
+			return new PluginResult(PluginResult.Status.OK, drawings);
+		} else if (FORMAT_BINARY.equals(format)){
+			return new PluginResult(PluginResult.Status.OK, toBinary(drawings));
+		}
+		return new PluginResult(PluginResult.Status.OK, drawings.toString());
+	}
+
+	/**
+	 * Result of canShowDrawing
+	 */
+	public static PluginResult drawing(boolean found, String format){
+		if (FORMAT_STRING.equals(format)){
+			return new PluginResult(PluginResult.Status.OK, found ? "true" : "false");
+		}
+		return new PluginResult(PluginResult.Status.OK, found);
+	}
+
+	/**
+	 * Encodes drawing list in binary layout
+	 */
+	public static byte[] toBinary(JSONArray drawings){
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(4 + drawings.length() * 48);
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			out.writeInt(drawings.length());
+			for (int i = 0; i < drawings.length(); i++){
+				JSONObject drawing = drawings.optJSONObject(i);
+				if (drawing != null){
+					writeString(out, drawing.optString("drawingId", ""));
+					writeString(out, drawing.optString("drawingName", ""));
+				} else {
+					//plain drawing id
+					writeString(out, drawings.optString(i, ""));
+					writeString(out, "");
+				}
+			}
+			out.flush();
+		} catch (IOException e) {
+			//not thrown by ByteArrayOutputStream
+			e.printStackTrace();
+		}
+		return bytes.toByteArray();
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException, UnsupportedEncodingException {
+		byte[] utf8 = value.getBytes("UTF-8");
+		int length = Math.min(utf8.length, MAX_STRING_BYTES);
+		out.writeShort(length);
+		out.write(utf8, 0, length);
+	}
+}
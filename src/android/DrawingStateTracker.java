@@ -0,0 +1,105 @@
+package com.keel.smartdrawing.fiori;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * This class remembers which equipment data was last sent to Smart Drawing app for the drawing opened by the last showData call, 
+ * so later updates of the same drawing can be sent as delta (added, changed and removed equipment) instead of full message.
+ * Only this drawing is open in Smart Drawing, delta of any other drawing would update nothing, so other drawings are forgotten.
+ * Equipment is identified by its equipmentId and compared by its serialized JSON.
+ */
+public class DrawingStateTracker {
+
+	/**
+	 * Difference between last sent and new state of the drawing
+	 */
+	public static class Delta {
+		public final JSONArray added = new JSONArray();
+		public final JSONArray changed = new JSONArray();
+		public final JSONArray removed = new JSONArray();
+
+		public boolean isEmpty(){
+			return added.length() == 0 && changed.length() == 0 && removed.length() == 0;
+		}
+	}
+
+	//drawing opened by the last showData and its equipment as sent, null if nothing is tracked
+	private String drawingId;
+	private Map<String, String> state;
+
+	/**
+	 * Remembers full state of the drawing just opened by showData, previously tracked drawing is forgotten
+	 */
+	public synchronized void record(String drawingId, JSONArray equipments) throws JSONException {
+		if (drawingId == null || equipments == null){
+			forget();
+			return;
+		}
+		this.drawingId = drawingId;
+		this.state = toState(equipments);
+	}
+
+	/**
+	 * Computes delta between last sent state and new state and remembers the new state.
+	 * @return delta or null if the drawing is not the one opened by the last showData
+	 */
+	public synchronized Delta diff(String drawingId, JSONArray equipments) throws JSONException {
+		if (state == null || !this.drawingId.equals(drawingId)){
+			return null;
+		}
+		Map<String, String> previous = state;
+
+		Map<String, String> current = toState(equipments);
+		Delta delta = new Delta();
+
+		for (int i = 0; i < equipments.length(); i++){
+			JSONObject equipment = equipments.optJSONObject(i);
+			if (equipment == null){
+				continue;
+			}
+			String equipmentId = equipment.optString("equipmentId");
+			String before = previous.get(equipmentId);
+			if (before == null){
+				delta.added.put(equipment);
+			} else if (!before.equals(current.get(equipmentId))){
+				delta.changed.put(equipment);
+			}
+		}
+
+		Iterator<String> iterator = previous.keySet().iterator();
+		while (iterator.hasNext()){
+			String equipmentId = iterator.next();
+			if (!current.containsKey(equipmentId)){
+				delta.removed.put(equipmentId);
+			}
+		}
+
+		state = current;
+		return delta;
+	}
+
+	/**
+	 * Forgets tracked drawing, next update is sent as full message
+	 */
+	public synchronized void forget(){
+		drawingId = null;
+		state = null;
+	}
+
+	private static Map<String, String> toState(JSONArray equipments) throws JSONException {
+		Map<String, String> state = new HashMap<String, String>(equipments.length() * 2);
+		for (int i = 0; i < equipments.length(); i++){
+			JSONObject equipment = equipments.optJSONObject(i);
+			if (equipment != null){
+				state.put(equipment.optString("equipmentId"), JsonEncoder.encode(equipment));
+			}
+		}
+		return state;
+	}
+}
@@ -0,0 +1,263 @@
+package com.keel.smartdrawing.fiori;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * This class keeps rules telling which equipment Fiori apps are interested in - exact equipment ids, id prefixes,
+ * equipment classes and regular expressions, registered per appId. Rules are compiled into an index (hash maps
+ * and prefix trie), so "check equipment view" broadcast from Smart Drawing app is forwarded to JS and default
+ * actions are attached only for apps whose rules match the selected equipment.
+ * Apps without rules are interested in every equipment. Compiled rules are immutable and replaced on every change,
+ * so receivers read them without locking. Shared index is not changed in place, {@link #withRules(String, JSONObject)}
+ * returns changed copy to be published instead.
+ */
+public class EquipmentRuleIndex {
+
+	public static final String RULE_IDS = "ids";
+	public static final String RULE_PREFIXES = "prefixes";
+	public static final String RULE_CLASSES = "classes";
+	public static final String RULE_PATTERNS = "patterns";
+
+	/**
+	 * Result of matching single equipment against the index
+	 */
+	public static class Match {
+
+		//apps that have rules
+		private final Set<String> restricted;
+
+		//apps whose rules matched
+		private final Set<String> matched;
+
+		Match(Set<String> restricted, Set<String> matched){
+			this.restricted = restricted;
+			this.matched = matched;
+		}
+
+		/**
+		 * Tells if app is interested in the equipment, null appId (app not known) is always interested
+		 */
+		public boolean accepts(String appId){
+			return appId == null || !restricted.contains(appId) || matched.contains(appId);
+		}
+	}
+
+	//match of empty index, accepts everything
+	private static final Match MATCH_ALL = new Match(Collections.<String>emptySet(), Collections.<String>emptySet());
+
+	private static class TrieNode {
+		final HashMap<Character, TrieNode> children = new HashMap<Character, TrieNode>(4);
+
+		//apps having prefix ending in this node
+		List<String> appIds;
+	}
+
+	private static class AppPattern {
+		final String appId;
+		final Pattern pattern;
+
+		AppPattern(String appId, Pattern pattern){
+			this.appId = appId;
+			this.pattern = pattern;
+		}
+	}
+
+	/**
+	 * Compiled immutable form of all rules
+	 */
+	private static class Snapshot {
+		final Set<String> restricted = new HashSet<String>();
+		final HashMap<String, List<String>> exact = new HashMap<String, List<String>>();
+		final HashMap<String, List<String>> classes = new HashMap<String, List<String>>();
+		final TrieNode prefixes = new TrieNode();
+		final List<AppPattern> patterns = new ArrayList<AppPattern>();
+	}
+
+	//rules as registered by apps, appId -> rules
+	private final LinkedHashMap<String, JSONObject> rules = new LinkedHashMap<String, JSONObject>();
+
+	private volatile Snapshot snapshot = null;
+
+	/**
+	 * Sets rules of the app, replacing previous ones. Rules object may contain arrays {@link #RULE_IDS},
+	 * {@link #RULE_PREFIXES}, {@link #RULE_CLASSES} and {@link #RULE_PATTERNS}, null or empty rules remove restriction of the app.
+	 * @throws java.util.regex.PatternSyntaxException if any pattern is not valid regular expression
+	 */
+	public synchronized void setRules(String appId, JSONObject appRules) throws JSONException {
+		if (appRules == null || appRules.length() == 0){
+			rules.remove(appId);
+		} else {
+			//compile patterns first so invalid rules do not replace valid ones
+			JSONArray patterns = appRules.optJSONArray(RULE_PATTERNS);
+			for (int i = 0; patterns != null && i < patterns.length(); i++){
+				Pattern.compile(patterns.getString(i));
+			}
+			rules.put(appId, appRules);
+		}
+		snapshot = compile(rules);
+	}
+
+	/**
+	 * Returns copy of the index with rules of the app set as by {@link #setRules(String, JSONObject)}, this index is not changed
+	 */
+	public EquipmentRuleIndex withRules(String appId, JSONObject appRules) throws JSONException {
+		EquipmentRuleIndex copy = new EquipmentRuleIndex();
+		synchronized (this) {
+			copy.rules.putAll(rules);
+		}
+		copy.setRules(appId, appRules);
+		return copy;
+	}
+
+	public synchronized void removeRules(String appId){
+		if (rules.remove(appId) != null){
+			snapshot = compile(rules);
+		}
+	}
+
+	/**
+	 * Returns rules of all apps as JSON object appId -> rules
+	 */
+	public synchronized JSONObject toJSON() throws JSONException {
+		JSONObject json = new JSONObject();
+		for (Map.Entry<String, JSONObject> entry : rules.entrySet()){
+			json.put(entry.getKey(), entry.getValue());
+		}
+		return json;
+	}
+
+	/**
+	 * Replaces all rules with rules stored by {@link #toJSON()}
+	 */
+	public synchronized void load(JSONObject json){
+		rules.clear();
+		Iterator<String> keys = json.keys();
+		while (keys.hasNext()){
+			String appId = keys.next();
+			JSONObject appRules = json.optJSONObject(appId);
+			if (appRules != null){
+				rules.put(appId, appRules);
+			}
+		}
+		snapshot = compile(rules);
+	}
+
+	public boolean isEmpty(){
+		Snapshot current = snapshot;
+		return current == null || current.restricted.isEmpty();
+	}
+
+	/**
+	 * Matches equipment against rules of all apps
+	 * @param equipmentClass class of equipment if known, may be null
+	 */
+	public Match match(String equipmentId, String equipmentClass){
+		Snapshot current = snapshot;
+		if (current == null || current.restricted.isEmpty()){
+			return MATCH_ALL;
+		}
+
+		Set<String> matched = new HashSet<String>();
+		if (equipmentId != null){
+			addAll(matched, current.exact.get(equipmentId));
+
+			TrieNode node = current.prefixes;
+			addAll(matched, node.appIds);
+			for (int i = 0; i < equipmentId.length() && node != null; i++){
+				node = node.children.get(equipmentId.charAt(i));
+				if (node != null){
+					addAll(matched, node.appIds);
+				}
+			}
+
+			for (AppPattern appPattern : current.patterns){
+				if (!matched.contains(appPattern.appId) && appPattern.pattern.matcher(equipmentId).matches()){
+					matched.add(appPattern.appId);
+				}
+			}
+		}
+
+		if (equipmentClass != null){
+			addAll(matched, current.classes.get(equipmentClass));
+		}
+
+		return new Match(current.restricted, matched);
+	}
+
+	private static void addAll(Set<String> target, List<String> appIds){
+		if (appIds != null){
+			target.addAll(appIds);
+		}
+	}
+
+	private static Snapshot compile(Map<String, JSONObject> rules){
+		Snapshot compiled = new Snapshot();
+
+		for (Map.Entry<String, JSONObject> entry : rules.entrySet()){
+			String appId = entry.getKey();
+			JSONObject appRules = entry.getValue();
+			compiled.restricted.add(appId);
+
+			JSONArray ids = appRules.optJSONArray(RULE_IDS);
+			for (int i = 0; ids != null && i < ids.length(); i++){
+				put(compiled.exact, ids.optString(i), appId);
+			}
+
+			JSONArray classes = appRules.optJSONArray(RULE_CLASSES);
+			for (int i = 0; classes != null && i < classes.length(); i++){
+				put(compiled.classes, classes.optString(i), appId);
+			}
+
+			JSONArray prefixes = appRules.optJSONArray(RULE_PREFIXES);
+			for (int i = 0; prefixes != null && i < prefixes.length(); i++){
+				String prefix = prefixes.optString(i);
+				TrieNode node = compiled.prefixes;
+				for (int c = 0; c < prefix.length(); c++){
+					TrieNode child = node.children.get(prefix.charAt(c));
+					if (child == null){
+						child = new TrieNode();
+						node.children.put(prefix.charAt(c), child);
+					}
+					node = child;
+				}
+				if (node.appIds == null){
+					node.appIds = new ArrayList<String>(1);
+				}
+				if (!node.appIds.contains(appId)){
+					node.appIds.add(appId);
+				}
+			}
+
+			JSONArray patterns = appRules.optJSONArray(RULE_PATTERNS);
+			for (int i = 0; patterns != null && i < patterns.length(); i++){
+				compiled.patterns.add(new AppPattern(appId, Pattern.compile(patterns.optString(i))));
+			}
+		}
+
+		return compiled;
+	}
+
+	private static void put(HashMap<String, List<String>> map, String key, String appId){
+		List<String> appIds = map.get(key);
+		if (appIds == null){
+			appIds = new ArrayList<String>(1);
+			map.put(key, appIds);
+		}
+		if (!appIds.contains(appId)){
+			appIds.add(appId);
+		}
+	}
+}
@@ -0,0 +1,195 @@
+package com.keel.smartdrawing.fiori;
+
+import java.util.Iterator;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * This class writes org.json trees into JSON string in one pass. Every thread reuses its own buffer, so serializing
+ * messages for Smart Drawing does not allocate anything except the resulting string, which is then shared between
+ * logging and the intent. Envelope fields (packageName, action, equipmentId) are written together with the tree,
+ * so JS objects do not have to be copied or changed to add them.
+ */
+public class JsonEncoder {
+
+	//initial size of thread buffer
+	public static final int INITIAL_CAPACITY = 4 * 1024;
+
+	//bigger buffers are not kept after use so single huge showData message does not hold memory forever
+	public static final int MAX_RETAINED_CAPACITY = 256 * 1024;
+
+	private static final ThreadLocal<StringBuilder> BUFFER = new ThreadLocal<StringBuilder>() {
+		@Override
+		protected StringBuilder initialValue() {
+			return new StringBuilder(INITIAL_CAPACITY);
+		}
+	};
+
+	private JsonEncoder() {
+	}
+
+	/**
+	 * Serializes JSON object
+	 */
+	public static String encode(JSONObject object) throws JSONException {
+		return encode(object, (String[]) null);
+	}
+
+	/**
+	 * Serializes JSON object together with envelope fields given as name, value pairs. Envelope fields are written
+	 * first and replace fields with the same name in the object, envelope field with null value removes the field.
+	 * The object itself is not changed.
+	 */
+	public static String encode(JSONObject object, String... envelope) throws JSONException {
+		StringBuilder buffer = acquire();
+		try {
+			writeObject(buffer, object, envelope);
+			return release(buffer);
+		} catch (JSONException e) {
+			buffer.setLength(0);
+			throw e;
+		}
+	}
+
+	/**
+	 * Serializes JSON array
+	 */
+	public static String encode(JSONArray array) throws JSONException {
+		StringBuilder buffer = acquire();
+		try {
+			writeArray(buffer, array);
+			return release(buffer);
+		} catch (JSONException e) {
+			buffer.setLength(0);
+			throw e;
+		}
+	}
+
+	private static StringBuilder acquire(){
+		StringBuilder buffer = BUFFER.get();
+		buffer.setLength(0);
+		return buffer;
+	}
+
+	private static String release(StringBuilder buffer){
+		String json = buffer.toString();
+		buffer.setLength(0);
+		if (buffer.capacity() > MAX_RETAINED_CAPACITY){
+			BUFFER.remove();
+		}
+		return json;
+	}
+
+	private static void writeObject(StringBuilder buffer, JSONObject object, String[] envelope) throws JSONException {
+		buffer.append('{');
+		boolean first = true;
+
+		if (envelope != null){
+			for (int i = 0; i + 1 < envelope.length; i += 2){
+				if (envelope[i + 1] == null){
+					continue;
+				}
+				if (!first){
+					buffer.append(',');
+				}
+				first = false;
+				writeString(buffer, envelope[i]);
+				buffer.append(':');
+				writeString(buffer, envelope[i + 1]);
+			}
+		}
+
+		Iterator<String> keys = object.keys();
+		while (keys.hasNext()){
+			String key = keys.next();
+			if (envelope != null && isEnvelopeField(envelope, key)){
+				continue;
+			}
+			if (!first){
+				buffer.append(',');
+			}
+			first = false;
+			writeString(buffer, key);
+			buffer.append(':');
+			writeValue(buffer, object.opt(key));
+		}
+
+		buffer.append('}');
+	}
+
+	private static boolean isEnvelopeField(String[] envelope, String key){
+		for (int i = 0; i + 1 < envelope.length; i += 2){
+			if (key.equals(envelope[i])){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void writeArray(StringBuilder buffer, JSONArray array) throws JSONException {
+		buffer.append('[');
+		for (int i = 0; i < array.length(); i++){
+			if (i > 0){
+				buffer.append(',');
+			}
+			writeValue(buffer, array.opt(i));
+		}
+		buffer.append(']');
+	}
+
+	private static void writeValue(StringBuilder buffer, Object value) throws JSONException {
+		if (value == null || value == JSONObject.NULL){
+			buffer.append("null");
+		} else if (value instanceof JSONObject){
+			writeObject(buffer, (JSONObject) value, null);
+		} else if (value instanceof JSONArray){
+			writeArray(buffer, (JSONArray) value);
+		} else if (value instanceof Boolean){
+			buffer.append(((Boolean) value).booleanValue());
+		} else if (value instanceof Number){
+			buffer.append(JSONObject.numberToString((Number) value));
+		} else {
+			writeString(buffer, value.toString());
+		}
+	}
+
+	//same escaping as JSONObject.quote, written directly to the buffer
+	private static void writeString(StringBuilder buffer, String value){
+		buffer.append('"');
+		for (int i = 0, length = value.length(); i < length; i++){
+			char c = value.charAt(i);
+			switch (c) {
+			case '"':
+			case '\\':
+			case '/':
+				buffer.append('\\').append(c);
+				break;
+			case '\t':
+				buffer.append("\\t");
+				break;
+			case '\b':
+				buffer.append("\\b");
+				break;
+			case '\n':
+				buffer.append("\\n");
+				break;
+			case '\r':
+				buffer.append("\\r");
+				break;
+			case '\f':
+				buffer.append("\\f");
+				break;
+			default:
+				if (c <= 0x1F){
+					buffer.append(String.format("\\u%04x", (int) c));
+				} else {
+					buffer.append(c);
+				}
+				break;
+			}
+		}
+		buffer.append('"');
+	}
+}
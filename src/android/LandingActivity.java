@@ -1,121 +1,97 @@
 package com.keel.smartdrawing.fiori;
 
+import android.app.Activity;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.util.Log;
 import android.content.Intent;
-import org.apache.cordova.*;
-import android.widget.Toast;
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
 import android.text.TextUtils;
-import org.apache.cordova.PluginResult;
 import com.keel.fiori.client.MainActivity;
 import java.lang.Exception;
 
 /**
  * This activity get called from Smart Drawing intent when user taps on action button in information panel of some equipment.
- * The tap in Smart drawing on action will cause an intent with special callbackContext sent to our receiver. Here we will read 
- * the context from intent and pass it down to JS side which will trigger navigation in Fiori launcpad to corresponding Fiori 
+ * The tap in Smart drawing on action will cause an intent with special callbackContext sent to our receiver. Here we will read
+ * the context from intent and pass it down to JS side which will trigger navigation in Fiori launcpad to corresponding Fiori
  * app and screen using a hash part of url that is passed in callbackContext. For details on this please look at internal function
- * SmartDrawing~onOpenFioriApp and subscription to this event in internal function SmartDrawing~onDeviceReady inside smartdrawing.js file.  
+ * SmartDrawing~onOpenFioriApp and subscription to this event in internal function SmartDrawing~onDeviceReady inside smartdrawing.js file.
+ *
+ * The activity is a trampoline without UI (theme Theme.NoDisplay in manifest), it does not start Cordova or WebView itself
+ * but hands the context over to plugin running in MainActivity and finishes in onCreate.
  */
-public class LandingActivity extends CordovaActivity 
+public class LandingActivity extends Activity
 {
 	public static final String TAG = "com.keel.smartdrawing.fiori";
-	
+
 	public static final String KEEL_INTENT_ACTION_EXTRA_CALLBACK_CONTEXT = "com.keelsolution.action.extra.CALLBACK_CONTEXT";
-	
-	
+
+	//optional time of the tap in Smart Drawing app (SystemClock.elapsedRealtime()), used for tap to Fiori screen latency
+	public static final String KEEL_INTENT_ACTION_EXTRA_TAP_TIME = "com.keelsolution.action.extra.TAP_TIME";
+
+
     @Override
     public void onCreate(Bundle savedInstanceState)
     {
         super.onCreate(savedInstanceState);
 
-        Log.v(TAG, "Smart Drawing plugin -  LandingActivity - onCreate - intent:" + getIntent().toString());
-        
-        if (!getIntent().hasExtra(KEEL_INTENT_ACTION_EXTRA_CALLBACK_CONTEXT)){
-        	Log.v(TAG, "Smart Drawing plugin -  LandingActivity - onCreate - no extras found -> finish");
-        	return;
-        }
-        
-        String jsonString = getIntent().getStringExtra(KEEL_INTENT_ACTION_EXTRA_CALLBACK_CONTEXT);
-        if (TextUtils.isEmpty(jsonString)){  
-        	Log.v(TAG, "Smart Drawing plugin -  LandingActivity - onCreate - empty extras received -> finish");
-        	return;
-        }
-        
-        Log.v(TAG, "Smart Drawing plugin -  LandingActivity - onCreate - extras:" + jsonString);
-        
-        
-		//fire event to JS side if we have someone interested to listen on it
-        try {
-        	SingletonContextContainer singletonContextContainer = SingletonContextContainer.getInstance(getApplicationContext());
-        	
-    		if (singletonContextContainer.onOpenFioriAppContext != null)
-    		{
-    			PluginResult result = new PluginResult(PluginResult.Status.OK, jsonString);
-    	    	result.setKeepCallback(true);//keep callback active as we use the same callback again for next even 
-    	    	singletonContextContainer.onOpenFioriAppContext.sendPluginResult(result);
-    		} else {
-    			//no listener is registered yet to this action, store the app context and wait until listener is registered
-    			singletonContextContainer.setStartFioriApp(jsonString);
-    		};        
-
-            //switch to MainActivity to show Fiori launchpad or started Fiori app
-            Intent intent = new Intent(this, MainActivity.class);
-            intent.setFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP);
-            startActivity(intent);
-        	
-        } catch (Exception e)
-        {
-        	e.printStackTrace();
-        }
- 
+        route(getIntent(), "create");
 
-        
         finish();
-        
     }
-	
+
 	@Override
     public void onNewIntent(Intent smdIntent) {
-    	
-    	Log.v(TAG, "Smart Drawing plugin -  LandingActivity - onNewIntent" + smdIntent.getAction());
-    	
+
+		super.onNewIntent(smdIntent);
+
+		route(smdIntent, "newIntent");
+
+        finish();
+    }
+
+	/**
+	 * Passes callback context from Smart Drawing intent to JS and switches to MainActivity
+	 */
+	private void route(Intent smdIntent, String event) {
+
+		long startTime = System.nanoTime();
+		long tapTime = smdIntent.getLongExtra(KEEL_INTENT_ACTION_EXTRA_TAP_TIME, SystemClock.elapsedRealtime());
+
         if (!smdIntent.hasExtra(KEEL_INTENT_ACTION_EXTRA_CALLBACK_CONTEXT)){
-        	Log.v(TAG, "Smart Drawing plugin -  LandingActivity - onNewIntent - no extras found -> finish");
+        	Log.v(TAG, "Smart Drawing plugin -  LandingActivity - " + event + " - no extras found -> finish");
         	return;
         }
-        
+
         String jsonString = smdIntent.getStringExtra(KEEL_INTENT_ACTION_EXTRA_CALLBACK_CONTEXT);
-        if (TextUtils.isEmpty(jsonString)){  
-        	Log.v(TAG, "Smart Drawing plugin -  LandingActivity - onNewIntent - empty extras received -> finish");
+        if (TextUtils.isEmpty(jsonString)){
+        	Log.v(TAG, "Smart Drawing plugin -  LandingActivity - " + event + " - empty extras received -> finish");
         	return;
         }
-        
-        Log.v(TAG, "Smart Drawing plugin -  LandingActivity - onNewIntent - extras:" + jsonString);
-        
+
+        Trace.event("landing." + event, null, null, jsonString);
+
 		//fire event to JS side if we have someone interested to listen on it
         try {
-	        SingletonContextContainer singletonContextContainer = SingletonContextContainer.getInstance(getApplicationContext());
-	        
-			if (singletonContextContainer.onOpenFioriAppContext != null)
-			{
-				PluginResult result = new PluginResult(PluginResult.Status.OK, jsonString);
-		    	result.setKeepCallback(true);//keep callback active as we use the same callback again for next even 
-		    	singletonContextContainer.onOpenFioriAppContext.sendPluginResult(result);
-			};        
-	
-	        //switch to MainActivity to show Fiori launchpad or started Fiori app
-	        Intent intent = new Intent(this, MainActivity.class);
-	        intent.setFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP);
-	        startActivity(intent);
+        	SingletonContextContainer singletonContextContainer = SingletonContextContainer.getInstance(getApplicationContext());
+
+        	//JS reports when Fiori screen was reached, see SmartDrawing.ACTION_FIORI_APP_OPENED
+        	singletonContextContainer.setFioriAppTapTime(tapTime);
+
+    		//app context is queued until listener is registered if there is none yet
+    		singletonContextContainer.openFioriApp(jsonString);
+
+            //switch to MainActivity to show Fiori launchpad or started Fiori app, rapid taps of the same action bring it to front only once
+            if (singletonContextContainer.getNavigationQueue().shouldBringToFront(jsonString)){
+	            Intent intent = new Intent(this, MainActivity.class);
+	            intent.setFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_SINGLE_TOP);
+	            startActivity(intent);
+            }
+
+            singletonContextContainer.getMetrics().recordSince("activity.landing." + event, startTime);
+
         } catch (Exception e)
         {
         	e.printStackTrace();
         }
-    	 
-        finish();
-    }
+	}
 }
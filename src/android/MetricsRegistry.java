@@ -0,0 +1,182 @@
+package com.keel.smartdrawing.fiori;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import android.os.SystemClock;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * This class collects counters and latency histograms of the plugin (JS actions, receivers, round trips to Smart Drawing app),
+ * so latency percentiles and throughput can be read in the field by JS through getMetrics action without attaching a profiler.
+ * Recording is lock free, histograms use power of two buckets of microseconds, percentiles are therefore upper bounds
+ * of the bucket the percentile falls into.
+ */
+public class MetricsRegistry {
+
+	//number of power of two buckets, the last one collects everything above ~36 minutes
+	private static final int BUCKETS = 32;
+
+	/**
+	 * Latency histogram with power of two buckets
+	 */
+	public static class Histogram {
+
+		private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+		private final AtomicLong count = new AtomicLong();
+
+		private final AtomicLong sum = new AtomicLong();
+
+		private final AtomicLong max = new AtomicLong();
+
+		/**
+		 * Records single value in microseconds
+		 */
+		public void record(long micros){
+			if (micros < 0){
+				micros = 0;
+			}
+
+			int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+			buckets.incrementAndGet(bucket);
+			count.incrementAndGet();
+			sum.addAndGet(micros);
+
+			long current = max.get();
+			while (micros > current && !max.compareAndSet(current, micros)){
+				current = max.get();
+			}
+		}
+
+		public long getCount(){
+			return count.get();
+		}
+
+		/**
+		 * Returns upper bound in microseconds of the bucket with given percentile (0..100)
+		 */
+		public long percentile(double percentile){
+			long total = count.get();
+			if (total == 0){
+				return 0;
+			}
+
+			long rank = (long) Math.ceil(total * percentile / 100.0);
+			long seen = 0;
+			for (int i = 0; i < BUCKETS; i++){
+				seen += buckets.get(i);
+				if (seen >= rank){
+					return Math.min(max.get(), i == 0 ? 0 : (1L << i) - 1);
+				}
+			}
+			return max.get();
+		}
+
+		JSONObject toJSON() throws JSONException {
+			long total = count.get();
+
+			JSONObject json = new JSONObject();
+			json.put("count", total);
+			json.put("meanMs", total > 0 ? sum.get() / (double) total / 1000.0 : 0);
+			json.put("p50Ms", percentile(50) / 1000.0);
+			json.put("p90Ms", percentile(90) / 1000.0);
+			json.put("p99Ms", percentile(99) / 1000.0);
+			json.put("maxMs", max.get() / 1000.0);
+			return json;
+		}
+	}
+
+	private final ConcurrentHashMap<String, AtomicLong> counters = new ConcurrentHashMap<String, AtomicLong>();
+
+	private final ConcurrentHashMap<String, Histogram> histograms = new ConcurrentHashMap<String, Histogram>();
+
+	private volatile long since = SystemClock.elapsedRealtime();
+
+	/**
+	 * Increments counter with given name
+	 */
+	public void increment(String name){
+		add(name, 1);
+	}
+
+	public void add(String name, long delta){
+		AtomicLong counter = counters.get(name);
+		if (counter == null){
+			AtomicLong created = new AtomicLong();
+			counter = counters.putIfAbsent(name, created);
+			if (counter == null){
+				counter = created;
+			}
+		}
+		counter.addAndGet(delta);
+	}
+
+	/**
+	 * Returns histogram with given name, histogram is created on first use
+	 */
+	public Histogram histogram(String name){
+		Histogram histogram = histograms.get(name);
+		if (histogram == null){
+			Histogram created = new Histogram();
+			histogram = histograms.putIfAbsent(name, created);
+			if (histogram == null){
+				histogram = created;
+			}
+		}
+		return histogram;
+	}
+
+	/**
+	 * Records time elapsed since startNanos ({@link System#nanoTime()}) to histogram with given name
+	 */
+	public void recordSince(String name, long startNanos){
+		histogram(name).record((System.nanoTime() - startNanos) / 1000);
+	}
+
+	/**
+	 * Records time in milliseconds to histogram with given name
+	 */
+	public void recordMillis(String name, long millis){
+		histogram(name).record(millis * 1000);
+	}
+
+	/**
+	 * Returns all counters and histograms as JSON, time is returned in milliseconds
+	 */
+	public JSONObject snapshot() throws JSONException {
+		JSONObject json = new JSONObject();
+		json.put("periodMs", SystemClock.elapsedRealtime() - since);
+
+		JSONObject countersJson = new JSONObject();
+		Iterator<Map.Entry<String, AtomicLong>> counterIterator = counters.entrySet().iterator();
+		while (counterIterator.hasNext()){
+			Map.Entry<String, AtomicLong> entry = counterIterator.next();
+			countersJson.put(entry.getKey(), entry.getValue().get());
+		}
+		json.put("counters", countersJson);
+
+		JSONObject histogramsJson = new JSONObject();
+		Iterator<Map.Entry<String, Histogram>> histogramIterator = histograms.entrySet().iterator();
+		while (histogramIterator.hasNext()){
+			Map.Entry<String, Histogram> entry = histogramIterator.next();
+			histogramsJson.put(entry.getKey(), entry.getValue().toJSON());
+		}
+		json.put("histograms", histogramsJson);
+
+		return json;
+	}
+
+	/**
+	 * Drops all recorded values and starts new period
+	 */
+	public void reset(){
+		counters.clear();
+		histograms.clear();
+		since = SystemClock.elapsedRealtime();
+	}
+}
@@ -0,0 +1,128 @@
+package com.keel.smartdrawing.fiori;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import android.os.SystemClock;
+
+/**
+ * This class keeps Fiori app contexts from action taps in Smart Drawing app that arrived before JS registered its
+ * onOpenFioriApp listener. Queue is bounded and handles repeated taps according to its policy, all waiting contexts
+ * are handed over to JS at once when listener registers.
+ * It also debounces bringing MainActivity to front, so rapid repeated taps of the same action do not relaunch it again and again.
+ */
+public class NavigationQueue {
+
+	/**
+	 * How contexts waiting in the queue are combined
+	 */
+	public enum Policy {
+		//only the last tap is kept
+		LATEST_WINS,
+		//all taps are kept in order, identical contexts only once
+		DEDUPE,
+		//all taps are kept in order
+		KEEP_ALL;
+
+		/**
+		 * Returns policy for JS name ("latestWins", "dedupe", "keepAll")
+		 */
+		public static Policy fromName(String name){
+			if ("dedupe".equals(name)){
+				return DEDUPE;
+			} else if ("keepAll".equals(name)){
+				return KEEP_ALL;
+			}
+			return LATEST_WINS;
+		}
+	}
+
+	public static final int DEFAULT_CAPACITY = 8;
+
+	public static final long DEFAULT_DEBOUNCE = 1000;
+
+	private final LinkedList<String> queue = new LinkedList<String>();
+
+	private Policy policy = Policy.LATEST_WINS;
+
+	private int capacity = DEFAULT_CAPACITY;
+
+	private long debounce = DEFAULT_DEBOUNCE;
+
+	private long lastBringToFront = 0;
+
+	//context of the tap MainActivity was last brought to front for
+	private String lastBroughtContext = null;
+
+	//contexts dropped or merged by policy or capacity
+	private long coalescedCount = 0;
+
+	//MainActivity starts skipped by debounce
+	private long debouncedCount = 0;
+
+	public synchronized void configure(Policy policy, int capacity, long debounce){
+		this.policy = policy;
+		this.capacity = Math.max(1, capacity);
+		this.debounce = Math.max(0, debounce);
+		trim();
+	}
+
+	/**
+	 * Adds context to the queue according to the policy
+	 */
+	public synchronized void offer(String appContext){
+		if (policy == Policy.LATEST_WINS){
+			coalescedCount += queue.size();
+			queue.clear();
+		} else if (policy == Policy.DEDUPE && queue.remove(appContext)){
+			coalescedCount++;
+		}
+		queue.addLast(appContext);
+		trim();
+	}
+
+	/**
+	 * Removes and returns all waiting contexts, the oldest first
+	 */
+	public synchronized List<String> drain(){
+		List<String> contexts = new ArrayList<String>(queue);
+		queue.clear();
+		return contexts;
+	}
+
+	public synchronized int size(){
+		return queue.size();
+	}
+
+	/**
+	 * Tells if MainActivity shall be brought to front for new tap, false if it was brought to front for identical context
+	 * within debounce time. Tap of other action always brings MainActivity to front, so its navigation is not left waiting.
+	 */
+	public synchronized boolean shouldBringToFront(String appContext){
+		long now = SystemClock.elapsedRealtime();
+		if (lastBringToFront > 0 && now - lastBringToFront < debounce
+				&& (appContext == null ? lastBroughtContext == null : appContext.equals(lastBroughtContext))){
+			debouncedCount++;
+			return false;
+		}
+		lastBringToFront = now;
+		lastBroughtContext = appContext;
+		return true;
+	}
+
+	public synchronized long getCoalescedCount(){
+		return coalescedCount;
+	}
+
+	public synchronized long getDebouncedCount(){
+		return debouncedCount;
+	}
+
+	private void trim(){
+		while (queue.size() > capacity){
+			queue.removeFirst();
+			coalescedCount++;
+		}
+	}
+}
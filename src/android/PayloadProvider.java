@@ -0,0 +1,158 @@
+package com.keel.smartdrawing.fiori;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import android.content.ContentProvider;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * This content provider hands large messages for Smart Drawing app (e.g. showData with thousands of equipment) over 
+ * a pipe instead of intent extra, so they do not hit the Binder transaction limit. Message is encoded once into bytes 
+ * and kept in memory, only its content URI travels in the intent and read permission is granted to Smart Drawing 
+ * for this single URI.
+ */
+public class PayloadProvider extends ContentProvider {
+
+	public static final String TAG = "com.keel.smartdrawing.fiori";
+
+	public static final String AUTHORITY_SUFFIX = ".smartdrawing.payload";
+	public static final String MIME_TYPE = "application/json";
+
+	//time in milliseconds the payload can be read by Smart Drawing
+	public static final long PAYLOAD_TTL = 5 * 60 * 1000;
+	//only few last payloads are kept, older ones are not needed by Smart Drawing anymore
+	public static final int MAX_PAYLOADS = 4;
+
+	private static class Payload {
+		final long sequence;
+		final byte[] data;
+		final long expiresAt;
+
+		Payload(long sequence, byte[] data, long expiresAt){
+			this.sequence = sequence;
+			this.data = data;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	private static final ConcurrentHashMap<String, Payload> payloads = new ConcurrentHashMap<String, Payload>();
+
+	private static final AtomicLong sequence = new AtomicLong();
+
+	/**
+	 * Stores the payload and returns content URI Smart Drawing app can read it from
+	 */
+	public static Uri publish(Context context, byte[] data){
+		long now = SystemClock.elapsedRealtime();
+
+		//drop expired payloads
+		Iterator<Map.Entry<String, Payload>> iterator = payloads.entrySet().iterator();
+		while (iterator.hasNext()){
+			if (iterator.next().getValue().expiresAt <= now){
+				iterator.remove();
+			}
+		}
+
+		//drop the oldest payloads over the limit
+		while (payloads.size() >= MAX_PAYLOADS){
+			String oldest = null;
+			long oldestSequence = Long.MAX_VALUE;
+			for (Map.Entry<String, Payload> entry : payloads.entrySet()){
+				if (entry.getValue().sequence < oldestSequence){
+					oldestSequence = entry.getValue().sequence;
+					oldest = entry.getKey();
+				}
+			}
+			if (oldest == null){
+				break;
+			}
+			payloads.remove(oldest);
+		}
+
+		long number = sequence.incrementAndGet();
+		String id = Long.toString(System.currentTimeMillis(), 36) + "-" + number;
+		payloads.put(id, new Payload(number, data, now + PAYLOAD_TTL));
+
+		return Uri.parse("content://" + context.getPackageName() + AUTHORITY_SUFFIX + "/" + id);
+	}
+
+	@Override
+	public boolean onCreate() {
+		return true;
+	}
+
+	@Override
+	public String getType(Uri uri) {
+		return MIME_TYPE;
+	}
+
+	@Override
+	public ParcelFileDescriptor openFile(Uri uri, String mode) throws FileNotFoundException {
+		final Payload payload = payloads.get(uri.getLastPathSegment());
+		if (payload == null || payload.expiresAt <= SystemClock.elapsedRealtime()){
+			throw new FileNotFoundException("Payload not available: " + uri);
+		}
+
+		final ParcelFileDescriptor[] pipe;
+		try {
+			pipe = ParcelFileDescriptor.createPipe();
+		} catch (IOException e) {
+			throw new FileNotFoundException(e.getMessage());
+		}
+
+		//write the payload into pipe while Smart Drawing reads it
+		new Thread(new Runnable() {
+			public void run() {
+				OutputStream out = null;
+				try {
+					out = new ParcelFileDescriptor.AutoCloseOutputStream(pipe[1]);
+					out.write(payload.data);
+				} catch (IOException e) {
+					Log.e(TAG, "SMD payload write failed: " + e.toString());
+				} finally {
+					try {
+						if (out != null){
+							out.close();
+						}
+					} catch (IOException e) {
+						e.printStackTrace();
+					}
+				}
+			}
+		}, "SmartDrawingPayload").start();
+
+		return pipe[0];
+	}
+
+	@Override
+	public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs, String sortOrder) {
+		return null;
+	}
+
+	@Override
+	public Uri insert(Uri uri, ContentValues values) {
+		return null;
+	}
+
+	@Override
+	public int delete(Uri uri, String selection, String[] selectionArgs) {
+		return 0;
+	}
+
+	@Override
+	public int update(Uri uri, ContentValues values, String selection, String[] selectionArgs) {
+		return 0;
+	}
+}
@@ -0,0 +1,82 @@
+package com.keel.smartdrawing.fiori;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.cordova.CallbackContext;
+import org.apache.cordova.PluginResult;
+
+/**
+ * This class is a single JS call waiting for an answer from Smart Drawing app. The call is finished exactly once - 
+ * with the answer, with timeout when its deadline passes or when JS cancels it - all later results are ignored.
+ */
+public class PendingCall {
+
+	public static final String ERROR_TIMEOUT = "timeout";
+	public static final String ERROR_CANCELLED = "cancelled";
+
+	private final String requestId;
+
+	private final CallbackContext callbackContext;
+
+	private final AtomicBoolean finished = new AtomicBoolean();
+
+	//format of the result requested by JS, see DrawingResult
+	private volatile String format = DrawingResult.FORMAT_STRING;
+
+	//set by registry which tracks the deadline
+	PendingCheckRegistry registry;
+
+	Runnable deadline;
+
+	PendingCall(String requestId, CallbackContext callbackContext){
+		this.requestId = requestId;
+		this.callbackContext = callbackContext;
+	}
+
+	public String getRequestId(){
+		return requestId;
+	}
+
+	public String getFormat(){
+		return format;
+	}
+
+	public void setFormat(String format){
+		this.format = format;
+	}
+
+	public boolean isFinished(){
+		return finished.get();
+	}
+
+	/**
+	 * Sends final result to JS.
+	 * @return false if call was already finished before
+	 */
+	public boolean finish(PluginResult result){
+		if (!finished.compareAndSet(false, true)){
+			return false;
+		}
+
+		if (registry != null){
+			registry.forget(this);
+		}
+
+		result.setKeepCallback(false);
+		callbackContext.sendPluginResult(result);
+		return true;
+	}
+
+	public boolean fail(String message){
+		return finish(new PluginResult(PluginResult.Status.ERROR, message));
+	}
+
+	/**
+	 * Tells JS that answer will come later
+	 */
+	public void postpone(){
+		PluginResult result = new PluginResult(PluginResult.Status.NO_RESULT);
+		result.setKeepCallback(true); //re-use the callback on intent events
+		callbackContext.sendPluginResult(result);
+	}
+}
@@ -0,0 +1,45 @@
+package com.keel.smartdrawing.fiori;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.os.SystemClock;
+
+/**
+ * This class describes a single check (equipment, drawing or list of equipment) sent to Smart Drawing app that 
+ * waits for its answer. The check is registered in {@link PendingCheckRegistry} under a token that travels with 
+ * the intent, so the answer can be routed back to the right caller even if many checks are in flight at once.
+ */
+public abstract class PendingCheck {
+
+	private final long startTime = SystemClock.elapsedRealtime();
+
+	private String token;
+
+	//scheduled by registry, removed when answer arrives
+	Runnable deadline;
+
+	/**
+	 * Called once when Smart Drawing answered the check.
+	 * @param context Android context of the receiver
+	 * @param resultCode result code of the answer
+	 * @param response extras of the answer, never null
+	 */
+	public abstract void onResponse(Context context, int resultCode, Bundle response);
+
+	/**
+	 * Called once when Smart Drawing did not answer the check in time
+	 */
+	public abstract void onTimeout();
+
+	public String getToken(){
+		return token;
+	}
+
+	void setToken(String token){
+		this.token = token;
+	}
+
+	public long getStartTime(){
+		return startTime;
+	}
+}
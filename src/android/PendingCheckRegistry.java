@@ -0,0 +1,128 @@
+package com.keel.smartdrawing.fiori;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import android.os.Handler;
+import android.os.SystemClock;
+import org.apache.cordova.CallbackContext;
+
+/**
+ * This class keeps all checks sent to Smart Drawing app that still wait for an answer. Every check gets random 
+ * token which is sent with the intent as extra {@link SmartDrawing#KEEL_INTENT_ACTION_EXTRA_REQUEST_TOKEN} and 
+ * returned back by Smart Drawing app, so {@link CheckEquipmentResponseReceiver} can find the waiting check.
+ * Registry also tracks deadlines of checks and of JS calls waiting for them, so no callback stays alive forever 
+ * when Smart Drawing app does not answer, and lets JS cancel its calls.
+ */
+public class PendingCheckRegistry {
+
+	public static final String TAG = "com.keel.smartdrawing.fiori";
+
+	public static final long DEFAULT_TIMEOUT = 10000;
+
+	private final ConcurrentHashMap<String, PendingCheck> pending = new ConcurrentHashMap<String, PendingCheck>();
+
+	//JS calls by request id
+	private final ConcurrentHashMap<String, PendingCall> calls = new ConcurrentHashMap<String, PendingCall>();
+
+	//ids of JS calls not given by JS
+	private final AtomicLong sequence = new AtomicLong();
+
+	private final Handler handler = ReceiverThread.getHandler();
+
+	private final MetricsRegistry metrics;
+
+	public PendingCheckRegistry(MetricsRegistry metrics){
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Registers the check and returns its token. Check is dropped and {@link PendingCheck#onTimeout()} is called 
+	 * if Smart Drawing does not answer within timeout.
+	 */
+	public String register(final PendingCheck check, long timeout){
+		//random, so other apps cannot guess tokens of checks in flight and tokens of previous process lifes do not match
+		final String token = UUID.randomUUID().toString();
+		check.setToken(token);
+		check.deadline = new Runnable() {
+			public void run() {
+				if (pending.remove(token, check)){
+					Trace.event("check.timeout", null, token, null);
+					metrics.increment("check.timeout");
+					check.onTimeout();
+				}
+			}
+		};
+		pending.put(token, check);
+		handler.postDelayed(check.deadline, timeout);
+		return token;
+	}
+
+	/**
+	 * Removes the check from the registry. Returns null if there is no check for given token (already answered, timed out or unknown).
+	 */
+	public PendingCheck remove(String token){
+		if (token == null){
+			return null;
+		}
+
+		PendingCheck check = pending.remove(token);
+		if (check != null){
+			if (check.deadline != null){
+				handler.removeCallbacks(check.deadline);
+			}
+			metrics.recordMillis("check.roundTrip", SystemClock.elapsedRealtime() - check.getStartTime());
+		}
+		return check;
+	}
+
+	/**
+	 * Starts tracking of JS call. Call is finished with timeout error if it is not finished within timeout.
+	 * @param requestId id given by JS for cancelling, if null plugin generates own id
+	 */
+	public PendingCall track(String requestId, CallbackContext callbackContext, long timeout){
+		if (requestId == null){
+			requestId = "call-" + sequence.incrementAndGet();
+		}
+
+		final PendingCall call = new PendingCall(requestId, callbackContext);
+		call.registry = this;
+		call.deadline = new Runnable() {
+			public void run() {
+				call.fail(PendingCall.ERROR_TIMEOUT);
+			}
+		};
+
+		calls.put(requestId, call);
+		handler.postDelayed(call.deadline, timeout);
+		return call;
+	}
+
+	/**
+	 * Cancels JS call with given request id, the call is finished with error "cancelled".
+	 * @return false if there is no such call waiting
+	 */
+	public boolean cancel(String requestId){
+		PendingCall call = requestId != null ? calls.get(requestId) : null;
+		if (call == null){
+			return false;
+		}
+		return call.fail(PendingCall.ERROR_CANCELLED);
+	}
+
+	void forget(PendingCall call){
+		calls.remove(call.getRequestId(), call);
+		if (call.deadline != null){
+			handler.removeCallbacks(call.deadline);
+		}
+	}
+
+	public int size(){
+		return pending.size();
+	}
+
+	public int callCount(){
+		return calls.size();
+	}
+}
@@ -0,0 +1,185 @@
+package com.keel.smartdrawing.fiori;
+
+import android.os.Handler;
+import android.os.SystemClock;
+import org.apache.cordova.CallbackContext;
+import org.apache.cordova.PluginResult;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * This class tells JS that user selected equipment in Smart Drawing app and may soon tap one of the Fiori actions, so Fiori
+ * apps can preload OData metadata and views of candidate shell hashes before the tap. Events are delayed shortly and
+ * rate limited, so quick browsing over the drawing does not flood JS, and apps are told to cancel warm-up of equipment
+ * that is not selected anymore.
+ */
+public class PrefetchNotifier {
+
+	public static final String EVENT_PREFETCH = "prefetch";
+	public static final String EVENT_CANCEL = "cancel";
+
+	//time selection must stay before warm-up is requested
+	public static final long DEFAULT_DELAY = 150;
+
+	//minimal time between two warm-up requests
+	public static final long DEFAULT_MIN_INTERVAL = 1000;
+
+	/**
+	 * Warm-up request waiting for its delay
+	 */
+	private class Prefetch implements Runnable {
+		final String equipmentId;
+		final JSONArray hashes;
+		final JSONArray appIds;
+
+		Prefetch(String equipmentId, JSONArray hashes, JSONArray appIds){
+			this.equipmentId = equipmentId;
+			this.hashes = hashes;
+			this.appIds = appIds;
+		}
+
+		@Override
+		public void run() {
+			synchronized (PrefetchNotifier.this) {
+				if (pending != this){
+					return;
+				}
+				pending = null;
+				active = equipmentId;
+				lastSent = SystemClock.elapsedRealtime();
+				sentCount++;
+			}
+
+			try {
+				JSONObject event = new JSONObject();
+				event.put("type", EVENT_PREFETCH);
+				event.put("equipmentId", equipmentId);
+				event.put("hashes", hashes);
+				event.put("appIds", appIds);
+				send(event);
+			} catch (JSONException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	private final Handler handler = ReceiverThread.getHandler();
+
+	private volatile CallbackContext listener = null;
+
+	private boolean enabled = true;
+
+	private long delay = DEFAULT_DELAY;
+
+	private long minInterval = DEFAULT_MIN_INTERVAL;
+
+	private Prefetch pending = null;
+
+	//equipment JS was asked to warm up for
+	private String active = null;
+
+	private long lastSent = 0;
+
+	private long sentCount = 0;
+
+	private long cancelledCount = 0;
+
+	private long rateLimitedCount = 0;
+
+	public void setListener(CallbackContext listener){
+		this.listener = listener;
+	}
+
+	public boolean hasListener(){
+		return listener != null;
+	}
+
+	public synchronized void configure(boolean enabled, long delay, long minInterval){
+		this.enabled = enabled;
+		this.delay = Math.max(0, delay);
+		this.minInterval = Math.max(0, minInterval);
+	}
+
+	/**
+	 * Called when user selected equipment in Smart Drawing app
+	 * @param hashes shell hashes of actions offered for the equipment
+	 * @param appIds apps listening for the equipment
+	 */
+	public void equipmentSelected(String equipmentId, JSONArray hashes, JSONArray appIds){
+		if (listener == null || equipmentId == null){
+			return;
+		}
+
+		String cancelled = null;
+		synchronized (this) {
+			if (!enabled){
+				return;
+			}
+
+			if (pending != null){
+				if (pending.equipmentId.equals(equipmentId)){
+					return; //already waiting
+				}
+				handler.removeCallbacks(pending);
+				pending = null;
+			}
+
+			long now = SystemClock.elapsedRealtime();
+			if (equipmentId.equals(active)){
+				if (now - lastSent < minInterval){
+					rateLimitedCount++;
+					return;
+				}
+			} else if (active != null){
+				cancelled = active;
+				active = null;
+				cancelledCount++;
+			}
+
+			pending = new Prefetch(equipmentId, hashes, appIds);
+			long wait = Math.max(delay, lastSent + minInterval - now);
+			handler.postDelayed(pending, wait);
+		}
+
+		if (cancelled != null){
+			sendCancel(cancelled);
+		}
+	}
+
+	public synchronized long getSentCount(){
+		return sentCount;
+	}
+
+	public synchronized long getCancelledCount(){
+		return cancelledCount;
+	}
+
+	public synchronized long getRateLimitedCount(){
+		return rateLimitedCount;
+	}
+
+	private void sendCancel(String equipmentId){
+		try {
+			JSONObject event = new JSONObject();
+			event.put("type", EVENT_CANCEL);
+			event.put("equipmentId", equipmentId);
+			send(event);
+		} catch (JSONException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private void send(JSONObject event){
+		CallbackContext callbackContext = listener;
+		if (callbackContext == null){
+			return;
+		}
+
+		Trace.event("prefetch." + event.optString("type"), event.optString("equipmentId", null), null, event);
+
+		PluginResult result = new PluginResult(PluginResult.Status.OK, event);
+		result.setKeepCallback(true);
+		callbackContext.sendPluginResult(result);
+	}
+}
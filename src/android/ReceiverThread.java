@@ -0,0 +1,40 @@
+package com.keel.smartdrawing.fiori;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+
+/**
+ * This class owns background thread of the plugin for broadcast receivers and their timers. Answers of Smart Drawing app
+ * (result receivers of ordered broadcasts), "check equipment view" broadcasts handed over by manifest receivers, deadlines
+ * of checks and coalescing windows all run there, so broadcast handling does not compete with WebView frames on main thread.
+ * The thread is started on first use.
+ */
+public final class ReceiverThread {
+
+	public static final String NAME = "SmartDrawingReceiver";
+
+	/**
+	 * Holder class, the thread is started once by class loader when handler is first requested
+	 */
+	private static class Holder {
+		static final Handler HANDLER = start();
+	}
+
+	private ReceiverThread(){
+	}
+
+	/**
+	 * Returns handler of the thread, used as scheduler of ordered broadcasts and for posting receiver work
+	 */
+	public static Handler getHandler(){
+		return Holder.HANDLER;
+	}
+
+	private static Handler start(){
+		//default priority - Smart Drawing waits for answers, but the thread is not part of UI
+		HandlerThread thread = new HandlerThread(NAME, Process.THREAD_PRIORITY_DEFAULT);
+		thread.start();
+		return new Handler(thread.getLooper());
+	}
+}
@@ -4,78 +4,508 @@ package com.keel.smartdrawing.fiori;
 
 import org.json.JSONArray;
 import org.json.JSONException;
+import org.json.JSONObject;
+import java.io.IOException;
 import java.lang.Exception;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import android.content.Context;
 import android.content.SharedPreferences;
-import android.content.SharedPreferences.Editor;
 import android.preference.PreferenceManager;
 import org.apache.cordova.CallbackContext;
+import org.apache.cordova.PluginResult;
 
 /**
  * This class is data container for Smart drawing plugin assuring access to all shared data between activities, cordova plugin and broadcast receiver.
+ * Plugin runs on cordova threads, receivers on {@link ReceiverThread} and activities on main thread, so the container is created
+ * once under lock and its state is kept in immutable snapshots replaced atomically.
  */
 public class SingletonContextContainer {
 
 	private static final String PREFERENCE_DEFAULT_ACTIONS = "defaultActions";
-
-	private static SingletonContextContainer INSTANCE;
 	
-	private Context context;
-
-	private static SharedPreferences sharedPreferences;
+	private static final String PREFERENCE_EQUIPMENT_RULES = "equipmentRules";
 
-	private static Editor editor;
+	private static volatile SingletonContextContainer INSTANCE;
+	
+	//application context, activity or receiver context the container was requested with is not kept
+	private final Context context;
+	
+	//own file with default actions and equipment rules
+	private final ActionStore store;
+	
+	//writes the store behind the published state, so JS calls do not wait for the file
+	private final ExecutorService storeWriter = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "SmartDrawingStore");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+	
+	//write is queued and not started yet, changes made meanwhile are written by it
+	private final AtomicBoolean storeWriteQueued = new AtomicBoolean(false);
+	
+	//Fiori app contexts waiting for JS onOpenFioriApp listener, guards registration of the listener too
+	private final NavigationQueue navigationQueue = new NavigationQueue();
+	
+	//time of the last action tap in Smart Drawing app not yet reported as opened Fiori app, 0 if none
+	private final AtomicLong fioriAppTapTime = new AtomicLong(0);
+	
+	//default actions and equipment rules, null until loaded from store on first use, see loadStore()
+	private final AtomicReference<StoreState> storeState = new AtomicReference<StoreState>(null);
 	
-	private String startFioriApp = null;
-
 	//callbacks that are permanently listened by JS
-	public CallbackContext onCheckObjectActionContext = null;
+	private final AtomicReference<Listeners> listeners = new AtomicReference<Listeners>(new Listeners(null, null));
+	
+	//apps listening to "check object action" events in JS
+	private final Set<String> checkObjectActionApps = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	
+	//JS registered "check object action" listener without telling its app, such listener gets every check
+	private volatile boolean anonymousCheckObjectActionListener = false;
+	
+	//counters and latency histograms of plugin, receivers and activities
+	private final MetricsRegistry metrics = new MetricsRegistry();
+	
+	//answers of canShowEquipment / canShowDrawing checks shared by plugin and receivers
+	private final CheckResultCache checkResultCache = new CheckResultCache();
+	
+	//local copy of equipment -> drawing relation of Smart Drawing, opt-in
+	private final DrawingIndex drawingIndex = new DrawingIndex();
 	
-	public CallbackContext onOpenFioriAppContext = null;
+	//checks sent to Smart Drawing waiting for answer, identified by request token
+	private final PendingCheckRegistry pendingCheckRegistry = new PendingCheckRegistry(metrics);
 	
-	private SingletonContextContainer() {
+	//answers of JS apps collected into open "check equipment view" broadcasts
+	private final ActionResponseCollector actionResponseCollector = new ActionResponseCollector(metrics);
+
+	//coalesces "check equipment view" events passed to JS
+	private final CheckNotificationDispatcher checkNotificationDispatcher = new CheckNotificationDispatcher(actionResponseCollector, metrics);
+
+	//warm-up events for JS when equipment is selected in Smart Drawing
+	private final PrefetchNotifier prefetchNotifier = new PrefetchNotifier();
+
+	private SingletonContextContainer(Context context) throws Exception {
+		this.context = context;
+		this.store = new ActionStore(context);
 	}
 	
 
+	/**
+	 * Returns the container, it is created on first call from any thread
+	 */
 	public static SingletonContextContainer getInstance(Context context) throws Exception {
+		SingletonContextContainer instance = INSTANCE;
+		if (instance != null){
+			return instance;
+		}
 		
-		if (INSTANCE == null){
-			INSTANCE = new SingletonContextContainer();
-			INSTANCE.context = context;
-			
-			sharedPreferences = PreferenceManager.getDefaultSharedPreferences(context);
-			editor = sharedPreferences.edit();
+		synchronized (SingletonContextContainer.class) {
+			if (INSTANCE == null){
+				Context applicationContext = context.getApplicationContext();
+				INSTANCE = new SingletonContextContainer(applicationContext != null ? applicationContext : context);
+			}
+			return INSTANCE;
 		}
+	}
+	
+	/**
+	 * Default actions and equipment rules read from the store, replaced as a whole when actions or rules change
+	 */
+	private static final class StoreState {
+		final ActionTemplate[] actionTemplates;
+		final EquipmentRuleIndex equipmentRuleIndex;
 		
-		return INSTANCE;
+		StoreState(ActionTemplate[] actionTemplates, EquipmentRuleIndex equipmentRuleIndex){
+			this.actionTemplates = actionTemplates;
+			this.equipmentRuleIndex = equipmentRuleIndex;
+		}
 	}
 	
-	public void saveActions(JSONArray defaultActions){
-		String json = defaultActions.toString();
+	/**
+	 * JS listeners registered by the plugin, replaced as a whole when one of them changes
+	 */
+	private static final class Listeners {
+		final CallbackContext onCheckObjectAction;
+		final CallbackContext onOpenFioriApp;
+		
+		Listeners(CallbackContext onCheckObjectAction, CallbackContext onOpenFioriApp){
+			this.onCheckObjectAction = onCheckObjectAction;
+			this.onOpenFioriApp = onOpenFioriApp;
+		}
+	}
 	
-		editor.putString(PREFERENCE_DEFAULT_ACTIONS, json).commit();
+	/**
+	 * Default action prepared to be sent to Smart Drawing. JSON of the action with package name and intent action 
+	 * is serialized once, so for every check only equipmentId is appended to it.
+	 */
+	public static class ActionTemplate {
+		
+		//app or tile the action belongs to, used to match equipment rules
+		private final String appId;
+		
+		//shell hash opened by the action, used for warm-up of Fiori app
+		private final String hash;
+		
+		//serialized action without equipmentId
+		private final String json;
+		
+		//serialized action without closing bracket and with equipmentId property name
+		private final String prefix;
+		
+		ActionTemplate(String appId, String hash, String json){
+			this.appId = appId;
+			this.hash = hash;
+			this.json = json;
+			this.prefix = json.substring(0, json.length() - 1) + (json.length() > 2 ? "," : "") + "\"equipmentId\":";
+		}
+		
+		public String getAppId(){
+			return appId;
+		}
+		
+		public String getHash(){
+			return hash;
+		}
+		
+		/**
+		 * Returns JSON of the action without equipmentId
+		 */
+		public String getJson(){
+			return json;
+		}
+		
+		/**
+		 * Returns JSON of the action for given equipment
+		 */
+		public String forEquipment(String equipmentId){
+			if (equipmentId == null){
+				return json;
+			}
+			return prefix + JSONObject.quote(equipmentId) + "}";
+		}
+	}
+	
+	/**
+	 * Replaces default actions, receivers use them as soon as the method returns, the store is written in background
+	 */
+	public void saveActions(JSONArray defaultActions) throws JSONException {
+		loadStore();
+		
+		ActionTemplate[] templates = compileActionTemplates(defaultActions);
+		StoreState current;
+		do {
+			current = storeState.get();
+		} while (!storeState.compareAndSet(current, new StoreState(templates, current.equipmentRuleIndex)));
+		scheduleWriteStore();
+	}
+	
+	/**
+	 * Returns default actions prepared for sending to Smart Drawing, templates are read from {@link ActionStore} once 
+	 * after start and replaced by every {@link #saveActions(JSONArray)}
+	 */
+	public ActionTemplate[] getActionTemplates(){
+		return loadStore().actionTemplates;
 	}
 	
-	public JSONArray getActions(){
-		String json = sharedPreferences.getString(PREFERENCE_DEFAULT_ACTIONS, "");
-		JSONArray jsonArray;
+	private ActionTemplate[] compileActionTemplates(JSONArray actions){
+		ActionTemplate[] templates = new ActionTemplate[actions.length()];
+		int count = 0;
+		for (int i = 0; i < actions.length(); i++){
+			try {
+				JSONObject action = actions.getJSONObject(i);
+				
+				//rules are registered for appId of the action or for the tile navigation target
+				String hash = action.optString("callbackContext", null);
+				String appId = action.optString("appId", hash);
+				
+				//equipmentId is appended by template, saved action is not changed
+				String json = JsonEncoder.encode(action, 
+						"equipmentId", null, 
+						"packageName", context.getPackageName(), 
+						"action", SupportedEquipmentsBroadcastReceiver.KEEL_INTENT_CALL_FIORI_ACTION);
+				
+				templates[count++] = new ActionTemplate(appId, hash, json);
+			} catch (JSONException e) {
+				e.printStackTrace();
+			}
+		}
+		
+		if (count < templates.length){
+			ActionTemplate[] valid = new ActionTemplate[count];
+			System.arraycopy(templates, 0, valid, 0, count);
+			templates = valid;
+		}
+		return templates;
+	}
+	
+	/**
+	 * Returns index of equipment rules, rules are read from {@link ActionStore} on first call
+	 */
+	public EquipmentRuleIndex getEquipmentRuleIndex(){
+		return loadStore().equipmentRuleIndex;
+	}
+	
+	/**
+	 * Sets equipment rules of the app and stores all rules, null rules remove restriction of the app. Rules are published 
+	 * as new index, so receivers keep reading the previous one without locking until it is replaced.
+	 */
+	public void setEquipmentRules(String appId, JSONObject rules) throws JSONException {
+		loadStore();
+		
+		StoreState current;
+		StoreState updated;
+		do {
+			current = storeState.get();
+			updated = new StoreState(current.actionTemplates, current.equipmentRuleIndex.withRules(appId, rules));
+		} while (!storeState.compareAndSet(current, updated));
+		scheduleWriteStore();
+	}
+	
+	/**
+	 * Reads default actions and equipment rules from the store, when it runs first time after update actions and rules 
+	 * are moved there from shared preferences. Time of loading is recorded in metrics as "store.load".
+	 */
+	private StoreState loadStore(){
+		StoreState state = storeState.get();
+		if (state != null){
+			return state;
+		}
+		
+		synchronized (this) {
+			state = storeState.get();
+			if (state != null){
+				return state;
+			}
+			
+			long startTime = System.nanoTime();
+			
+			EquipmentRuleIndex index = new EquipmentRuleIndex();
+			ActionStore.Contents contents = store.read();
+			if (contents != null){
+				try {
+					index.load(new JSONObject(contents.rules));
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+				state = new StoreState(contents.templates, index);
+				storeState.set(state);
+			} else {
+				state = migratePreferences(index);
+			}
+			
+			metrics.recordSince("store.load", startTime);
+			return state;
+		}
+	}
+	
+	/**
+	 * Moves actions and rules saved by previous versions of plugin from shared preferences to the store
+	 */
+	private StoreState migratePreferences(EquipmentRuleIndex index){
+		SharedPreferences sharedPreferences = PreferenceManager.getDefaultSharedPreferences(context);
+		
+		JSONArray actions;
 		try {
-			jsonArray = new JSONArray(json);
+			actions = new JSONArray(sharedPreferences.getString(PREFERENCE_DEFAULT_ACTIONS, "[]"));
 		} catch (JSONException e) {
 			e.printStackTrace();
-			jsonArray = new JSONArray();
+			actions = new JSONArray();
+		}
+		ActionTemplate[] templates = compileActionTemplates(actions);
+		
+		try {
+			index.load(new JSONObject(sharedPreferences.getString(PREFERENCE_EQUIPMENT_RULES, "{}")));
+		} catch (Exception e) {
+			e.printStackTrace();
 		}
+		StoreState state = new StoreState(templates, index);
+		storeState.set(state);
 		
-		return jsonArray;
+		try {
+			writeStore();
+			
+			sharedPreferences.edit().remove(PREFERENCE_DEFAULT_ACTIONS).remove(PREFERENCE_EQUIPMENT_RULES).apply();
+			metrics.increment("store.migrated");
+		} catch (JSONException e) {
+			e.printStackTrace();
+		}
+		return state;
+	}
+	
+	/**
+	 * Queues write of the store, back-to-back changes are written once with the latest state
+	 */
+	private void scheduleWriteStore(){
+		if (!storeWriteQueued.compareAndSet(false, true)){
+			return;
+		}
+		storeWriter.execute(new Runnable() {
+			public void run() {
+				//changes published from now on queue another write
+				storeWriteQueued.set(false);
+				try {
+					writeStore();
+				} catch (JSONException e) {
+					e.printStackTrace();
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Waits until queued writes of the store are finished
+	 */
+	void flushStore() throws InterruptedException {
+		try {
+			storeWriter.submit(new Runnable() {
+				public void run() {
+				}
+			}).get();
+		} catch (ExecutionException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Writes the latest state, writers changing state concurrently write it one after another
+	 */
+	private synchronized void writeStore() throws JSONException {
+		try {
+			StoreState state = storeState.get();
+			store.write(new ActionStore.Contents(state.actionTemplates, JsonEncoder.encode(state.equipmentRuleIndex.toJSON())));
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Apps that subscribed in JS to "check object action" events, apps are removed when their last JS listener is removed
+	 */
+	public Set<String> getCheckObjectActionApps(){
+		return checkObjectActionApps;
+	}
+	
+	/**
+	 * Tells if JS registered "check object action" listener without appId, it is notified about every check
+	 */
+	public boolean hasAnonymousCheckObjectActionListener(){
+		return anonymousCheckObjectActionListener;
 	}
 	
-	public String getStartFioriApp(){
-		return startFioriApp;
+	public void setAnonymousCheckObjectActionListener(boolean anonymous){
+		this.anonymousCheckObjectActionListener = anonymous;
 	}
 	
-	public void setStartFioriApp(String hash){
-		startFioriApp = hash;
+	public CheckResultCache getCheckResultCache(){
+		return checkResultCache;
+	}
+	
+	public DrawingIndex getDrawingIndex(){
+		return drawingIndex;
+	}
+	
+	public PendingCheckRegistry getPendingCheckRegistry(){
+		return pendingCheckRegistry;
+	}
+	
+	public ActionResponseCollector getActionResponseCollector(){
+		return actionResponseCollector;
+	}
+	
+	public CheckNotificationDispatcher getCheckNotificationDispatcher(){
+		return checkNotificationDispatcher;
+	}
+	
+	public MetricsRegistry getMetrics(){
+		return metrics;
+	}
+	
+	public PrefetchNotifier getPrefetchNotifier(){
+		return prefetchNotifier;
+	}
+	
+	public NavigationQueue getNavigationQueue(){
+		return navigationQueue;
+	}
+	
+	public void setFioriAppTapTime(long tapTime){
+		fioriAppTapTime.set(tapTime);
+	}
+	
+	/**
+	 * Returns time of the last action tap ({@link android.os.SystemClock#elapsedRealtime()}) and forgets it, 0 if there is none
+	 */
+	public long takeFioriAppTapTime(){
+		return fioriAppTapTime.getAndSet(0);
+	}
+	
+	/**
+	 * Returns JS listener of "check object action" events, null if JS did not register it
+	 */
+	public CallbackContext getOnCheckObjectActionListener(){
+		return listeners.get().onCheckObjectAction;
+	}
+	
+	/**
+	 * Registers JS listener of "check object action" events, the first registered listener is kept
+	 * @return false if listener was already registered
+	 */
+	public boolean setOnCheckObjectActionListener(CallbackContext listener){
+		while (true){
+			Listeners current = listeners.get();
+			if (current.onCheckObjectAction != null){
+				return false;
+			}
+			if (listeners.compareAndSet(current, new Listeners(listener, current.onOpenFioriApp))){
+				return true;
+			}
+		}
+	}
+	
+	/**
+	 * Registers JS listener of opened Fiori apps, replaces previous listener
+	 * @return Fiori app contexts that waited for the listener, the oldest first
+	 */
+	public List<String> setOnOpenFioriAppListener(CallbackContext listener){
+		synchronized (navigationQueue) {
+			while (true){
+				Listeners current = listeners.get();
+				if (listeners.compareAndSet(current, new Listeners(current.onCheckObjectAction, listener))){
+					break;
+				}
+			}
+			return navigationQueue.drain();
+		}
+	}
+	
+	/**
+	 * Passes Fiori app context of action tap to JS listener, context waits in {@link NavigationQueue} if listener is not 
+	 * registered yet. Queue and listener are checked under one lock, so context is not lost when listener registers meanwhile.
+	 */
+	public void openFioriApp(String appContext){
+		CallbackContext listener;
+		synchronized (navigationQueue) {
+			listener = listeners.get().onOpenFioriApp;
+			if (listener == null){
+				navigationQueue.offer(appContext);
+				return;
+			}
+		}
+		
+		PluginResult result = new PluginResult(PluginResult.Status.OK, appContext);
+		result.setKeepCallback(true);
+		listener.sendPluginResult(result);
 	}
 
 }
\ No newline at end of file
@@ -16,9 +16,21 @@ import android.widget.Toast;
 import android.app.Activity;
 import android.content.Intent;
 import android.content.BroadcastReceiver;
+import android.content.ClipData;
 import android.content.Context;
+import android.net.Uri;
 import android.os.Bundle;
+import android.os.SystemClock;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UnsupportedEncodingException;
 import java.lang.Exception;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
 * Cordova Smart Drawing integration plugin
@@ -30,44 +42,132 @@ public class SmartDrawing extends CordovaPlugin {
 	public static final String TAG = "com.keel.smartdrawing.fiori";
 	public static final String INTENT_SMD_ACTION = "com.keelsolution.action.OPEN_DRAWING";
 	public static final String INTENT_EXTRA_KEY = "com.keelsolution.smartdrawing.EXTRA";
+	//content URI of large message that is not sent inline in INTENT_EXTRA_KEY, see PayloadProvider
+	public static final String INTENT_EXTRA_PAYLOAD_URI = "com.keelsolution.smartdrawing.EXTRA_URI";
+	//messages bigger than this (bytes in intent) are sent through PayloadProvider, 0 sends every message inline as 
+	//Smart Drawing versions not reading the stream expect
+	public static final int DEFAULT_INLINE_LIMIT = 0;
+	//delta of drawing that is already open in Smart Drawing, sent as broadcast with message in INTENT_EXTRA_KEY
+	public static final String INTENT_SMD_UPDATE_ACTION = "com.keelsolution.action.UPDATE_DRAWING";
 
 	public static final String KEEL_INTENT_ACTION_CHECK_EQUIPMENT = "com.keelsolution.action.CHECK_EQUIPMENT";
 	public static final String KEEL_INTENT_ACTION_EXTRA_EQUIPMENT_ID= "com.keelsolution.action.extra.equipmentId";
+	public static final String KEEL_INTENT_ACTION_EXTRA_EQUIPMENT_ID_LIST= "com.keelsolution.action.extra.equipmentIdList";
 	
 	public static final String KEEL_INTENT_ACTION_CHECK_DRAWING = "com.keelsolution.action.CHECK_DRAWING";
 	public static final String KEEL_INTENT_ACTION_EXTRA_DRAWING_ID= "com.keelsolution.action.extra.drawingId";
 	
-	private static final String KEEL_INTENT_ACTION_SEND_SUPPORTED_INFO = "com.keelsolution.action.ACTION_SUPPORTED_INFO";
-	private static final String KEEL_INTENT_EXTRA_ACTION_SUPPORTED_INFO = "com.keelsolution.action.extra.ACTION_SUPPORTED_INFO";
+	//answers of checks sent by Smart Drawing as separate broadcast, carry the same request token as the check
+	public static final String KEEL_INTENT_ACTION_EXTRA_REQUEST_TOKEN = "com.keelsolution.action.extra.requestToken";
 	
 	public static final String KEEL_INTENT_CALL_FIORI_ACTION = "com.keelsolution.action.CALL_FIORI";
 	
 	public static final String KEEL_INTENT_ACTION_EXTRA_DRAWING_LIST = "com.keelsolution.action.extra.drawingList";
+	//bundle with equipmentId -> drawing list pairs returned for batch checks
+	public static final String KEEL_INTENT_ACTION_EXTRA_DRAWING_MAP = "com.keelsolution.action.extra.drawingMap";
 	
 	public static final String ACTION_SHOW_TOAST = "showToast";
 	//show
 	public static final String ACTION_SHOW_EQUIPMENT = "showEquipment";
 	public static final String ACTION_SHOW_DRAWING = "showDrawing";
 	public static final String ACTION_SHOW_DATA = "showData";
+	public static final String ACTION_UPDATE_DATA = "updateData";
+	public static final String ACTION_CONFIGURE_TRANSPORT = "configureTransport";
+	//hints for Smart Drawing to prepare drawings in background
+	public static final String ACTION_PRELOAD_DRAWINGS = "preloadDrawings";
+	public static final String ACTION_CONFIGURE_PRELOAD = "configurePreload";
 	//check 
 	public static final String ACTION_CANSHOW_EQUIPMENT = "canShowEquipment";
 	public static final String ACTION_CANSHOW_DRAWING = "canShowDrawing";
+	public static final String ACTION_CANSHOW_EQUIPMENTS = "canShowEquipments";
+	public static final String ACTION_CANCEL_REQUEST = "cancelRequest";
+	//cache of check answers
+	public static final String ACTION_CONFIGURE_CACHE = "configureCache";
+	public static final String ACTION_INVALIDATE_CACHE = "invalidateCache";
+	//local copy of equipment -> drawing relation of Smart Drawing
+	public static final String ACTION_CONFIGURE_DRAWING_INDEX = "configureDrawingIndex";
+	public static final String ACTION_UPDATE_DRAWING_INDEX = "updateDrawingIndex";
 	//JS subscription to SmartDrawing broadcast intents to check if we can do something with it
 	public static final String ACTION_ON_CHECK_OBJECT_ACTION = "onCheckObjectAction";
+	public static final String ACTION_REMOVE_ON_CHECK_OBJECT_ACTION = "removeOnCheckObjectAction";
 	public static final String ACTION_ON_ACTION_NOTIFIER = "actionNotifier";
 	public static final String ACTION_REGISTER_DEFAULT_ACTIONS = "subscribeResponsesOnCheckAction";
+	public static final String ACTION_CONFIGURE_ACTION_COLLECTION = "configureActionCollection";
+	public static final String ACTION_SET_EQUIPMENT_RULES = "setEquipmentRules";
+	//coalescing of "check equipment view" events passed to JS
+	public static final String ACTION_CONFIGURE_CHECK_DISPATCH = "configureCheckDispatch";
+	//latency and throughput metrics of plugin
+	public static final String ACTION_GET_METRICS = "getMetrics";
+	//ring buffer of plugin events
+	public static final String ACTION_DUMP_TRACE = "dumpTrace";
+	public static final String ACTION_CONFIGURE_TRACE = "configureTrace";
 	//JS subscription to execute Fiori app open calls by plagin
 	public static final String ACTION_ON_OPEN_FIORI_APP = "onOpenFioriApp";
 	public static final String ACTION_RETURN_TO_SMART_DRAWING_APP = "returnToSmartDrawingApp";
+	//JS reached Fiori screen requested by Smart Drawing
+	public static final String ACTION_FIORI_APP_OPENED = "fioriAppOpened";
+	public static final String ACTION_CONFIGURE_NAVIGATION = "configureNavigation";
+	//warm-up of Fiori apps when equipment is selected in Smart Drawing
+	public static final String ACTION_ON_PREFETCH = "onPrefetch";
+	public static final String ACTION_CONFIGURE_PREFETCH = "configurePrefetch";
+	
+	/**
+	 * Thread the plugin command is executed on
+	 */
+	private enum RunOn {
+		//directly on the bridge thread that called execute(), only for short non-blocking work
+		CALLER,
+		//on cordova thread pool, for JSON processing and intent work so WebView is not blocked
+		THREAD_POOL
+	}
+	
+	/**
+	 * Single plugin command registered for JS action in {@link #commands}. Command declares where it runs, 
+	 * work that must be done on UI thread (starting activities, moving task to back, toasts) is posted 
+	 * by command itself.
+	 */
+	private abstract class Command {
+		
+		final RunOn runOn;
+		
+		//expected number of arguments, -1 if not checked
+		final int argCount;
+		
+		Command(RunOn runOn, int argCount){
+			this.runOn = runOn;
+			this.argCount = argCount;
+		}
+		
+		abstract void run(JSONArray args, CallbackContext callbackContext) throws JSONException;
+	}
+	
+	//JS action -> command
+	private final Map<String, Command> commands = new HashMap<String, Command>();
 	
 	//data container
 	private SingletonContextContainer singletonContextContainer;
 	
+	//coalesces actionNotifier broadcasts for the same equipment
+	private ActionNotificationBatcher actionNotificationBatcher;
+	
+	//tells if Smart Drawing app can receive our checks
+	private SmartDrawingPresence presence;
+	
+	//last equipment state sent to Smart Drawing per drawing
+	private final DrawingStateTracker drawingStateTracker = new DrawingStateTracker();
+	
+	//preload hints of drawings user is likely to open
+	private DrawingPreloader drawingPreloader;
+	
+	//size limit of showData message sent inline in intent
+	private volatile int inlineLimit = DEFAULT_INLINE_LIMIT;
+	
 	
 	/**
 	 * Constructor.
 	 */
 	public SmartDrawing() {
+		registerCommands();
 	}
 	/**
 	 * Sets the context of the Command. This can then be used to do things like
@@ -83,6 +183,9 @@ public class SmartDrawing extends CordovaPlugin {
 		try{
 			
 			singletonContextContainer = SingletonContextContainer.getInstance(cordova.getActivity().getApplicationContext());
+			actionNotificationBatcher = new ActionNotificationBatcher(cordova.getActivity().getApplicationContext());
+			presence = new SmartDrawingPresence(cordova.getActivity().getApplicationContext());
+			drawingPreloader = new DrawingPreloader(cordova.getActivity().getApplicationContext(), presence);
 			
 		} catch (Exception e){
 			e.printStackTrace();
@@ -91,220 +194,830 @@ public class SmartDrawing extends CordovaPlugin {
 	}
 	
 	/**
-	 * Main entry point - A Cordova plugin always need a public boolean execute method. 
-	 * This method is called by the framework whenever the function exec is called from a 
-	 * piece of Javascript code. The Javascript exec function will then try to look for a
-	 * matching function and plugin in the Java classes. If it finds one it will 
-	 * trigger the execute function.
-	 * https://cordova.apache.org/docs/en/3.5.0/guide_platforms_android_plugin.md.html#Android%20Plugins
+	 * Fills the command registry with all actions supported by plugin
 	 */
-	@Override
-	public boolean execute(final String action, JSONArray args, CallbackContext callbackContext) throws JSONException {
-		try {
-			//show on drawing some element
-			if (ACTION_SHOW_EQUIPMENT.equals(action) || ACTION_SHOW_DRAWING.equals(action) || ACTION_SHOW_DATA.equals(action) ) { 
-				JSONObject smdMessage = args.getJSONObject(0);
-				
-				showData(smdMessage, callbackContext);
-				
-                return true;
+	private void registerCommands() {
+		
+		//show on drawing some element
+		Command showDataCommand = new Command(RunOn.THREAD_POOL, -1) {
+			void run(JSONArray args, CallbackContext callbackContext) throws JSONException {
+				showData(args.getJSONObject(0), callbackContext);
 			}
-			
-			
-			if (ACTION_CANSHOW_EQUIPMENT.equals(action) ) { 
-								
-                if (args.length() != 1) {
-                    callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.INVALID_ACTION));
-                    return false;
-                }
-                
-                JSONObject arg_object = args.getJSONObject(0);
-                canShowEquipment(arg_object.getString("id"), callbackContext);
-                				
-                return true;
+		};
+		commands.put(ACTION_SHOW_EQUIPMENT, showDataCommand);
+		commands.put(ACTION_SHOW_DRAWING, showDataCommand);
+		commands.put(ACTION_SHOW_DATA, showDataCommand);
+		
+		//send only changes of already shown drawing
+		commands.put(ACTION_UPDATE_DATA, new Command(RunOn.THREAD_POOL, 1) {
+			void run(JSONArray args, CallbackContext callbackContext) throws JSONException {
+				updateData(args.getJSONObject(0), callbackContext);
 			}
-			
-			if (ACTION_CANSHOW_DRAWING.equals(action) ) { 
-				
-                if (args.length() != 1) {
-                    callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.INVALID_ACTION));
-                    return false;
-                }
-                
-                JSONObject arg_object = args.getJSONObject(0);
-                canShowDrawing(arg_object.getString("id"), callbackContext);
-                				
-                return true;
+		});
+		
+		commands.put(ACTION_PRELOAD_DRAWINGS, new Command(RunOn.THREAD_POOL, 1) {
+			void run(JSONArray args, CallbackContext callbackContext) throws JSONException {
+				JSONArray ids = args.getJSONObject(0).getJSONArray("ids");
+				List<String> drawingIds = new ArrayList<String>(ids.length());
+				for (int i = 0; i < ids.length(); i++){
+					drawingIds.add(ids.getString(i));
+				}
+				callbackContext.success(drawingPreloader.hint(drawingIds));
 			}
-			
-			if (ACTION_ON_CHECK_OBJECT_ACTION.equals(action) ) { 
+		});
+		
+		commands.put(ACTION_CONFIGURE_PRELOAD, new Command(RunOn.CALLER, -1) {
+			void run(JSONArray args, CallbackContext callbackContext) throws JSONException {
+				JSONObject options = args.optJSONObject(0) != null ? args.getJSONObject(0) : new JSONObject();
+				drawingPreloader.configure(options.optBoolean("auto", false), 
+						options.optInt("maxDrawings", DrawingPreloader.DEFAULT_MAX_DRAWINGS), 
+						options.optLong("minInterval", DrawingPreloader.DEFAULT_MIN_INTERVAL), 
+						options.optLong("dedupeTtl", DrawingPreloader.DEFAULT_DEDUPE_TTL));
+				callbackContext.success();
+			}
+		});
+		
+		commands.put(ACTION_CONFIGURE_TRANSPORT, new Command(RunOn.CALLER, -1) {
+			void run(JSONArray args, CallbackContext callbackContext) throws JSONException {
+				JSONObject options = args.optJSONObject(0) != null ? args.getJSONObject(0) : new JSONObject();
+				inlineLimit = Math.max(0, options.optInt("inlineLimit", DEFAULT_INLINE_LIMIT));
+				callbackContext.success();
+			}
+		});
+		
+		commands.put(ACTION_CANSHOW_EQUIPMENT, new Command(RunOn.THREAD_POOL, 1) {
+			void run(JSONArray args, CallbackContext callbackContext) throws JSONException {
+				JSONObject arg_object = args.getJSONObject(0);
+				canShowEquipment(arg_object.getString("id"), arg_object.optString("requestId", null), 
+						arg_object.optLong("timeout", PendingCheckRegistry.DEFAULT_TIMEOUT), 
+						DrawingResult.formatOf(arg_object.optString("format", null)), callbackContext);
+			}
+		});
+		
+		commands.put(ACTION_CANSHOW_EQUIPMENTS, new Command(RunOn.THREAD_POOL, 1) {
+			void run(JSONArray args, CallbackContext callbackContext) throws JSONException {
+				JSONObject arg_object = args.getJSONObject(0);
+				canShowEquipments(arg_object.getJSONArray("ids"), arg_object.optString("requestId", null), 
+						arg_object.optLong("timeout", PendingCheckRegistry.DEFAULT_TIMEOUT), callbackContext);
+			}
+		});
+		
+		commands.put(ACTION_CANSHOW_DRAWING, new Command(RunOn.THREAD_POOL, 1) {
+			void run(JSONArray args, CallbackContext callbackContext) throws JSONException {
+				JSONObject arg_object = args.getJSONObject(0);
+				canShowDrawing(arg_object.getString("id"), arg_object.optString("requestId", null), 
+						arg_object.optLong("timeout", PendingCheckRegistry.DEFAULT_TIMEOUT), 
+						DrawingResult.formatOf(arg_object.optString("format", null)), callbackContext);
+			}
+		});
+		
+		commands.put(ACTION_CANCEL_REQUEST, new Command(RunOn.CALLER, 1) {
+			void run(JSONArray args, CallbackContext callbackContext) throws JSONException {
+				cancelRequest(args.getJSONObject(0).getString("requestId"), callbackContext);
+			}
+		});
+		
+		commands.put(ACTION_CONFIGURE_CACHE, new Command(RunOn.CALLER, -1) {
+			void run(JSONArray args, CallbackContext callbackContext) throws JSONException {
+				configureCache(args.optJSONObject(0) != null ? args.getJSONObject(0) : new JSONObject(), callbackContext);
+			}
+		});
+		
+		commands.put(ACTION_INVALIDATE_CACHE, new Command(RunOn.CALLER, -1) {
+			void run(JSONArray args, CallbackContext callbackContext) throws JSONException {
+				invalidateCache(args.optJSONObject(0), callbackContext);
+			}
+		});
+		
+		commands.put(ACTION_CONFIGURE_DRAWING_INDEX, new Command(RunOn.CALLER, -1) {
+			void run(JSONArray args, CallbackContext callbackContext) throws JSONException {
+				JSONObject options = args.optJSONObject(0) != null ? args.getJSONObject(0) : new JSONObject();
+				DrawingIndex index = singletonContextContainer.getDrawingIndex();
+				index.setEnabled(options.optBoolean("enabled", true));
+				if (options.optBoolean("clear", false)){
+					index.clear();
+				}
+				callbackContext.success(index.report());
+			}
+		});
+		
+		//load export given by JS or ask Smart Drawing for export
+		commands.put(ACTION_UPDATE_DRAWING_INDEX, new Command(RunOn.THREAD_POOL, -1) {
+			void run(JSONArray args, CallbackContext callbackContext) throws JSONException {
+				JSONObject options = args.optJSONObject(0) != null ? args.getJSONObject(0) : new JSONObject();
+				if (options.has("data")){
+					loadDrawingIndex(new StringReader(options.getString("data")), callbackContext);
+				} else if (options.has("uri")){
+					try {
+						loadDrawingIndex(openReader(options.getString("uri")), callbackContext);
+					} catch (IOException e) {
+						callbackContext.error(e.getMessage());
+					}
+				} else {
+					syncDrawingIndex(callbackContext);
+				}
+			}
+		});
+		
+		commands.put(ACTION_ON_CHECK_OBJECT_ACTION, new Command(RunOn.CALLER, -1) {
+			void run(JSONArray args, CallbackContext callbackContext) throws JSONException {
+				//remember which apps listen, so checks of equipment no app is interested in do not wake up JS
+				String appId = args.isNull(0) ? null : args.optString(0, null);
+				if (appId != null && appId.length() > 0){
+					singletonContextContainer.getCheckObjectActionApps().add(appId);
+				} else {
+					//listener not telling its app gets every check
+					singletonContextContainer.setAnonymousCheckObjectActionListener(true);
+				}
 				
 				//store reference to single JS callback to raise notification about equipment check 
 				// to every observer 
-				if (singletonContextContainer.onCheckObjectActionContext == null){
-	                singletonContextContainer.onCheckObjectActionContext = callbackContext;
-	                
+				if (singletonContextContainer.setOnCheckObjectActionListener(callbackContext)){
 	                onCheckObjectAction(callbackContext);
 				}
-                				
-                return true;
 			}
-			
-			if (ACTION_ON_ACTION_NOTIFIER.equals(action) ) { 
-				
-				
-                //let Smart drawing know about action we can execute (async call)
-				
-                if (args.length() != 1) {
-                    callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.INVALID_ACTION));
-                    return false;
-                }
-                
-                JSONObject appContext = args.getJSONObject(0);
-                actionNotifier(appContext, callbackContext);
-                				
-                return true;
+		});
+		
+		commands.put(ACTION_REMOVE_ON_CHECK_OBJECT_ACTION, new Command(RunOn.CALLER, -1) {
+			void run(JSONArray args, CallbackContext callbackContext) throws JSONException {
+				//app has no listeners left in JS, checks of equipment only this app is interested in do not wake up JS anymore
+				String appId = args.isNull(0) ? null : args.optString(0, null);
+				if (appId != null){
+					singletonContextContainer.getCheckObjectActionApps().remove(appId);
+				}
+				callbackContext.success();
 			}
-			
-			if (ACTION_REGISTER_DEFAULT_ACTIONS.equals(action) ) { 
-				
-				//save default actions that will be sent to every 'check equipment action'
+		});
+		
+		//let Smart drawing know about action we can execute (async call)
+		commands.put(ACTION_ON_ACTION_NOTIFIER, new Command(RunOn.THREAD_POOL, 1) {
+			void run(JSONArray args, CallbackContext callbackContext) throws JSONException {
+				actionNotifier(args.getJSONObject(0), callbackContext);
+			}
+		});
+		
+		commands.put(ACTION_CONFIGURE_ACTION_COLLECTION, new Command(RunOn.CALLER, -1) {
+			void run(JSONArray args, CallbackContext callbackContext) throws JSONException {
+				JSONObject options = args.optJSONObject(0) != null ? args.getJSONObject(0) : new JSONObject();
+				singletonContextContainer.getActionResponseCollector().setDeadline(options.optLong("deadline", ActionResponseCollector.DEFAULT_DEADLINE));
+				actionNotificationBatcher.setWindow(options.optLong("batchWindow", ActionNotificationBatcher.DEFAULT_WINDOW));
+				callbackContext.success();
+			}
+		});
+		
+		commands.put(ACTION_CONFIGURE_CHECK_DISPATCH, new Command(RunOn.CALLER, -1) {
+			void run(JSONArray args, CallbackContext callbackContext) throws JSONException {
+				JSONObject options = args.optJSONObject(0) != null ? args.getJSONObject(0) : new JSONObject();
+				singletonContextContainer.getCheckNotificationDispatcher().configure(
+						options.optLong("window", CheckNotificationDispatcher.DEFAULT_WINDOW), 
+						options.optInt("maxDepth", CheckNotificationDispatcher.DEFAULT_MAX_DEPTH), 
+						CheckNotificationDispatcher.DropPolicy.fromName(options.optString("dropPolicy", "dropOldest")));
+				callbackContext.success();
+			}
+		});
+		
+		//equipment apps are interested in
+		commands.put(ACTION_SET_EQUIPMENT_RULES, new Command(RunOn.THREAD_POOL, 2) {
+			void run(JSONArray args, CallbackContext callbackContext) throws JSONException {
+				singletonContextContainer.setEquipmentRules(args.getString(0), args.optJSONObject(1));
+				callbackContext.success();
+			}
+		});
+		
+		//save default actions that will be sent to every 'check equipment action'
+		commands.put(ACTION_REGISTER_DEFAULT_ACTIONS, new Command(RunOn.THREAD_POOL, -1) {
+			void run(JSONArray args, CallbackContext callbackContext) throws JSONException {
 				singletonContextContainer.saveActions(args);
-			
-				return true;
-				
+				callbackContext.success();
 			}
-			
-			if (ACTION_ON_OPEN_FIORI_APP.equals(action) ) { 
-				
-                singletonContextContainer.onOpenFioriAppContext = callbackContext;
-				//register single callback to JS in order to open Firoi app provided in callbackparameters
+		});
+		
+		//register single callback to JS in order to open Firoi app provided in callbackparameters
+		commands.put(ACTION_ON_OPEN_FIORI_APP, new Command(RunOn.CALLER, -1) {
+			void run(JSONArray args, CallbackContext callbackContext) throws JSONException {
                 onOpenFioriApp(callbackContext);
-                				
-                return true;
 			}
-			
-			if (ACTION_RETURN_TO_SMART_DRAWING_APP.equals(action) ) { 
+		});
+		
+		commands.put(ACTION_ON_PREFETCH, new Command(RunOn.CALLER, -1) {
+			void run(JSONArray args, CallbackContext callbackContext) throws JSONException {
+				singletonContextContainer.getPrefetchNotifier().setListener(callbackContext);
 				
-				//return from cordova app to previous app in android stack
+				PluginResult result = new PluginResult(PluginResult.Status.NO_RESULT);
+				result.setKeepCallback(true);
+				callbackContext.sendPluginResult(result);
+			}
+		});
+		
+		commands.put(ACTION_CONFIGURE_PREFETCH, new Command(RunOn.CALLER, -1) {
+			void run(JSONArray args, CallbackContext callbackContext) throws JSONException {
+				JSONObject options = args.optJSONObject(0) != null ? args.getJSONObject(0) : new JSONObject();
+				singletonContextContainer.getPrefetchNotifier().configure(options.optBoolean("enabled", true), 
+						options.optLong("delay", PrefetchNotifier.DEFAULT_DELAY), 
+						options.optLong("minInterval", PrefetchNotifier.DEFAULT_MIN_INTERVAL));
+				callbackContext.success();
+			}
+		});
+		
+		commands.put(ACTION_CONFIGURE_NAVIGATION, new Command(RunOn.CALLER, -1) {
+			void run(JSONArray args, CallbackContext callbackContext) throws JSONException {
+				JSONObject options = args.optJSONObject(0) != null ? args.getJSONObject(0) : new JSONObject();
+				singletonContextContainer.getNavigationQueue().configure(
+						NavigationQueue.Policy.fromName(options.optString("policy", "latestWins")), 
+						options.optInt("capacity", NavigationQueue.DEFAULT_CAPACITY), 
+						options.optLong("debounce", NavigationQueue.DEFAULT_DEBOUNCE));
+				callbackContext.success();
+			}
+		});
+		
+		//measure time from action tap in Smart Drawing until Fiori screen was reached
+		commands.put(ACTION_FIORI_APP_OPENED, new Command(RunOn.CALLER, -1) {
+			void run(JSONArray args, CallbackContext callbackContext) throws JSONException {
+				long tapTime = singletonContextContainer.takeFioriAppTapTime();
+				if (tapTime > 0){
+					long latency = SystemClock.elapsedRealtime() - tapTime;
+					singletonContextContainer.getMetrics().recordMillis("landing.tapToFiori", latency);
+					Trace.event("landing.fioriAppOpened", null, null, latency + " ms");
+				}
+				callbackContext.success();
+			}
+		});
+		
+		//return from cordova app to previous app in android stack
+		commands.put(ACTION_RETURN_TO_SMART_DRAWING_APP, new Command(RunOn.CALLER, -1) {
+			void run(JSONArray args, CallbackContext callbackContext) throws JSONException {
 				returnToSmartDrawingApp(callbackContext);
-                				
-                return true;
 			}
-			
-			
-			
-			if (ACTION_SHOW_TOAST.equals(action)) { 
+		});
+		
+		commands.put(ACTION_GET_METRICS, new Command(RunOn.CALLER, -1) {
+			void run(JSONArray args, CallbackContext callbackContext) throws JSONException {
+				JSONObject options = args.optJSONObject(0) != null ? args.getJSONObject(0) : new JSONObject();
+				getMetrics(options.optBoolean("reset", false), callbackContext);
+			}
+		});
+		
+		commands.put(ACTION_DUMP_TRACE, new Command(RunOn.THREAD_POOL, -1) {
+			void run(JSONArray args, CallbackContext callbackContext) throws JSONException {
+				JSONObject options = args.optJSONObject(0) != null ? args.getJSONObject(0) : new JSONObject();
+				JSONArray events = Trace.dump(options.optInt("limit", 0));
+				if (options.optBoolean("clear", false)){
+					Trace.clear();
+				}
+				callbackContext.success(events);
+			}
+		});
+		
+		commands.put(ACTION_CONFIGURE_TRACE, new Command(RunOn.CALLER, -1) {
+			void run(JSONArray args, CallbackContext callbackContext) throws JSONException {
+				JSONObject options = args.optJSONObject(0) != null ? args.getJSONObject(0) : new JSONObject();
+				Trace.setEnabled(options.optBoolean("enabled", Trace.isEnabled()));
+				Trace.setVerbose(options.optBoolean("verbose", Trace.isVerbose()));
+				Trace.setPayloads(options.optBoolean("payloads", Trace.isPayloads()));
+				callbackContext.success();
+			}
+		});
+		
+		commands.put(ACTION_SHOW_TOAST, new Command(RunOn.CALLER, -1) {
+			void run(JSONArray args, CallbackContext callbackContext) throws JSONException {
 				JSONObject arg_object = args.getJSONObject(0);
-				
 				showToast(arg_object.getString("title"), arg_object.getString("message"), callbackContext);
-			
-				return true;
 			}
-			
+		});
+	}
+	
+	/**
+	 * Main entry point - A Cordova plugin always need a public boolean execute method. 
+	 * This method is called by the framework whenever the function exec is called from a 
+	 * piece of Javascript code. The Javascript exec function will then try to look for a
+	 * matching function and plugin in the Java classes. If it finds one it will 
+	 * trigger the execute function.
+	 * https://cordova.apache.org/docs/en/3.5.0/guide_platforms_android_plugin.md.html#Android%20Plugins
+	 */
+	@Override
+	public boolean execute(final String action, final JSONArray args, final CallbackContext callbackContext) throws JSONException {
+		
+		final long startTime = System.nanoTime();
+		final Command command = commands.get(action);
+		if (command == null){
 			callbackContext.error("Invalid action");
 			return true;
+		}
+		
+		if (command.argCount >= 0 && args.length() != command.argCount) {
+            callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.INVALID_ACTION));
+            return false;
+        }
+		
+		if (command.runOn == RunOn.THREAD_POOL){
+			cordova.getThreadPool().execute(new Runnable() {
+				public void run() {
+					runCommand(action, command, args, callbackContext, startTime);
+				}
+			});
+		} else {
+			runCommand(action, command, args, callbackContext, startTime);
+		}
+		
+		return true;
+	}
+	
+	private void runCommand(String action, Command command, JSONArray args, CallbackContext callbackContext, long startTime) {
+		try {
+			command.run(args, callbackContext);
 		} catch(Exception e) {
-			System.err.println("Exception: " + e.getMessage());
+			Log.e(TAG, "SMD " + action + " failed", e);
 			callbackContext.error(e.getMessage());
-			return true;
 		}
+		
+		//time from the JS call until command returned, including wait for thread pool
+		if (singletonContextContainer != null){
+			singletonContextContainer.getMetrics().recordSince("action." + action, startTime);
+		}
+	}
+
+
+	/**
+	 * Call smart drawing to check if equipment is known by the app. Answer is taken from the cache if possible, 
+	 * concurrent checks of the same equipment are merged into one broadcast. If Smart Drawing app is not installed 
+	 * the call is answered immediately, if it does not answer in time the call fails with timeout.
+	 * Drawing list is returned in format selected by caller, see {@link DrawingResult}.
+	 */
+	private void canShowEquipment(final String equipmentId, final String requestId, final long timeout, final String format, final CallbackContext callbackContext) throws JSONException {
+
+		final CheckResultCache cache = singletonContextContainer.getCheckResultCache();
+		final String cacheKey = CheckResultCache.equipmentKey(equipmentId);
+		
+		Object cached = cache.get(cacheKey);
+		if (cached != null){
+			Trace.event("canShowEquipment.cached", equipmentId, requestId, null);
+			
+			callbackContext.sendPluginResult(DrawingResult.drawings((JSONArray) cached, format));
+			return;
+		}
+		
+		JSONArray indexed = drawingIndex().findEquipment(equipmentId);
+		if (indexed != null){
+			Trace.event("canShowEquipment.indexed", equipmentId, requestId, null);
+			
+			callbackContext.sendPluginResult(DrawingResult.drawings(indexed, format));
+			return;
+		}
+		
+		if (!presence.hasReceiver(KEEL_INTENT_ACTION_CHECK_EQUIPMENT)){
+			Trace.event("canShowEquipment.noSmartDrawing", equipmentId, requestId, null);
+			
+			callbackContext.sendPluginResult(DrawingResult.drawings(new JSONArray(), format));
+			return;
+		}
+		
+		PendingCheckRegistry registry = singletonContextContainer.getPendingCheckRegistry();
+		PendingCall call = registry.track(requestId, callbackContext, timeout);
+		call.setFormat(format);
+		
+		//postpone result
+		call.postpone();
+		
+		if (!cache.join(cacheKey, call)){
+			//the same check is already sent to Smart Drawing - wait for its answer
+			Trace.event("canShowEquipment.joined", equipmentId, call.getRequestId(), null);
+			return;
+		}
+		
+		final String token = registry.register(new EquipmentCheck(equipmentId, cache, drawingPreloader), timeout);
+		
+		Trace.event("canShowEquipment.sent", equipmentId, token, call.getRequestId());
+		
+		Intent intent = new Intent(KEEL_INTENT_ACTION_CHECK_EQUIPMENT);
+		intent.putExtra(KEEL_INTENT_ACTION_EXTRA_EQUIPMENT_ID, equipmentId);
+		intent.putExtra(KEEL_INTENT_ACTION_EXTRA_REQUEST_TOKEN, token);
+		cordova.getActivity().sendOrderedBroadcast(intent, null, new CheckEquipmentResponseReceiver(), ReceiverThread.getHandler(), Activity.RESULT_OK, null, null);
+	}
+	
+	/**
+	 * Check of single equipment waiting for answer from Smart Drawing, answer is passed to every caller waiting in cache
+	 */
+	private static class EquipmentCheck extends PendingCheck {
+		
+		private final String equipmentId;
+		
+		private final CheckResultCache cache;
+		
+		private final DrawingPreloader preloader;
+		
+		EquipmentCheck(String equipmentId, CheckResultCache cache, DrawingPreloader preloader){
+			this.equipmentId = equipmentId;
+			this.cache = cache;
+			this.preloader = preloader;
+		}
+
+		@Override
+		public void onResponse(Context context, int resultCode, Bundle response) {
+
+			List<String> drawings = response.getStringArrayList(KEEL_INTENT_ACTION_EXTRA_DRAWING_LIST);
+			
+			//parsed once, every waiting call gets it in its own format
+			JSONArray drawingArr = toDrawingArray(drawings);
+			Trace.event("canShowEquipment.answered", equipmentId, getToken(), drawingArr);
+			
+			List<PendingCall> waiters = cache.complete(CheckResultCache.equipmentKey(equipmentId), drawingArr, drawingArr.length() == 0);
+			for (PendingCall call : waiters){
+				call.finish(DrawingResult.drawings(drawingArr, call.getFormat()));
+			}
+			
+			//user is likely to open one of the drawings next
+			preloader.onDrawingsFound(drawings);
+		}
+		
+		@Override
+		public void onTimeout() {
+			for (PendingCall call : cache.abandon(CheckResultCache.equipmentKey(equipmentId))){
+				call.fail(PendingCall.ERROR_TIMEOUT);
+			}
+		}
+		
 	}
 	
 	
 	/**
-	 * Call smart drawing to check if equipment is known by the app
+	 * Call smart drawing to check a list of equipment in one broadcast. Smart Drawing answers with a bundle 
+	 * where every checked equipmentId is a key to its drawing list, so the whole list costs one bridge call 
+	 * and one ordered broadcast instead of one per equipment. Only equipment without cached answer is sent 
+	 * to Smart Drawing.
 	 */
-	private synchronized void canShowEquipment(final String equipmentId, final CallbackContext callbackContext) {
+	private void canShowEquipments(final JSONArray equipmentIds, final String requestId, final long timeout, final CallbackContext callbackContext) {
 
-		cordova.getActivity().runOnUiThread(new Runnable() {
-			public void run() {	
-				
-				Log.v(TAG, "SMD canShowEquipment: call for " +  equipmentId);
-				
-				Intent intent = new Intent(KEEL_INTENT_ACTION_CHECK_EQUIPMENT);
-				intent.putExtra(KEEL_INTENT_ACTION_EXTRA_EQUIPMENT_ID, equipmentId);
-				((CordovaActivity)cordova.getActivity()).sendOrderedBroadcast(intent, null, new CheckEquipmentResponseReceiver(callbackContext), null, Activity.RESULT_OK, null, null);
-				
-				//postpone result
-				PluginResult result = new PluginResult(PluginResult.Status.NO_RESULT);
-                result.setKeepCallback(true); //re-use the callback on intent events
-                callbackContext.sendPluginResult(result);
+		final CheckResultCache cache = singletonContextContainer.getCheckResultCache();
+		final DrawingIndex index = drawingIndex();
+		boolean smartDrawingPresent = presence.hasReceiver(KEEL_INTENT_ACTION_CHECK_EQUIPMENT);
+		
+		final JSONObject resultMap = new JSONObject();
+		final ArrayList<String> idList = new ArrayList<String>(equipmentIds.length());
+		for (int i = 0; i < equipmentIds.length(); i++){
+			String equipmentId = equipmentIds.optString(i);
+			Object cached = smartDrawingPresent ? cache.get(CheckResultCache.equipmentKey(equipmentId)) : new JSONArray();
+			try {
+				if (cached == null){
+					cached = index.findEquipment(equipmentId);
+				}
+				if (cached != null){
+					resultMap.put(equipmentId, cached);
+				} else {
+					idList.add(equipmentId);
+				}
+			} catch (JSONException e) {
+				idList.add(equipmentId);
 			}
-		});
+		}
+		
+		if (idList.isEmpty()){
+			Trace.event("canShowEquipments.cached", null, requestId, equipmentIds);
+			
+			callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, resultMap));
+			return;
+		}
+		
+		PendingCheckRegistry registry = singletonContextContainer.getPendingCheckRegistry();
+		PendingCall call = registry.track(requestId, callbackContext, timeout);
+		
+		//postpone result
+		call.postpone();
+		
+		final String token = registry.register(new EquipmentListCheck(idList, resultMap, cache, call), timeout);
+
+		Trace.event("canShowEquipments.sent", null, token, idList);
+		
+		Intent intent = new Intent(KEEL_INTENT_ACTION_CHECK_EQUIPMENT);
+		intent.putStringArrayListExtra(KEEL_INTENT_ACTION_EXTRA_EQUIPMENT_ID_LIST, idList);
+		intent.putExtra(KEEL_INTENT_ACTION_EXTRA_REQUEST_TOKEN, token);
+		cordova.getActivity().sendOrderedBroadcast(intent, null, new CheckEquipmentResponseReceiver(), ReceiverThread.getHandler(), Activity.RESULT_OK, null, null);
 	}
 	
-	private class CheckEquipmentResponseReceiver extends BroadcastReceiver{
+	/**
+	 * Check of list of equipment waiting for answer from Smart Drawing
+	 */
+	private static class EquipmentListCheck extends PendingCheck {
+		
+		private final List<String> equipmentIds;
+		
+		private final JSONObject resultMap;
 		
-		private CallbackContext callbackContext;
+		private final CheckResultCache cache;
 		
-		CheckEquipmentResponseReceiver(CallbackContext context){
-			callbackContext = context;
+		private final PendingCall call;
+		
+		EquipmentListCheck(List<String> ids, JSONObject cachedResults, CheckResultCache cache, PendingCall call){
+			this.equipmentIds = ids;
+			this.resultMap = cachedResults;
+			this.cache = cache;
+			this.call = call;
 		}
 
 		@Override
-		public void onReceive(Context context, Intent intent) {
+		public void onResponse(Context context, int resultCode, Bundle response) {
 
-			Bundle resultExtras = getResultExtras(true);
-			if (resultExtras!= null){
-				
-				Log.v(TAG, "SMD received:" +  resultExtras.getStringArrayList(KEEL_INTENT_ACTION_EXTRA_DRAWING_LIST).toString());
+			Bundle drawingMap = response.getBundle(KEEL_INTENT_ACTION_EXTRA_DRAWING_MAP);
+			
+			//every requested equipment gets an entry, unknown equipment gets an empty drawing list
+			try {
+				for (String equipmentId : equipmentIds){
+					List<String> drawings = drawingMap != null ? drawingMap.getStringArrayList(equipmentId) : null;
+					JSONArray drawingArr = toDrawingArray(drawings);
+					resultMap.put(equipmentId, drawingArr);
 					
-				//Toast.makeText(cordova.getActivity().getApplicationContext(), resultExtras.getStringArrayList(KEEL_INTENT_ACTION_EXTRA_DRAWING_LIST).toString(), Toast.LENGTH_LONG).show();
-				
-				PluginResult result = new PluginResult(PluginResult.Status.OK, resultExtras.getStringArrayList(KEEL_INTENT_ACTION_EXTRA_DRAWING_LIST).toString());
-	        	result.setKeepCallback(false);
-	        	callbackContext.sendPluginResult(result);
+					//share the answer with single equipment checks
+					if (drawingMap != null){
+						cache.put(CheckResultCache.equipmentKey(equipmentId), drawingArr, drawingArr.length() == 0);
+					}
+				}
+			} catch (JSONException e) {
+				Log.e(TAG, e.toString());
 			}
+			
+			Trace.event("canShowEquipments.answered", null, getToken(), resultMap);
+			
+			call.finish(new PluginResult(PluginResult.Status.OK, resultMap));
+		}
+		
+		@Override
+		public void onTimeout() {
+			call.fail(PendingCall.ERROR_TIMEOUT);
 		}
 		
 	}
 	
+	/**
+	 * Converts drawing list received from Smart Drawing (every entry is JSON text of DrawingDescription) into JSON array
+	 */
+	static JSONArray toDrawingArray(List<String> drawings) {
+		JSONArray drawingArr = new JSONArray();
+		if (drawings == null){
+			return drawingArr;
+		}
+		
+		for (String drawing : drawings){
+			try {
+				drawingArr.put(new JSONObject(drawing));
+			} catch (JSONException e) {
+				//not a JSON object - pass the value as it is
+				drawingArr.put(drawing);
+			}
+		}
+		return drawingArr;
+	}
+	
 	
 	/**
-	 * Call smart drawing to check if drawing is known by the app
+	 * Call smart drawing to check if drawing is known by the app. Answer is taken from the cache if possible, 
+	 * concurrent checks of the same drawing are merged into one broadcast. If Smart Drawing app is not installed 
+	 * the call is answered immediately, if it does not answer in time the call fails with timeout.
+	 * Answer is returned in format selected by caller, see {@link DrawingResult}.
 	 */
-	private synchronized void canShowDrawing(final String drawingId, final CallbackContext callbackContext) {
+	private void canShowDrawing(final String drawingId, final String requestId, final long timeout, final String format, final CallbackContext callbackContext) {
 
-		cordova.getActivity().runOnUiThread(new Runnable() {
-			public void run() {	
-				
-				Log.v(TAG, "SMD canShowDrawing: call for " +  drawingId);
-				
-				Intent intent = new Intent(KEEL_INTENT_ACTION_EXTRA_DRAWING_ID);
-				intent.putExtra(KEEL_INTENT_ACTION_EXTRA_DRAWING_ID, drawingId);
-				((CordovaActivity)cordova.getActivity()).sendOrderedBroadcast(intent, null, new CheckDrawingResponseReceiver(callbackContext), null, Activity.RESULT_OK, null, null);
-				
-				//postpone result
-				PluginResult result = new PluginResult(PluginResult.Status.NO_RESULT);
-                result.setKeepCallback(true); //re-use the callback on intent events
-                callbackContext.sendPluginResult(result);
-			}
-		});
+		final CheckResultCache cache = singletonContextContainer.getCheckResultCache();
+		final String cacheKey = CheckResultCache.drawingKey(drawingId);
+		
+		Object cached = cache.get(cacheKey);
+		if (cached != null){
+			Trace.event("canShowDrawing.cached", null, requestId, drawingId);
+			
+			callbackContext.sendPluginResult(DrawingResult.drawing((Boolean) cached, format));
+			return;
+		}
+		
+		Boolean indexed = drawingIndex().findDrawing(drawingId);
+		if (indexed != null){
+			Trace.event("canShowDrawing.indexed", null, requestId, drawingId);
+			
+			callbackContext.sendPluginResult(DrawingResult.drawing(indexed, format));
+			return;
+		}
+		
+		if (!presence.hasReceiver(KEEL_INTENT_ACTION_CHECK_DRAWING)){
+			Trace.event("canShowDrawing.noSmartDrawing", null, requestId, drawingId);
+			
+			callbackContext.sendPluginResult(DrawingResult.drawing(false, format));
+			return;
+		}
+		
+		PendingCheckRegistry registry = singletonContextContainer.getPendingCheckRegistry();
+		PendingCall call = registry.track(requestId, callbackContext, timeout);
+		call.setFormat(format);
+		
+		//postpone result
+		call.postpone();
+		
+		if (!cache.join(cacheKey, call)){
+			//the same check is already sent to Smart Drawing - wait for its answer
+			Trace.event("canShowDrawing.joined", null, call.getRequestId(), drawingId);
+			return;
+		}
+		
+		final String token = registry.register(new DrawingCheck(drawingId, cache), timeout);
+
+		Trace.event("canShowDrawing.sent", null, token, drawingId);
+		
+		Intent intent = new Intent(KEEL_INTENT_ACTION_CHECK_DRAWING);
+		intent.putExtra(KEEL_INTENT_ACTION_EXTRA_DRAWING_ID, drawingId);
+		intent.putExtra(KEEL_INTENT_ACTION_EXTRA_REQUEST_TOKEN, token);
+		cordova.getActivity().sendOrderedBroadcast(intent, null, new CheckEquipmentResponseReceiver(), ReceiverThread.getHandler(), Activity.RESULT_OK, null, null);
 	}
 	
-	private class CheckDrawingResponseReceiver extends BroadcastReceiver{
+	/**
+	 * Check of single drawing waiting for answer from Smart Drawing, answer is passed to every caller waiting in cache
+	 */
+	private static class DrawingCheck extends PendingCheck {
 		
-		private CallbackContext callbackContext;
+		private final String drawingId;
 		
-		CheckDrawingResponseReceiver(CallbackContext context){
-			callbackContext = context;
+		private final CheckResultCache cache;
+		
+		DrawingCheck(String drawingId, CheckResultCache cache){
+			this.drawingId = drawingId;
+			this.cache = cache;
 		}
 		
 		@Override
-		public void onReceive(Context context, Intent intent) {
+		public void onResponse(Context context, int resultCode, Bundle response) {
+			
+			boolean found = resultCode == Activity.RESULT_OK;
 			
-			String resultString = "false";
-			if (getResultCode() == Activity.RESULT_OK){
-				resultString = "true";
+			List<PendingCall> waiters = cache.complete(CheckResultCache.drawingKey(drawingId), found, !found);
+			for (PendingCall call : waiters){
+				call.finish(DrawingResult.drawing(found, call.getFormat()));
+			}
+		}
+		
+		@Override
+		public void onTimeout() {
+			for (PendingCall call : cache.abandon(CheckResultCache.drawingKey(drawingId))){
+				call.fail(PendingCall.ERROR_TIMEOUT);
 			}
+		}
+	}
+	
+	/**
+	 * Returns local drawing index, synchronization with Smart Drawing is started if Smart Drawing reported newer version
+	 */
+	private DrawingIndex drawingIndex() {
+		DrawingIndex index = singletonContextContainer.getDrawingIndex();
+		if (index.isSyncNeeded()){
+			syncDrawingIndex(null);
+		}
+		return index;
+	}
+	
+	/**
+	 * Asks Smart Drawing for export of drawing index - delta since version of local index or full export if index is empty.
+	 * Smart Drawing answers in result extras of ordered broadcast with export text or with content URI of the export.
+	 * Checks start synchronization only when retry delay of failed synchronization passed, call from JS starts it at once.
+	 * @param callbackContext receives report of the index, may be null
+	 */
+	private void syncDrawingIndex(final CallbackContext callbackContext) {
+		final DrawingIndex index = singletonContextContainer.getDrawingIndex();
+		if (!presence.hasReceiver(DrawingIndex.KEEL_INTENT_ACTION_EXPORT_INDEX)){
+			if (callbackContext != null){
+				callbackContext.error("Smart Drawing app cannot export index");
+			}
+			return;
+		}
+		
+		if (!index.beginSync()){
+			if (callbackContext != null){
+				callbackContext.error("Synchronization already running");
+			}
+			return;
+		}
+		
+		Trace.event("drawingIndex.sync", null, null, index.getVersion());
+		
+		Intent intent = new Intent(DrawingIndex.KEEL_INTENT_ACTION_EXPORT_INDEX);
+		intent.putExtra(DrawingIndex.KEEL_INTENT_ACTION_EXTRA_INDEX_VERSION, index.getVersion());
+		cordova.getActivity().sendOrderedBroadcast(intent, null, new BroadcastReceiver() {
+			@Override
+			public void onReceive(Context context, Intent intent) {
+				final Bundle export = getResultExtras(false);
 				
-			//Toast.makeText(cordova.getActivity().getApplicationContext(), resultString, Toast.LENGTH_LONG).show();
+				//export may have 100k+ records, it is parsed on thread pool to keep receiver thread free
+				cordova.getThreadPool().execute(new Runnable() {
+					public void run() {
+						boolean loaded = false;
+						try {
+							String data = export != null ? export.getString(DrawingIndex.KEEL_INTENT_ACTION_EXTRA_INDEX_DATA) : null;
+							String uri = export != null ? export.getString(DrawingIndex.KEEL_INTENT_ACTION_EXTRA_INDEX_URI) : null;
+							if (data != null){
+								loaded = loadDrawingIndex(new StringReader(data), callbackContext);
+							} else if (uri != null){
+								loaded = loadDrawingIndex(openReader(uri), callbackContext);
+							} else if (callbackContext != null){
+								callbackContext.error("No export received");
+							}
+						} catch (IOException e) {
+							e.printStackTrace();
+							if (callbackContext != null){
+								callbackContext.error(e.getMessage());
+							}
+						} finally {
+							index.endSync(loaded);
+						}
+					}
+				});
+			}
+		}, ReceiverThread.getHandler(), Activity.RESULT_OK, null, null);
+	}
+	
+	/**
+	 * Loads export into drawing index
+	 * @param callbackContext receives report of the index, may be null
+	 * @return false if export was not loaded
+	 */
+	private boolean loadDrawingIndex(Reader reader, CallbackContext callbackContext) {
+		try {
+			JSONObject report = singletonContextContainer.getDrawingIndex().load(reader);
+			singletonContextContainer.getMetrics().recordMillis("drawingIndex.build", report.optLong("buildMs"));
 			
-			PluginResult result = new PluginResult(PluginResult.Status.OK, resultString);
-        	result.setKeepCallback(false);
-        	callbackContext.sendPluginResult(result);
-		}		
+			if (callbackContext != null){
+				callbackContext.success(report);
+			}
+			return true;
+		} catch (IllegalStateException e) {
+			//delta does not match the index, index is dropped so checks go to Smart Drawing and request full export after retry delay
+			singletonContextContainer.getDrawingIndex().clear();
+			Trace.event("drawingIndex.failed", null, null, e.getMessage());
+			if (callbackContext != null){
+				callbackContext.error(e.getMessage());
+			}
+		} catch (Exception e) {
+			//not readable export
+			Trace.event("drawingIndex.failed", null, null, e.getMessage());
+			if (callbackContext != null){
+				callbackContext.error(e.getMessage());
+			}
+		} finally {
+			try {
+				reader.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		return false;
+	}
+	
+	private Reader openReader(String uri) throws IOException {
+		return new InputStreamReader(cordova.getActivity().getContentResolver().openInputStream(Uri.parse(uri)), "UTF-8");
+	}
+	
+	/**
+	 * Cancel JS call waiting for answer from Smart Drawing, the call fails with error "cancelled"
+	 */
+	private void cancelRequest(final String requestId, final CallbackContext callbackContext) {
+		
+		boolean cancelled = singletonContextContainer.getPendingCheckRegistry().cancel(requestId);
+		
+		Trace.event("cancelRequest", null, requestId, cancelled);
+		
+		callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, cancelled));
+	}
+	
+	/**
+	 * Configure cache of canShowEquipment / canShowDrawing answers. Time to live values are in milliseconds, 
+	 * value 0 disables caching of corresponding answers.
+	 */
+	private void configureCache(final JSONObject options, final CallbackContext callbackContext) {
+		
+		int maxEntries = options.optInt("maxEntries", CheckResultCache.DEFAULT_MAX_ENTRIES);
+		long ttl = options.optLong("ttl", CheckResultCache.DEFAULT_TTL);
+		long negativeTtl = options.optLong("negativeTtl", CheckResultCache.DEFAULT_NEGATIVE_TTL);
+		
+		singletonContextContainer.getCheckResultCache().configure(maxEntries, ttl, negativeTtl);
+		Trace.event("configureCache", null, null, options);
+		callbackContext.success();
+	}
+	
+	/**
+	 * Remove cached answers for given equipment and drawings, or whole cache if nothing is passed
+	 */
+	private void invalidateCache(final JSONObject options, final CallbackContext callbackContext) {
+		
+		CheckResultCache cache = singletonContextContainer.getCheckResultCache();
+		
+		JSONArray equipmentIds = options != null ? options.optJSONArray("equipmentIds") : null;
+		JSONArray drawingIds = options != null ? options.optJSONArray("drawingIds") : null;
+		
+		if (equipmentIds == null && drawingIds == null){
+			Trace.event("invalidateCache", null, null, "all");
+			cache.invalidateAll();
+		} else {
+			for (int i = 0; equipmentIds != null && i < equipmentIds.length(); i++){
+				cache.invalidate(CheckResultCache.equipmentKey(equipmentIds.optString(i)));
+			}
+			for (int i = 0; drawingIds != null && i < drawingIds.length(); i++){
+				cache.invalidate(CheckResultCache.drawingKey(drawingIds.optString(i)));
+			}
+		}
+		
+		callbackContext.success();
 	}
 	
 	
@@ -314,21 +1027,16 @@ public class SmartDrawing extends CordovaPlugin {
 	 * Subscribe to SmartDrawing broadcast messages to check if app can do any action with particular 
 	 * object that is at the moment shown on Smart Drawing screen.
 	 */
-	private synchronized void onCheckObjectAction(final CallbackContext callbackContext) {
+	private void onCheckObjectAction(final CallbackContext callbackContext) {
 		//context is alreadys saved in singleton in execute(), so just mark that we want to keep the cntext and can call 
 		//the JS side if we receive any information from Smart Drawing
-
-		cordova.getActivity().runOnUiThread(new Runnable() {
-			public void run() {	
-				
-				Log.v(TAG, "SMD onCheckObjectAction call to JS");
-								
-				//postpone result
-				PluginResult result = new PluginResult(PluginResult.Status.NO_RESULT);
-                result.setKeepCallback(true); //re-use the callback on intent events
-                callbackContext.sendPluginResult(result);
-			}
-		});
+		
+		Log.v(TAG, "SMD onCheckObjectAction call to JS");
+						
+		//postpone result
+		PluginResult result = new PluginResult(PluginResult.Status.NO_RESULT);
+        result.setKeepCallback(true); //re-use the callback on intent events
+        callbackContext.sendPluginResult(result);
 	}
 	
 	/** 
@@ -343,73 +1051,65 @@ public class SmartDrawing extends CordovaPlugin {
 	* pointing to the application and its view. This information will be used by listener to "Open Fiori App" event inside plugin in order to force Fiori launchpad
 	* open the application to user. 
 	*/
-	private synchronized void actionNotifier(final JSONObject appContext, final CallbackContext callbackContext) {
-
-		cordova.getActivity().runOnUiThread(new Runnable() {
-			public void run() {	
-				
-				Log.v(TAG, "SMD actionNotifier with JSON:" +  appContext.toString());
-				
-				try {
-					JSONObject intentExtra = new JSONObject(appContext.toString());
-					//add intent information required to get a call back from SmartDrawing app
-					intentExtra.put("packageName",((CordovaActivity)cordova.getActivity()).getPackageName());
-					intentExtra.put("action",KEEL_INTENT_CALL_FIORI_ACTION);
-					
-					Log.v(TAG, "SMD actionNotifier send to SMD JSON:" +  intentExtra.toString());
-
-					Intent intent = new Intent(KEEL_INTENT_ACTION_SEND_SUPPORTED_INFO);
-					intent.putExtra(KEEL_INTENT_EXTRA_ACTION_SUPPORTED_INFO, intentExtra.toString());
-					((CordovaActivity)cordova.getActivity()).sendBroadcast(intent);					
-
-				} catch (JSONException e) {
-					Log.e(TAG, e.toString());
-					e.printStackTrace();
-				}
-				
+	private void actionNotifier(final JSONObject appContext, final CallbackContext callbackContext) {
+		
+		try {
+			//add intent information required to get a call back from SmartDrawing app, 
+			//written together with appContext so the tree is serialized once and not copied
+			String json = JsonEncoder.encode(appContext, 
+					"packageName", cordova.getActivity().getPackageName(), 
+					"action", KEEL_INTENT_CALL_FIORI_ACTION);
+			Trace.event("actionNotifier", appContext.optString("equipmentId", null), null, json);
+			
+			//answer into "check equipment view" broadcast if it is still open for this equipment
+			String equipmentId = appContext.optString("equipmentId", null);
+			if (equipmentId != null && singletonContextContainer.getActionResponseCollector().offer(equipmentId, json)){
 				callbackContext.success();
+				return;
 			}
-		});
-		
+			
+			//otherwise send together with other apps answering for the same equipment
+			actionNotificationBatcher.submit(equipmentId, json, callbackContext);
+
+		} catch (JSONException e) {
+			Log.e(TAG, e.toString());
+			e.printStackTrace();
+			
+			callbackContext.success();
+		}
 	}	
 	
 	
 	/**
 	 * Event to SmartDrawing JS side that there is request to open some Fiori tile from Java side
 	 */
-	private synchronized void onOpenFioriApp(final CallbackContext callbackContext) {
-
-		cordova.getActivity().runOnUiThread(new Runnable() {
-			public void run() {	
-				
-				Log.v(TAG, "Subscription to onOpenFioriApp event registered from JS");
-				
-				PluginResult result;
-				String appContext = "";
-				if (singletonContextContainer.getStartFioriApp() != null){
-					appContext = singletonContextContainer.getStartFioriApp();
-					//reset value
-					singletonContextContainer.setStartFioriApp(null);
-					
-					//call to open some app is already fired - get the context and trigger the listener
-					result = new PluginResult(PluginResult.Status.OK, appContext);
-				} else {
-					//empty result
-					result = new PluginResult(PluginResult.Status.NO_RESULT);
-				}
-				
-				result.setKeepCallback(true);//keep callback active as we use the same callback again for next even 
-                callbackContext.sendPluginResult(result);
-                
-			}
-		});
+	private void onOpenFioriApp(final CallbackContext callbackContext) {
+		
+		Log.v(TAG, "Subscription to onOpenFioriApp event registered from JS");
+		
+		PluginResult result;
+		//contexts queued by LandingActivity until now, later taps are sent to the listener directly
+		List<String> appContexts = singletonContextContainer.setOnOpenFioriAppListener(callbackContext);
+		if (appContexts.size() == 1){
+			//call to open some app is already fired - get the context and trigger the listener
+			result = new PluginResult(PluginResult.Status.OK, appContexts.get(0));
+		} else if (appContexts.size() > 1){
+			//several taps waited for the listener, hand them over in one batch, the oldest first
+			result = new PluginResult(PluginResult.Status.OK, new JSONArray(appContexts));
+		} else {
+			//empty result
+			result = new PluginResult(PluginResult.Status.NO_RESULT);
+		}
+		
+		result.setKeepCallback(true);//keep callback active as we use the same callback again for next even 
+        callbackContext.sendPluginResult(result);
 	}
 	
 
 	/**
 	 * Put Fiori client in back and return to previous app in Android stack
 	 */
-	private synchronized void returnToSmartDrawingApp(final CallbackContext callbackContext) {
+	private void returnToSmartDrawingApp(final CallbackContext callbackContext) {
 
 		cordova.getActivity().runOnUiThread(new Runnable() {
 			public void run() {	
@@ -433,17 +1133,41 @@ public class SmartDrawing extends CordovaPlugin {
 	
 	
 	/**
-	 * Call smart drawing to show data
+	 * Call smart drawing to show data. Payload is prepared on calling thread, only starting of activity runs on UI thread.
+	 * When inline limit is configured, large messages are not put inline into the intent but published by {@link PayloadProvider}, 
+	 * intent then carries only content URI with read permission for Smart Drawing.
 	 */
-	private synchronized void showData(final JSONObject smdMessage, final CallbackContext callbackContext) {
+	private void showData(final JSONObject smdMessage, final CallbackContext callbackContext) throws JSONException {
+		
+		//remember what was shown so following updateData calls can send only the changes, any other drawing is closed now
+		drawingStateTracker.record(smdMessage.optString("drawingId", null), smdMessage.optJSONArray("equipments"));
+		
+		String json = JsonEncoder.encode(smdMessage);
+		Trace.event("showData", smdMessage.optString("equipmentId", null), null, json);
+		
+		final Intent intent = new Intent(INTENT_SMD_ACTION);
+		
+		//strings are sent in UTF-16, two bytes per character
+		if (inlineLimit > 0 && json.length() * 2 > inlineLimit){
+			try {
+				Uri payloadUri = PayloadProvider.publish(cordova.getActivity(), json.getBytes("UTF-8"));
+				
+				Trace.event("showData.stream", null, null, payloadUri);
+				
+				intent.putExtra(INTENT_EXTRA_PAYLOAD_URI, payloadUri.toString());
+				intent.setClipData(ClipData.newRawUri("", payloadUri));
+				intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+			} catch (UnsupportedEncodingException e) {
+				//fallback to inline message
+				intent.putExtra(INTENT_EXTRA_KEY, json);
+			}
+		} else {
+			intent.putExtra(INTENT_EXTRA_KEY, json);
+		}
 
 		cordova.getActivity().runOnUiThread(new Runnable() {
 			public void run() {	
 				
-				Log.v(TAG, "JSON:" +  smdMessage.toString());
-				
-				Intent intent = new Intent(INTENT_SMD_ACTION);
-				intent.putExtra(INTENT_EXTRA_KEY, smdMessage.toString());
 				((CordovaActivity)cordova.getActivity()).startActivity(intent);
 				
 				callbackContext.success();
@@ -451,10 +1175,110 @@ public class SmartDrawing extends CordovaPlugin {
 		});
 	}
 	
+	/**
+	 * Sends to Smart Drawing only equipment that was added, changed or removed since the last showData/updateData 
+	 * call for the same drawing. Delta is sent as broadcast so already open drawing is updated without restarting 
+	 * Smart Drawing activity. If the drawing is not the one opened by the last showData, full message is sent by showData and callback
+	 * receives no result, otherwise it receives object with mode ("delta" or "none") and number of added, changed 
+	 * and removed equipment.
+	 */
+	private void updateData(final JSONObject smdMessage, final CallbackContext callbackContext) throws JSONException {
+		
+		String drawingId = smdMessage.getString("drawingId");
+		JSONArray equipments = smdMessage.optJSONArray("equipments");
+		if (equipments == null){
+			equipments = new JSONArray();
+		}
+		
+		DrawingStateTracker.Delta delta = drawingStateTracker.diff(drawingId, equipments);
+		
+		if (delta == null){
+			Trace.event("updateData.full", null, null, drawingId);
+			
+			smdMessage.put("equipments", equipments);
+			showData(smdMessage, callbackContext);
+			return;
+		}
+		
+		JSONObject result = new JSONObject();
+		result.put("added", delta.added.length());
+		result.put("changed", delta.changed.length());
+		result.put("removed", delta.removed.length());
+		
+		if (delta.isEmpty()){
+			result.put("mode", "none");
+			callbackContext.success(result);
+			return;
+		}
+		
+		JSONObject update = new JSONObject();
+		update.put("drawingId", drawingId);
+		if (smdMessage.has("label")){
+			update.put("label", smdMessage.get("label"));
+		}
+		update.put("added", delta.added);
+		update.put("changed", delta.changed);
+		update.put("removed", delta.removed);
+		
+		String json = JsonEncoder.encode(update);
+		Trace.event("updateData.delta", null, null, json);
+		
+		Intent intent = new Intent(INTENT_SMD_UPDATE_ACTION);
+		intent.putExtra(INTENT_EXTRA_KEY, json);
+		cordova.getActivity().getApplicationContext().sendBroadcast(intent);
+		
+		result.put("mode", "delta");
+		callbackContext.success(result);
+	}
+	
+	/**
+	 * Returns snapshot of plugin metrics: counters, latency histograms of JS actions, receivers and round trips 
+	 * to Smart Drawing app, and current state of caches and queues. Metrics are cleared after snapshot if reset is set.
+	 */
+	private void getMetrics(boolean reset, CallbackContext callbackContext) throws JSONException {
+		MetricsRegistry metrics = singletonContextContainer.getMetrics();
+		JSONObject snapshot = metrics.snapshot();
+		
+		CheckResultCache cache = singletonContextContainer.getCheckResultCache();
+		PendingCheckRegistry registry = singletonContextContainer.getPendingCheckRegistry();
+		
+		JSONObject gauges = new JSONObject();
+		gauges.put("cache.size", cache.size());
+		gauges.put("cache.hits", cache.getHits());
+		gauges.put("cache.misses", cache.getMisses());
+		gauges.put("check.pending", registry.size());
+		gauges.put("drawingIndex.version", singletonContextContainer.getDrawingIndex().getVersion());
+		gauges.put("drawingIndex.hits", singletonContextContainer.getDrawingIndex().getHits());
+		gauges.put("drawingIndex.misses", singletonContextContainer.getDrawingIndex().getMisses());
+		gauges.put("check.pendingCalls", registry.callCount());
+		gauges.put("dispatch.pending", singletonContextContainer.getCheckNotificationDispatcher().size());
+		gauges.put("dispatch.dispatched", singletonContextContainer.getCheckNotificationDispatcher().getDispatchedCount());
+		gauges.put("dispatch.coalesced", singletonContextContainer.getCheckNotificationDispatcher().getCoalescedCount());
+		gauges.put("dispatch.dropped", singletonContextContainer.getCheckNotificationDispatcher().getDroppedCount());
+		gauges.put("actionNotifier.broadcasts", actionNotificationBatcher.getBroadcastCount());
+		gauges.put("actionNotifier.coalesced", actionNotificationBatcher.getCoalescedCount());
+		gauges.put("navigation.pending", singletonContextContainer.getNavigationQueue().size());
+		gauges.put("navigation.coalesced", singletonContextContainer.getNavigationQueue().getCoalescedCount());
+		gauges.put("navigation.debounced", singletonContextContainer.getNavigationQueue().getDebouncedCount());
+		gauges.put("prefetch.sent", singletonContextContainer.getPrefetchNotifier().getSentCount());
+		gauges.put("prefetch.cancelled", singletonContextContainer.getPrefetchNotifier().getCancelledCount());
+		gauges.put("prefetch.rateLimited", singletonContextContainer.getPrefetchNotifier().getRateLimitedCount());
+		gauges.put("preload.sent", drawingPreloader.getSentCount());
+		gauges.put("preload.deduplicated", drawingPreloader.getDeduplicatedCount());
+		gauges.put("preload.rateLimited", drawingPreloader.getRateLimitedCount());
+		snapshot.put("gauges", gauges);
+		
+		if (reset){
+			metrics.reset();
+		}
+		
+		callbackContext.success(snapshot);
+	}
+	
 	/**
 	 * show native Toast in android 
 	 */
-	private synchronized void showToast(final String title, final String message, final CallbackContext callbackContext) {
+	private void showToast(final String title, final String message, final CallbackContext callbackContext) {
 		final int duration = Toast.LENGTH_SHORT;
 		cordova.getActivity().runOnUiThread(new Runnable() {
 			public void run() {
@@ -0,0 +1,58 @@
+package com.keel.smartdrawing.fiori;
+
+import java.util.HashMap;
+import java.util.List;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ResolveInfo;
+import android.os.SystemClock;
+
+/**
+ * This class checks whether any app (normally Smart Drawing app) is able to receive given broadcast action. 
+ * Result is cached for a while, so checks can be answered immediately without sending a broadcast nobody listens to.
+ */
+public class SmartDrawingPresence {
+
+	//time in milliseconds the resolution result is valid
+	public static final long RESOLUTION_TTL = 60000;
+
+	private final Context context;
+
+	//action -> time until which the action is known to have a receiver / no receiver
+	private final HashMap<String, Long> resolvedUntil = new HashMap<String, Long>();
+	private final HashMap<String, Boolean> resolved = new HashMap<String, Boolean>();
+
+	public SmartDrawingPresence(Context context){
+		this.context = context;
+	}
+
+	/**
+	 * Returns true if there is at least one receiver for broadcast action
+	 */
+	public synchronized boolean hasReceiver(String action){
+		long now = SystemClock.elapsedRealtime();
+		Long until = resolvedUntil.get(action);
+		if (until != null && until > now){
+			return resolved.get(action);
+		}
+
+		boolean present;
+		try {
+			List<ResolveInfo> receivers = context.getPackageManager().queryBroadcastReceivers(new Intent(action), 0);
+			present = receivers != null && !receivers.isEmpty();
+		} catch (Exception e){
+			//do not block the call if package manager fails
+			present = true;
+		}
+
+		resolved.put(action, present);
+		resolvedUntil.put(action, now + RESOLUTION_TTL);
+		return present;
+	}
+
+	public synchronized void invalidate(){
+		resolvedUntil.clear();
+		resolved.clear();
+	}
+}
@@ -7,8 +7,7 @@ import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
-import android.util.Log;
-import org.apache.cordova.PluginResult;
+import org.apache.cordova.CallbackContext;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.json.JSONArray;
@@ -21,6 +20,8 @@ import org.json.JSONArray;
  * This infromation willl be rendered on Smart Darwing side as 'action buttons' in information panel 
  * which user can tap in order to call the app and execute the given action.
  * Check smartdrawing.js function SmartDrawing.onCheckObjectAction for implementation of callback to JS side.
+ * Android calls manifest receivers on main thread, so the broadcast is only handed over to {@link ReceiverThread}
+ * and answered there.
  *  
  */
 public class SupportedEquipmentsBroadcastReceiver extends BroadcastReceiver {
@@ -30,16 +31,35 @@ public class SupportedEquipmentsBroadcastReceiver extends BroadcastReceiver {
 	public static final String KEEL_INTENT_CALL_FIORI_ACTION = "com.keelsolution.action.CALL_FIORI";
 	public static final String KEEL_INTENT_ACTION_EXTRA_EQUIPMENT_ID= "com.keelsolution.action.extra.equipmentId";
 	public static final String KEEL_INTENT_ACTION_EXTRA_DATA = "com.keelsolution.smartdrawing.EXTRA";
+	//optional class of selected equipment, used by equipment rules
+	public static final String KEEL_INTENT_ACTION_EXTRA_EQUIPMENT_CLASS = "com.keelsolution.action.extra.equipmentClass";
+	//optional id of Smart Drawing view the equipment was selected in, events of the same view are coalesced
+	public static final String KEEL_INTENT_ACTION_EXTRA_VIEW_ID = "com.keelsolution.action.extra.viewId";
 
 	
 	
 	@Override
-	public void onReceive(Context context, Intent intent) {
-
+	public void onReceive(final Context context, final Intent intent) {
 
+		final long startTime = System.nanoTime();
+		
+		//broadcast stays open until answered on receiver thread
+		final PendingResult pendingResult = goAsync();
+		ReceiverThread.getHandler().post(new Runnable() {
+			@Override
+			public void run() {
+				onReceive(context, intent, pendingResult, startTime);
+			}
+		});
+	}
+	
+	private void onReceive(Context context, Intent intent, PendingResult pendingResult, long startTime) {
+		
+		//finished here unless it is handed over to collector
+		boolean finished = false;
 		
 		String equipmentToCheck = intent.getStringExtra(KEEL_INTENT_ACTION_EXTRA_EQUIPMENT_ID);
-		Log.v(TAG, "Received request from SmartDrawing app to check equipment " + equipmentToCheck);
+		Trace.event("receiver.checkEquipmentView", equipmentToCheck, null, null);
 		
 
 		try {
@@ -47,20 +67,32 @@ public class SupportedEquipmentsBroadcastReceiver extends BroadcastReceiver {
 			SingletonContextContainer singletonContextContainer = SingletonContextContainer.getInstance(context);
 
 			
-			//fire event to JS side if we have someone interested to listen on it
-			if (singletonContextContainer.onCheckObjectActionContext != null)
-			{
-				PluginResult result = new PluginResult(PluginResult.Status.OK, equipmentToCheck);
-		    	result.setKeepCallback(true);
-		    	singletonContextContainer.onCheckObjectActionContext.sendPluginResult(result);
-			};
+			//find apps interested in the equipment
+			EquipmentRuleIndex.Match match = singletonContextContainer.getEquipmentRuleIndex().match(equipmentToCheck, 
+					intent.getStringExtra(KEEL_INTENT_ACTION_EXTRA_EQUIPMENT_CLASS));
 			
+			JSONArray listeningApps = new JSONArray();
+			for (String appId : singletonContextContainer.getCheckObjectActionApps()){
+				if (match.accepts(appId)){
+					listeningApps.put(appId);
+				}
+			}
+			
+			//JS is not woken up if no listening app is interested, listeners not telling their appId get everything
+			ActionResponseCollector collector = singletonContextContainer.getActionResponseCollector();
+			CheckNotificationDispatcher dispatcher = singletonContextContainer.getCheckNotificationDispatcher();
+			CallbackContext listener = singletonContextContainer.getOnCheckObjectActionListener();
+			boolean hasListener = listener != null 
+					&& (listeningApps.length() > 0 || singletonContextContainer.hasAnonymousCheckObjectActionListener());
+			
+			//keep the ordered broadcast open for answers from JS if anybody listens
+			boolean collectAnswers = hasListener && equipmentToCheck != null && collector.getDeadline() > 0;
 			
 			//check if any default actions shall be added
-			JSONArray actions = singletonContextContainer.getActions();
-			if (actions.length() > 0){
+			SingletonContextContainer.ActionTemplate[] actions = filter(singletonContextContainer.getActionTemplates(), match);
+			if (actions.length > 0 || collectAnswers){
 				//respond to Smart Drawing that our app can be called:
-				Bundle resultExtras = getResultExtras(true);
+				Bundle resultExtras = pendingResult.getResultExtras(true);
 				if (resultExtras == null){
 					resultExtras = new Bundle();
 				}
@@ -68,30 +100,92 @@ public class SupportedEquipmentsBroadcastReceiver extends BroadcastReceiver {
 				ArrayList<String> arrayList = resultExtras.getStringArrayList(KEEL_INTENT_ACTION_EXTRA_DATA);
 				if (arrayList == null){
 		
-					arrayList = new ArrayList<String>();
+					arrayList = new ArrayList<String>(actions.length);
 				}
 				
-				for (int i = 0; i < actions.length(); i++){
-					JSONObject action = actions.getJSONObject(i);
-					
-					action.put("equipmentId", equipmentToCheck);
-					action.put("packageName", context.getPackageName());
-					action.put("action", KEEL_INTENT_CALL_FIORI_ACTION);
-					
-					arrayList.add(action.toString());
+				//actions are already serialized, only equipmentId is added
+				for (int i = 0; i < actions.length; i++){
+					arrayList.add(actions[i].forEquipment(equipmentToCheck));
 				}
 				
+				if (collectAnswers){
+					//result is set by collector once JS apps answered or deadline passed
+					collector.open(equipmentToCheck, pendingResult, resultExtras, arrayList, dispatcher.getWindow());
+					finished = true;
+				} else {
+					resultExtras.putStringArrayList(KEEL_INTENT_ACTION_EXTRA_DATA, arrayList);
+					pendingResult.setResultExtras(resultExtras);
+				}
+			}
+			
+			//Smart Drawing gets the answer before JS events are prepared
+			if (!finished){
+				pendingResult.finish();
+				finished = true;
+			}
 			
-				resultExtras.putStringArrayList(KEEL_INTENT_ACTION_EXTRA_DATA, arrayList);
-				setResultExtras(resultExtras);
+			//let interested apps warm up Fiori apps the user may open next
+			PrefetchNotifier prefetchNotifier = singletonContextContainer.getPrefetchNotifier();
+			if (prefetchNotifier.hasListener() && (actions.length > 0 || listeningApps.length() > 0)){
+				JSONArray hashes = new JSONArray();
+				for (int i = 0; i < actions.length; i++){
+					if (actions[i].getHash() != null){
+						hashes.put(actions[i].getHash());
+					}
+				}
+				prefetchNotifier.equipmentSelected(equipmentToCheck, hashes, listeningApps);
 			}
+			
+			//fire event to JS side if we have someone interested to listen on it, bursts of events are coalesced by dispatcher
+			if (hasListener)
+			{
+				JSONObject checkContext = new JSONObject();
+				checkContext.put("equipmentId", equipmentToCheck);
+				if (listeningApps.length() > 0){
+					checkContext.put("appIds", listeningApps);
+				}
+				
+				dispatcher.dispatch(intent.getStringExtra(KEEL_INTENT_ACTION_EXTRA_VIEW_ID), equipmentToCheck, checkContext, listener);
+			};
+			
+			singletonContextContainer.getMetrics().recordSince("receiver.checkEquipmentView", startTime);
+			Trace.timed("receiver.checkEquipmentView.done", equipmentToCheck, null, startTime, null);
 		
 		} catch (Exception e){
 
 			e.printStackTrace();
 		
+		} finally {
+			if (!finished){
+				pendingResult.finish();
+			}
 		}
 	
 	}
+	
+	/**
+	 * Returns default actions whose apps are interested in the equipment
+	 */
+	private static SingletonContextContainer.ActionTemplate[] filter(SingletonContextContainer.ActionTemplate[] actions, EquipmentRuleIndex.Match match){
+		int count = 0;
+		for (int i = 0; i < actions.length; i++){
+			if (match.accepts(actions[i].getAppId())){
+				count++;
+			}
+		}
+		
+		if (count == actions.length){
+			return actions;
+		}
+		
+		SingletonContextContainer.ActionTemplate[] matching = new SingletonContextContainer.ActionTemplate[count];
+		count = 0;
+		for (int i = 0; i < actions.length; i++){
+			if (match.accepts(actions[i].getAppId())){
+				matching[count++] = actions[i];
+			}
+		}
+		return matching;
+	}
 
 }
@@ -0,0 +1,228 @@
+package com.keel.smartdrawing.fiori;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import android.os.SystemClock;
+import android.util.Log;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * This class records structured events of the plugin (action, equipmentId, correlation token, timing) into fixed size
+ * in-memory ring buffer, so the last events are available for field diagnosis through dumpTrace action. Payloads are
+ * turned into short text when the event is recorded - strings are cut, JSON and collections are replaced by their size -
+ * so events never hold data of the caller and tracing on hot paths does not serialize anything. Full payloads are
+ * recorded only when payload capture is switched on for diagnosis.
+ */
+public class Trace {
+
+	public static final String TAG = "com.keel.smartdrawing.fiori";
+
+	//number of events kept, must be power of two
+	public static final int CAPACITY = 512;
+
+	//captured payloads are cut to this length
+	public static final int MAX_PAYLOAD_LENGTH = 4096;
+
+	//payloads are summarized to this length when payload capture is off
+	public static final int SUMMARY_LENGTH = 64;
+
+	/**
+	 * Single recorded event
+	 */
+	private static class Event {
+		final long sequence;
+		final long time = SystemClock.elapsedRealtime();
+		final String thread = Thread.currentThread().getName();
+		final String name;
+		final String equipmentId;
+		final String token;
+		final long durationMicros;
+		final String payload;
+
+		Event(long sequence, String name, String equipmentId, String token, long durationMicros, String payload){
+			this.sequence = sequence;
+			this.name = name;
+			this.equipmentId = equipmentId;
+			this.token = token;
+			this.durationMicros = durationMicros;
+			this.payload = payload;
+		}
+
+		JSONObject toJSON() throws JSONException {
+			JSONObject json = new JSONObject();
+			json.put("seq", sequence);
+			json.put("time", time);
+			json.put("thread", thread);
+			json.put("name", name);
+			json.putOpt("equipmentId", equipmentId);
+			json.putOpt("token", token);
+			if (durationMicros >= 0){
+				json.put("durationMs", durationMicros / 1000.0);
+			}
+			json.putOpt("payload", payload);
+			return json;
+		}
+
+		@Override
+		public String toString() {
+			return "SMD " + name
+					+ (equipmentId != null ? " equipment=" + equipmentId : "")
+					+ (token != null ? " token=" + token : "")
+					+ (durationMicros >= 0 ? " duration=" + (durationMicros / 1000.0) + "ms" : "")
+					+ (payload != null ? " payload=" + payload : "");
+		}
+	}
+
+	private static final AtomicReferenceArray<Event> events = new AtomicReferenceArray<Event>(CAPACITY);
+
+	private static final AtomicLong sequence = new AtomicLong();
+
+	private static volatile boolean enabled = true;
+
+	private static volatile boolean verbose = false;
+
+	private static volatile boolean payloads = false;
+
+	private Trace() {
+	}
+
+	/**
+	 * Records event without duration
+	 * @param payload data of the event, summarized or with payload capture rendered by toString() (JSON by {@link JsonEncoder})
+	 */
+	public static void event(String name, String equipmentId, String token, Object payload){
+		record(name, equipmentId, token, -1, payload);
+	}
+
+	/**
+	 * Records event with duration measured from startNanos ({@link System#nanoTime()})
+	 */
+	public static void timed(String name, String equipmentId, String token, long startNanos, Object payload){
+		record(name, equipmentId, token, (System.nanoTime() - startNanos) / 1000, payload);
+	}
+
+	private static void record(String name, String equipmentId, String token, long durationMicros, Object payload){
+		if (!enabled){
+			return;
+		}
+
+		long seq = sequence.incrementAndGet();
+		Event event = new Event(seq, name, equipmentId, token, durationMicros, payloads ? render(payload) : summarize(payload));
+		events.set((int) (seq & (CAPACITY - 1)), event);
+
+		if (verbose){
+			Log.v(TAG, event.toString());
+		}
+	}
+
+	/**
+	 * Returns recorded events from the oldest to the newest
+	 * @param limit maximum number of the newest events returned, 0 for all
+	 */
+	public static JSONArray dump(int limit) throws JSONException {
+		long last = sequence.get();
+		int count = (int) Math.min(last, CAPACITY);
+		if (limit > 0 && limit < count){
+			count = limit;
+		}
+
+		JSONArray json = new JSONArray();
+		for (long seq = last - count + 1; seq <= last; seq++){
+			Event event = events.get((int) (seq & (CAPACITY - 1)));
+			//slot may be already overwritten by newer event
+			if (event != null && event.sequence == seq){
+				json.put(event.toJSON());
+			}
+		}
+		return json;
+	}
+
+	public static void clear(){
+		for (int i = 0; i < CAPACITY; i++){
+			events.set(i, null);
+		}
+	}
+
+	public static boolean isEnabled(){
+		return enabled;
+	}
+
+	public static void setEnabled(boolean enabled){
+		Trace.enabled = enabled;
+	}
+
+	/**
+	 * Tells if events are also written to Android log, callers may use it to skip building own log messages
+	 */
+	public static boolean isVerbose(){
+		return verbose;
+	}
+
+	public static void setVerbose(boolean verbose){
+		Trace.verbose = verbose;
+	}
+
+	/**
+	 * Tells if full payloads are recorded instead of their summaries
+	 */
+	public static boolean isPayloads(){
+		return payloads;
+	}
+
+	public static void setPayloads(boolean payloads){
+		Trace.payloads = payloads;
+	}
+
+	/**
+	 * Returns short description of payload without serializing it
+	 */
+	static String summarize(Object payload){
+		if (payload == null){
+			return null;
+		} else if (payload instanceof String){
+			return truncate((String) payload, SUMMARY_LENGTH);
+		} else if (payload instanceof JSONArray){
+			return "[" + ((JSONArray) payload).length() + " items]";
+		} else if (payload instanceof JSONObject){
+			return "{" + ((JSONObject) payload).length() + " fields}";
+		} else if (payload instanceof Collection){
+			return "[" + ((Collection<?>) payload).size() + " items]";
+		} else if (payload instanceof Map){
+			return "{" + ((Map<?, ?>) payload).size() + " fields}";
+		}
+		return truncate(payload.toString(), SUMMARY_LENGTH);
+	}
+
+	static String render(Object payload){
+		if (payload == null){
+			return null;
+		}
+
+		String text;
+		try {
+			if (payload instanceof JSONObject){
+				text = JsonEncoder.encode((JSONObject) payload);
+			} else if (payload instanceof JSONArray){
+				text = JsonEncoder.encode((JSONArray) payload);
+			} else {
+				text = payload.toString();
+			}
+		} catch (JSONException e) {
+			text = payload.toString();
+		}
+
+		return truncate(text, MAX_PAYLOAD_LENGTH);
+	}
+
+	private static String truncate(String text, int length){
+		if (text.length() > length){
+			return text.substring(0, length) + "...(" + text.length() + " characters)";
+		}
+		return text;
+	}
+}
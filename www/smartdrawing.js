@@ -36,11 +36,59 @@
 	//Constant hash value added to URL has if call to Fiori is treggerd by Android intent
 	var INTENT_HASH_LABEL = "KEELSMARTDRAWINGINTENT";
 
+	//taps from Smart Drawing app waiting for navigation, the oldest first - next one is opened when the previous navigation finished
+	var navigationQueue = [];
+	//hash being opened, null when no navigation runs
+	var navigationHash = null;
+	var navigationTimer = null;
+
+	//time in milliseconds after which navigation is taken as finished even if launchpad did not report the hash change
+	var NAVIGATION_TIMEOUT = 3000;
+
 	//Firoi catalog with SMD enabled apps
 	var FIORI_SMD_CATALOG_LABEL = "Smart Drawing Integrated";
 
+	//sequence of ids given to calls waiting for Smart Drawing answer, see SmartDrawing.cancelRequest
+	var requestSequence = 0;
+
+	/**
+	 * Returns request id for call to plugin - either the one provided by caller in options or new generated one.
+	 * @function SmartDrawing~getRequestId
+	 */
+	var getRequestId = function (options) {
+		if (options && options.requestId) {
+			return options.requestId;
+		}
+		requestSequence = requestSequence + 1;
+		return "smd-" + new Date().getTime() + "-" + requestSequence;
+	};
+
+	/**
+	 * Decodes UTF-8 bytes of binary plugin result.
+	 * @function SmartDrawing~decodeUtf8
+	 */
+	var decodeUtf8 = function (bytes, offset, length) {
+		if (typeof TextDecoder !== "undefined") {
+			return new TextDecoder("utf-8").decode(bytes.subarray(offset, offset + length));
+		}
+		var encoded = "";
+		for (var i = offset; i < offset + length; i++) {
+			encoded = encoded + "%" + (bytes[i] < 16 ? "0" : "") + bytes[i].toString(16);
+		}
+		return decodeURIComponent(encoded);
+	};
+
 	/* types */
 
+	/**
+	 * @typedef {Object} RequestOptions - Options of the call that waits for answer from Smart Drawing app.
+	 * @property {number} [timeout=10000] - Time in milliseconds to wait for answer. If Smart Drawing app does not answer in time, the fail callback is called with error "timeout".
+	 * @property {string} [requestId] - Own id of the call that can be used with {@link SmartDrawing.cancelRequest|cancelRequest}, if not set the id is generated by plugin.
+	 * @property {string} [format="string"] - Format of the result of {@link SmartDrawing.canShowEquipment|canShowEquipment} and {@link SmartDrawing.canShowDrawing|canShowDrawing}:
+	 * "string" returns JSON text of the result as older versions of the plugin, "json" returns drawing list or boolean that needs no parsing, "binary" returns drawing list
+	 * of canShowEquipment as ArrayBuffer that can be read by {@link SmartDrawing.decodeDrawings|decodeDrawings} (cheapest for equipment found on many drawings).
+	 */
+
 	/**
 	 * @typedef {Object} EquipmentData - Container object with information about single equipment that shall be passed to Smart Drawing
 	 * @property {string} equipmentId - ID of the equipment to be shown.
@@ -211,6 +259,156 @@
 			]);
 	};
 
+	/**
+	 * @typedef {Object} UpdateDataResult - Summary of changes sent to Smart Drawing app by {@link SmartDrawing.updateData|updateData}.
+	 * @property {string} mode - "delta" if changes were sent to open drawing, "none" if nothing changed since the last call.
+	 * @property {number} added - Number of equipment added to the drawing.
+	 * @property {number} changed - Number of equipment whose data was changed.
+	 * @property {number} removed - Number of equipment removed from the drawing.
+	 */
+
+	/**
+	 * Updates data of drawing already shown by {@link SmartDrawing.showData|showData} without restarting Smart Drawing app. Plugin remembers
+	 * equipment last sent for the drawing opened by the last showData call and sends to Smart Drawing only equipment that was added, changed or removed (compared by equipmentId).
+	 * This way live dashboards refreshing statuses every few seconds send only few changes instead of all equipment.
+	 * If the drawing is not the one opened last, full data is sent the same way as by {@link SmartDrawing.showData|showData} and result callback is called without result.
+	 *
+	 * @example
+	 *	//refresh colors of equipment every 5 seconds
+	 *	setInterval(function(){
+	 *		window.plugins.SmartDrawing.updateData("Alarms", sDrawingId, getEquipmentStatuses(),
+	 *			function(result) {
+	 *				console.log(result.mode + ": " + result.changed + " changed");
+	 *			},
+	 *			function(err) {
+	 *				MessageToast.show("SmartDrawing plugin call failed " + err);
+	 *			});
+	 *	}, 5000);
+	 *
+	 * @param {string} label - Label of the info block in smart drawing information section.
+	 * @param {string} drawingId - ID of the drawing to update.
+	 * @param {EquipmentData[]} equipmentArr - Complete current equipment data of the drawing, plugin computes the changes itself.
+	 * @param {callbackUpdateData} [result] - Callback function called when changes were sent.
+	 * @param {callbackFail} [fail] - Callback function called in case of failure in Smart Drawing app or plugin.
+	 * @function SmartDrawing.updateData
+	 */
+	SmartDrawing.prototype.updateData = function (label, drawingId, equipmentArr, result, fail) {
+		return cordova.exec(
+			function (args) {
+			if (result)
+				result(args);
+		},
+			function (args) {
+			if (fail)
+				fail(args);
+		},
+			"SmartDrawing",
+			"updateData",
+			[{
+					"label" : label,
+					"drawingId" : drawingId,
+					"equipments" : equipmentArr
+				}
+			]);
+	};
+	/**
+	 * This callback is displayed as part of the SmartDrawing class and returns summary of changes sent by {@link SmartDrawing.updateData|updateData}.
+	 *
+	 * @callback callbackUpdateData
+	 * @param {UpdateDataResult} [result] - Number of added, changed and removed equipment, not set if full data was sent.
+	 */
+
+	/**
+	 * Asks Smart Drawing app to prepare drawings in background, so they open faster when shown by {@link SmartDrawing.showEquipment|showEquipment},
+	 * {@link SmartDrawing.showDrawing|showDrawing} or {@link SmartDrawing.showData|showData}. This is only a hint - Smart Drawing app versions
+	 * that do not support preloading ignore it. Drawings hinted recently are not hinted again and hints are rate limited
+	 * (see {@link SmartDrawing.configurePreload|configurePreload}).
+	 *
+	 * @example
+	 *	window.plugins.SmartDrawing.canShowEquipment(sEquipmentId, function(result) {
+	 *		var drawingsArr = JSON.parse(result);
+	 *		if (drawingsArr.length) {
+	 *			window.plugins.SmartDrawing.preloadDrawings([drawingsArr[0].drawingId]);
+	 *		}
+	 *	});
+	 *
+	 * @param {string[]} drawingIds - IDs of drawings user is likely to open.
+	 * @param {callbackSuccess} [success] - Callback function called with number of drawings actually sent to Smart Drawing app.
+	 * @param {callbackFail} [fail] - Callback function called in case of failure in plugin.
+	 * @function SmartDrawing.preloadDrawings
+	 */
+	SmartDrawing.prototype.preloadDrawings = function (drawingIds, success, fail) {
+		return cordova.exec(
+			function (args) {
+			if (success)
+				success(args);
+		},
+			function (args) {
+			if (fail)
+				fail(args);
+		},
+			"SmartDrawing",
+			"preloadDrawings",
+			[{
+					"ids" : drawingIds || []
+				}
+			]);
+	};
+
+	/**
+	 * Configures drawing preload hints. In automatic mode plugin hints first drawings of every {@link SmartDrawing.canShowEquipment|canShowEquipment} answer
+	 * received from Smart Drawing app.
+	 *
+	 * @param {Object} options - Options of preload hints.
+	 * @param {boolean} [options.auto=false] - Hints drawings returned by canShowEquipment automatically.
+	 * @param {number} [options.maxDrawings=1] - Number of first returned drawings hinted in automatic mode.
+	 * @param {number} [options.minInterval=2000] - Minimal time in milliseconds between two hints.
+	 * @param {number} [options.dedupeTtl=300000] - Time in milliseconds the same drawing is not hinted again.
+	 * @param {callbackSuccess} [success] - Callback function called when configuration is applied.
+	 * @param {callbackFail} [fail] - Callback function called in case of failure in plugin.
+	 * @function SmartDrawing.configurePreload
+	 */
+	SmartDrawing.prototype.configurePreload = function (options, success, fail) {
+		return cordova.exec(
+			function (args) {
+			if (success)
+				success(args);
+		},
+			function (args) {
+			if (fail)
+				fail(args);
+		},
+			"SmartDrawing",
+			"configurePreload",
+			[options || {}]);
+	};
+
+	/**
+	 * Messages for Smart Drawing app bigger than the limit (e.g. {@link SmartDrawing.showData|showData} with thousands of equipment) are not sent inside the Android intent,
+	 * plugin hands them over to Smart Drawing app as a stream. Only Smart Drawing app versions reading the stream can show such messages, so the limit is off by default
+	 * and every message is sent inside the intent. This function sets the size limit.
+	 *
+	 * @param {Object} options - Transport settings.
+	 * @param {number} [options.inlineLimit=0] - Size of the message in bytes up to which the message is sent inside the intent, e.g. 262144. Value 0 sends every message inside the intent.
+	 * @param {callbackSuccess} [success] - Callback function called in case of success call to Smart Drawing plugin.
+	 * @param {callbackFail} [fail] - Callback function called in case of failure in Smart Drawing app or plugin.
+	 * @function SmartDrawing.configureTransport
+	 */
+	SmartDrawing.prototype.configureTransport = function (options, success, fail) {
+		return cordova.exec(
+			function (args) {
+			if (success)
+				success(args);
+		},
+			function (args) {
+			if (fail)
+				fail(args);
+		},
+			"SmartDrawing",
+			"configureTransport",
+			[options || {}]);
+	};
+
 	/**
 	 * This function checks if the given equipmentId is known to SmartDrawing app and returns the list of Smart Drawing Ids and descriptions where this equipment can be found.
 	 *
@@ -222,7 +420,7 @@
 	 *			//result
 	 *			function(result) {
 	 *
-	 *				var drawingsArr = JSON.parse(result);
+	 *				var drawingsArr = result;
 	 *
 	 *					for (var i = 0, len = drawingsArr.length; i<len; i++){
 	 *						var drawing = drawingsArr[i];
@@ -238,16 +436,20 @@
 	 *			//failure
 	 *			function(err) {
 	 *				MessageToast.show("SmartDrawing plugin call failed " + err);
-	 *			});
+	 *			},
+	 *			{ format : "json" });
 	 *	}
 	 *
 	 * @param {string} equipmentId - ID of the equipment.
 	 * @param {callbackCanShowEquipment} result - Callback function with results of check. See description of the {@link callbackCanShowEquipment} function for parameter details
 	 * @param {callbackFail} fail - Callback function called in case of failure in Smart Drawing app or plugin.
+	 * @param {RequestOptions} [options] - Timeout and id of the call.
+	 * @returns {string} Id of the call that can be passed to {@link SmartDrawing.cancelRequest|cancelRequest}.
 	 * @function SmartDrawing.canShowEquipment
 	 */
-	SmartDrawing.prototype.canShowEquipment = function (equipmentId, result, fail) {
-		return cordova.exec(
+	SmartDrawing.prototype.canShowEquipment = function (equipmentId, result, fail, options) {
+		var requestId = getRequestId(options);
+		cordova.exec(
 			function (args) {
 			result(args);
 		},
@@ -257,26 +459,90 @@
 			"SmartDrawing",
 			"canShowEquipment",
 			[{
-					"id" : equipmentId
+					"id" : equipmentId,
+					"requestId" : requestId,
+					"timeout" : options && options.timeout,
+					"format" : options && options.format
 				}
 			]);
+		return requestId;
 	};
 	/**
 	 * This callback is displayed as part of the SmartDrawing class and describes the receiver for check results if equipment is known to Smart Drawing app and can be shown at any of drawings.
 	 *
-	 * @param {DrawingDescription[]} drawingArr - List of objects containing drawingId and drawingName. In case if equipment is not known to Smart Drawing app this list will have a length of zero.
+	 * @param {(DrawingDescription[]|string|ArrayBuffer)} drawingArr - List of objects containing drawingId and drawingName. In case if equipment is not known to Smart Drawing app this list will have a length of zero.
+	 * The list is passed as JSON text, as array or as ArrayBuffer according to format option of the call, see {@link RequestOptions}.
 	 * @callback callbackCanShowEquipment
 	 */
 
+	/**
+	 * This function checks a list of equipment in one call to Smart Drawing app and returns for every equipmentId the list of drawings where this equipment can be found.
+	 * Use it instead of calling {@link SmartDrawing.canShowEquipment|canShowEquipment} for every row of a list - the whole list is checked with a single request to Smart Drawing app.
+	 *
+	 * @example
+	 *	var aEquipmentIds = ["10073018", "10073019", "10073020"];
+	 *	if (window.plugins && window.plugins.SmartDrawing) {
+	 *
+	 *		window.plugins.SmartDrawing.canShowEquipments(aEquipmentIds,
+	 *			//result
+	 *			function(drawingMap) {
+	 *				for (var i = 0, len = aEquipmentIds.length; i<len; i++){
+	 *					var drawingsArr = drawingMap[aEquipmentIds[i]];
+	 *					//... enable "show on drawing" button for rows with drawingsArr.length > 0
+	 *				}
+	 *			},
+	 *			//failure
+	 *			function(err) {
+	 *				MessageToast.show("SmartDrawing plugin call failed " + err);
+	 *			});
+	 *	}
+	 *
+	 * @param {string[]} equipmentIds - List of equipment IDs.
+	 * @param {callbackCanShowEquipments} result - Callback function with results of check. See description of the {@link callbackCanShowEquipments} function for parameter details
+	 * @param {callbackFail} fail - Callback function called in case of failure in Smart Drawing app or plugin.
+	 * @param {RequestOptions} [options] - Timeout and id of the call.
+	 * @returns {string} Id of the call that can be passed to {@link SmartDrawing.cancelRequest|cancelRequest}.
+	 * @function SmartDrawing.canShowEquipments
+	 */
+	SmartDrawing.prototype.canShowEquipments = function (equipmentIds, result, fail, options) {
+		var requestId = getRequestId(options);
+		cordova.exec(
+			function (args) {
+			result(args);
+		},
+			function (args) {
+			fail(args);
+		},
+			"SmartDrawing",
+			"canShowEquipments",
+			[{
+					"ids" : equipmentIds,
+					"requestId" : requestId,
+					"timeout" : options && options.timeout
+				}
+			]);
+		return requestId;
+	};
+	/**
+	 * This callback is displayed as part of the SmartDrawing class and describes the receiver for check results of a list of equipment.
+	 *
+	 * @param {Object.<string, DrawingDescription[]>} drawingMap - Object with checked equipmentId as property name and list of drawings as value. In case if equipment
+	 * is not known to Smart Drawing app its list will have a length of zero.
+	 * @callback callbackCanShowEquipments
+	 */
+
 	/**
 	 * This function checks if the given drawingId is known to SmartDrawing app and returns true/false value in result callback.
 	 * @param {string} drawingId - ID of the drawing to show.
 	 * @param {callbackCanShowDrawing} result - Callback function with results of check. See description of the {@link callbackCanShowDrawing} function for parameter details
 	 * @param {callbackFail} fail - Callback function called in case of failure in Smart Drawing app or plugin.
+	 * @param {RequestOptions} [options] - Timeout and id of the call.
+	 * @returns {string} Id of the call that can be passed to {@link SmartDrawing.cancelRequest|cancelRequest}.
 	 * @function SmartDrawing.canShowDrawing
 	 */
-	SmartDrawing.prototype.canShowDrawing = function (drawingId, result, fail) {
-		return cordova.exec(
+	SmartDrawing.prototype.canShowDrawing = function (drawingId, result, fail, options) {
+		var requestId = getRequestId(options);
+		cordova.exec(
 			function (args) {
 			result(args);
 		},
@@ -286,17 +552,237 @@
 			"SmartDrawing",
 			"canShowDrawing",
 			[{
-					"id" : drawingId
+					"id" : drawingId,
+					"requestId" : requestId,
+					"timeout" : options && options.timeout,
+					"format" : options && options.format
 				}
 			]);
+		return requestId;
 	};
 	/**
 	 * This callback is displayed as part of the SmartDrawing class and describes the receiver for check results if drawing with givent Id is known to Smart Drawing app and can be shown.
 	 *
-	 * @param {boolean} canShowDrawing - Boolean value if drawing with given Id can be shown by Smart Drawing app.
+	 * @param {(boolean|string)} canShowDrawing - Boolean value if drawing with given Id can be shown by Smart Drawing app, text "true" / "false" if format option of the call is "string".
 	 * @callback callbackCanShowDrawing
 	 */
 
+	/**
+	 * Decodes drawing list returned by {@link SmartDrawing.canShowEquipment|canShowEquipment} with format "binary". Number of drawings can be read without decoding
+	 * the list as the first unsigned 32 bit big endian value of the buffer.
+	 *
+	 * @example
+	 *	window.plugins.SmartDrawing.canShowEquipment(sEquipmentId, function(buffer) {
+	 *		if (new DataView(buffer).getUint32(0) > 0) {
+	 *			var drawingsArr = window.plugins.SmartDrawing.decodeDrawings(buffer);
+	 *		}
+	 *	}, onFail, { format : "binary" });
+	 *
+	 * @param {ArrayBuffer} buffer - Drawing list in binary format.
+	 * @returns {DrawingDescription[]} List of drawings with drawingId and drawingName.
+	 * @function SmartDrawing.decodeDrawings
+	 */
+	SmartDrawing.prototype.decodeDrawings = function (buffer) {
+		var view = new DataView(buffer);
+		var bytes = new Uint8Array(buffer);
+		var count = view.getUint32(0);
+		var offset = 4;
+		var drawings = new Array(count);
+
+		var readString = function () {
+			var length = view.getUint16(offset);
+			var value = decodeUtf8(bytes, offset + 2, length);
+			offset = offset + 2 + length;
+			return value;
+		};
+
+		for (var i = 0; i < count; i++) {
+			var drawingId = readString();
+			drawings[i] = {
+				"drawingId" : drawingId,
+				"drawingName" : readString()
+			};
+		}
+		return drawings;
+	};
+
+	/**
+	 * This function cancels the call to {@link SmartDrawing.canShowEquipment|canShowEquipment}, {@link SmartDrawing.canShowEquipments|canShowEquipments} or
+	 * {@link SmartDrawing.canShowDrawing|canShowDrawing} that still waits for answer from Smart Drawing app. Fail callback of the cancelled call is called with error "cancelled".
+	 *
+	 * @example
+	 *	var requestId = window.plugins.SmartDrawing.canShowEquipment(sEquipmentId, onResult, onFail, { timeout : 5000 });
+	 *	//... user left the view before Smart Drawing answered
+	 *	window.plugins.SmartDrawing.cancelRequest(requestId);
+	 *
+	 * @param {string} requestId - Id returned by the call that shall be cancelled.
+	 * @param {callbackSuccess} [success] - Callback function called with true if call was cancelled or false if it was not waiting anymore.
+	 * @param {callbackFail} [fail] - Callback function called in case of failure in Smart Drawing app or plugin.
+	 * @function SmartDrawing.cancelRequest
+	 */
+	SmartDrawing.prototype.cancelRequest = function (requestId, success, fail) {
+		return cordova.exec(
+			function (args) {
+			if (success)
+				success(args);
+		},
+			function (args) {
+			if (fail)
+				fail(args);
+		},
+			"SmartDrawing",
+			"cancelRequest",
+			[{
+					"requestId" : requestId
+				}
+			]);
+	};
+
+	/**
+	 * @typedef {Object} CacheOptions - Settings of plugin cache for answers of {@link SmartDrawing.canShowEquipment|canShowEquipment} and {@link SmartDrawing.canShowDrawing|canShowDrawing} checks.
+	 * @property {number} [maxEntries=1000] - Maximal number of answers kept in cache, least recently used answers are removed first.
+	 * @property {number} [ttl=60000] - Time in milliseconds how long answer from Smart Drawing app is valid. Value 0 disables the cache.
+	 * @property {number} [negativeTtl=15000] - Time in milliseconds how long answer 'object is not known to Smart Drawing app' is valid. Value 0 disables caching of such answers.
+	 */
+
+	/**
+	 * Plugin keeps answers of {@link SmartDrawing.canShowEquipment|canShowEquipment} and {@link SmartDrawing.canShowDrawing|canShowDrawing} checks in cache, so checking
+	 * the same object again (e.g. scrolling back in the list) does not cost any call to Smart Drawing app. Concurrent checks of the same object are merged into one call.
+	 * This function changes settings of the cache.
+	 *
+	 * @param {CacheOptions} options - Cache settings.
+	 * @param {callbackSuccess} [success] - Callback function called in case of success call to Smart Drawing plugin.
+	 * @param {callbackFail} [fail] - Callback function called in case of failure in Smart Drawing app or plugin.
+	 * @function SmartDrawing.configureCache
+	 */
+	SmartDrawing.prototype.configureCache = function (options, success, fail) {
+		return cordova.exec(
+			function (args) {
+			if (success)
+				success(args);
+		},
+			function (args) {
+			if (fail)
+				fail(args);
+		},
+			"SmartDrawing",
+			"configureCache",
+			[options || {}]);
+	};
+
+	/**
+	 * This function removes answers of previous checks from plugin cache, so next check asks Smart Drawing app again. Use it when you know
+	 * that drawings in Smart Drawing app were changed.
+	 *
+	 * @example
+	 *	//forget only about two equipment
+	 *	window.plugins.SmartDrawing.invalidateCache({ equipmentIds : ["10073018", "10073019"] });
+	 *	//forget everything
+	 *	window.plugins.SmartDrawing.invalidateCache();
+	 *
+	 * @param {Object} [objects] - Objects to remove from the cache, if empty/not passed the whole cache is cleared.
+	 * @param {string[]} [objects.equipmentIds] - List of equipment IDs.
+	 * @param {string[]} [objects.drawingIds] - List of drawing IDs.
+	 * @param {callbackSuccess} [success] - Callback function called in case of success call to Smart Drawing plugin.
+	 * @param {callbackFail} [fail] - Callback function called in case of failure in Smart Drawing app or plugin.
+	 * @function SmartDrawing.invalidateCache
+	 */
+	SmartDrawing.prototype.invalidateCache = function (objects, success, fail) {
+		return cordova.exec(
+			function (args) {
+			if (success)
+				success(args);
+		},
+			function (args) {
+			if (fail)
+				fail(args);
+		},
+			"SmartDrawing",
+			"invalidateCache",
+			objects ? [objects] : []);
+	};
+
+	/**
+	 * @typedef {Object} DrawingIndexReport - State of local drawing index.
+	 * @property {boolean} enabled - Index is used to answer checks.
+	 * @property {number} version - Version of loaded export, -1 if index is empty.
+	 * @property {number} sourceVersion - The latest version reported by Smart Drawing app, -1 if not known. Index is not used while it is older than this version.
+	 * @property {number} equipment - Number of equipment in index.
+	 * @property {number} drawings - Number of drawings in index.
+	 * @property {number} overlay - Number of equipment changed by deltas and not yet merged into index.
+	 * @property {number} memoryBytes - Estimated memory used by index.
+	 * @property {number} buildMs - Time in milliseconds the last export took to load.
+	 * @property {number} hits - Checks answered by index.
+	 * @property {number} misses - Checks of equipment or drawings not found in index. Equipment is then checked by Smart Drawing app, drawing is answered as not known.
+	 */
+
+	/**
+	 * Enables local copy of equipment to drawing relation of Smart Drawing app. While the index is loaded and up to date, {@link SmartDrawing.canShowEquipment|canShowEquipment},
+	 * {@link SmartDrawing.canShowEquipments|canShowEquipments} and {@link SmartDrawing.canShowDrawing|canShowDrawing} are answered without asking Smart Drawing app.
+	 * Equipment not found in index is still checked by Smart Drawing app, drawing not found in index is answered as not known. The index is filled by {@link SmartDrawing.updateDrawingIndex|updateDrawingIndex}.
+	 *
+	 * @param {Object} [options] - Settings of the index.
+	 * @param {boolean} [options.enabled=true] - Use the index to answer checks.
+	 * @param {boolean} [options.clear=false] - Drops loaded index.
+	 * @param {callbackDrawingIndex} [success] - Callback function called with state of the index.
+	 * @param {callbackFail} [fail] - Callback function called in case of failure in plugin.
+	 * @function SmartDrawing.configureDrawingIndex
+	 */
+	SmartDrawing.prototype.configureDrawingIndex = function (options, success, fail) {
+		return cordova.exec(
+			function (args) {
+			if (success)
+				success(args);
+		},
+			function (args) {
+			if (fail)
+				fail(args);
+		},
+			"SmartDrawing",
+			"configureDrawingIndex",
+			[options || {}]);
+	};
+
+	/**
+	 * Loads export of equipment to drawing relation into local index. Without data or uri option, Smart Drawing app is asked for changes since the version of
+	 * the index (or for full export if index is empty). Plugin also asks for changes itself when Smart Drawing app reports newer version in answer of any check.
+	 * Export is UTF-8 text with header line "SMDINDEX version [baseVersion]" followed by tab separated records: "D drawingId drawingName" for drawings,
+	 * "E equipmentId drawingId..." for equipment, and in delta exports (header with baseVersion) "X drawingId" and "R equipmentId" for removed drawings and equipment.
+	 *
+	 * @example
+	 *	window.plugins.SmartDrawing.configureDrawingIndex({enabled: true});
+	 *	window.plugins.SmartDrawing.updateDrawingIndex({}, function(report) {
+	 *		console.log(report.equipment + " equipment indexed in " + report.buildMs + " ms, " + report.memoryBytes + " bytes");
+	 *	});
+	 *
+	 * @param {Object} [options] - Source of the export.
+	 * @param {string} [options.data] - Export text.
+	 * @param {string} [options.uri] - File or content URI of the export.
+	 * @param {callbackDrawingIndex} [success] - Callback function called with state of the index after the export was loaded.
+	 * @param {callbackFail} [fail] - Callback function called when export cannot be read or delta does not match the index (the index is dropped then).
+	 * @function SmartDrawing.updateDrawingIndex
+	 */
+	SmartDrawing.prototype.updateDrawingIndex = function (options, success, fail) {
+		return cordova.exec(
+			function (args) {
+			if (success)
+				success(args);
+		},
+			function (args) {
+			if (fail)
+				fail(args);
+		},
+			"SmartDrawing",
+			"updateDrawingIndex",
+			[options || {}]);
+	};
+	/**
+	 * This callback is displayed as part of the SmartDrawing class and returns state of local drawing index.
+	 *
+	 * @callback callbackDrawingIndex
+	 * @param {DrawingIndexReport} report - State of the index.
+	 */
+
 	 
 	/**
 	 * This event listener receives notification from the Smart Drawing app that user opened some equipment for view and app is checking what additional
@@ -387,8 +873,10 @@
 		//let plugin know that we are interested to receive notification from Smart Drawing app
 		return cordova.exec(
 			//success
-			function (equipmentId) {
+			function (checkContext) {
 
+			//plugin sends equipment id and apps whose equipment rules match it (see SmartDrawing.setEquipmentRules)
+			var equipmentId = (checkContext && checkContext.equipmentId !== undefined) ? checkContext.equipmentId : checkContext;
 			if (!equipmentId) {
 				return; //skip any null or empty equipment values
 			}
@@ -397,10 +885,14 @@
 			var callContext = {};
 			callContext.equipmentId = equipmentId;
 
-			if (observerCheckObjectAction[appId] && observerCheckObjectAction[appId].length) {
-				for (var i = observerCheckObjectAction[appId].length - 1; i >= 0; i--) {
-					//notify every observer about check object action
-					observerCheckObjectAction[appId][i].call(this, callContext, actionNotifier);
+			var appIds = (checkContext && checkContext.appIds) ? checkContext.appIds : Object.keys(observerCheckObjectAction);
+			for (var a = 0; a < appIds.length; a++) {
+				var observers = observerCheckObjectAction[appIds[a]];
+				if (observers && observers.length) {
+					for (var i = observers.length - 1; i >= 0; i--) {
+						//notify every observer about check object action
+						observers[i].call(this, callContext, actionNotifier);
+					}
 				}
 			}
 
@@ -409,7 +901,7 @@
 			function (args) {},
 			"SmartDrawing",
 			"onCheckObjectAction",
-			[]);
+			[appId]);
 	};
 	/**
 	 * This callback is displayed as part of the SmartDrawing class and describes the event listener that receives notification from Smart Drawing app
@@ -424,7 +916,7 @@
 	 
 	/**
 	 * This function removes event listener for receiving notification from the Smart Drawing app about equipment opened on Smart Drawing app set by
-	 * {@link SmartDrawing.onCheckObjectAction}.
+	 * {@link SmartDrawing.onCheckObjectAction}. When the last listener of the app is removed, plugin stops notifying JS about equipment only this app is interested in.
 	 *
 	 * @param {string} appId - Fiori app id that registers for event notification.
 	 * @param {callbackCheckObjectAction} [callback] - Registered callback, if empty/not passed all callbacks will be removed for given appId
@@ -438,14 +930,362 @@
 		if (callback) {
 			var index = observerCheckObjectAction[appId].indexOf(callback);
 			if (~index) {
-				that.observerCheckObjectAction[appId].splice(index, 1);
+				observerCheckObjectAction[appId].splice(index, 1);
 			}
-		} else {
+		}
+
+		if (!callback || observerCheckObjectAction[appId].length === 0) {
 			delete observerCheckObjectAction[appId];
-		};
+
+			//let plugin know the app does not listen anymore
+			cordova.exec(
+				function (args) {},
+				function (args) {},
+				"SmartDrawing",
+				"removeOnCheckObjectAction",
+				[appId]);
+		}
 	};
 	
 
+	/**
+	 * @typedef {Object} EquipmentRules - Rules describing equipment Fiori app is interested in. Equipment matches if any of the rules matches.
+	 * @property {string[]} [ids] - Exact equipment ids.
+	 * @property {string[]} [prefixes] - Prefixes of equipment ids, e.g. "PUMP-".
+	 * @property {string[]} [classes] - Equipment classes, used if Smart Drawing app sends class of selected equipment.
+	 * @property {string[]} [patterns] - Java regular expressions the whole equipment id must match, e.g. "^11[0-9]{6}$". Use prefixes where possible as they are faster.
+	 */
+
+	/**
+	 * Tells plugin which equipment Fiori app is interested in. When user selects equipment in Smart Drawing app, listeners registered with
+	 * {@link SmartDrawing.onCheckObjectAction} for this appId are called and default actions of the app (tiles configured in Fiori launchpad, identified
+	 * by parameter SMD_appId or by navigation target) are sent only if the equipment matches the rules. If no app is interested in equipment, the plugin
+	 * answers Smart Drawing app without calling JS at all. Apps without rules are interested in every equipment. Rules are stored by plugin and used
+	 * also for default actions when Fiori Client is not running.
+	 *
+	 * @example
+	 *	var appId = this.getMetadata().getManifest()["sap.app"].id;
+	 *	window.plugins.SmartDrawing.setEquipmentRules(appId, {
+	 *		prefixes: ["PUMP-", "VALVE-"],
+	 *		classes: ["PUMP"]
+	 *	});
+	 *
+	 * @param {string} appId - Fiori app id used in {@link SmartDrawing.onCheckObjectAction} or SMD_appId of the tile.
+	 * @param {EquipmentRules} [rules] - Rules of the app, null or empty object removes all rules so the app gets every equipment again.
+	 * @param {callbackSuccess} [success] - Callback function called when rules are stored.
+	 * @param {callbackFail} [fail] - Callback function called in case of failure in plugin, e.g. invalid regular expression.
+	 * @function SmartDrawing.setEquipmentRules
+	 */
+	SmartDrawing.prototype.setEquipmentRules = function (appId, rules, success, fail) {
+		return cordova.exec(
+			function (args) {
+			if (success)
+				success(args);
+		},
+			function (args) {
+			if (fail)
+				fail(args);
+		},
+			"SmartDrawing",
+			"setEquipmentRules",
+			[appId, rules || null]);
+	};
+
+	/**
+	 * When Smart Drawing app asks which actions Fiori apps can do on selected equipment (see {@link SmartDrawing.onCheckObjectAction}), plugin keeps the request
+	 * of Smart Drawing app open for a short time and collects all answers Fiori apps send with {@link SmartDrawing~actionNotifier}. Smart Drawing app then receives
+	 * all Fiori actions at once. Answers coming later are sent to Smart Drawing app one by one, with batchWindow option answers for the same equipment coming shortly
+	 * one after another share one message, which requires Smart Drawing app version reading the list of actions.
+	 * Waiting delays Smart Drawing app even when no Fiori app answers, so collecting is off by default. This function changes how long the plugin waits for answers.
+	 *
+	 * @param {Object} options - Settings of answer collection.
+	 * @param {number} [options.deadline=0] - Time in milliseconds to wait for answers of Fiori apps (maximum 5000), e.g. 300. Value 0 disables collecting, every answer is sent separately.
+	 * @param {number} [options.batchWindow=0] - Time in milliseconds plugin collects late answers for the same equipment before sending them to Smart Drawing app in one message.
+	 * Value 0 sends every late answer immediately.
+	 * @param {callbackSuccess} [success] - Callback function called in case of success call to Smart Drawing plugin.
+	 * @param {callbackFail} [fail] - Callback function called in case of failure in Smart Drawing app or plugin.
+	 * @function SmartDrawing.configureActionCollection
+	 */
+	SmartDrawing.prototype.configureActionCollection = function (options, success, fail) {
+		return cordova.exec(
+			function (args) {
+			if (success)
+				success(args);
+		},
+			function (args) {
+			if (fail)
+				fail(args);
+		},
+			"SmartDrawing",
+			"configureActionCollection",
+			[options || {}]);
+	};
+
+	/**
+	 * When user pans or taps quickly across the drawing, Smart Drawing app asks about many equipment in a short time and every question wakes all
+	 * {@link SmartDrawing.onCheckObjectAction|onCheckObjectAction} listeners. With coalescing window set, plugin holds every question for the window and
+	 * replaces it by a newer question from the same drawing view, so listeners are called only for equipment the user settled on. The window is added
+	 * to the time Smart Drawing app waits for answers (see {@link SmartDrawing.configureActionCollection|configureActionCollection}).
+	 *
+	 * @example
+	 *	window.plugins.SmartDrawing.configureCheckDispatch({window: 150});
+	 *
+	 * @param {Object} options - Settings of event dispatching.
+	 * @param {number} [options.window=0] - Time in milliseconds a question waits for a newer one (maximum 1000). Value 0 calls listeners immediately.
+	 * @param {number} [options.maxDepth=4] - Maximum number of drawing views with a waiting question.
+	 * @param {string} [options.dropPolicy="dropOldest"] - Question dropped when maximum depth is reached: "dropOldest" or "dropNewest".
+	 * @param {callbackSuccess} [success] - Callback function called when configuration is applied.
+	 * @param {callbackFail} [fail] - Callback function called in case of failure in plugin.
+	 * @function SmartDrawing.configureCheckDispatch
+	 */
+	SmartDrawing.prototype.configureCheckDispatch = function (options, success, fail) {
+		return cordova.exec(
+			function (args) {
+			if (success)
+				success(args);
+		},
+			function (args) {
+			if (fail)
+				fail(args);
+		},
+			"SmartDrawing",
+			"configureCheckDispatch",
+			[options || {}]);
+	};
+
+	/**
+	 * @typedef {Object} HistogramSnapshot - Latency of single operation measured by plugin. Percentiles are upper bounds of power of two buckets.
+	 * @property {number} count - Number of measured operations.
+	 * @property {number} meanMs - Mean time in milliseconds.
+	 * @property {number} p50Ms - Median time in milliseconds.
+	 * @property {number} p90Ms - 90th percentile in milliseconds.
+	 * @property {number} p99Ms - 99th percentile in milliseconds.
+	 * @property {number} maxMs - Longest measured time in milliseconds.
+	 */
+
+	/**
+	 * @typedef {Object} MetricsSnapshot - Metrics collected by plugin since start or since the last reset.
+	 * @property {number} periodMs - Length of measured period in milliseconds, can be used to compute rates from counters.
+	 * @property {Object.<string, number>} counters - Event counters, e.g. "check.timeout".
+	 * @property {Object.<string, HistogramSnapshot>} histograms - Latencies of JS actions ("action.canShowEquipment"), round trips to Smart Drawing app ("check.roundTrip"),
+	 * receivers ("receiver.checkEquipmentView", "receiver.checkResponse"), time Smart Drawing waits for answers of Fiori apps ("receiver.checkEquipmentView.held")
+	 * landing activity ("activity.landing.create") and loading of stored default actions and equipment rules when process starts ("store.load").
+	 * @property {Object.<string, number>} gauges - Current state of plugin caches and queues.
+	 */
+
+	/**
+	 * Returns latency and throughput metrics collected by plugin, so performance of integration with Smart Drawing app can be checked in the field.
+	 *
+	 * @example
+	 *	window.plugins.SmartDrawing.getMetrics({reset: true}, function(metrics) {
+	 *		var roundTrip = metrics.histograms["check.roundTrip"];
+	 *		if (roundTrip) {
+	 *			console.log("canShowEquipment p99: " + roundTrip.p99Ms + " ms");
+	 *		}
+	 *	});
+	 *
+	 * @param {Object} [options] - Options of the call.
+	 * @param {boolean} [options.reset=false] - Clears all metrics after the snapshot is taken.
+	 * @param {callbackGetMetrics} [success] - Callback function called with metrics snapshot.
+	 * @param {callbackFail} [fail] - Callback function called in case of failure in plugin.
+	 * @function SmartDrawing.getMetrics
+	 */
+	SmartDrawing.prototype.getMetrics = function (options, success, fail) {
+		return cordova.exec(
+			function (args) {
+			if (success)
+				success(args);
+		},
+			function (args) {
+			if (fail)
+				fail(args);
+		},
+			"SmartDrawing",
+			"getMetrics",
+			[options || {}]);
+	};
+	/**
+	 * This callback is displayed as part of the SmartDrawing class and returns metrics collected by plugin.
+	 *
+	 * @callback callbackGetMetrics
+	 * @param {MetricsSnapshot} metrics - Snapshot of metrics.
+	 */
+
+	/**
+	 * @typedef {Object} TraceEvent - Single event recorded by plugin.
+	 * @property {number} seq - Sequence number of the event.
+	 * @property {number} time - Time of the event in milliseconds since device boot.
+	 * @property {string} thread - Name of the thread that recorded the event.
+	 * @property {string} name - Name of the event, e.g. "canShowEquipment.sent" or "receiver.checkEquipmentView".
+	 * @property {string} [equipmentId] - Equipment the event relates to.
+	 * @property {string} [token] - Request id or token of the check sent to Smart Drawing app, can be used to pair events of single call.
+	 * @property {number} [durationMs] - Duration of the operation in milliseconds.
+	 * @property {string} [payload] - Summary of data of the event, full data when payloads are captured (see {@link SmartDrawing.configureTrace|configureTrace}).
+	 */
+
+	/**
+	 * Returns the last events recorded by plugin (calls, checks sent to Smart Drawing app and their answers, broadcasts received from Smart Drawing app).
+	 * Plugin keeps last 512 events in memory, so the trace can be read when problem happens in the field.
+	 *
+	 * @example
+	 *	window.plugins.SmartDrawing.dumpTrace({limit: 50}, function(events) {
+	 *		events.forEach(function(event) {
+	 *			console.log(event.time + " " + event.name + " " + (event.equipmentId || ""));
+	 *		});
+	 *	});
+	 *
+	 * @param {Object} [options] - Options of the call.
+	 * @param {number} [options.limit] - Maximum number of the newest events returned, all events are returned if not set.
+	 * @param {boolean} [options.clear=false] - Clears the trace after events are returned.
+	 * @param {callbackDumpTrace} [success] - Callback function called with recorded events.
+	 * @param {callbackFail} [fail] - Callback function called in case of failure in plugin.
+	 * @function SmartDrawing.dumpTrace
+	 */
+	SmartDrawing.prototype.dumpTrace = function (options, success, fail) {
+		return cordova.exec(
+			function (args) {
+			if (success)
+				success(args);
+		},
+			function (args) {
+			if (fail)
+				fail(args);
+		},
+			"SmartDrawing",
+			"dumpTrace",
+			[options || {}]);
+	};
+	/**
+	 * This callback is displayed as part of the SmartDrawing class and returns events recorded by plugin.
+	 *
+	 * @callback callbackDumpTrace
+	 * @param {TraceEvent[]} events - Recorded events from the oldest to the newest.
+	 */
+
+	/**
+	 * Configures tracing of plugin events. With verbose option every event is also written to Android log, which is useful during development,
+	 * so it is off by default. Payloads of events are recorded as short summaries (strings cut to 64 characters, size of JSON and lists), with
+	 * payloads option the full data is serialized on every event, which costs time on hot paths, so it is off by default too.
+	 *
+	 * @param {Object} options - Options to change, options not given keep their value.
+	 * @param {boolean} [options.enabled=true] - Records events to in-memory trace.
+	 * @param {boolean} [options.verbose=false] - Writes every event to Android log.
+	 * @param {boolean} [options.payloads=false] - Records full payloads of events (cut to 4096 characters) instead of summaries.
+	 * @param {callbackSuccess} [success] - Callback function called when configuration is applied.
+	 * @param {callbackFail} [fail] - Callback function called in case of failure in plugin.
+	 * @function SmartDrawing.configureTrace
+	 */
+	SmartDrawing.prototype.configureTrace = function (options, success, fail) {
+		return cordova.exec(
+			function (args) {
+			if (success)
+				success(args);
+		},
+			function (args) {
+			if (fail)
+				fail(args);
+		},
+			"SmartDrawing",
+			"configureTrace",
+			[options || {}]);
+	};
+
+	/**
+	 * @typedef {Object} PrefetchEvent - Warm-up event sent by plugin when user selects equipment in Smart Drawing app.
+	 * @property {string} type - "prefetch" when Fiori apps may prepare for the tap, "cancel" when the equipment is not selected anymore and warm-up can be stopped.
+	 * @property {string} equipmentId - Id of selected equipment.
+	 * @property {string[]} [hashes] - Shell hashes of default actions (Fiori launchpad tiles) offered for the equipment, only for "prefetch".
+	 * @property {string[]} [appIds] - Apps listening with {@link SmartDrawing.onCheckObjectAction} whose equipment rules match the equipment, only for "prefetch".
+	 */
+
+	/**
+	 * Registers listener that is called when user selects equipment in Smart Drawing app and may soon tap one of Fiori actions shown for it.
+	 * Fiori apps can use this hint to load OData metadata, models or views of candidate screens ahead of the tap. Events are sent shortly after
+	 * the selection and at most once per configured interval (see {@link SmartDrawing.configurePrefetch|configurePrefetch}). When user selects
+	 * other equipment, listener gets "cancel" event for the previous one. Only the last registered listener is called.
+	 *
+	 * @example
+	 *	window.plugins.SmartDrawing.onPrefetch(function(event) {
+	 *		if (event.type === "prefetch" && event.hashes.indexOf("#myworkorders-view") > -1) {
+	 *			oModel.getMetaModel().loaded(); //start loading metadata
+	 *		}
+	 *	});
+	 *
+	 * @param {callbackPrefetch} callback - Listener of warm-up events.
+	 * @function SmartDrawing.onPrefetch
+	 */
+	SmartDrawing.prototype.onPrefetch = function (callback) {
+		return cordova.exec(
+			function (event) {
+			if (callback && event)
+				callback(event);
+		},
+			function (args) {},
+			"SmartDrawing",
+			"onPrefetch",
+			[]);
+	};
+	/**
+	 * This callback is displayed as part of the SmartDrawing class and receives warm-up events from plugin.
+	 *
+	 * @callback callbackPrefetch
+	 * @param {PrefetchEvent} event - Warm-up or cancel event.
+	 */
+
+	/**
+	 * Configures warm-up events sent to listener registered with {@link SmartDrawing.onPrefetch|onPrefetch}.
+	 *
+	 * @param {Object} options - Options of warm-up events.
+	 * @param {boolean} [options.enabled=true] - Sends warm-up events.
+	 * @param {number} [options.delay=150] - Time in milliseconds the equipment must stay selected before event is sent.
+	 * @param {number} [options.minInterval=1000] - Minimal time in milliseconds between two warm-up events.
+	 * @param {callbackSuccess} [success] - Callback function called when configuration is applied.
+	 * @param {callbackFail} [fail] - Callback function called in case of failure in plugin.
+	 * @function SmartDrawing.configurePrefetch
+	 */
+	SmartDrawing.prototype.configurePrefetch = function (options, success, fail) {
+		return cordova.exec(
+			function (args) {
+			if (success)
+				success(args);
+		},
+			function (args) {
+			if (fail)
+				fail(args);
+		},
+			"SmartDrawing",
+			"configurePrefetch",
+			[options || {}]);
+	};
+
+	/**
+	 * Configures how plugin handles action taps in Smart Drawing app that arrive before Fiori launchpad is ready to open Fiori apps. Such taps wait
+	 * in a bounded queue and are handed over to launchpad together once it is ready. Rapid repeated taps bring Fiori Client to front only once.
+	 *
+	 * @param {Object} options - Options of navigation queue.
+	 * @param {string} [options.policy="latestWins"] - How waiting taps are combined: "latestWins" opens only the last tapped app, "dedupe" opens all
+	 * tapped apps in order but identical ones only once, "keepAll" opens all tapped apps in order.
+	 * @param {number} [options.capacity=8] - Maximum number of waiting taps, the oldest are dropped.
+	 * @param {number} [options.debounce=1000] - Time in milliseconds in which repeated taps of the same action do not bring Fiori Client to front again, tap of other action always does.
+	 * @param {callbackSuccess} [success] - Callback function called when configuration is applied.
+	 * @param {callbackFail} [fail] - Callback function called in case of failure in plugin.
+	 * @function SmartDrawing.configureNavigation
+	 */
+	SmartDrawing.prototype.configureNavigation = function (options, success, fail) {
+		return cordova.exec(
+			function (args) {
+			if (success)
+				success(args);
+		},
+			function (args) {
+			if (fail)
+				fail(args);
+		},
+			"SmartDrawing",
+			"configureNavigation",
+			[options || {}]);
+	};
+
 	/**
 	 * Simple android native Toast message function - can be used to reaise notificatio or during development to test interaction with Smart Drawing plugin.
 	 *
@@ -521,6 +1361,8 @@
 	 * relative URL pointing to Fiori app internal resources.</li>
 	 * <li><b>SMD_actionType</b> - So far only value <i>always</i> is supported. This value shall be put as default
 	 * value and will tell plugin to subscribe the app to all 'on check action' events automatically.</li>
+	 * <li><b>SMD_appId</b> - Optional app id, the tile is then offered only for equipment matching rules set for this id
+	 * with {@link SmartDrawing.setEquipmentRules}.</li>
 	 * <li>Checkbox <b>Allow additional user-defined parameters</b> shall be set to 'true' for passing other
 	 * parameters to app from plugin during the app call.</li>
 	 * </ul>
@@ -761,6 +1603,20 @@
 	 * @callback callbackOpenFioriApp
 	 */
 
+	/**
+	 * This is internal function that tells plugin that Fiori screen requested by action tap in Smart Drawing app was reached. Plugin uses it to
+	 * measure latency from the tap to Fiori screen (metric "landing.tapToFiori", see {@link SmartDrawing.getMetrics}).
+	 * @function SmartDrawing~fioriAppOpened
+	 */
+	var fioriAppOpened = function () {
+		return cordova.exec(
+			function (args) {},
+			function (args) {},
+			"SmartDrawing",
+			"fioriAppOpened",
+			[]);
+	};
+
 	/**
 	 * This is internal function that is used to change in android from Fiori client back to Smart Drawing app.
 	 * When intent from Smart Drawing app to Fiori Client app is initiated inside lisetner {@link SmartDrawing~onOpenFioriApp}
@@ -798,6 +1654,16 @@
 			hasher.changed.add(function (newHash, oldHash) {
 				sap.Logger.info("CHANGE hash values - from: " + oldHash + ", to: " + newHash, "SmartDrawing");
 
+				if ((newHash.indexOf(INTENT_HASH_LABEL) > -1) && (oldHash.indexOf(INTENT_HASH_LABEL) === -1)) {
+					//Fiori screen requested by Smart Drawing intent reached - let plugin measure tap to screen latency
+					fioriAppOpened();
+				}
+
+				if ((navigationHash !== null) && (newHash.indexOf(INTENT_HASH_LABEL) > -1)) {
+					//screen of the tap reached - open the next waiting one
+					navigationDone();
+				}
+
 				if ((oldHash.indexOf(INTENT_HASH_LABEL) > -1) && (appOldHash === newHash)) {
 					//history back triggered from the screen started by SMD INTENT call -> return back to Smart Drawing
 					sap.Logger.info("BACK identified to screen before SMD intent was called - from: " + oldHash + ", to: " + newHash, "SmartDrawing");
@@ -826,11 +1692,8 @@
 			}, that); //parse hash changes
 
 
-			//2. subscribe to onOpenFioriApp event, so we can open Fiori tile from within
-			//launchpad
-			onOpenFioriApp(
-				//result
-				function (urlHashPart) {
+			//navigation to Fiori app requested by Smart Drawing intent
+			var navigateToFioriApp = function (urlHashPart, chained) {
 				// When sending the information about action to smart drawing from Firoi apps we expect apps to send to
 				// Smart Drawing also their Fiori Lounchpad shell hash part inside of callContext property of
 				// the ApplicationContext object. Here we will receive this shall hash part back, so we tell
@@ -855,17 +1718,17 @@
 				// history to this point we know we have to return back to Smart Drawing app
 
 				var navHash = "";
-				appOldHash = hasher.getHash();
-
-
-
-
+				//later taps of one batch keep the screen from before the first one, so back returns to Smart Drawing app from there
+				if (!chained) {
+					appOldHash = hasher.getHash();
+				}
 
 				//unparse has part :
 				var oHash = sap.ushell.Container.getService("URLParsing").parseShellHash(urlHashPart);
 				//add own parameter to mark that we enter the app from Smart Drawing intent
 				oHash.params[INTENT_HASH_LABEL] = [""];
 				navHash = sap.ushell.Container.getService("URLParsing").constructShellHash(oHash);
+				navigationHash = navHash;
 
 				//trigger ushell navigation to has with our param - this will make entry in history, so we know from this point we
 				//need to return back
@@ -888,6 +1751,52 @@
 				sap.Logger.info("STORE hash values when SMD INTENT was called - from: " + appOldHash + ", to: " + navHash, "SmartDrawing");
 
 				appIntentHash = navHash;
+			};
+
+			//opens the oldest waiting tap unless navigation is running
+			var navigateNext = function () {
+				if (navigationHash !== null || navigationQueue.length === 0) {
+					return;
+				}
+				var entry = navigationQueue.shift();
+				//navigation is taken as finished on hash change or after timeout, so failed navigation does not block the queue
+				navigationHash = "";
+				navigationTimer = setTimeout(navigationDone, NAVIGATION_TIMEOUT);
+				try {
+					navigateToFioriApp(entry.hash, entry.chained);
+				} catch (e) {
+					sap.Logger.error("SmartDrawing navigation to " + entry.hash + " failed " + e, 'SmartDrawing');
+					navigationDone();
+				}
+			};
+
+			var navigationDone = function () {
+				if (navigationHash === null) {
+					return;
+				}
+				clearTimeout(navigationTimer);
+				navigationTimer = null;
+				navigationHash = null;
+				//let launchpad finish the navigation before the next one starts
+				setTimeout(navigateNext, 0);
+			};
+
+			//2. subscribe to onOpenFioriApp event, so we can open Fiori tile from within
+			//launchpad
+			onOpenFioriApp(
+				//result
+				function openFioriAppHash(urlHashPart) {
+
+				//several taps in Smart Drawing app waited for this listener - plugin sends them in one batch, the oldest first,
+				//they are opened one after another so every navigation finishes before the next one starts
+				if (Array.isArray(urlHashPart)) {
+					for (var h = 0; h < urlHashPart.length; h++) {
+						navigationQueue.push({ hash : urlHashPart[h], chained : h > 0 });
+					}
+				} else {
+					navigationQueue.push({ hash : urlHashPart, chained : false });
+				}
+				navigateNext();
 
 			},
 				//failure
@@ -967,6 +1876,11 @@
 													smdApplication.actionLabel = arguments[i].configuration.display_subtitle_text;
 													smdApplication.callbackContext = arguments[i].configuration.navigation_target_url;
 
+													//app id used by equipment rules, see SmartDrawing.setEquipmentRules
+													if (oParam.SMD_appId){
+														smdApplication.appId = oParam.SMD_appId;
+													}
+
 													//fill information about base64 icon
 													if (oParam.SMD_imageBase64){
 														smdApplication.imageBase64 = oParam.SMD_imageBase64;